@@ -0,0 +1,74 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.ErrorReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Times the expression parser on one long left-associative arithmetic
+ * chain and on deeply nested parentheses.
+ *
+ *   java -cp out miniJava.SyntacticAnalyzer.ExpressionBenchmark [terms] [depth] [rounds]
+ */
+public class ExpressionBenchmark {
+  static final String[] OPERATORS = {" + ", " - ", " * ", " / ", " < ", " == ", " && ", " || "};
+
+  public static void main(String[] args) throws IOException {
+    int terms = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+    SourceBuffer chain = wrap(chain(terms));
+    SourceBuffer nested = wrap(nested(depth, terms / depth));
+
+    for (int round = 0; round < rounds; round++) {
+      long chainTime = time(chain);
+      long nestedTime = time(nested);
+      System.out.printf(
+          "round %2d: chain %8.2f ms, nested %8.2f ms%n", round, chainTime / 1e6, nestedTime / 1e6);
+    }
+  }
+
+  static long time(SourceBuffer source) {
+    ErrorReporter reporter = new ErrorReporter();
+    Parser parser = new Parser(new Scanner(source, reporter), reporter);
+    long begin = System.nanoTime();
+    parser.parse();
+    long elapsed = System.nanoTime() - begin;
+    if (!reporter.isEmpty()) {
+      reporter.showErrorQueue();
+    }
+    return elapsed;
+  }
+
+  static String chain(int terms) {
+    StringBuilder builder = new StringBuilder("class A { void f() { x = a0");
+    for (int i = 1; i < terms; i++) {
+      builder.append(OPERATORS[i % OPERATORS.length]).append('a').append(i % 97);
+    }
+    return builder.append("; } }").toString();
+  }
+
+  static String nested(int depth, int statements) {
+    StringBuilder builder = new StringBuilder("class A { void f() {");
+    for (int s = 0; s < statements; s++) {
+      builder.append(" x = ");
+      for (int i = 0; i < depth; i++) {
+        builder.append("(a").append(OPERATORS[i % OPERATORS.length]);
+      }
+      builder.append('b');
+      for (int i = 0; i < depth; i++) {
+        builder.append(')');
+      }
+      builder.append(';');
+    }
+    return builder.append(" } }").toString();
+  }
+
+  static SourceBuffer wrap(String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+    return SourceBuffer.fromStream(new ByteArrayInputStream(bytes));
+  }
+}
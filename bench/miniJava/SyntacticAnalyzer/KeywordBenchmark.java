@@ -0,0 +1,115 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.ErrorReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/*
+ * Compares keyword recognition on identifier-heavy input: the former
+ * switch over a freshly built String against the Keywords hash table that
+ * reads straight from the SourceBuffer.
+ *
+ *   java -cp out miniJava.SyntacticAnalyzer.KeywordBenchmark [words] [rounds]
+ */
+public class KeywordBenchmark {
+  static final String[] WORDS = {
+    "class", "void", "public", "private", "static", "int", "boolean", "this", "true", "false",
+    "new", "return", "if", "else", "while", "counter", "index", "value", "node", "left",
+    "right", "result", "total", "x", "y", "tmp", "item", "element", "size", "length"
+  };
+
+  public static void main(String[] args) throws IOException {
+    int words = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    SourceBuffer source = generate(words, new Random(520));
+    int[] starts = new int[words];
+    int[] ends = new int[words];
+    int count = 0;
+    for (int i = 0; i < source.length(); i++) {
+      if (source.charAt(i) != ' ') {
+        starts[count] = i;
+        while (source.charAt(i) != ' ' && source.charAt(i) != SourceBuffer.EOF) {
+          i++;
+        }
+        ends[count++] = i;
+      }
+    }
+
+    long sink = 0;
+    for (int round = 0; round < rounds; round++) {
+      long begin = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        sink += stringSwitch(source.substring(starts[i], ends[i])).ordinal();
+      }
+      long middle = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        TokenType keyword = Keywords.lookup(source, starts[i], ends[i]);
+        sink += (keyword != null ? keyword : TokenType.ID).ordinal();
+      }
+      long end = System.nanoTime();
+      long scanned = 0;
+      Scanner scanner = new Scanner(source, new ErrorReporter());
+      scanned += scanner.scanAll().size();
+      long scanEnd = System.nanoTime();
+      sink += scanned;
+      System.out.printf(
+          "round %2d: string switch %6.1f ns/word, hash table %6.1f ns/word, scanAll %6.1f"
+              + " ns/token%n",
+          round,
+          (middle - begin) / (double) count,
+          (end - middle) / (double) count,
+          (scanEnd - end) / (double) scanned);
+    }
+    System.out.println("checksum " + sink);
+  }
+
+  static SourceBuffer generate(int words, Random random) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+    }
+    byte[] bytes = builder.toString().getBytes(StandardCharsets.US_ASCII);
+    return SourceBuffer.fromStream(new ByteArrayInputStream(bytes));
+  }
+
+  static TokenType stringSwitch(String text) {
+    switch (text) {
+      case "class":
+        return TokenType.CLASS;
+      case "void":
+        return TokenType.VOID;
+      case "public":
+        return TokenType.PUBLIC;
+      case "private":
+        return TokenType.PRIVATE;
+      case "static":
+        return TokenType.STATIC;
+      case "int":
+        return TokenType.INT;
+      case "boolean":
+        return TokenType.BOOLEAN;
+      case "this":
+        return TokenType.THIS;
+      case "true":
+        return TokenType.TRUE;
+      case "false":
+        return TokenType.FALSE;
+      case "new":
+        return TokenType.NEW;
+      case "return":
+        return TokenType.RETURN;
+      case "if":
+        return TokenType.IF;
+      case "else":
+        return TokenType.ELSE;
+      case "while":
+        return TokenType.WHILE;
+      default:
+        return TokenType.ID;
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package miniJava.bench;
+
+/* CPU-heavy miniJava programs for ExecutionBenchmark; each prints a checksum. */
+public final class CpuPrograms {
+  static final String FIB =
+      """
+      class Fib {
+        public static void main(String[] args) {
+          System.out.println(fib(25));
+        }
+
+        static int fib(int n) {
+          if (n < 2) return n;
+          return fib(n - 1) + fib(n - 2);
+        }
+      }
+      """;
+
+  static final String SIEVE =
+      """
+      class Sieve {
+        public static void main(String[] args) {
+          int n = 200000;
+          int[] composite = new int[n + 1];
+          int count = 0;
+          int i = 2;
+          while (i <= n) {
+            if (composite[i] == 0) {
+              count = count + 1;
+              int j = i + i;
+              while (j <= n) {
+                composite[j] = 1;
+                j = j + i;
+              }
+            }
+            i = i + 1;
+          }
+          System.out.println(count);
+        }
+      }
+      """;
+
+  static final String MATRIX =
+      """
+      class Matrix {
+        public static void main(String[] args) {
+          int n = 60;
+          int[] a = new int[n * n];
+          int[] b = new int[n * n];
+          int[] c = new int[n * n];
+          int i = 0;
+          while (i < n * n) {
+            a[i] = i / 7 - 3;
+            b[i] = 5 - i / 11;
+            i = i + 1;
+          }
+          i = 0;
+          while (i < n) {
+            int j = 0;
+            while (j < n) {
+              int sum = 0;
+              int k = 0;
+              while (k < n) {
+                sum = sum + a[i * n + k] * b[k * n + j];
+                k = k + 1;
+              }
+              c[i * n + j] = sum;
+              j = j + 1;
+            }
+            i = i + 1;
+          }
+          int check = 0;
+          i = 0;
+          while (i < n * n) {
+            check = check + c[i] / 13;
+            i = i + 1;
+          }
+          System.out.println(check);
+        }
+      }
+      """;
+
+  static final String SORT =
+      """
+      class Sort {
+        public static void main(String[] args) {
+          int n = 1500;
+          int[] data = new int[n];
+          int seed = 12345;
+          int i = 0;
+          while (i < n) {
+            seed = seed * 1103515245 + 12345;
+            data[i] = seed / 65536;
+            i = i + 1;
+          }
+          i = 0;
+          while (i < n) {
+            int j = 0;
+            while (j < n - 1 - i) {
+              if (data[j] > data[j + 1]) {
+                int t = data[j];
+                data[j] = data[j + 1];
+                data[j + 1] = t;
+              }
+              j = j + 1;
+            }
+            i = i + 1;
+          }
+          System.out.println(data[0] / 1000 + data[n - 1] / 1000);
+        }
+      }
+      """;
+
+  static final String COLLATZ =
+      """
+      class Collatz {
+        public static void main(String[] args) {
+          int longest = 0;
+          int start = 1;
+          while (start < 30000) {
+            int steps = 0;
+            int x = start;
+            while (x != 1) {
+              if (x - x / 2 * 2 == 0) x = x / 2;
+              else x = 3 * x + 1;
+              steps = steps + 1;
+            }
+            if (steps > longest) longest = steps;
+            start = start + 1;
+          }
+          System.out.println(longest);
+        }
+      }
+      """;
+
+  static final String OBJECTS =
+      """
+      class Objects {
+        public static void main(String[] args) {
+          Tree t = new Tree();
+          t.init();
+          int seed = 7;
+          int i = 0;
+          while (i < 20000) {
+            seed = seed * 1103515245 + 12345;
+            t.insert(seed / 65536);
+            i = i + 1;
+          }
+          System.out.println(t.size);
+          System.out.println(t.depth(t.root));
+        }
+      }
+
+      class Node {
+        int key;
+        Node left;
+        Node right;
+        boolean hasLeft;
+        boolean hasRight;
+      }
+
+      class Tree {
+        Node root;
+        int size;
+        boolean empty;
+
+        void init() {
+          empty = true;
+          size = 0;
+        }
+
+        void insert(int key) {
+          Node n = new Node();
+          n.key = key;
+          size = size + 1;
+          if (empty) {
+            root = n;
+            empty = false;
+            return;
+          }
+          Node cur = root;
+          boolean done = false;
+          while (!done) {
+            if (key < cur.key) {
+              if (cur.hasLeft) cur = cur.left;
+              else {
+                cur.left = n;
+                cur.hasLeft = true;
+                done = true;
+              }
+            } else {
+              if (cur.hasRight) cur = cur.right;
+              else {
+                cur.right = n;
+                cur.hasRight = true;
+                done = true;
+              }
+            }
+          }
+        }
+
+        int depth(Node n) {
+          int l = 0;
+          int r = 0;
+          if (n.hasLeft) l = depth(n.left);
+          if (n.hasRight) r = depth(n.right);
+          if (l > r) return l + 1;
+          return r + 1;
+        }
+      }
+      """;
+
+  private CpuPrograms() {}
+
+  /**
+   * @return the source of the named program
+   */
+  public static String source(String name) {
+    switch (name) {
+      case "fib":
+        return FIB;
+      case "sieve":
+        return SIEVE;
+      case "matrix":
+        return MATRIX;
+      case "sort":
+        return SORT;
+      case "collatz":
+        return COLLATZ;
+      case "objects":
+        return OBJECTS;
+      default:
+        throw new IllegalArgumentException(name);
+    }
+  }
+}
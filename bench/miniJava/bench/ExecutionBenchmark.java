@@ -0,0 +1,90 @@
+package miniJava.bench;
+
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.CodeGeneration.JvmGenerator;
+import miniJava.CodeGeneration.JvmProgram;
+import miniJava.CompilationPipeline;
+import miniJava.ErrorReporter;
+import miniJava.Execution.BytecodeCompiler;
+import miniJava.Execution.BytecodeProgram;
+import miniJava.Execution.Interpreter;
+import miniJava.Execution.VirtualMachine;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Time to run each CpuPrograms program to completion with the AST
+ * Interpreter, with the bytecode VirtualMachine and as JVM classes.
+ * Programs are analyzed and compiled once in setup, so only execution is
+ * measured, except that jvm() also defines its hidden classes every run.
+ *
+ *   java -jar target/benchmarks.jar ExecutionBenchmark [-p program=fib,sort]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecutionBenchmark {
+  @Param({"fib", "sieve", "matrix", "sort", "collatz", "objects"})
+  public String program;
+
+  Package ast;
+  Interpreter interpreter;
+  VirtualMachine machine;
+  JvmProgram classes;
+  PrintStream out;
+
+  @Setup
+  public void compile() throws IOException {
+    byte[] bytes = CpuPrograms.source(program).getBytes(StandardCharsets.US_ASCII);
+    ErrorReporter reporter = new ErrorReporter();
+    CompilationPipeline pipeline = new CompilationPipeline(reporter);
+    pipeline.setContextualAnalysis(true);
+    ast = pipeline.compile(SourceBuffer.fromStream(new ByteArrayInputStream(bytes)));
+    if (!reporter.isEmpty()) {
+      reporter.showErrorQueue();
+      throw new IllegalStateException(program + " does not compile");
+    }
+    out = new PrintStream(OutputStream.nullOutputStream());
+    interpreter = new Interpreter(pipeline.getEnvironment(), out);
+    BytecodeProgram bytecode = new BytecodeCompiler(pipeline.getEnvironment()).compile(ast);
+    machine = new VirtualMachine(bytecode, out);
+    JvmGenerator generator = new JvmGenerator(pipeline.getEnvironment());
+    classes = new JvmProgram(generator.generate(ast), generator.getMainClass());
+  }
+
+  @Benchmark
+  public boolean ast() {
+    return interpreter.run(ast, new ErrorReporter());
+  }
+
+  @Benchmark
+  public boolean bytecode() {
+    return machine.run(ast, new ErrorReporter());
+  }
+
+  @Benchmark
+  public boolean jvm() {
+    return classes.run(out, new ErrorReporter());
+  }
+}
@@ -0,0 +1,85 @@
+package miniJava.bench;
+
+import miniJava.AbstractSyntaxTrees.ASTDisplay;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+import miniJava.NameTable;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Throughput of each front-end phase on its own. Besides programs/sec JMH
+ * reports the "tokens" and "nodes" counters as rates, which gives tokens/sec
+ * for scanning and AST nodes/sec for parsing and display. Run with -prof gc
+ * to add the allocation rate of every phase.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+    public long tokens;
+    public long nodes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      tokens = 0;
+      nodes = 0;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Sink {
+    public ASTDisplay display;
+
+    @Setup
+    public void open() {
+      display = new ASTDisplay(new PrintStream(OutputStream.nullOutputStream()));
+    }
+  }
+
+  @Benchmark
+  public TokenBuffer scan(SyntheticProgram program, Counters counters) {
+    ErrorReporter reporter = new ErrorReporter();
+    TokenBuffer tokens = new Scanner(program.source, reporter).scanAll();
+    counters.tokens += tokens.size();
+    return tokens;
+  }
+
+  @Benchmark
+  public Package parse(SyntheticProgram program, Counters counters) {
+    ErrorReporter reporter = new ErrorReporter();
+    Package ast = new Parser(program.tokens, reporter, new NameTable()).parse();
+    counters.nodes += program.nodeCount;
+    return ast;
+  }
+
+  @Benchmark
+  public void display(SyntheticProgram program, Sink sink, Counters counters) {
+    sink.display.showTree(program.ast);
+    counters.nodes += program.nodeCount;
+  }
+}
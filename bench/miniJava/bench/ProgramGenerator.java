@@ -0,0 +1,160 @@
+package miniJava.bench;
+
+import java.util.Random;
+
+/*
+ * Generates syntactically valid miniJava programs of configurable shape for
+ * the benchmarks: the number of classes and methods, how deeply statements
+ * nest, and how many operands each expression chains together.
+ */
+public class ProgramGenerator {
+  static final String[] BINARY_OPERATORS = {
+    " + ", " - ", " * ", " / ", " < ", " <= ", " > ", " >= ", " == ", " != ", " && ", " || "
+  };
+
+  final int classes;
+  final int methodsPerClass;
+  final int statementsPerBlock;
+  final int nestingDepth;
+  final int expressionLength;
+  final Random random;
+  final StringBuilder out = new StringBuilder();
+
+  public ProgramGenerator(
+      int classes,
+      int methodsPerClass,
+      int statementsPerBlock,
+      int nestingDepth,
+      int expressionLength,
+      long seed) {
+    this.classes = classes;
+    this.methodsPerClass = methodsPerClass;
+    this.statementsPerBlock = statementsPerBlock;
+    this.nestingDepth = nestingDepth;
+    this.expressionLength = expressionLength;
+    this.random = new Random(seed);
+  }
+
+  public String generate() {
+    out.setLength(0);
+    for (int c = 0; c < classes; c++) {
+      generateClass(c);
+    }
+    return out.toString();
+  }
+
+  private void generateClass(int index) {
+    out.append("class C").append(index).append(" {\n");
+    out.append("  int count;\n");
+    out.append("  private boolean flag;\n");
+    out.append("  int[] values;\n");
+    out.append("  C").append(random.nextInt(classes)).append(" next;\n");
+    for (int m = 0; m < methodsPerClass; m++) {
+      out.append("  public int m").append(m).append("(int a, int b, boolean c) {\n");
+      generateBlock(nestingDepth, "    ");
+      out.append("    return ");
+      generateExpression(expressionLength);
+      out.append(";\n  }\n");
+    }
+    out.append("  public static void main(String[] args) {\n");
+    out.append("    C").append(index).append(" self = new C").append(index).append("();\n");
+    out.append("    System.out.println(self.m0(1, 2, true));\n");
+    out.append("  }\n}\n");
+  }
+
+  private void generateBlock(int depth, String indent) {
+    for (int s = 0; s < statementsPerBlock; s++) {
+      generateStatement(depth, indent);
+    }
+  }
+
+  private void generateStatement(int depth, String indent) {
+    int choice = random.nextInt(depth > 0 ? 7 : 5);
+    out.append(indent);
+    switch (choice) {
+      case 0:
+        out.append("int x").append(random.nextInt(100)).append(" = ");
+        generateExpression(expressionLength);
+        out.append(";\n");
+        break;
+      case 1:
+        out.append("count = ");
+        generateExpression(expressionLength);
+        out.append(";\n");
+        break;
+      case 2:
+        out.append("values[a] = ");
+        generateExpression(expressionLength);
+        out.append(";\n");
+        break;
+      case 3:
+        out.append("this.m0(a, ");
+        generateExpression(expressionLength);
+        out.append(", flag);\n");
+        break;
+      case 4:
+        out.append("next.count = next.count + 1;\n");
+        break;
+      case 5:
+        out.append("if (");
+        generateExpression(expressionLength);
+        out.append(") {\n");
+        generateBlock(depth - 1, indent + "  ");
+        out.append(indent).append("} else {\n");
+        generateBlock(depth - 1, indent + "  ");
+        out.append(indent).append("}\n");
+        break;
+      default:
+        out.append("while (");
+        generateExpression(expressionLength);
+        out.append(") {\n");
+        generateBlock(depth - 1, indent + "  ");
+        out.append(indent).append("}\n");
+        break;
+    }
+  }
+
+  private void generateExpression(int length) {
+    generateOperand();
+    for (int i = 1; i < length; i++) {
+      out.append(BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)]);
+      if (random.nextInt(8) == 0 && i + 2 < length) {
+        out.append('(');
+        generateExpression(2);
+        out.append(')');
+        i++;
+      } else {
+        generateOperand();
+      }
+    }
+  }
+
+  private void generateOperand() {
+    switch (random.nextInt(8)) {
+      case 0:
+        out.append(random.nextInt(1000));
+        break;
+      case 1:
+        out.append(random.nextBoolean() ? "true" : "false");
+        break;
+      case 2:
+        out.append("values[b]");
+        break;
+      case 3:
+        out.append("this.count");
+        break;
+      case 4:
+        out.append("-a");
+        break;
+      case 5:
+        out.append("!c");
+        break;
+      case 6:
+        out.append("next.m1(a, b, c)");
+        break;
+      default:
+        out.append(random.nextBoolean() ? "a" : "b");
+        break;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package miniJava.bench;
+
+import miniJava.AbstractSyntaxTrees.NodeCounter;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+import miniJava.NameTable;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/* Benchmark input shared by the scanner, parser and display benchmarks. */
+@State(Scope.Benchmark)
+public class SyntheticProgram {
+  @Param({"10", "200"})
+  public int classes;
+
+  @Param({"8"})
+  public int methods;
+
+  @Param({"4"})
+  public int statements;
+
+  @Param({"3"})
+  public int nesting;
+
+  @Param({"12"})
+  public int expressionLength;
+
+  public SourceBuffer source;
+  public int tokenCount;
+  public TokenBuffer tokens;
+  public Package ast;
+  public int nodeCount;
+
+  @Setup
+  public void generate() throws IOException {
+    String text =
+        new ProgramGenerator(classes, methods, statements, nesting, expressionLength, 520)
+            .generate();
+    byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+    source = SourceBuffer.fromStream(new ByteArrayInputStream(bytes));
+
+    ErrorReporter reporter = new ErrorReporter();
+    tokens = new Scanner(source, reporter).scanAll();
+    tokenCount = tokens.size();
+    ast = new Parser(tokens, reporter, new NameTable()).parse();
+    if (!reporter.isEmpty()) {
+      reporter.showErrorQueue();
+      throw new IllegalStateException("generated program does not parse");
+    }
+    nodeCount = NodeCounter.count(ast);
+  }
+}
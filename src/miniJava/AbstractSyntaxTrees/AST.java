@@ -6,22 +6,21 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class AST {
 
-  public AST(SourcePosition posn) {
-    this.posn = posn;
+  public AST(int offset) {
+    this.offset = offset;
   }
 
   public String toString() {
     String fullClassName = this.getClass().getName();
     String cn = fullClassName.substring(1 + fullClassName.lastIndexOf('.'));
-    if (ASTDisplay.showPosition && posn != null) cn = cn + " " + posn.toString();
+    if (ASTDisplay.showPosition) cn = cn + " offset " + offset;
     return cn;
   }
 
   public abstract <A, R> R visit(Visitor<A, R> v, A o);
 
-  public SourcePosition posn;
+  /** character offset of the first token of this node in its source file */
+  public int offset;
 }
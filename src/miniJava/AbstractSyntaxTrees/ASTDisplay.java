@@ -6,6 +6,15 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
+import miniJava.SyntacticAnalyzer.LineTable;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /*
  * Display AST in text form, one node per line, using indentation to show
  * subordinate nodes below a parent node.
@@ -18,20 +27,64 @@ package miniJava.AbstractSyntaxTrees;
  *   where arg is a prefix string (indentation) to precede display of ast node
  *   and a null Object is returned as the result.
  *   The display is produced by printing a line of output at each node visited.
+ *
+ *   Lines are collected in a large buffer and handed to the output Appendable
+ *   in blocks, and each distinct prefix string is built only once.
  */
 public class ASTDisplay implements Visitor<String, Object> {
 
   public static boolean showPosition = false;
 
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final String NEWLINE = System.lineSeparator();
+
+  private static final ClassValue<String> NODE_NAMES =
+      new ClassValue<String>() {
+        protected String computeValue(Class<?> type) {
+          String fullClassName = type.getName();
+          return fullClassName.substring(1 + fullClassName.lastIndexOf('.'));
+        }
+      };
+
+  private final Appendable out;
+  private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+  private final Map<String, String> indents = new IdentityHashMap<>();
+  private final Map<String, String> items = new IdentityHashMap<>();
+  private LineTable lineTable;
+
+  public ASTDisplay() {
+    this(System.out);
+  }
+
   /**
-   * print text representation of AST to stdout
+   * display AST on a stream other than stdout
+   *
+   * @param out stream that receives the display text
+   */
+  public ASTDisplay(PrintStream out) {
+    this((Appendable) out);
+  }
+
+  /**
+   * display AST on any character sink
+   *
+   * @param out sink that receives the display text in blocks of up to 64K chars
+   */
+  public ASTDisplay(Appendable out) {
+    this.out = out;
+  }
+
+  /**
+   * print text representation of AST to the display stream
    *
    * @param ast root node of AST
    */
   public void showTree(AST ast) {
-    System.out.println("======= AST Display =========================");
+    lineTable = ast instanceof Package ? ((Package) ast).lineTable : null;
+    show("", "======= AST Display =========================");
     ast.visit(this, "");
-    System.out.println("=============================================");
+    show("", "=============================================");
+    flush();
   }
 
   // methods to format output
@@ -43,7 +96,8 @@ public class ASTDisplay implements Visitor<String, Object> {
    * @param text preformatted node display
    */
   private void show(String prefix, String text) {
-    System.out.println(prefix + text);
+    line(prefix).append(text);
+    endLine();
   }
 
   /**
@@ -53,16 +107,111 @@ public class ASTDisplay implements Visitor<String, Object> {
    * @param node AST node, will be shown by name
    */
   private void show(String prefix, AST node) {
-    System.out.println(prefix + node.toString());
+    line(prefix).append(name(node));
+    endLine();
+  }
+
+  /**
+   * display a quoted spelling followed by a description
+   *
+   * @param prefix indent text to indicate depth in AST
+   * @param spelling text to quote
+   * @param suffix description following the quoted text
+   */
+  private void showQuoted(String prefix, String spelling, String suffix) {
+    line(prefix).append('"').append(spelling).append('"').append(suffix);
+    endLine();
+  }
+
+  /**
+   * display a terminal as its quoted spelling and node name
+   *
+   * @param prefix indent text to indicate depth in AST
+   * @param terminal terminal node to display
+   */
+  private void showTerminal(String prefix, Terminal terminal) {
+    line(prefix).append('"').append(terminal.spelling).append("\" ").append(name(terminal));
+    endLine();
+  }
+
+  /**
+   * display the header line of a list of subordinate nodes
+   *
+   * @param prefix indent text to indicate depth in AST
+   * @param label list name, including its opening bracket
+   * @param size number of list elements
+   */
+  private void showList(String prefix, String label, int size) {
+    line(prefix).append(label).append(size).append(']');
+    endLine();
   }
 
   /**
-   * quote a string
+   * display a member declaration with its visibility and access
    *
-   * @param text string to quote
+   * @param prefix indent text to indicate depth in AST
+   * @param member field or method declaration
    */
-  private String quote(String text) {
-    return ("\"" + text + "\"");
+  private void showMember(String prefix, MemberDecl member) {
+    line(prefix)
+        .append('(')
+        .append(member.isPrivate ? "private" : "public")
+        .append(member.isStatic ? " static) " : ") ")
+        .append(name(member));
+    endLine();
+  }
+
+  /**
+   * start a new output line
+   *
+   * @param prefix indent text to indicate depth in AST
+   * @return buffer to append the rest of the line to
+   */
+  private StringBuilder line(String prefix) {
+    return buffer.append(prefix);
+  }
+
+  /** finish the current output line and hand full buffers to the output */
+  private void endLine() {
+    buffer.append(NEWLINE);
+    if (buffer.length() >= BUFFER_SIZE) {
+      drain();
+    }
+  }
+
+  private void drain() {
+    try {
+      out.append(buffer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.setLength(0);
+  }
+
+  private void flush() {
+    drain();
+    if (out instanceof Flushable) {
+      try {
+        ((Flushable) out).flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * name of an AST node as shown by AST.toString, without building a new string per node
+   *
+   * @param node AST node
+   */
+  private String name(AST node) {
+    if (showPosition) {
+      if (lineTable == null) {
+        return node.toString();
+      }
+      return NODE_NAMES.get(node.getClass()) + " " + lineTable.getPosition(node.offset);
+    }
+    return NODE_NAMES.get(node.getClass());
   }
 
   /**
@@ -72,7 +221,27 @@ public class ASTDisplay implements Visitor<String, Object> {
    * @return new spacing
    */
   private String indent(String prefix) {
-    return prefix + "  ";
+    String indented = indents.get(prefix);
+    if (indented == null) {
+      indented = prefix + "  ";
+      indents.put(prefix, indented);
+    }
+    return indented;
+  }
+
+  /**
+   * prefix for the elements of a list
+   *
+   * @param prefix current spacing to indicate depth in AST
+   * @return spacing with a list marker
+   */
+  private String item(String prefix) {
+    String item = items.get(prefix);
+    if (item == null) {
+      item = prefix + "  . ";
+      items.put(prefix, item);
+    }
+    return item;
   }
 
   ///////////////////////////////////////////////////////////////////////////////
@@ -84,8 +253,8 @@ public class ASTDisplay implements Visitor<String, Object> {
   public Object visitPackage(Package prog, String arg) {
     show(arg, prog);
     ClassDeclList cl = prog.classDeclList;
-    show(arg, "  ClassDeclList [" + cl.size() + "]");
-    String pfx = arg + "  . ";
+    showList(arg, "  ClassDeclList [", cl.size());
+    String pfx = item(arg);
     for (ClassDecl c : prog.classDeclList) {
       c.visit(this, pfx);
     }
@@ -100,44 +269,34 @@ public class ASTDisplay implements Visitor<String, Object> {
 
   public Object visitClassDecl(ClassDecl clas, String arg) {
     show(arg, clas);
-    show(indent(arg), quote(clas.name) + " classname");
-    show(arg, "  FieldDeclList [" + clas.fieldDeclList.size() + "]");
-    String pfx = arg + "  . ";
+    showQuoted(indent(arg), clas.name, " classname");
+    showList(arg, "  FieldDeclList [", clas.fieldDeclList.size());
+    String pfx = item(arg);
     for (FieldDecl f : clas.fieldDeclList) f.visit(this, pfx);
-    show(arg, "  MethodDeclList [" + clas.methodDeclList.size() + "]");
+    showList(arg, "  MethodDeclList [", clas.methodDeclList.size());
     for (MethodDecl m : clas.methodDeclList) m.visit(this, pfx);
     return null;
   }
 
   public Object visitFieldDecl(FieldDecl f, String arg) {
-    show(
-        arg,
-        "("
-            + (f.isPrivate ? "private" : "public")
-            + (f.isStatic ? " static) " : ") ")
-            + f.toString());
+    showMember(arg, f);
     f.type.visit(this, indent(arg));
-    show(indent(arg), quote(f.name) + " fieldname");
+    showQuoted(indent(arg), f.name, " fieldname");
     return null;
   }
 
   public Object visitMethodDecl(MethodDecl m, String arg) {
-    show(
-        arg,
-        "("
-            + (m.isPrivate ? "private" : "public")
-            + (m.isStatic ? " static) " : ") ")
-            + m.toString());
+    showMember(arg, m);
     m.type.visit(this, indent(arg));
-    show(indent(arg), quote(m.name) + " methodname");
+    showQuoted(indent(arg), m.name, " methodname");
     ParameterDeclList pdl = m.parameterDeclList;
-    show(arg, "  ParameterDeclList [" + pdl.size() + "]");
-    String pfx = ((String) arg) + "  . ";
+    showList(arg, "  ParameterDeclList [", pdl.size());
+    String pfx = item(arg);
     for (ParameterDecl pd : pdl) {
       pd.visit(this, pfx);
     }
     StatementList sl = m.statementList;
-    show(arg, "  StmtList [" + sl.size() + "]");
+    showList(arg, "  StmtList [", sl.size());
     for (Statement s : sl) {
       s.visit(this, pfx);
     }
@@ -147,14 +306,14 @@ public class ASTDisplay implements Visitor<String, Object> {
   public Object visitParameterDecl(ParameterDecl pd, String arg) {
     show(arg, pd);
     pd.type.visit(this, indent(arg));
-    show(indent(arg), quote(pd.name) + "parametername ");
+    showQuoted(indent(arg), pd.name, "parametername ");
     return null;
   }
 
   public Object visitVarDecl(VarDecl vd, String arg) {
     show(arg, vd);
     vd.type.visit(this, indent(arg));
-    show(indent(arg), quote(vd.name) + " varname");
+    showQuoted(indent(arg), vd.name, " varname");
     return null;
   }
 
@@ -165,7 +324,8 @@ public class ASTDisplay implements Visitor<String, Object> {
   ///////////////////////////////////////////////////////////////////////////////
 
   public Object visitBaseType(BaseType type, String arg) {
-    show(arg, type.typeKind + " " + type.toString());
+    line(arg).append(type.typeKind).append(' ').append(name(type));
+    endLine();
     return null;
   }
 
@@ -190,8 +350,8 @@ public class ASTDisplay implements Visitor<String, Object> {
   public Object visitBlockStmt(BlockStmt stmt, String arg) {
     show(arg, stmt);
     StatementList sl = stmt.sl;
-    show(arg, "  StatementList [" + sl.size() + "]");
-    String pfx = arg + "  . ";
+    showList(arg, "  StatementList [", sl.size());
+    String pfx = item(arg);
     for (Statement s : sl) {
       s.visit(this, pfx);
     }
@@ -224,8 +384,8 @@ public class ASTDisplay implements Visitor<String, Object> {
     show(arg, stmt);
     stmt.methodRef.visit(this, indent(arg));
     ExprList al = stmt.argList;
-    show(arg, "  ExprList [" + al.size() + "]");
-    String pfx = arg + "  . ";
+    showList(arg, "  ExprList [", al.size());
+    String pfx = item(arg);
     for (Expression e : al) {
       e.visit(this, pfx);
     }
@@ -291,8 +451,8 @@ public class ASTDisplay implements Visitor<String, Object> {
     show(arg, expr);
     expr.functionRef.visit(this, indent(arg));
     ExprList al = expr.argList;
-    show(arg, "  ExprList + [" + al.size() + "]");
-    String pfx = arg + "  . ";
+    showList(arg, "  ExprList + [", al.size());
+    String pfx = item(arg);
     for (Expression e : al) {
       e.visit(this, pfx);
     }
@@ -349,22 +509,22 @@ public class ASTDisplay implements Visitor<String, Object> {
   ///////////////////////////////////////////////////////////////////////////////
 
   public Object visitIdentifier(Identifier id, String arg) {
-    show(arg, quote(id.spelling) + " " + id.toString());
+    showTerminal(arg, id);
     return null;
   }
 
   public Object visitOperator(Operator op, String arg) {
-    show(arg, quote(op.spelling) + " " + op.toString());
+    showTerminal(arg, op);
     return null;
   }
 
   public Object visitIntLiteral(IntLiteral num, String arg) {
-    show(arg, quote(num.spelling) + " " + num.toString());
+    showTerminal(arg, num);
     return null;
   }
 
   public Object visitBooleanLiteral(BooleanLiteral bool, String arg) {
-    show(arg, quote(bool.spelling) + " " + bool.toString());
+    showTerminal(arg, bool);
     return null;
   }
 }
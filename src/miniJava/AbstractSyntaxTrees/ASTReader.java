@@ -0,0 +1,293 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ *
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import miniJava.NameTable;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/*
+ * Rebuild an AST from the binary encoding produced by ASTWriter. The input
+ * can be any ByteBuffer, including a memory-mapped cache file. Names are
+ * interned into the given NameTable so identifiers carry the same symbols
+ * as freshly parsed ones.
+ */
+public class ASTReader {
+
+  private static final TokenType[] TOKEN_TYPES = TokenType.values();
+  private static final TypeKind[] TYPE_KINDS = TypeKind.values();
+
+  private final ByteBuffer in;
+  private final NameTable names;
+  private String[] strings;
+  private int[] symbols;
+  private int lastOffset = 0;
+
+  public ASTReader(ByteBuffer in, NameTable names) {
+    this.in = in;
+    this.names = names;
+  }
+
+  /**
+   * decode a tree written by ASTWriter.write
+   *
+   * @return root node of the decoded AST
+   * @throws IOException if the input is not a valid encoding
+   */
+  public AST read() throws IOException {
+    try {
+      for (byte b : ASTWriter.MAGIC) {
+        if (in.get() != b) {
+          throw new IOException("not an encoded AST");
+        }
+      }
+      int version = in.get();
+      if (version != ASTWriter.VERSION) {
+        throw new IOException("unsupported AST encoding version " + version);
+      }
+      int checksum = in.getInt();
+      CRC32 crc = new CRC32();
+      crc.update(in.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        throw new IOException("AST encoding checksum mismatch");
+      }
+      readStringTable();
+      return readNode();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+      throw new IOException("truncated or corrupt AST encoding", e);
+    }
+  }
+
+  // decoding primitives
+
+  private int readVarint() {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private void readStringTable() {
+    int count = readVarint();
+    strings = new String[count];
+    symbols = new int[count];
+    byte[] utf8 = new byte[64];
+    for (int i = 0; i < count; i++) {
+      int length = readVarint();
+      if (length > utf8.length) {
+        utf8 = new byte[Math.max(length, utf8.length * 2)];
+      }
+      in.get(utf8, 0, length);
+      symbols[i] = names.intern(new String(utf8, 0, length, StandardCharsets.UTF_8));
+      strings[i] = names.getName(symbols[i]);
+    }
+  }
+
+  private String readString() {
+    return strings[readVarint()];
+  }
+
+  private boolean readBoolean() {
+    return in.get() != 0;
+  }
+
+  private int readOffset() {
+    int zigzag = readVarint();
+    lastOffset += (zigzag >>> 1) ^ -(zigzag & 1);
+    return lastOffset;
+  }
+
+  private <T extends AST> T read(Class<T> type) throws IOException {
+    return type.cast(readNode());
+  }
+
+  private ExprList readExpressions() throws IOException {
+    ExprList expressions = new ExprList();
+    for (int i = readVarint(); i > 0; i--) {
+      expressions.add(read(Expression.class));
+    }
+    return expressions;
+  }
+
+  private StatementList readStatements() throws IOException {
+    StatementList statements = new StatementList();
+    for (int i = readVarint(); i > 0; i--) {
+      statements.add(read(Statement.class));
+    }
+    return statements;
+  }
+
+  private AST readNode() throws IOException {
+    int tag = in.get();
+    if (tag == ASTWriter.NULL) {
+      return null;
+    }
+    int offset = readOffset();
+    switch (tag) {
+      case ASTWriter.PACKAGE:
+        {
+          ClassDeclList classes = new ClassDeclList();
+          for (int i = readVarint(); i > 0; i--) {
+            classes.add(read(ClassDecl.class));
+          }
+          return new Package(classes, offset);
+        }
+      case ASTWriter.CLASS_DECL:
+        {
+          String name = readString();
+          FieldDeclList fields = new FieldDeclList();
+          for (int i = readVarint(); i > 0; i--) {
+            fields.add(read(FieldDecl.class));
+          }
+          MethodDeclList methods = new MethodDeclList();
+          for (int i = readVarint(); i > 0; i--) {
+            methods.add(read(MethodDecl.class));
+          }
+          return new ClassDecl(name, fields, methods, offset);
+        }
+      case ASTWriter.FIELD_DECL:
+        {
+          boolean isPrivate = readBoolean();
+          boolean isStatic = readBoolean();
+          TypeDenoter type = read(TypeDenoter.class);
+          return new FieldDecl(isPrivate, isStatic, type, readString(), offset);
+        }
+      case ASTWriter.METHOD_DECL:
+        {
+          boolean isPrivate = readBoolean();
+          boolean isStatic = readBoolean();
+          TypeDenoter type = read(TypeDenoter.class);
+          FieldDecl member = new FieldDecl(isPrivate, isStatic, type, readString(), offset);
+          ParameterDeclList parameters = new ParameterDeclList();
+          for (int i = readVarint(); i > 0; i--) {
+            parameters.add(read(ParameterDecl.class));
+          }
+          return new MethodDecl(member, parameters, readStatements(), offset);
+        }
+      case ASTWriter.PARAMETER_DECL:
+        {
+          TypeDenoter type = read(TypeDenoter.class);
+          return new ParameterDecl(type, readString(), offset);
+        }
+      case ASTWriter.VAR_DECL:
+        {
+          TypeDenoter type = read(TypeDenoter.class);
+          return new VarDecl(type, readString(), offset);
+        }
+      case ASTWriter.BASE_TYPE:
+        return new BaseType(TYPE_KINDS[readVarint()], offset);
+      case ASTWriter.CLASS_TYPE:
+        return new ClassType(read(Identifier.class), offset);
+      case ASTWriter.ARRAY_TYPE:
+        return new ArrayType(read(TypeDenoter.class), offset);
+      case ASTWriter.BLOCK_STMT:
+        return new BlockStmt(readStatements(), offset);
+      case ASTWriter.VAR_DECL_STMT:
+        {
+          VarDecl decl = read(VarDecl.class);
+          return new VarDeclStmt(decl, read(Expression.class), offset);
+        }
+      case ASTWriter.ASSIGN_STMT:
+        {
+          Reference ref = read(Reference.class);
+          return new AssignStmt(ref, read(Expression.class), offset);
+        }
+      case ASTWriter.IX_ASSIGN_STMT:
+        {
+          Reference ref = read(Reference.class);
+          Expression ix = read(Expression.class);
+          return new IxAssignStmt(ref, ix, read(Expression.class), offset);
+        }
+      case ASTWriter.CALL_STMT:
+        {
+          Reference ref = read(Reference.class);
+          return new CallStmt(ref, readExpressions(), offset);
+        }
+      case ASTWriter.RETURN_STMT:
+        return new ReturnStmt(read(Expression.class), offset);
+      case ASTWriter.IF_STMT:
+        {
+          Expression cond = read(Expression.class);
+          Statement thenStmt = read(Statement.class);
+          Statement elseStmt = read(Statement.class);
+          return elseStmt == null
+              ? new IfStmt(cond, thenStmt, offset)
+              : new IfStmt(cond, thenStmt, elseStmt, offset);
+        }
+      case ASTWriter.WHILE_STMT:
+        {
+          Expression cond = read(Expression.class);
+          return new WhileStmt(cond, read(Statement.class), offset);
+        }
+      case ASTWriter.UNARY_EXPR:
+        {
+          Operator operator = read(Operator.class);
+          return new UnaryExpr(operator, read(Expression.class), offset);
+        }
+      case ASTWriter.BINARY_EXPR:
+        {
+          Operator operator = read(Operator.class);
+          Expression left = read(Expression.class);
+          return new BinaryExpr(operator, left, read(Expression.class), offset);
+        }
+      case ASTWriter.REF_EXPR:
+        return new RefExpr(read(Reference.class), offset);
+      case ASTWriter.IX_EXPR:
+        {
+          Reference ref = read(Reference.class);
+          return new IxExpr(ref, read(Expression.class), offset);
+        }
+      case ASTWriter.CALL_EXPR:
+        {
+          Reference ref = read(Reference.class);
+          return new CallExpr(ref, readExpressions(), offset);
+        }
+      case ASTWriter.LITERAL_EXPR:
+        return new LiteralExpr(read(Terminal.class), offset);
+      case ASTWriter.NEW_OBJECT_EXPR:
+        return new NewObjectExpr(read(ClassType.class), offset);
+      case ASTWriter.NEW_ARRAY_EXPR:
+        {
+          TypeDenoter eltType = read(TypeDenoter.class);
+          return new NewArrayExpr(eltType, read(Expression.class), offset);
+        }
+      case ASTWriter.THIS_REF:
+        return new ThisRef(offset);
+      case ASTWriter.ID_REF:
+        return new IdRef(read(Identifier.class), offset);
+      case ASTWriter.QUAL_REF:
+        {
+          Reference ref = read(Reference.class);
+          return new QualRef(ref, read(Identifier.class), offset);
+        }
+      case ASTWriter.IDENTIFIER:
+        {
+          TokenType kind = TOKEN_TYPES[readVarint()];
+          int index = readVarint();
+          return new Identifier(kind, strings[index], symbols[index], offset);
+        }
+      case ASTWriter.OPERATOR:
+        return new Operator(TOKEN_TYPES[readVarint()], readString(), offset);
+      case ASTWriter.INT_LITERAL:
+        return new IntLiteral(TOKEN_TYPES[readVarint()], readString(), offset);
+      case ASTWriter.BOOLEAN_LITERAL:
+        return new BooleanLiteral(TOKEN_TYPES[readVarint()], readString(), offset);
+      default:
+        throw new IOException("unknown AST node tag " + tag);
+    }
+  }
+}
@@ -0,0 +1,452 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ *
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+ * Encode an AST in a compact binary form that ASTReader turns back into an
+ * equivalent tree.
+ *
+ * Layout:  magic "MJAST" | format version byte | CRC32 | string table | root node
+ *
+ * The CRC32 is a big-endian int over everything after it, so a damaged
+ * encoding is rejected rather than decoded into a different tree.
+ * The string table lists every distinct name and spelling once, as a varint
+ * count followed by varint-length UTF-8 strings. Each node is a tag byte, its
+ * source offset as the zigzag varint difference from the offset of the
+ * previous node, and then its fields in declaration order; names refer to
+ * the string table by varint index. Lists are a varint size followed by the
+ * elements, and an absent optional child is the tag NULL.
+ */
+public class ASTWriter implements Visitor<Object, Object> {
+
+  static final byte[] MAGIC = {'M', 'J', 'A', 'S', 'T'};
+  public static final int VERSION = 4;
+
+  static final int NULL = 0;
+  static final int PACKAGE = 1;
+  static final int CLASS_DECL = 2;
+  static final int FIELD_DECL = 3;
+  static final int METHOD_DECL = 4;
+  static final int PARAMETER_DECL = 5;
+  static final int VAR_DECL = 6;
+  static final int BASE_TYPE = 7;
+  static final int CLASS_TYPE = 8;
+  static final int ARRAY_TYPE = 9;
+  static final int BLOCK_STMT = 10;
+  static final int VAR_DECL_STMT = 11;
+  static final int ASSIGN_STMT = 12;
+  static final int IX_ASSIGN_STMT = 13;
+  static final int CALL_STMT = 14;
+  static final int RETURN_STMT = 15;
+  static final int IF_STMT = 16;
+  static final int WHILE_STMT = 17;
+  static final int UNARY_EXPR = 18;
+  static final int BINARY_EXPR = 19;
+  static final int REF_EXPR = 20;
+  static final int IX_EXPR = 21;
+  static final int CALL_EXPR = 22;
+  static final int LITERAL_EXPR = 23;
+  static final int NEW_OBJECT_EXPR = 24;
+  static final int NEW_ARRAY_EXPR = 25;
+  static final int THIS_REF = 26;
+  static final int ID_REF = 27;
+  static final int QUAL_REF = 28;
+  static final int IDENTIFIER = 29;
+  static final int OPERATOR = 30;
+  static final int INT_LITERAL = 31;
+  static final int BOOLEAN_LITERAL = 32;
+
+  private final Map<String, Integer> strings = new HashMap<>();
+  private String[] stringTable = new String[64];
+  private int lastOffset = 0;
+  private byte[] body = new byte[4096];
+  private int bodyLength = 0;
+
+  /**
+   * encode an AST
+   *
+   * @param ast root node of AST
+   * @return binary encoding of the tree
+   */
+  public static byte[] write(AST ast) {
+    ASTWriter writer = new ASTWriter();
+    writer.node(ast);
+    return writer.toByteArray();
+  }
+
+  private byte[] toByteArray() {
+    ASTWriter payload = new ASTWriter();
+    payload.writeVarint(strings.size());
+    for (int i = 0; i < strings.size(); i++) {
+      byte[] utf8 = stringTable[i].getBytes(StandardCharsets.UTF_8);
+      payload.writeVarint(utf8.length);
+      payload.writeBytes(utf8, utf8.length);
+    }
+    payload.writeBytes(body, bodyLength);
+    CRC32 crc = new CRC32();
+    crc.update(payload.body, 0, payload.bodyLength);
+
+    ASTWriter header = new ASTWriter();
+    for (byte b : MAGIC) {
+      header.writeByte(b);
+    }
+    header.writeByte(VERSION);
+    int checksum = (int) crc.getValue();
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      header.writeByte(checksum >>> shift);
+    }
+    header.writeBytes(payload.body, payload.bodyLength);
+    return Arrays.copyOf(header.body, header.bodyLength);
+  }
+
+  // encoding primitives
+
+  private void writeByte(int b) {
+    if (bodyLength == body.length) {
+      body = Arrays.copyOf(body, body.length * 2);
+    }
+    body[bodyLength++] = (byte) b;
+  }
+
+  private void writeBytes(byte[] bytes, int length) {
+    if (bodyLength + length > body.length) {
+      body = Arrays.copyOf(body, Math.max(body.length * 2, bodyLength + length));
+    }
+    System.arraycopy(bytes, 0, body, bodyLength, length);
+    bodyLength += length;
+  }
+
+  private void writeVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(value);
+  }
+
+  private void writeString(String text) {
+    Integer index = strings.get(text);
+    if (index == null) {
+      index = strings.size();
+      if (index == stringTable.length) {
+        stringTable = Arrays.copyOf(stringTable, index * 2);
+      }
+      stringTable[index] = text;
+      strings.put(text, index);
+    }
+    writeVarint(index);
+  }
+
+  private void writeBoolean(boolean value) {
+    writeByte(value ? 1 : 0);
+  }
+
+  private void header(int tag, AST node) {
+    writeByte(tag);
+    int delta = node.offset - lastOffset;
+    writeVarint((delta << 1) ^ (delta >> 31));
+    lastOffset = node.offset;
+  }
+
+  private void node(AST node) {
+    if (node == null) {
+      writeByte(NULL);
+    } else {
+      node.visit(this, null);
+    }
+  }
+
+  private void terminal(int tag, Terminal terminal) {
+    header(tag, terminal);
+    writeVarint(terminal.kind.ordinal());
+    writeString(terminal.spelling);
+  }
+
+  private void member(int tag, MemberDecl member) {
+    header(tag, member);
+    writeBoolean(member.isPrivate);
+    writeBoolean(member.isStatic);
+    node(member.type);
+    writeString(member.name);
+  }
+
+  private void local(int tag, LocalDecl local) {
+    header(tag, local);
+    node(local.type);
+    writeString(local.name);
+  }
+
+  private void expressions(ExprList expressions) {
+    writeVarint(expressions.size());
+    for (Expression e : expressions) {
+      node(e);
+    }
+  }
+
+  private void statements(StatementList statements) {
+    writeVarint(statements.size());
+    for (Statement s : statements) {
+      node(s);
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // PACKAGE AND DECLARATIONS
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  public Object visitPackage(Package prog, Object arg) {
+    header(PACKAGE, prog);
+    writeVarint(prog.classDeclList.size());
+    for (ClassDecl c : prog.classDeclList) {
+      node(c);
+    }
+    return null;
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Object arg) {
+    header(CLASS_DECL, cd);
+    writeString(cd.name);
+    writeVarint(cd.fieldDeclList.size());
+    for (FieldDecl f : cd.fieldDeclList) {
+      node(f);
+    }
+    writeVarint(cd.methodDeclList.size());
+    for (MethodDecl m : cd.methodDeclList) {
+      node(m);
+    }
+    return null;
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Object arg) {
+    member(FIELD_DECL, fd);
+    return null;
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Object arg) {
+    member(METHOD_DECL, md);
+    writeVarint(md.parameterDeclList.size());
+    for (ParameterDecl pd : md.parameterDeclList) {
+      node(pd);
+    }
+    statements(md.statementList);
+    return null;
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+    local(PARAMETER_DECL, pd);
+    return null;
+  }
+
+  public Object visitVarDecl(VarDecl decl, Object arg) {
+    local(VAR_DECL, decl);
+    return null;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // TYPES
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  public Object visitBaseType(BaseType type, Object arg) {
+    header(BASE_TYPE, type);
+    writeVarint(type.typeKind.ordinal());
+    return null;
+  }
+
+  public Object visitClassType(ClassType type, Object arg) {
+    header(CLASS_TYPE, type);
+    node(type.className);
+    return null;
+  }
+
+  public Object visitArrayType(ArrayType type, Object arg) {
+    header(ARRAY_TYPE, type);
+    node(type.eltType);
+    return null;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // STATEMENTS
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+    header(BLOCK_STMT, stmt);
+    statements(stmt.sl);
+    return null;
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    header(VAR_DECL_STMT, stmt);
+    node(stmt.varDecl);
+    node(stmt.initExp);
+    return null;
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+    header(ASSIGN_STMT, stmt);
+    node(stmt.ref);
+    node(stmt.val);
+    return null;
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    header(IX_ASSIGN_STMT, stmt);
+    node(stmt.ref);
+    node(stmt.ix);
+    node(stmt.exp);
+    return null;
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Object arg) {
+    header(CALL_STMT, stmt);
+    node(stmt.methodRef);
+    expressions(stmt.argList);
+    return null;
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+    header(RETURN_STMT, stmt);
+    node(stmt.returnExpr);
+    return null;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Object arg) {
+    header(IF_STMT, stmt);
+    node(stmt.cond);
+    node(stmt.thenStmt);
+    node(stmt.elseStmt);
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+    header(WHILE_STMT, stmt);
+    node(stmt.cond);
+    node(stmt.body);
+    return null;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // EXPRESSIONS
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+    header(UNARY_EXPR, expr);
+    node(expr.operator);
+    node(expr.expr);
+    return null;
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+    header(BINARY_EXPR, expr);
+    node(expr.operator);
+    node(expr.left);
+    node(expr.right);
+    return null;
+  }
+
+  public Object visitRefExpr(RefExpr expr, Object arg) {
+    header(REF_EXPR, expr);
+    node(expr.ref);
+    return null;
+  }
+
+  public Object visitIxExpr(IxExpr expr, Object arg) {
+    header(IX_EXPR, expr);
+    node(expr.ref);
+    node(expr.ixExpr);
+    return null;
+  }
+
+  public Object visitCallExpr(CallExpr expr, Object arg) {
+    header(CALL_EXPR, expr);
+    node(expr.functionRef);
+    expressions(expr.argList);
+    return null;
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+    header(LITERAL_EXPR, expr);
+    node(expr.lit);
+    return null;
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    header(NEW_OBJECT_EXPR, expr);
+    node(expr.classtype);
+    return null;
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    header(NEW_ARRAY_EXPR, expr);
+    node(expr.eltType);
+    node(expr.sizeExpr);
+    return null;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // REFERENCES
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  public Object visitThisRef(ThisRef ref, Object arg) {
+    header(THIS_REF, ref);
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Object arg) {
+    header(ID_REF, ref);
+    node(ref.id);
+    return null;
+  }
+
+  public Object visitQRef(QualRef ref, Object arg) {
+    header(QUAL_REF, ref);
+    node(ref.ref);
+    node(ref.id);
+    return null;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // TERMINALS
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  public Object visitIdentifier(Identifier id, Object arg) {
+    terminal(IDENTIFIER, id);
+    return null;
+  }
+
+  public Object visitOperator(Operator op, Object arg) {
+    terminal(OPERATOR, op);
+    return null;
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Object arg) {
+    terminal(INT_LITERAL, num);
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    terminal(BOOLEAN_LITERAL, bool);
+    return null;
+  }
+}
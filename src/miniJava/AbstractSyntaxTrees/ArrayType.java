@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ArrayType extends TypeDenoter {
 
-  public ArrayType(TypeDenoter eltType, SourcePosition posn) {
-    super(TypeKind.ARRAY, posn);
+  public ArrayType(TypeDenoter eltType, int offset) {
+    super(TypeKind.ARRAY, offset);
     this.eltType = eltType;
   }
 
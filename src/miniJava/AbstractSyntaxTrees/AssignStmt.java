@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class AssignStmt extends Statement {
-  public AssignStmt(Reference r, Expression e, SourcePosition posn) {
-    super(posn);
+  public AssignStmt(Reference r, Expression e, int offset) {
+    super(offset);
     ref = r;
     val = e;
   }
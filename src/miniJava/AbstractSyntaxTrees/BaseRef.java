@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class BaseRef extends Reference {
 
-  public BaseRef(SourcePosition posn) {
-    super(posn);
+  public BaseRef(int offset) {
+    super(offset);
   }
 }
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class BaseType extends TypeDenoter {
-  public BaseType(TypeKind t, SourcePosition posn) {
-    super(t, posn);
+  public BaseType(TypeKind t, int offset) {
+    super(t, offset);
   }
 
   public <A, R> R visit(Visitor<A, R> v, A o) {
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class BinaryExpr extends Expression {
-  public BinaryExpr(Operator o, Expression e1, Expression e2, SourcePosition posn) {
-    super(posn);
+  public BinaryExpr(Operator o, Expression e1, Expression e2, int offset) {
+    super(offset);
     operator = o;
     left = e1;
     right = e2;
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class BlockStmt extends Statement {
-  public BlockStmt(StatementList sl, SourcePosition posn) {
-    super(posn);
+  public BlockStmt(StatementList sl, int offset) {
+    super(offset);
     this.sl = sl;
   }
 
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class CallExpr extends Expression {
-  public CallExpr(Reference f, ExprList el, SourcePosition posn) {
-    super(posn);
+  public CallExpr(Reference f, ExprList el, int offset) {
+    super(offset);
     functionRef = f;
     argList = el;
   }
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class CallStmt extends Statement {
-  public CallStmt(Reference m, ExprList el, SourcePosition posn) {
-    super(posn);
+  public CallStmt(Reference m, ExprList el, int offset) {
+    super(offset);
     methodRef = m;
     argList = el;
   }
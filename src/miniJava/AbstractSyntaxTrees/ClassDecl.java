@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ClassDecl extends Declaration {
 
-  public ClassDecl(String cn, FieldDeclList fdl, MethodDeclList mdl, SourcePosition posn) {
-    super(cn, null, posn);
+  public ClassDecl(String cn, FieldDeclList fdl, MethodDeclList mdl, int offset) {
+    super(cn, null, offset);
     fieldDeclList = fdl;
     methodDeclList = mdl;
   }
@@ -22,4 +20,9 @@ public class ClassDecl extends Declaration {
 
   public FieldDeclList fieldDeclList;
   public MethodDeclList methodDeclList;
+
+  /** Instance size: int and boolean fields, then reference fields. */
+  public int intFields;
+
+  public int refFields;
 }
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ClassType extends TypeDenoter {
-  public ClassType(Identifier cn, SourcePosition posn) {
-    super(TypeKind.CLASS, posn);
+  public ClassType(Identifier cn, int offset) {
+    super(TypeKind.CLASS, offset);
     className = cn;
   }
 
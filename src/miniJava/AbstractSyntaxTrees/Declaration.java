@@ -6,16 +6,17 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Declaration extends AST {
 
-  public Declaration(String name, TypeDenoter type, SourcePosition posn) {
-    super(posn);
+  public Declaration(String name, TypeDenoter type, int offset) {
+    super(offset);
     this.name = name;
     this.type = type;
   }
 
   public String name;
   public TypeDenoter type;
+
+  /** Index of a local or field in its frame, object or static slot array. */
+  public int slot;
 }
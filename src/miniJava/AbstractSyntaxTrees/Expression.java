@@ -6,11 +6,11 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Expression extends AST {
 
-  public Expression(SourcePosition posn) {
-    super(posn);
+  public Expression(int offset) {
+    super(offset);
   }
+
+  public TypeDenoter type;
 }
@@ -6,17 +6,14 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class FieldDecl extends MemberDecl {
 
-  public FieldDecl(
-      boolean isPrivate, boolean isStatic, TypeDenoter t, String name, SourcePosition posn) {
-    super(isPrivate, isStatic, t, name, posn);
+  public FieldDecl(boolean isPrivate, boolean isStatic, TypeDenoter t, String name, int offset) {
+    super(isPrivate, isStatic, t, name, offset);
   }
 
-  public FieldDecl(MemberDecl md, SourcePosition posn) {
-    super(md, posn);
+  public FieldDecl(MemberDecl md, int offset) {
+    super(md, offset);
   }
 
   public <A, R> R visit(Visitor<A, R> v, A o) {
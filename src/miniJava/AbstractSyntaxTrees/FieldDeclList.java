@@ -21,6 +21,10 @@ public class FieldDeclList implements Iterable<FieldDecl> {
     return fieldDeclList.get(i);
   }
 
+  public void set(int i, FieldDecl fd) {
+    fieldDeclList.set(i, fd);
+  }
+
   public int size() {
     return fieldDeclList.size();
   }
@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IdRef extends BaseRef {
 
-  public IdRef(Identifier id, SourcePosition posn) {
-    super(posn);
+  public IdRef(Identifier id, int offset) {
+    super(offset);
     this.id = id;
   }
 
@@ -6,15 +6,30 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
+import miniJava.NameTable;
 import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenType;
 
 public class Identifier extends Terminal {
 
   public Identifier(Token t) {
     super(t);
+    symbol = NameTable.NO_SYMBOL;
+  }
+
+  public Identifier(TokenType kind, String spelling, int offset) {
+    this(kind, spelling, NameTable.NO_SYMBOL, offset);
+  }
+
+  public Identifier(TokenType kind, String spelling, int symbol, int offset) {
+    super(kind, spelling, offset);
+    this.symbol = symbol;
   }
 
   public <A, R> R visit(Visitor<A, R> v, A o) {
     return v.visitIdentifier(this, o);
   }
+
+  public int symbol;
+  public Declaration decl;
 }
@@ -6,18 +6,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IfStmt extends Statement {
-  public IfStmt(Expression b, Statement t, Statement e, SourcePosition posn) {
-    super(posn);
+  public IfStmt(Expression b, Statement t, Statement e, int offset) {
+    super(offset);
     cond = b;
     thenStmt = t;
     elseStmt = e;
   }
 
-  public IfStmt(Expression b, Statement t, SourcePosition posn) {
-    super(posn);
+  public IfStmt(Expression b, Statement t, int offset) {
+    super(offset);
     cond = b;
     thenStmt = t;
     elseStmt = null;
@@ -7,6 +7,7 @@
 package miniJava.AbstractSyntaxTrees;
 
 import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenType;
 
 public class IntLiteral extends Terminal {
 
@@ -14,6 +15,10 @@ public class IntLiteral extends Terminal {
     super(t);
   }
 
+  public IntLiteral(TokenType kind, String spelling, int offset) {
+    super(kind, spelling, offset);
+  }
+
   public <A, R> R visit(Visitor<A, R> v, A o) {
     return v.visitIntLiteral(this, o);
   }
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IxAssignStmt extends Statement {
-  public IxAssignStmt(Reference r, Expression i, Expression e, SourcePosition posn) {
-    super(posn);
+  public IxAssignStmt(Reference r, Expression i, Expression e, int offset) {
+    super(offset);
     ref = r;
     ix = i;
     exp = e;
@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IxExpr extends Expression {
 
-  public IxExpr(Reference r, Expression e, SourcePosition posn) {
-    super(posn);
+  public IxExpr(Reference r, Expression e, int offset) {
+    super(offset);
     ref = r;
     ixExpr = e;
   }
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class LiteralExpr extends Expression {
-  public LiteralExpr(Terminal t, SourcePosition posn) {
-    super(t.posn);
+  public LiteralExpr(Terminal t, int offset) {
+    super(t.offset);
     lit = t;
   }
 
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class LocalDecl extends Declaration {
 
-  public LocalDecl(String name, TypeDenoter t, SourcePosition posn) {
-    super(name, t, posn);
+  public LocalDecl(String name, TypeDenoter t, int offset) {
+    super(name, t, offset);
   }
 }
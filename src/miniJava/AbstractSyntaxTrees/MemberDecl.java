@@ -6,19 +6,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class MemberDecl extends Declaration {
 
-  public MemberDecl(
-      boolean isPrivate, boolean isStatic, TypeDenoter mt, String name, SourcePosition posn) {
-    super(name, mt, posn);
+  public MemberDecl(boolean isPrivate, boolean isStatic, TypeDenoter mt, String name, int offset) {
+    super(name, mt, offset);
     this.isPrivate = isPrivate;
     this.isStatic = isStatic;
   }
 
-  public MemberDecl(MemberDecl md, SourcePosition posn) {
-    super(md.name, md.type, posn);
+  public MemberDecl(MemberDecl md, int offset) {
+    super(md.name, md.type, offset);
     this.isPrivate = md.isPrivate;
     this.isStatic = md.isStatic;
   }
@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class MethodDecl extends MemberDecl {
 
-  public MethodDecl(MemberDecl md, ParameterDeclList pl, StatementList sl, SourcePosition posn) {
-    super(md, posn);
+  public MethodDecl(MemberDecl md, ParameterDeclList pl, StatementList sl, int offset) {
+    super(md, offset);
     parameterDeclList = pl;
     statementList = sl;
   }
@@ -22,4 +20,9 @@ public class MethodDecl extends MemberDecl {
 
   public ParameterDeclList parameterDeclList;
   public StatementList statementList;
+
+  /** Frame size: int and boolean slots, then reference slots. */
+  public int intSlots;
+
+  public int refSlots;
 }
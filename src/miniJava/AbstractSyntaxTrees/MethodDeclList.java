@@ -21,6 +21,10 @@ public class MethodDeclList implements Iterable<MethodDecl> {
     return methodDeclList.get(i);
   }
 
+  public void set(int i, MethodDecl md) {
+    methodDeclList.set(i, md);
+  }
+
   public int size() {
     return methodDeclList.size();
   }
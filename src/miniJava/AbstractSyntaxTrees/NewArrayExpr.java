@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class NewArrayExpr extends NewExpr {
-  public NewArrayExpr(TypeDenoter et, Expression e, SourcePosition posn) {
-    super(posn);
+  public NewArrayExpr(TypeDenoter et, Expression e, int offset) {
+    super(offset);
     eltType = et;
     sizeExpr = e;
   }
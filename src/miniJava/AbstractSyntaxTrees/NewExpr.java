@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class NewExpr extends Expression {
 
-  public NewExpr(SourcePosition posn) {
-    super(posn);
+  public NewExpr(int offset) {
+    super(offset);
   }
 }
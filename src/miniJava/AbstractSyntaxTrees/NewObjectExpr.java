@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class NewObjectExpr extends NewExpr {
-  public NewObjectExpr(ClassType ct, SourcePosition posn) {
-    super(posn);
+  public NewObjectExpr(ClassType ct, int offset) {
+    super(offset);
     classtype = ct;
   }
 
@@ -0,0 +1,250 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ *
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+/*
+ * Counts every AST node reachable from a subtree, terminals included.
+ * The benchmarks use it to size their input and the optimizer passes
+ * to report how much of the tree they removed; an absent subtree
+ * counts as zero.
+ */
+public class NodeCounter implements Visitor<Object, Object> {
+  private int count;
+
+  public static int count(AST ast) {
+    if (ast == null) {
+      return 0;
+    }
+    NodeCounter counter = new NodeCounter();
+    ast.visit(counter, null);
+    return counter.count;
+  }
+
+  public Object visitPackage(Package prog, Object arg) {
+    count++;
+    for (ClassDecl c : prog.classDeclList) {
+      c.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Object arg) {
+    count++;
+    for (FieldDecl f : cd.fieldDeclList) {
+      f.visit(this, arg);
+    }
+    for (MethodDecl m : cd.methodDeclList) {
+      m.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Object arg) {
+    count++;
+    fd.type.visit(this, arg);
+    return null;
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Object arg) {
+    count++;
+    md.type.visit(this, arg);
+    for (ParameterDecl pd : md.parameterDeclList) {
+      pd.visit(this, arg);
+    }
+    for (Statement s : md.statementList) {
+      s.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+    count++;
+    pd.type.visit(this, arg);
+    return null;
+  }
+
+  public Object visitVarDecl(VarDecl decl, Object arg) {
+    count++;
+    decl.type.visit(this, arg);
+    return null;
+  }
+
+  public Object visitBaseType(BaseType type, Object arg) {
+    count++;
+    return null;
+  }
+
+  public Object visitClassType(ClassType type, Object arg) {
+    count++;
+    type.className.visit(this, arg);
+    return null;
+  }
+
+  public Object visitArrayType(ArrayType type, Object arg) {
+    count++;
+    type.eltType.visit(this, arg);
+    return null;
+  }
+
+  public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+    count++;
+    for (Statement s : stmt.sl) {
+      s.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    count++;
+    stmt.varDecl.visit(this, arg);
+    stmt.initExp.visit(this, arg);
+    return null;
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+    count++;
+    stmt.ref.visit(this, arg);
+    stmt.val.visit(this, arg);
+    return null;
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    count++;
+    stmt.ref.visit(this, arg);
+    stmt.ix.visit(this, arg);
+    stmt.exp.visit(this, arg);
+    return null;
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Object arg) {
+    count++;
+    stmt.methodRef.visit(this, arg);
+    for (Expression e : stmt.argList) {
+      e.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+    count++;
+    if (stmt.returnExpr != null) {
+      stmt.returnExpr.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Object arg) {
+    count++;
+    stmt.cond.visit(this, arg);
+    stmt.thenStmt.visit(this, arg);
+    if (stmt.elseStmt != null) {
+      stmt.elseStmt.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+    count++;
+    stmt.cond.visit(this, arg);
+    stmt.body.visit(this, arg);
+    return null;
+  }
+
+  public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+    count++;
+    expr.operator.visit(this, arg);
+    expr.expr.visit(this, arg);
+    return null;
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+    count++;
+    expr.operator.visit(this, arg);
+    expr.left.visit(this, arg);
+    expr.right.visit(this, arg);
+    return null;
+  }
+
+  public Object visitRefExpr(RefExpr expr, Object arg) {
+    count++;
+    expr.ref.visit(this, arg);
+    return null;
+  }
+
+  public Object visitIxExpr(IxExpr expr, Object arg) {
+    count++;
+    expr.ref.visit(this, arg);
+    expr.ixExpr.visit(this, arg);
+    return null;
+  }
+
+  public Object visitCallExpr(CallExpr expr, Object arg) {
+    count++;
+    expr.functionRef.visit(this, arg);
+    for (Expression e : expr.argList) {
+      e.visit(this, arg);
+    }
+    return null;
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+    count++;
+    expr.lit.visit(this, arg);
+    return null;
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    count++;
+    expr.classtype.visit(this, arg);
+    return null;
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    count++;
+    expr.eltType.visit(this, arg);
+    expr.sizeExpr.visit(this, arg);
+    return null;
+  }
+
+  public Object visitThisRef(ThisRef ref, Object arg) {
+    count++;
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Object arg) {
+    count++;
+    ref.id.visit(this, arg);
+    return null;
+  }
+
+  public Object visitQRef(QualRef ref, Object arg) {
+    count++;
+    ref.ref.visit(this, arg);
+    ref.id.visit(this, arg);
+    return null;
+  }
+
+  public Object visitIdentifier(Identifier id, Object arg) {
+    count++;
+    return null;
+  }
+
+  public Object visitOperator(Operator op, Object arg) {
+    count++;
+    return null;
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Object arg) {
+    count++;
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    count++;
+    return null;
+  }
+}
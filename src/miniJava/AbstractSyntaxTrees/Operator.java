@@ -7,14 +7,27 @@
 package miniJava.AbstractSyntaxTrees;
 
 import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenType;
 
 public class Operator extends Terminal {
 
   public Operator(Token t) {
     super(t);
+    operatorKind = OperatorKind.fromTokenType(t.getTokenType());
+  }
+
+  public Operator(TokenType kind, String spelling, int offset) {
+    this(kind, spelling, OperatorKind.fromTokenType(kind), offset);
+  }
+
+  public Operator(TokenType kind, String spelling, OperatorKind operatorKind, int offset) {
+    super(kind, spelling, offset);
+    this.operatorKind = operatorKind;
   }
 
   public <A, R> R visit(Visitor<A, R> v, A o) {
     return v.visitOperator(this, o);
   }
+
+  public OperatorKind operatorKind;
 }
@@ -0,0 +1,50 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ *
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import miniJava.SyntacticAnalyzer.TokenType;
+
+public enum OperatorKind {
+  OR(TokenType.OR, 1, false),
+  AND(TokenType.AND, 2, false),
+  EQUAL(TokenType.EQUAL_EQUAL, 3, false),
+  NOT_EQUAL(TokenType.NOT_EQUAL, 3, false),
+  LESS_THAN(TokenType.LESS_THAN, 4, false),
+  LESS_EQUAL(TokenType.LESS_EQUAL, 4, false),
+  GREATER_THAN(TokenType.GREATER_THAN, 4, false),
+  GREATER_EQUAL(TokenType.GREATER_EQUAL, 4, false),
+  PLUS(TokenType.PLUS, 5, false),
+  MINUS(TokenType.MINUS, 5, true),
+  TIMES(TokenType.TIMES, 6, false),
+  DIVIDE(TokenType.DIVIDE, 6, false),
+  NOT(TokenType.NOT, 0, true);
+
+  static final OperatorKind[] BY_TOKEN_TYPE = new OperatorKind[TokenType.values().length];
+
+  static {
+    for (OperatorKind kind : values()) {
+      BY_TOKEN_TYPE[kind.tokenType.ordinal()] = kind;
+    }
+  }
+
+  public final TokenType tokenType;
+  public final int binaryPrecedence;
+  public final boolean isUnary;
+
+  OperatorKind(TokenType tokenType, int binaryPrecedence, boolean isUnary) {
+    this.tokenType = tokenType;
+    this.binaryPrecedence = binaryPrecedence;
+    this.isUnary = isUnary;
+  }
+
+  /**
+   * @return operator kind for the token type, or null if it is not an operator
+   */
+  public static OperatorKind fromTokenType(TokenType type) {
+    return BY_TOKEN_TYPE[type.ordinal()];
+  }
+}
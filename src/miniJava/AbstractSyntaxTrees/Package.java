@@ -6,12 +6,12 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
+import miniJava.SyntacticAnalyzer.LineTable;
 
 public class Package extends AST {
 
-  public Package(ClassDeclList cdl, SourcePosition posn) {
-    super(posn);
+  public Package(ClassDeclList cdl, int offset) {
+    super(offset);
     classDeclList = cdl;
   }
 
@@ -20,4 +20,5 @@ public class Package extends AST {
   }
 
   public ClassDeclList classDeclList;
+  public LineTable lineTable;
 }
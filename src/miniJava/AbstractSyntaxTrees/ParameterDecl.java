@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ParameterDecl extends LocalDecl {
 
-  public ParameterDecl(TypeDenoter t, String name, SourcePosition posn) {
-    super(name, t, posn);
+  public ParameterDecl(TypeDenoter t, String name, int offset) {
+    super(name, t, offset);
   }
 
   public <A, R> R visit(Visitor<A, R> v, A o) {
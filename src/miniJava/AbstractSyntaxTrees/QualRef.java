@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class QualRef extends Reference {
 
-  public QualRef(Reference ref, Identifier id, SourcePosition posn) {
-    super(posn);
+  public QualRef(Reference ref, Identifier id, int offset) {
+    super(offset);
     this.ref = ref;
     this.id = id;
   }
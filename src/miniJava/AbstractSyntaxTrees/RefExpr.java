@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class RefExpr extends Expression {
-  public RefExpr(Reference r, SourcePosition posn) {
-    super(posn);
+  public RefExpr(Reference r, int offset) {
+    super(offset);
     ref = r;
   }
 
@@ -6,10 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Reference extends AST {
-  public Reference(SourcePosition posn) {
-    super(posn);
+  public Reference(int offset) {
+    super(offset);
   }
+
+  public Declaration decl;
 }
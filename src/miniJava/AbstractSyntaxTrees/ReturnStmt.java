@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ReturnStmt extends Statement {
-  public ReturnStmt(Expression e, SourcePosition posn) {
-    super(posn);
+  public ReturnStmt(Expression e, int offset) {
+    super(offset);
     returnExpr = e;
   }
 
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Statement extends AST {
 
-  public Statement(SourcePosition posn) {
-    super(posn);
+  public Statement(int offset) {
+    super(offset);
   }
 }
@@ -12,11 +12,17 @@ import miniJava.SyntacticAnalyzer.TokenType;
 public abstract class Terminal extends AST {
 
   public Terminal(Token t) {
-    super(t.getTokenPosition());
+    super(t.getTokenOffset());
     spelling = t.getTokenText();
     kind = t.getTokenType();
   }
 
+  public Terminal(TokenType kind, String spelling, int offset) {
+    super(offset);
+    this.kind = kind;
+    this.spelling = spelling;
+  }
+
   public TokenType kind;
   public String spelling;
 }
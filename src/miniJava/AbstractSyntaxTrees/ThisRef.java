@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ThisRef extends BaseRef {
 
-  public ThisRef(SourcePosition posn) {
-    super(posn);
+  public ThisRef(int offset) {
+    super(offset);
   }
 
   @Override
@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class TypeDenoter extends AST {
 
-  public TypeDenoter(TypeKind type, SourcePosition posn) {
-    super(posn);
+  public TypeDenoter(TypeKind type, int offset) {
+    super(offset);
     typeKind = type;
   }
 
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class UnaryExpr extends Expression {
-  public UnaryExpr(Operator o, Expression e, SourcePosition posn) {
-    super(posn);
+  public UnaryExpr(Operator o, Expression e, int offset) {
+    super(offset);
     operator = o;
     expr = e;
   }
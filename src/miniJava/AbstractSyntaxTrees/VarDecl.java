@@ -6,12 +6,10 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class VarDecl extends LocalDecl {
 
-  public VarDecl(TypeDenoter t, String name, SourcePosition posn) {
-    super(name, t, posn);
+  public VarDecl(TypeDenoter t, String name, int offset) {
+    super(name, t, offset);
   }
 
   public <A, R> R visit(Visitor<A, R> v, A o) {
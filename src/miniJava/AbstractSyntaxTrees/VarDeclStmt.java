@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class VarDeclStmt extends Statement {
-  public VarDeclStmt(VarDecl vd, Expression e, SourcePosition posn) {
-    super(posn);
+  public VarDeclStmt(VarDecl vd, Expression e, int offset) {
+    super(offset);
     varDecl = vd;
     initExp = e;
   }
@@ -6,11 +6,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class WhileStmt extends Statement {
-  public WhileStmt(Expression e, Statement s, SourcePosition posn) {
-    super(posn);
+  public WhileStmt(Expression e, Statement s, int offset) {
+    super(offset);
     cond = e;
     body = s;
   }
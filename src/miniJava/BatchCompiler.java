@@ -0,0 +1,118 @@
+package miniJava;
+
+import miniJava.AbstractSyntaxTrees.Package;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchCompiler {
+  static final String SOURCE_SUFFIX = ".java";
+
+  int parallelism;
+  ParseCache cache;
+  boolean analyze;
+
+  public BatchCompiler() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public BatchCompiler(int workerCount) {
+    parallelism = workerCount;
+  }
+
+  public void setParseCache(ParseCache parseCache) {
+    cache = parseCache;
+  }
+
+  public void setContextualAnalysis(boolean enabled) {
+    analyze = enabled;
+  }
+
+  public static class Result {
+    public final Path path;
+    public final ErrorReporter reporter;
+    public final Package ast;
+    public final IOException failure;
+
+    Result(Path path, ErrorReporter reporter, Package ast, IOException failure) {
+      this.path = path;
+      this.reporter = reporter;
+      this.ast = ast;
+      this.failure = failure;
+    }
+
+    public boolean succeeded() {
+      return failure == null && reporter.isEmpty();
+    }
+  }
+
+  /**
+   * Compile every source on a shared worker pool. Each file gets its own pipeline and
+   * ErrorReporter, and the results come back in the order of the input list.
+   */
+  public List<Result> compile(List<Path> paths) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<Future<Result>> futures = new ArrayList<>(paths.size());
+      for (Path path : paths) {
+        futures.add(pool.submit(() -> compile(path)));
+      }
+      List<Result> results = new ArrayList<>(paths.size());
+      for (Future<Result> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public Result compile(Path path) {
+    ErrorReporter reporter = new ErrorReporter();
+    CompilationPipeline pipeline = new CompilationPipeline(reporter);
+    pipeline.setParseCache(cache);
+    pipeline.setContextualAnalysis(analyze);
+    try {
+      return new Result(path, reporter, pipeline.compile(path), null);
+    } catch (IOException e) {
+      return new Result(path, reporter, null, e);
+    }
+  }
+
+  /**
+   * Expand command line arguments into source files. Directories are searched recursively for
+   * miniJava sources, which are listed in sorted order; plain files are kept in argument order.
+   */
+  public static List<Path> collectSources(String[] args) throws IOException {
+    List<Path> paths = new ArrayList<>();
+    for (String arg : args) {
+      Path path = Paths.get(arg);
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> walk = Files.walk(path)) {
+          paths.addAll(
+              walk.filter(Files::isRegularFile)
+                  .filter(p -> p.toString().endsWith(SOURCE_SUFFIX))
+                  .sorted()
+                  .collect(Collectors.toList()));
+        }
+      } else {
+        paths.add(path);
+      }
+    }
+    return paths;
+  }
+}
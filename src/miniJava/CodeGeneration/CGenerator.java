@@ -0,0 +1,518 @@
+package miniJava.CodeGeneration;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+import miniJava.Execution.BytecodeCompiler;
+import miniJava.Execution.ExecutionError;
+import miniJava.SyntacticAnalyzer.LineTable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Translate an analyzed program into one portable C99 source file.
+ *
+ * A ClassDecl becomes a struct with one member per instance field and a
+ * global per static field, a MethodDecl becomes a function whose first
+ * parameter is the receiver, and arrays are length-prefixed buffers of
+ * int32_t or pointers. Names get a prefix (C_, f_, S_, M_, v_) so they
+ * cannot clash with C keywords or the runtime.
+ *
+ * C leaves the evaluation order of operands unspecified, and signed
+ * overflow undefined, so expressions are flattened into temporaries in
+ * Java's left-to-right order and int arithmetic is done in uint32_t. Every
+ * visitor for an expression returns a side-effect-free C expression for
+ * its value; anything that reads memory, calls or may fail has already
+ * been emitted as a statement. The optimizing C compiler folds the
+ * temporaries away again.
+ *
+ * Runtime failures print what the interpreter prints, position included.
+ */
+public class CGenerator implements Visitor<Object, String> {
+  /** Changes whenever the generated code changes, so cached objects are rebuilt. */
+  public static final int VERSION = 1;
+
+  private final StandardEnvironment environment;
+  private final Map<ClassDecl, Boolean> programClasses = new IdentityHashMap<>();
+  private final Map<MemberDecl, ClassDecl> owners = new IdentityHashMap<>();
+  private final List<String> positions = new ArrayList<>();
+
+  private LineTable lineTable;
+  private StringBuilder out;
+  private int indent;
+  private int temps;
+
+  public CGenerator(StandardEnvironment standardEnvironment) {
+    environment = standardEnvironment;
+  }
+
+  /**
+   * @return the C translation of the program, or null if it has no main method
+   * @throws ExecutionError for an integer literal out of range
+   */
+  public CProgram generate(Package prog) {
+    lineTable = prog.lineTable;
+    out = new StringBuilder();
+    MethodDecl main = null;
+    for (ClassDecl cd : prog.classDeclList) {
+      programClasses.put(cd, true);
+      for (FieldDecl fd : cd.fieldDeclList) {
+        owners.put(fd, cd);
+      }
+      for (MethodDecl md : cd.methodDeclList) {
+        owners.put(md, cd);
+        if (main == null && BytecodeCompiler.isMain(md)) {
+          main = md;
+        }
+      }
+    }
+    if (main == null) {
+      return null;
+    }
+
+    out.append(CRuntime.SOURCE);
+    out.append('\n');
+    for (ClassDecl cd : prog.classDeclList) {
+      out.append("struct C_").append(cd.name).append(";\n");
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      out.append("\nstruct C_").append(cd.name).append(" {\n");
+      boolean empty = true;
+      for (FieldDecl fd : cd.fieldDeclList) {
+        if (!fd.isStatic) {
+          out.append("  ").append(declaration(fd.type, "f_" + fd.name)).append(";\n");
+          empty = false;
+        }
+      }
+      if (empty) {
+        out.append("  char unused;\n");
+      }
+      out.append("};\n");
+    }
+    out.append('\n');
+    for (ClassDecl cd : prog.classDeclList) {
+      for (FieldDecl fd : cd.fieldDeclList) {
+        if (fd.isStatic) {
+          out.append("static ").append(declaration(fd.type, staticName(fd))).append(";\n");
+        }
+      }
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      for (MethodDecl md : cd.methodDeclList) {
+        out.append(signature(md)).append(";\n");
+      }
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      cd.visit(this, null);
+    }
+    out.append("\nint main(void) {\n");
+    out.append("  mj_start();\n");
+    out.append("  ").append(methodName(main)).append("(mj_new_refs(0, \"\"));\n");
+    out.append("  mj_flush();\n");
+    out.append("  return 0;\n");
+    out.append("}\n");
+    return new CProgram(prog, out.toString(), positions);
+  }
+
+  // declarations
+
+  public String visitPackage(Package prog, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitClassDecl(ClassDecl cd, Object arg) {
+    for (MethodDecl md : cd.methodDeclList) {
+      md.visit(this, null);
+    }
+    return null;
+  }
+
+  public String visitFieldDecl(FieldDecl fd, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitMethodDecl(MethodDecl md, Object arg) {
+    temps = 0;
+    indent = 1;
+    out.append('\n').append(signature(md)).append(" {\n");
+    for (Statement s : md.statementList) {
+      s.visit(this, null);
+    }
+    if (md.type.typeKind != TypeKind.VOID) {
+      line("return 0;");
+    }
+    out.append("}\n");
+    return null;
+  }
+
+  public String visitParameterDecl(ParameterDecl pd, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitVarDecl(VarDecl decl, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitBaseType(BaseType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitClassType(ClassType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitArrayType(ArrayType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  // statements
+
+  public String visitBlockStmt(BlockStmt stmt, Object arg) {
+    line("{");
+    indent++;
+    for (Statement s : stmt.sl) {
+      s.visit(this, null);
+    }
+    indent--;
+    line("}");
+    return null;
+  }
+
+  public String visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    String value = stmt.initExp.visit(this, null);
+    line(declaration(stmt.varDecl.type, "v_" + stmt.varDecl.name) + " = " + value + ";");
+    return null;
+  }
+
+  public String visitAssignStmt(AssignStmt stmt, Object arg) {
+    Declaration decl = stmt.ref.decl;
+    if (decl instanceof LocalDecl) {
+      line("v_" + decl.name + " = " + stmt.val.visit(this, null) + ";");
+      return null;
+    }
+    FieldDecl fd = (FieldDecl) decl;
+    if (fd.isStatic) {
+      line(staticName(fd) + " = " + stmt.val.visit(this, null) + ";");
+      return null;
+    }
+    String target = receiver(stmt.ref);
+    line(target + "->f_" + fd.name + " = " + stmt.val.visit(this, null) + ";");
+    return null;
+  }
+
+  public String visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    String array = stmt.ref.visit(this, null);
+    nullCheck(array, "null array", stmt.ref);
+    String index = stmt.ix.visit(this, null);
+    String value = stmt.exp.visit(this, null);
+    indexCheck(array, index, stmt.ix);
+    line(array + "->data[" + index + "] = " + value + ";");
+    return null;
+  }
+
+  public String visitCallStmt(CallStmt stmt, Object arg) {
+    String call = call(stmt.methodRef, stmt.argList);
+    line(call + ";");
+    return null;
+  }
+
+  public String visitReturnStmt(ReturnStmt stmt, Object arg) {
+    if (stmt.returnExpr == null) {
+      line("return;");
+    } else {
+      line("return " + stmt.returnExpr.visit(this, null) + ";");
+    }
+    return null;
+  }
+
+  public String visitIfStmt(IfStmt stmt, Object arg) {
+    line("if (" + stmt.cond.visit(this, null) + ") {");
+    body(stmt.thenStmt);
+    if (stmt.elseStmt != null) {
+      line("} else {");
+      body(stmt.elseStmt);
+    }
+    line("}");
+    return null;
+  }
+
+  public String visitWhileStmt(WhileStmt stmt, Object arg) {
+    line("for (;;) {");
+    indent++;
+    line("if (!(" + stmt.cond.visit(this, null) + ")) break;");
+    indent--;
+    body(stmt.body);
+    line("}");
+    return null;
+  }
+
+  private void body(Statement stmt) {
+    indent++;
+    stmt.visit(this, null);
+    indent--;
+  }
+
+  // expressions
+
+  public String visitUnaryExpr(UnaryExpr expr, Object arg) {
+    String operand = expr.expr.visit(this, null);
+    if (expr.operator.operatorKind == OperatorKind.NOT) {
+      return "!" + operand;
+    }
+    return "(int32_t) (0u - (uint32_t) " + operand + ")";
+  }
+
+  public String visitBinaryExpr(BinaryExpr expr, Object arg) {
+    OperatorKind operator = expr.operator.operatorKind;
+    if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+      String result = temp("int32_t", expr.left.visit(this, null));
+      line("if (" + (operator == OperatorKind.AND ? "" : "!") + result + ") {");
+      indent++;
+      line(result + " = " + expr.right.visit(this, null) + ";");
+      indent--;
+      line("}");
+      return result;
+    }
+    String left = expr.left.visit(this, null);
+    String right = expr.right.visit(this, null);
+    switch (operator) {
+      case PLUS:
+        return "(int32_t) ((uint32_t) " + left + " + (uint32_t) " + right + ")";
+      case MINUS:
+        return "(int32_t) ((uint32_t) " + left + " - (uint32_t) " + right + ")";
+      case TIMES:
+        return "(int32_t) ((uint32_t) " + left + " * (uint32_t) " + right + ")";
+      case DIVIDE:
+        return temp("int32_t", "mj_div(" + left + ", " + right + ", " + position(expr) + ")");
+      case LESS_THAN:
+        return "(" + left + " < " + right + ")";
+      case LESS_EQUAL:
+        return "(" + left + " <= " + right + ")";
+      case GREATER_THAN:
+        return "(" + left + " > " + right + ")";
+      case GREATER_EQUAL:
+        return "(" + left + " >= " + right + ")";
+      case EQUAL:
+        return "(" + comparable(left, expr.left) + " == " + comparable(right, expr.right) + ")";
+      default:
+        return "(" + comparable(left, expr.left) + " != " + comparable(right, expr.right) + ")";
+    }
+  }
+
+  public String visitRefExpr(RefExpr expr, Object arg) {
+    return expr.ref.visit(this, null);
+  }
+
+  public String visitIxExpr(IxExpr expr, Object arg) {
+    String array = expr.ref.visit(this, null);
+    nullCheck(array, "null array", expr.ref);
+    String index = expr.ixExpr.visit(this, null);
+    indexCheck(array, index, expr.ixExpr);
+    return temp(
+        declaration(((ArrayType) expr.ref.decl.type).eltType, ""), array + "->data[" + index + "]");
+  }
+
+  public String visitCallExpr(CallExpr expr, Object arg) {
+    String call = call(expr.functionRef, expr.argList);
+    return temp(declaration(expr.functionRef.decl.type, ""), call);
+  }
+
+  public String visitLiteralExpr(LiteralExpr expr, Object arg) {
+    return expr.lit.visit(this, null);
+  }
+
+  public String visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    String struct = "struct C_" + expr.classtype.className.spelling;
+    return temp(struct + " *", "mj_alloc(sizeof(" + struct + "))");
+  }
+
+  public String visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    String size = expr.sizeExpr.visit(this, null);
+    boolean ints = expr.eltType.typeKind == TypeKind.INT;
+    return temp(
+        ints ? "mj_ints *" : "mj_refs *",
+        (ints ? "mj_new_ints(" : "mj_new_refs(") + size + ", " + position(expr.sizeExpr) + ")");
+  }
+
+  // references
+
+  public String visitThisRef(ThisRef ref, Object arg) {
+    return "self";
+  }
+
+  public String visitIdRef(IdRef ref, Object arg) {
+    if (ref.decl instanceof LocalDecl) {
+      return "v_" + ref.decl.name;
+    }
+    return loadField(ref, (FieldDecl) ref.decl);
+  }
+
+  public String visitQRef(QualRef ref, Object arg) {
+    if (ref.decl == environment.arrayLength) {
+      String array = ref.ref.visit(this, null);
+      nullCheck(array, "null array", ref.ref);
+      return temp("int32_t", array + "->length");
+    }
+    return loadField(ref, (FieldDecl) ref.decl);
+  }
+
+  // terminals
+
+  public String visitIdentifier(Identifier id, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitOperator(Operator op, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public String visitIntLiteral(IntLiteral num, Object arg) {
+    try {
+      int value = Integer.parseInt(num.spelling);
+      return Integer.toString(value);
+    } catch (NumberFormatException e) {
+      throw new ExecutionError("integer literal out of range", num);
+    }
+  }
+
+  public String visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    return bool.spelling.equals("true") ? "1" : "0";
+  }
+
+  // members
+
+  /**
+   * @return the C call expression, after its receiver and arguments have been evaluated
+   */
+  private String call(Reference methodRef, ExprList args) {
+    MethodDecl md = (MethodDecl) methodRef.decl;
+    if (md == environment.println) {
+      return "mj_println(" + args.get(0).visit(this, null) + ")";
+    }
+    List<String> operands = new ArrayList<>();
+    if (!md.isStatic) {
+      operands.add(receiver(methodRef));
+    }
+    for (Expression e : args) {
+      operands.add(e.visit(this, null));
+    }
+    return methodName(md) + "(" + String.join(", ", operands) + ")";
+  }
+
+  private String loadField(Reference ref, FieldDecl fd) {
+    if (fd == environment.systemClass.fieldDeclList.get(0)) {
+      // System.out is never dereferenced, it only needs to be some non-null value
+      return "(void *) mj_out";
+    }
+    if (fd.isStatic) {
+      return temp(declaration(fd.type, ""), staticName(fd));
+    }
+    return temp(declaration(fd.type, ""), receiver(ref) + "->f_" + fd.name);
+  }
+
+  /**
+   * @return the object whose member the reference names, checked not to be null
+   */
+  private String receiver(Reference ref) {
+    if (!(ref instanceof QualRef)) {
+      return "self";
+    }
+    Reference qualifier = ((QualRef) ref).ref;
+    String object = qualifier.visit(this, null);
+    if (!(qualifier instanceof ThisRef)) {
+      nullCheck(object, "null reference", qualifier);
+    }
+    return object;
+  }
+
+  private void nullCheck(String pointer, String desc, AST node) {
+    line("if (!" + pointer + ") mj_fail(\"" + desc + "\", " + position(node) + ");");
+  }
+
+  private void indexCheck(String array, String index, AST node) {
+    line("mj_check_index(" + index + ", " + array + "->length, " + position(node) + ");");
+  }
+
+  // names and types
+
+  private String signature(MethodDecl md) {
+    List<String> parameters = new ArrayList<>();
+    if (!md.isStatic) {
+      parameters.add("struct C_" + owners.get(md).name + " *self");
+    }
+    for (ParameterDecl pd : md.parameterDeclList) {
+      parameters.add(declaration(pd.type, "v_" + pd.name));
+    }
+    if (parameters.isEmpty()) {
+      parameters.add("void");
+    }
+    return "static "
+        + declaration(md.type, methodName(md))
+        + "("
+        + String.join(", ", parameters)
+        + ")";
+  }
+
+  private String methodName(MethodDecl md) {
+    return "M_" + owners.get(md).name + "_" + md.name;
+  }
+
+  private String staticName(FieldDecl fd) {
+    return "S_" + owners.get(fd).name + "_" + fd.name;
+  }
+
+  /**
+   * @return a C declaration of the name with the miniJava type, or the C type alone for ""
+   */
+  private String declaration(TypeDenoter type, String name) {
+    String separator = name.isEmpty() ? "" : " ";
+    switch (type.typeKind) {
+      case INT:
+      case BOOLEAN:
+        return "int32_t" + separator + name;
+      case VOID:
+        return "void" + separator + name;
+      case ARRAY:
+        boolean ints = ((ArrayType) type).eltType.typeKind == TypeKind.INT;
+        return (ints ? "mj_ints *" : "mj_refs *") + name;
+      default:
+        Declaration decl = ((ClassType) type).className.decl;
+        if (decl instanceof ClassDecl && programClasses.containsKey(decl)) {
+          return "struct C_" + decl.name + " *" + name;
+        }
+        return "void *" + name;
+    }
+  }
+
+  /** Pointers of different struct types cannot be compared in C without a cast. */
+  private static String comparable(String operand, Expression expr) {
+    TypeKind kind = expr.type.typeKind;
+    return kind == TypeKind.INT || kind == TypeKind.BOOLEAN ? operand : "(void *) " + operand;
+  }
+
+  /**
+   * @return a C string literal for the source position, as the interpreter prints it
+   */
+  private String position(AST node) {
+    String position = "@" + lineTable.getPosition(node.offset);
+    positions.add(position);
+    return "\"" + position + "\"";
+  }
+
+  private String temp(String type, String value) {
+    String name = "t" + temps++;
+    String separator = type.endsWith("*") ? "" : " ";
+    line(type + separator + name + " = " + value + ";");
+    return name;
+  }
+
+  private void line(String text) {
+    for (int i = 0; i < indent; i++) {
+      out.append("  ");
+    }
+    out.append(text).append('\n');
+  }
+}
@@ -0,0 +1,125 @@
+package miniJava.CodeGeneration;
+
+import miniJava.AbstractSyntaxTrees.ASTWriter;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+import miniJava.ParseCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * A program translated to C, compiled with the local C compiler and run.
+ *
+ * Objects are cached in a directory under the SHA-256 of the encoded AST,
+ * the source positions the C reports, the generator version and the
+ * compiler command, so an unchanged program skips the optimizing compile
+ * and is only linked. Entries are written to a temporary file and moved
+ * into place, so concurrent compilers never see a partial object.
+ */
+public class CProgram {
+  /**
+   * Without sibling call optimization, unbounded recursion still overflows the stack and is
+   * reported, instead of being turned into an endless loop.
+   */
+  static final List<String> COMPILE =
+      List.of("cc", "-O2", "-std=c99", "-w", "-fno-optimize-sibling-calls");
+
+  private final String source;
+  private final String key;
+
+  CProgram(Package prog, String cSource, List<String> positions) {
+    source = cSource;
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update((byte) CGenerator.VERSION);
+    digest.update(String.join(" ", COMPILE).getBytes(StandardCharsets.UTF_8));
+    digest.update(ASTWriter.write(prog));
+    for (String position : positions) {
+      digest.update(position.getBytes(StandardCharsets.UTF_8));
+    }
+    key = ParseCache.toHex(digest.digest());
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Compile the program unless its object is cached, and link it.
+   *
+   * @return the executable, in a fresh temporary file
+   * @throws IOException if the C compiler cannot be run or fails
+   */
+  public Path build(Path cacheDirectory) throws IOException, InterruptedException {
+    Files.createDirectories(cacheDirectory);
+    Path object = cacheDirectory.resolve(key + ".o");
+    if (!Files.exists(object)) {
+      Path c = Files.createTempFile(cacheDirectory, key, ".c");
+      Path temp = Files.createTempFile(cacheDirectory, key, ".tmp");
+      try {
+        Files.writeString(c, source, StandardCharsets.US_ASCII);
+        List<String> command = new ArrayList<>(COMPILE);
+        command.addAll(Arrays.asList("-c", c.toString(), "-o", temp.toString()));
+        execute(command);
+        Files.move(
+            temp, object, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(c);
+        Files.deleteIfExists(temp);
+      }
+    }
+    Path executable = Files.createTempFile("miniJava", "");
+    execute(List.of(COMPILE.get(0), object.toString(), "-o", executable.toString()));
+    return executable;
+  }
+
+  /**
+   * Build the program and run it with this process's standard streams.
+   *
+   * @return true if the program ran to completion; a failure it reports itself
+   */
+  public boolean run(Path cacheDirectory, ErrorReporter reporter) {
+    Path executable = null;
+    try {
+      executable = build(cacheDirectory);
+      Process process = new ProcessBuilder(executable.toString()).inheritIO().start();
+      return process.waitFor() == 0;
+    } catch (IOException e) {
+      reporter.reportError("*** " + e.getMessage());
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      if (executable != null) {
+        try {
+          Files.deleteIfExists(executable);
+        } catch (IOException ignored) {
+          // leave the stray executable behind
+        }
+      }
+    }
+  }
+
+  private static void execute(List<String> command) throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    byte[] output = process.getInputStream().readAllBytes();
+    if (process.waitFor() != 0) {
+      throw new IOException(
+          command.get(0) + " failed: " + new String(output, StandardCharsets.UTF_8).trim());
+    }
+  }
+}
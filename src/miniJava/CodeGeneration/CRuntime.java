@@ -0,0 +1,156 @@
+package miniJava.CodeGeneration;
+
+/*
+ * The C runtime CGenerator puts at the top of every translation: array
+ * layouts, a bump allocator, buffered output and failure reports that read
+ * like the interpreter's. A stack overflow is caught on an alternate signal
+ * stack where POSIX provides one.
+ */
+final class CRuntime {
+  private CRuntime() {}
+
+  static final String SOURCE =
+      """
+      /* generated by miniJava */
+      #define _XOPEN_SOURCE 700
+      #include <stdint.h>
+      #include <stdio.h>
+      #include <stdlib.h>
+      #include <string.h>
+
+      typedef struct { int32_t length; int32_t data[]; } mj_ints;
+      typedef struct { int32_t length; void *data[]; } mj_refs;
+
+      static char mj_out[1 << 16];
+      static size_t mj_out_length;
+
+      static void mj_flush(void) {
+        fwrite(mj_out, 1, mj_out_length, stdout);
+        fflush(stdout);
+        mj_out_length = 0;
+      }
+
+      static void mj_println(int32_t value) {
+        char digits[16];
+        int n = 0;
+        uint32_t magnitude = value < 0 ? 0u - (uint32_t) value : (uint32_t) value;
+        if (mj_out_length > sizeof mj_out - 16) mj_flush();
+        do {
+          digits[n++] = (char) ('0' + magnitude % 10);
+          magnitude /= 10;
+        } while (magnitude != 0);
+        if (value < 0) mj_out[mj_out_length++] = '-';
+        while (n > 0) mj_out[mj_out_length++] = digits[--n];
+        mj_out[mj_out_length++] = '\\n';
+      }
+
+      static void mj_report(const char *desc) {
+        mj_flush();
+        printf("Error\\n%s\\n", desc);
+        fflush(stdout);
+        exit(1);
+      }
+
+      static void mj_fail(const char *desc, const char *position) {
+        mj_flush();
+        printf("Error\\nminiJava.Execution.ExecutionError: %s%s\\n", desc, position);
+        fflush(stdout);
+        exit(1);
+      }
+
+      static void mj_fail_index(int32_t index, int32_t length, const char *position) {
+        char desc[64];
+        sprintf(desc, "index %d out of bounds for length %d", (int) index, (int) length);
+        mj_fail(desc, position);
+      }
+
+      static inline void mj_check_index(int32_t index, int32_t length, const char *position) {
+        if ((uint32_t) index >= (uint32_t) length) mj_fail_index(index, length, position);
+      }
+
+      static inline int32_t mj_div(int32_t left, int32_t right, const char *position) {
+        if (right == 0) mj_fail("division by zero", position);
+        if (right == -1) return (int32_t) (0u - (uint32_t) left);
+        return left / right;
+      }
+
+      #define MJ_CHUNK (1 << 20)
+      static char *mj_heap;
+      static size_t mj_heap_left;
+
+      static void *mj_alloc(size_t size) {
+        void *p;
+        size = (size + 7) & ~(size_t) 7;
+        if (size > mj_heap_left) {
+          if (size > MJ_CHUNK / 4) {
+            p = calloc(1, size);
+            if (p == NULL) mj_report("*** out of memory");
+            return p;
+          }
+          mj_heap = calloc(1, MJ_CHUNK);
+          if (mj_heap == NULL) mj_report("*** out of memory");
+          mj_heap_left = MJ_CHUNK;
+        }
+        p = mj_heap;
+        mj_heap += size;
+        mj_heap_left -= size;
+        return p;
+      }
+
+      static mj_ints *mj_new_ints(int32_t length, const char *position) {
+        mj_ints *array;
+        if (length < 0) {
+          char desc[48];
+          sprintf(desc, "negative array size %d", (int) length);
+          mj_fail(desc, position);
+        }
+        array = mj_alloc(sizeof(mj_ints) + (size_t) length * sizeof(int32_t));
+        array->length = length;
+        return array;
+      }
+
+      static mj_refs *mj_new_refs(int32_t length, const char *position) {
+        mj_refs *array;
+        if (length < 0) {
+          char desc[48];
+          sprintf(desc, "negative array size %d", (int) length);
+          mj_fail(desc, position);
+        }
+        array = mj_alloc(sizeof(mj_refs) + (size_t) length * sizeof(void *));
+        array->length = length;
+        return array;
+      }
+
+      #if defined(__unix__) || defined(__APPLE__)
+      #include <signal.h>
+      #include <unistd.h>
+
+      static char mj_signal_stack[1 << 16];
+
+      static void mj_stack_overflow(int signal) {
+        static const char message[] = "Error\\n*** stack overflow\\n";
+        (void) signal;
+        fflush(stdout);
+        if (write(1, mj_out, mj_out_length) < 0 || write(1, message, sizeof message - 1) < 0) {
+          _exit(2);
+        }
+        _exit(1);
+      }
+
+      static void mj_start(void) {
+        stack_t stack;
+        struct sigaction action;
+        memset(&stack, 0, sizeof stack);
+        stack.ss_sp = mj_signal_stack;
+        stack.ss_size = sizeof mj_signal_stack;
+        sigaltstack(&stack, NULL);
+        memset(&action, 0, sizeof action);
+        action.sa_handler = mj_stack_overflow;
+        action.sa_flags = SA_ONSTACK;
+        sigaction(SIGSEGV, &action, NULL);
+      }
+      #else
+      static void mj_start(void) {}
+      #endif
+      """;
+}
@@ -0,0 +1,414 @@
+package miniJava.CodeGeneration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Assembler for the Code attribute of one method.
+ *
+ * Besides the instructions it tracks the verification type of every
+ * operand stack entry and local, which is what the StackMapTable needs at
+ * each jump target. A label's frame is taken from the first jump to it, or
+ * from the fall-through if it is bound first, and every bound label gets a
+ * frame so that later backward jumps can target it. Locals keep the type they
+ * were declared with, so every path to a label agrees on them.
+ *
+ * Verification types are ints: TOP, INT, or object(classIndex).
+ */
+class CodeBuilder {
+  static final int TOP = 0;
+  static final int INT = 1;
+  static final int OBJECT_TAG = 7;
+
+  static final int NOP = 0x00;
+  static final int ACONST_NULL = 0x01;
+  static final int ICONST_0 = 0x03;
+  static final int BIPUSH = 0x10;
+  static final int SIPUSH = 0x11;
+  static final int LDC_W = 0x13;
+  static final int ILOAD = 0x15;
+  static final int ALOAD = 0x19;
+  static final int ILOAD_0 = 0x1A;
+  static final int ALOAD_0 = 0x2A;
+  static final int IALOAD = 0x2E;
+  static final int AALOAD = 0x32;
+  static final int ISTORE = 0x36;
+  static final int ASTORE = 0x3A;
+  static final int ISTORE_0 = 0x3B;
+  static final int ASTORE_0 = 0x4B;
+  static final int IASTORE = 0x4F;
+  static final int AASTORE = 0x53;
+  static final int POP = 0x57;
+  static final int DUP = 0x59;
+  static final int IADD = 0x60;
+  static final int ISUB = 0x64;
+  static final int IMUL = 0x68;
+  static final int IDIV = 0x6C;
+  static final int INEG = 0x74;
+  static final int IXOR = 0x82;
+  static final int IFEQ = 0x99;
+  static final int IFNE = 0x9A;
+  static final int IF_ICMPEQ = 0x9F;
+  static final int IF_ICMPNE = 0xA0;
+  static final int IF_ICMPLT = 0xA1;
+  static final int IF_ICMPGE = 0xA2;
+  static final int IF_ICMPGT = 0xA3;
+  static final int IF_ICMPLE = 0xA4;
+  static final int IF_ACMPEQ = 0xA5;
+  static final int IF_ACMPNE = 0xA6;
+  static final int GOTO = 0xA7;
+  static final int IRETURN = 0xAC;
+  static final int ARETURN = 0xB0;
+  static final int RETURN = 0xB1;
+  static final int GETSTATIC = 0xB2;
+  static final int PUTSTATIC = 0xB3;
+  static final int GETFIELD = 0xB4;
+  static final int PUTFIELD = 0xB5;
+  static final int INVOKEVIRTUAL = 0xB6;
+  static final int INVOKESPECIAL = 0xB7;
+  static final int INVOKESTATIC = 0xB8;
+  static final int INVOKEDYNAMIC = 0xBA;
+  static final int NEW = 0xBB;
+  static final int NEWARRAY = 0xBC;
+  static final int ANEWARRAY = 0xBD;
+  static final int ARRAYLENGTH = 0xBE;
+  static final int CHECKCAST = 0xC0;
+  static final int WIDE = 0xC4;
+
+  static final int T_INT = 10;
+
+  static class Label {
+    int position = -1;
+    int[] locals;
+    int[] stack;
+    int[] fixups = new int[4];
+    int fixupCount = 0;
+  }
+
+  final ConstantPool pool;
+
+  private byte[] code = new byte[256];
+  private int length = 0;
+  private int[] stack = new int[16];
+  private int sp = 0;
+  private int maxStack = 0;
+  private int[] locals;
+  private int maxLocals;
+  private boolean reachable = true;
+
+  private final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+  private final DataOutputStream frameOut = new DataOutputStream(frames);
+  private int frameCount = 0;
+  private int lastFrame = -1;
+  private int framePosition = -1;
+  private int[] frameLocals;
+  private int[] frameStack;
+
+  private int[] lines = new int[16];
+  private int lineCount = 0;
+
+  CodeBuilder(ConstantPool constantPool, int[] initialLocals) {
+    pool = constantPool;
+    locals = Arrays.copyOf(initialLocals, Math.max(16, initialLocals.length));
+    maxLocals = initialLocals.length;
+  }
+
+  static int object(int classIndex) {
+    return classIndex << 8 | OBJECT_TAG;
+  }
+
+  boolean isReachable() {
+    return reachable;
+  }
+
+  /**
+   * @return the verification type on top of the operand stack
+   */
+  int top() {
+    return stack[sp - 1];
+  }
+
+  void line(int line) {
+    if (lineCount > 0 && lines[lineCount * 2 - 1] == line) {
+      return;
+    }
+    if (lineCount * 2 == lines.length) {
+      lines = Arrays.copyOf(lines, lines.length * 2);
+    }
+    lines[lineCount * 2] = length;
+    lines[lineCount * 2 + 1] = line;
+    lineCount++;
+  }
+
+  // locals
+
+  void declareLocal(int slot, int type) {
+    if (slot >= locals.length) {
+      locals = Arrays.copyOf(locals, slot * 2);
+    }
+    locals[slot] = type;
+    maxLocals = Math.max(maxLocals, slot + 1);
+  }
+
+  /** Locals from the given slot on go out of scope. */
+  void endLocals(int fromSlot) {
+    Arrays.fill(locals, fromSlot, locals.length, TOP);
+  }
+
+  // instructions
+
+  void iconst(int value) {
+    if (-1 <= value && value <= 5) {
+      emit1(ICONST_0 + value);
+    } else if (Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE) {
+      emit1(BIPUSH);
+      emit1(value);
+    } else if (Short.MIN_VALUE <= value && value <= Short.MAX_VALUE) {
+      emit1(SIPUSH);
+      emit2(value);
+    } else {
+      emit1(LDC_W);
+      emit2(pool.integer(value));
+    }
+    push(INT);
+  }
+
+  void load(int slot) {
+    int type = locals[slot];
+    if (type == INT) {
+      local(ILOAD, ILOAD_0, slot);
+    } else {
+      local(ALOAD, ALOAD_0, slot);
+    }
+    push(type);
+  }
+
+  void store(int slot) {
+    if (locals[slot] == INT) {
+      local(ISTORE, ISTORE_0, slot);
+    } else {
+      local(ASTORE, ASTORE_0, slot);
+    }
+    pop(1);
+  }
+
+  /** A load or store in its shortest form: xLOAD_n, xLOAD n or WIDE xLOAD n. */
+  private void local(int opcode, int shortOpcode, int slot) {
+    if (slot <= 3) {
+      emit1(shortOpcode + slot);
+    } else if (slot <= 0xFF) {
+      emit1(opcode);
+      emit1(slot);
+    } else {
+      emit1(WIDE);
+      emit1(opcode);
+      emit2(slot);
+    }
+  }
+
+  /** An instruction without operands. */
+  void op(int opcode, int pops, int pushed) {
+    emit1(opcode);
+    pop(pops);
+    if (pushed != TOP) {
+      push(pushed);
+    }
+    if (opcode >= IRETURN && opcode <= RETURN) {
+      reachable = false;
+    }
+  }
+
+  /** An instruction with a constant pool operand. */
+  void op(int opcode, int index, int pops, int pushed) {
+    emit1(opcode);
+    emit2(index);
+    pop(pops);
+    if (pushed != TOP) {
+      push(pushed);
+    }
+  }
+
+  void newIntArray() {
+    emit1(NEWARRAY);
+    emit1(T_INT);
+    pop(1);
+    push(object(pool.classRef("[I")));
+  }
+
+  void invokeDynamic(int index, int pops, int pushed) {
+    op(INVOKEDYNAMIC, index, pops, pushed);
+    emit2(0);
+  }
+
+  void jump(int opcode, Label label) {
+    int start = length;
+    emit1(opcode);
+    if (opcode == IF_ICMPEQ
+        || opcode == IF_ICMPNE
+        || opcode == IF_ICMPLT
+        || opcode == IF_ICMPGE
+        || opcode == IF_ICMPGT
+        || opcode == IF_ICMPLE
+        || opcode == IF_ACMPEQ
+        || opcode == IF_ACMPNE) {
+      pop(2);
+    } else if (opcode != GOTO) {
+      pop(1);
+    }
+    if (label.locals == null) {
+      label.locals = Arrays.copyOf(locals, maxLocals);
+      label.stack = Arrays.copyOf(stack, sp);
+    }
+    if (label.position >= 0) {
+      emit2(label.position - start);
+    } else {
+      if (label.fixupCount == label.fixups.length) {
+        label.fixups = Arrays.copyOf(label.fixups, label.fixupCount * 2);
+      }
+      label.fixups[label.fixupCount++] = start;
+      emit2(0);
+    }
+    if (opcode == GOTO) {
+      reachable = false;
+    }
+  }
+
+  void bind(Label label) {
+    label.position = length;
+    if (reachable) {
+      if (label.locals == null) {
+        label.locals = Arrays.copyOf(locals, maxLocals);
+        label.stack = Arrays.copyOf(stack, sp);
+      }
+    } else if (label.locals != null) {
+      System.arraycopy(label.locals, 0, locals, 0, label.locals.length);
+      Arrays.fill(locals, label.locals.length, locals.length, TOP);
+      sp = label.stack.length;
+      System.arraycopy(label.stack, 0, stack, 0, sp);
+      reachable = true;
+    } else {
+      return;
+    }
+    for (int i = 0; i < label.fixupCount; i++) {
+      int start = label.fixups[i];
+      int offset = length - start;
+      code[start + 1] = (byte) (offset >> 8);
+      code[start + 2] = (byte) offset;
+    }
+    frame(label);
+  }
+
+  /**
+   * Record the frame at the current position. Labels bound at the same position share one frame
+   * whose locals are those every one of them agrees on.
+   */
+  private void frame(Label label) {
+    if (framePosition == length) {
+      for (int i = 0; i < frameLocals.length; i++) {
+        if (i >= label.locals.length || frameLocals[i] != label.locals[i]) {
+          frameLocals[i] = TOP;
+          locals[i] = TOP;
+        }
+      }
+      Arrays.fill(locals, frameLocals.length, locals.length, TOP);
+      return;
+    }
+    writeFrame();
+    framePosition = length;
+    frameLocals = label.locals.clone();
+    frameStack = label.stack;
+  }
+
+  private void writeFrame() {
+    if (framePosition < 0) {
+      return;
+    }
+    try {
+      frameOut.writeByte(255);
+      frameOut.writeShort(lastFrame < 0 ? framePosition : framePosition - lastFrame - 1);
+      int localCount = frameLocals.length;
+      while (localCount > 0 && frameLocals[localCount - 1] == TOP) {
+        localCount--;
+      }
+      frameOut.writeShort(localCount);
+      for (int i = 0; i < localCount; i++) {
+        writeType(frameLocals[i]);
+      }
+      frameOut.writeShort(frameStack.length);
+      for (int type : frameStack) {
+        writeType(type);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    lastFrame = framePosition;
+    frameCount++;
+    framePosition = -1;
+  }
+
+  private void writeType(int type) throws IOException {
+    frameOut.writeByte(type & 0xFF);
+    if ((type & 0xFF) == OBJECT_TAG) {
+      frameOut.writeShort(type >>> 8);
+    }
+  }
+
+  // the Code attribute
+
+  byte[] toAttribute() throws IOException {
+    if (length > 0xFFFF) {
+      throw new IllegalStateException("method too large for the JVM");
+    }
+    writeFrame();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(maxStack);
+    out.writeShort(maxLocals);
+    out.writeInt(length);
+    out.write(code, 0, length);
+    out.writeShort(0);
+    out.writeShort((frameCount > 0 ? 1 : 0) + (lineCount > 0 ? 1 : 0));
+    if (frameCount > 0) {
+      out.writeShort(pool.utf8("StackMapTable"));
+      out.writeInt(frames.size() + 2);
+      out.writeShort(frameCount);
+      frames.writeTo(out);
+    }
+    if (lineCount > 0) {
+      out.writeShort(pool.utf8("LineNumberTable"));
+      out.writeInt(2 + lineCount * 4);
+      out.writeShort(lineCount);
+      for (int i = 0; i < lineCount; i++) {
+        out.writeShort(lines[i * 2]);
+        out.writeShort(lines[i * 2 + 1]);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private void push(int type) {
+    if (sp == stack.length) {
+      stack = Arrays.copyOf(stack, sp * 2);
+    }
+    stack[sp++] = type;
+    maxStack = Math.max(maxStack, sp);
+  }
+
+  private void pop(int count) {
+    sp -= count;
+  }
+
+  private void emit1(int b) {
+    if (length == code.length) {
+      code = Arrays.copyOf(code, length * 2);
+    }
+    code[length++] = (byte) b;
+  }
+
+  private void emit2(int s) {
+    emit1(s >> 8);
+    emit1(s);
+  }
+}
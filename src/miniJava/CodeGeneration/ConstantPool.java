@@ -0,0 +1,126 @@
+package miniJava.CodeGeneration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Constant pool of one class file. Every entry is added at most once: the
+ * index of an entry is looked up by a key that spells out its tag and
+ * contents.
+ */
+class ConstantPool {
+  static final int UTF8 = 1;
+  static final int INTEGER = 3;
+  static final int CLASS = 7;
+  static final int STRING = 8;
+  static final int FIELDREF = 9;
+  static final int METHODREF = 10;
+  static final int NAME_AND_TYPE = 12;
+  static final int METHOD_HANDLE = 15;
+  static final int INVOKE_DYNAMIC = 18;
+
+  static final int REF_INVOKE_STATIC = 6;
+
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  private final DataOutputStream out = new DataOutputStream(bytes);
+  private final Map<String, Integer> indexes = new HashMap<>();
+  private int count = 1;
+
+  int utf8(String text) {
+    return entry(UTF8 + ":" + text, () -> out.writeUTF(text));
+  }
+
+  int integer(int value) {
+    return entry(INTEGER + ":" + value, () -> out.writeInt(value));
+  }
+
+  int classRef(String internalName) {
+    int name = utf8(internalName);
+    return entry(CLASS + ":" + internalName, () -> out.writeShort(name));
+  }
+
+  int string(String text) {
+    int value = utf8(text);
+    return entry(STRING + ":" + text, () -> out.writeShort(value));
+  }
+
+  int nameAndType(String name, String descriptor) {
+    int nameIndex = utf8(name);
+    int descriptorIndex = utf8(descriptor);
+    return entry(
+        NAME_AND_TYPE + ":" + name + ":" + descriptor,
+        () -> {
+          out.writeShort(nameIndex);
+          out.writeShort(descriptorIndex);
+        });
+  }
+
+  int fieldRef(String owner, String name, String descriptor) {
+    return memberRef(FIELDREF, owner, name, descriptor);
+  }
+
+  int methodRef(String owner, String name, String descriptor) {
+    return memberRef(METHODREF, owner, name, descriptor);
+  }
+
+  int staticMethodHandle(String owner, String name, String descriptor) {
+    int method = methodRef(owner, name, descriptor);
+    return entry(
+        METHOD_HANDLE + ":" + method,
+        () -> {
+          out.writeByte(REF_INVOKE_STATIC);
+          out.writeShort(method);
+        });
+  }
+
+  int invokeDynamic(int bootstrapIndex, String name, String descriptor) {
+    int nameAndType = nameAndType(name, descriptor);
+    return entry(
+        INVOKE_DYNAMIC + ":" + bootstrapIndex + ":" + nameAndType,
+        () -> {
+          out.writeShort(bootstrapIndex);
+          out.writeShort(nameAndType);
+        });
+  }
+
+  private int memberRef(int tag, String owner, String name, String descriptor) {
+    int ownerIndex = classRef(owner);
+    int nameAndType = nameAndType(name, descriptor);
+    return entry(
+        tag + ":" + ownerIndex + ":" + nameAndType,
+        () -> {
+          out.writeShort(ownerIndex);
+          out.writeShort(nameAndType);
+        });
+  }
+
+  private interface Body {
+    void write() throws IOException;
+  }
+
+  private int entry(String key, Body body) {
+    Integer index = indexes.get(key);
+    if (index != null) {
+      return index;
+    }
+    try {
+      out.writeByte(Integer.parseInt(key.substring(0, key.indexOf(':'))));
+      body.write();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    if (count > 0xFFFF) {
+      throw new IllegalStateException("constant pool overflow");
+    }
+    indexes.put(key, count);
+    return count++;
+  }
+
+  void writeTo(DataOutputStream classFile) throws IOException {
+    classFile.writeShort(count);
+    bytes.writeTo(classFile);
+  }
+}
@@ -0,0 +1,84 @@
+package miniJava.CodeGeneration;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Lay out a static x86-64 Linux executable with two segments: the headers,
+ * code and read-only data in one readable, executable segment, and a
+ * zero-filled, writable bss segment on the following pages. There are no
+ * section headers, symbols or relocations; the kernel only reads the
+ * program headers.
+ */
+class ElfWriter {
+  static final long BASE_ADDRESS = 0x400000;
+  static final int PAGE_SIZE = 0x1000;
+
+  static final int HEADER_SIZE = 64;
+  static final int PROGRAM_HEADER_SIZE = 56;
+  static final int PROGRAM_HEADERS = 2;
+
+  /** Virtual address of the first byte of code. */
+  static final long CODE_ADDRESS =
+      BASE_ADDRESS + HEADER_SIZE + PROGRAM_HEADERS * PROGRAM_HEADER_SIZE;
+
+  static final int PT_LOAD = 1;
+  static final int PF_X = 1;
+  static final int PF_W = 2;
+  static final int PF_R = 4;
+
+  private ElfWriter() {}
+
+  /**
+   * @return virtual address of the bss segment that follows codeLength bytes of code
+   */
+  static long bssAddress(int codeLength) {
+    long end = CODE_ADDRESS + codeLength;
+    return (end + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+  }
+
+  /**
+   * @param code linked code, loaded at CODE_ADDRESS
+   * @param entry offset of the entry point in code
+   * @param bssSize bytes of zeroed memory at bssAddress(code.length)
+   */
+  static byte[] executable(byte[] code, int entry, long bssSize) {
+    int headers = HEADER_SIZE + PROGRAM_HEADERS * PROGRAM_HEADER_SIZE;
+    ByteBuffer out = ByteBuffer.allocate(headers + code.length).order(ByteOrder.LITTLE_ENDIAN);
+
+    // ELF header: 64-bit, little-endian, System V, executable for x86-64
+    out.put(new byte[] {0x7F, 'E', 'L', 'F', 2, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+    out.putShort((short) 2);
+    out.putShort((short) 0x3E);
+    out.putInt(1);
+    out.putLong(CODE_ADDRESS + entry);
+    out.putLong(HEADER_SIZE);
+    out.putLong(0);
+    out.putInt(0);
+    out.putShort((short) HEADER_SIZE);
+    out.putShort((short) PROGRAM_HEADER_SIZE);
+    out.putShort((short) PROGRAM_HEADERS);
+    out.putShort((short) 0);
+    out.putShort((short) 0);
+    out.putShort((short) 0);
+
+    int fileSize = headers + code.length;
+    programHeader(out, PF_R | PF_X, 0, BASE_ADDRESS, fileSize, fileSize);
+    programHeader(out, PF_R | PF_W, 0, bssAddress(code.length), 0, bssSize);
+
+    out.put(code);
+    return out.array();
+  }
+
+  private static void programHeader(
+      ByteBuffer out, int flags, long offset, long address, long fileSize, long memorySize) {
+    out.putInt(PT_LOAD);
+    out.putInt(flags);
+    out.putLong(offset);
+    out.putLong(address);
+    out.putLong(address);
+    out.putLong(fileSize);
+    out.putLong(memorySize);
+    out.putLong(PAGE_SIZE);
+  }
+}
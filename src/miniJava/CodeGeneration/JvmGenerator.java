@@ -0,0 +1,809 @@
+package miniJava.CodeGeneration;
+
+import static miniJava.CodeGeneration.CodeBuilder.*;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+import miniJava.Execution.BytecodeCompiler;
+import miniJava.Execution.ExecutionError;
+import miniJava.SyntacticAnalyzer.LineTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Translate an analyzed program into one JVM class file per ClassDecl.
+ *
+ * Fields and methods map one to one onto JVM fields and methods, int and
+ * boolean onto I and Z, and int[] onto the JVM's [I. Every other
+ * reference is typed Object, because the classes are loaded as hidden
+ * classes that cannot name each other: members of the class being
+ * generated are used directly after a checkcast, and members of other
+ * classes through invokedynamic (see JvmLinker). System.out is a private
+ * static PrintStream field of every class, set when the class is loaded.
+ *
+ * Each statement gets a LineNumberTable entry, so runtime exceptions can
+ * be traced back to a source line.
+ */
+public class JvmGenerator implements Visitor<Object, Object> {
+  public static final String PACKAGE = "miniJava/CodeGeneration/";
+  public static final String OUT_FIELD = "$out";
+
+  /** Message of the NullPointerException thrown for a null array. */
+  static final String NULL_ARRAY = "null array";
+
+  static final String NULL_REFERENCE = "null reference";
+
+  static final int VERSION = 61;
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_STATIC = 0x0008;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  static final String OBJECT = "java/lang/Object";
+  static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+  static final String INT_ARRAY = "[I";
+  static final String OBJECT_ARRAY = "[Ljava/lang/Object;";
+  static final String PRINT_STREAM = "java/io/PrintStream";
+  static final String STRING = "java/lang/String";
+
+  private final StandardEnvironment environment;
+  private final Map<MemberDecl, ClassDecl> owners = new IdentityHashMap<>();
+  private String mainClass;
+
+  private LineTable lineTable;
+  private ClassDecl currentClass;
+  private String className;
+  private ConstantPool pool;
+  private int thisClass;
+  private List<int[]> bootstrapMethods;
+  private Map<String, Integer> bootstrapIndexes;
+
+  private CodeBuilder code;
+  private final Map<LocalDecl, Integer> localSlots = new IdentityHashMap<>();
+  private int nextSlot;
+
+  public JvmGenerator(StandardEnvironment standardEnvironment) {
+    environment = standardEnvironment;
+  }
+
+  /**
+   * @return class file bytes by miniJava class name, in declaration order
+   */
+  public Map<String, byte[]> generate(Package prog) {
+    lineTable = prog.lineTable;
+    for (ClassDecl cd : prog.classDeclList) {
+      for (FieldDecl fd : cd.fieldDeclList) {
+        owners.put(fd, cd);
+      }
+      for (MethodDecl md : cd.methodDeclList) {
+        owners.put(md, cd);
+        if (mainClass == null && BytecodeCompiler.isMain(md)) {
+          mainClass = cd.name;
+        }
+      }
+    }
+    Map<String, byte[]> classFiles = new LinkedHashMap<>();
+    for (ClassDecl cd : prog.classDeclList) {
+      classFiles.put(cd.name, (byte[]) cd.visit(this, null));
+    }
+    return classFiles;
+  }
+
+  /**
+   * @return the name of the class declaring public static void main(String[] args), or null
+   */
+  public String getMainClass() {
+    return mainClass;
+  }
+
+  // declarations
+
+  public Object visitPackage(Package prog, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Object arg) {
+    currentClass = cd;
+    className = PACKAGE + cd.name;
+    pool = new ConstantPool();
+    thisClass = pool.classRef(className);
+    bootstrapMethods = new ArrayList<>();
+    bootstrapIndexes = new HashMap<>();
+    try {
+      ByteArrayOutputStream fields = new ByteArrayOutputStream();
+      DataOutputStream fieldOut = new DataOutputStream(fields);
+      for (FieldDecl fd : cd.fieldDeclList) {
+        writeMember(fieldOut, access(fd), fd.name, descriptor(fd.type), null);
+      }
+      writeMember(fieldOut, ACC_PRIVATE | ACC_STATIC, OUT_FIELD, "L" + PRINT_STREAM + ";", null);
+
+      ByteArrayOutputStream methods = new ByteArrayOutputStream();
+      DataOutputStream methodOut = new DataOutputStream(methods);
+      writeMember(methodOut, ACC_PUBLIC, "<init>", "()V", constructor());
+      for (MethodDecl md : cd.methodDeclList) {
+        writeMember(methodOut, access(md), md.name, descriptor(md), (byte[]) md.visit(this, null));
+      }
+
+      byte[] bootstraps = bootstrapMethodsAttribute();
+      int superClass = pool.classRef(OBJECT);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(VERSION);
+      pool.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(0);
+      out.writeShort(cd.fieldDeclList.size() + 1);
+      fields.writeTo(out);
+      out.writeShort(cd.methodDeclList.size() + 1);
+      methods.writeTo(out);
+      if (bootstraps == null) {
+        out.writeShort(0);
+      } else {
+        out.writeShort(1);
+        out.write(bootstraps);
+      }
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void writeMember(
+      DataOutputStream out, int access, String name, String descriptor, byte[] codeAttribute)
+      throws IOException {
+    out.writeShort(access);
+    out.writeShort(pool.utf8(name));
+    out.writeShort(pool.utf8(descriptor));
+    if (codeAttribute == null) {
+      out.writeShort(0);
+    } else {
+      out.writeShort(1);
+      out.writeShort(pool.utf8("Code"));
+      out.writeInt(codeAttribute.length);
+      out.write(codeAttribute);
+    }
+  }
+
+  private byte[] constructor() throws IOException {
+    code = new CodeBuilder(pool, new int[] {object(thisClass)});
+    code.load(0);
+    code.op(INVOKESPECIAL, pool.methodRef(OBJECT, "<init>", "()V"), 1, TOP);
+    code.op(RETURN, 0, TOP);
+    return code.toAttribute();
+  }
+
+  private byte[] bootstrapMethodsAttribute() throws IOException {
+    if (bootstrapMethods.isEmpty()) {
+      return null;
+    }
+    int name = pool.utf8("BootstrapMethods");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(name);
+    out.writeInt(2 + bootstrapMethods.size() * 8);
+    out.writeShort(bootstrapMethods.size());
+    for (int[] method : bootstrapMethods) {
+      out.writeShort(method[0]);
+      out.writeShort(2);
+      out.writeShort(method[1]);
+      out.writeShort(method[2]);
+    }
+    return bytes.toByteArray();
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Object arg) {
+    localSlots.clear();
+    List<Integer> initial = new ArrayList<>();
+    if (!md.isStatic) {
+      initial.add(object(thisClass));
+    }
+    for (ParameterDecl pd : md.parameterDeclList) {
+      localSlots.put(pd, initial.size());
+      initial.add(verificationType(pd.type));
+    }
+    nextSlot = initial.size();
+    code = new CodeBuilder(pool, initial.stream().mapToInt(Integer::intValue).toArray());
+
+    for (Statement s : md.statementList) {
+      statement(s);
+    }
+    if (code.isReachable()) {
+      switch (md.type.typeKind) {
+        case VOID:
+          code.op(RETURN, 0, TOP);
+          break;
+        case INT:
+        case BOOLEAN:
+          code.iconst(0);
+          code.op(IRETURN, 1, TOP);
+          break;
+        default:
+          code.op(ACONST_NULL, 0, object(pool.classRef(OBJECT)));
+          code.op(ARETURN, 1, TOP);
+      }
+    }
+    try {
+      return code.toAttribute();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitVarDecl(VarDecl decl, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitBaseType(BaseType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitClassType(ClassType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitArrayType(ArrayType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  // statements
+
+  /** Statements after a return are never reached and are not generated. */
+  private void statement(Statement stmt) {
+    if (!code.isReachable()) {
+      return;
+    }
+    if (lineTable != null) {
+      code.line(lineTable.getPosition(stmt.offset).getRow());
+    }
+    stmt.visit(this, null);
+  }
+
+  public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+    int mark = nextSlot;
+    for (Statement s : stmt.sl) {
+      statement(s);
+    }
+    code.endLocals(mark);
+    nextSlot = mark;
+    return null;
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    stmt.initExp.visit(this, null);
+    int slot = nextSlot++;
+    localSlots.put(stmt.varDecl, slot);
+    code.declareLocal(slot, verificationType(stmt.varDecl.type));
+    code.store(slot);
+    return null;
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+    Declaration decl = stmt.ref.decl;
+    if (decl instanceof LocalDecl) {
+      stmt.val.visit(this, null);
+      code.store(localSlots.get(decl));
+      return null;
+    }
+    FieldDecl fd = (FieldDecl) decl;
+    ClassDecl owner = owners.get(fd);
+    String descriptor = descriptor(fd.type);
+    if (fd.isStatic) {
+      stmt.val.visit(this, null);
+      if (owner == currentClass) {
+        code.op(PUTSTATIC, pool.fieldRef(className, fd.name, descriptor), 1, TOP);
+      } else {
+        dynamic(JvmLinker.PUT_STATIC, owner, fd.name, "(" + descriptor + ")V", 1, TOP);
+      }
+      return null;
+    }
+    loadReceiver(stmt.ref, owner);
+    if (stmt.ref instanceof QualRef && !isQuiet(stmt.val)) {
+      nullCheck(NULL_REFERENCE);
+    }
+    stmt.val.visit(this, null);
+    if (owner == currentClass) {
+      code.op(PUTFIELD, pool.fieldRef(className, fd.name, descriptor), 2, TOP);
+    } else {
+      dynamic(
+          JvmLinker.PUT_FIELD, owner, fd.name, "(" + OBJECT_DESCRIPTOR + descriptor + ")V", 2, TOP);
+    }
+    return null;
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    stmt.ref.visit(this, null);
+    nullCheck();
+    stmt.ix.visit(this, null);
+    stmt.exp.visit(this, null);
+    code.op(intElements(stmt.ref) ? IASTORE : AASTORE, 3, TOP);
+    return null;
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Object arg) {
+    if (call(stmt.methodRef, stmt.argList)) {
+      code.op(POP, 1, TOP);
+    }
+    return null;
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+    if (stmt.returnExpr == null) {
+      code.op(RETURN, 0, TOP);
+    } else {
+      stmt.returnExpr.visit(this, null);
+      code.op(code.top() == INT ? IRETURN : ARETURN, 1, TOP);
+    }
+    return null;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Object arg) {
+    Label otherwise = new Label();
+    branch(stmt.cond, false, otherwise);
+    statement(stmt.thenStmt);
+    if (stmt.elseStmt == null) {
+      code.bind(otherwise);
+    } else {
+      Label end = new Label();
+      if (code.isReachable()) {
+        code.jump(GOTO, end);
+      }
+      code.bind(otherwise);
+      statement(stmt.elseStmt);
+      code.bind(end);
+    }
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+    Label test = new Label();
+    Label end = new Label();
+    code.bind(test);
+    branch(stmt.cond, false, end);
+    statement(stmt.body);
+    if (code.isReachable()) {
+      code.jump(GOTO, test);
+    }
+    code.bind(end);
+    return null;
+  }
+
+  // expressions push their value
+
+  public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+    expr.expr.visit(this, null);
+    if (expr.operator.operatorKind == OperatorKind.NOT) {
+      code.iconst(1);
+      code.op(IXOR, 2, INT);
+    } else {
+      code.op(INEG, 1, INT);
+    }
+    return null;
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+    int opcode;
+    switch (expr.operator.operatorKind) {
+      case PLUS:
+        opcode = IADD;
+        break;
+      case MINUS:
+        opcode = ISUB;
+        break;
+      case TIMES:
+        opcode = IMUL;
+        break;
+      case DIVIDE:
+        opcode = IDIV;
+        break;
+      default:
+        Label isFalse = new Label();
+        Label end = new Label();
+        branch(expr, false, isFalse);
+        if (code.isReachable()) {
+          code.iconst(1);
+          code.jump(GOTO, end);
+        }
+        code.bind(isFalse);
+        if (code.isReachable()) {
+          code.iconst(0);
+        }
+        code.bind(end);
+        return null;
+    }
+    expr.left.visit(this, null);
+    expr.right.visit(this, null);
+    code.op(opcode, 2, INT);
+    return null;
+  }
+
+  public Object visitRefExpr(RefExpr expr, Object arg) {
+    return expr.ref.visit(this, null);
+  }
+
+  public Object visitIxExpr(IxExpr expr, Object arg) {
+    expr.ref.visit(this, null);
+    nullCheck();
+    expr.ixExpr.visit(this, null);
+    if (intElements(expr.ref)) {
+      code.op(IALOAD, 2, INT);
+    } else {
+      code.op(AALOAD, 2, object(pool.classRef(OBJECT)));
+    }
+    return null;
+  }
+
+  public Object visitCallExpr(CallExpr expr, Object arg) {
+    call(expr.functionRef, expr.argList);
+    return null;
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+    return expr.lit.visit(this, null);
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    ClassDecl cd = (ClassDecl) expr.classtype.className.decl;
+    if (cd == currentClass) {
+      code.op(NEW, thisClass, 0, object(thisClass));
+      code.op(DUP, 0, object(thisClass));
+      code.op(INVOKESPECIAL, pool.methodRef(className, "<init>", "()V"), 1, TOP);
+    } else {
+      dynamic(JvmLinker.NEW_INSTANCE, cd, "new", "()" + OBJECT_DESCRIPTOR, 0, objectType());
+    }
+    return null;
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    expr.sizeExpr.visit(this, null);
+    if (expr.eltType.typeKind == TypeKind.INT) {
+      code.newIntArray();
+    } else {
+      code.op(ANEWARRAY, pool.classRef(OBJECT), 1, object(pool.classRef(OBJECT_ARRAY)));
+    }
+    return null;
+  }
+
+  // references push the value they denote
+
+  public Object visitThisRef(ThisRef ref, Object arg) {
+    code.load(0);
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Object arg) {
+    if (ref.decl instanceof LocalDecl) {
+      code.load(localSlots.get(ref.decl));
+    } else {
+      loadField(ref, (FieldDecl) ref.decl);
+    }
+    return null;
+  }
+
+  public Object visitQRef(QualRef ref, Object arg) {
+    if (ref.decl == environment.arrayLength) {
+      ref.ref.visit(this, null);
+      nullCheck();
+      code.op(ARRAYLENGTH, 1, INT);
+    } else {
+      loadField(ref, (FieldDecl) ref.decl);
+    }
+    return null;
+  }
+
+  // terminals
+
+  public Object visitIdentifier(Identifier id, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitOperator(Operator op, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Object arg) {
+    try {
+      code.iconst(Integer.parseInt(num.spelling));
+    } catch (NumberFormatException e) {
+      throw new ExecutionError("integer literal out of range", num);
+    }
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    code.iconst(bool.spelling.equals("true") ? 1 : 0);
+    return null;
+  }
+
+  // conditions
+
+  /**
+   * Jump to the label if the condition evaluates to jumpIf, otherwise fall through. The right
+   * operand of a short circuit that is decided by a literal is never reached and not generated.
+   */
+  private void branch(Expression cond, boolean jumpIf, Label label) {
+    if (!code.isReachable()) {
+      return;
+    }
+    if (cond instanceof LiteralExpr && ((LiteralExpr) cond).lit instanceof BooleanLiteral) {
+      if (((LiteralExpr) cond).lit.spelling.equals("true") == jumpIf) {
+        code.jump(GOTO, label);
+      }
+      return;
+    }
+    if (cond instanceof UnaryExpr) {
+      branch(((UnaryExpr) cond).expr, !jumpIf, label);
+      return;
+    }
+    if (cond instanceof BinaryExpr) {
+      BinaryExpr expr = (BinaryExpr) cond;
+      OperatorKind operator = expr.operator.operatorKind;
+      if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+        if ((operator == OperatorKind.OR) == jumpIf) {
+          branch(expr.left, jumpIf, label);
+          branch(expr.right, jumpIf, label);
+        } else {
+          Label skip = new Label();
+          branch(expr.left, !jumpIf, skip);
+          branch(expr.right, jumpIf, label);
+          code.bind(skip);
+        }
+        return;
+      }
+      int opcode = compareJump(operator, expr.left.type.typeKind, jumpIf);
+      if (opcode != NOP) {
+        expr.left.visit(this, null);
+        expr.right.visit(this, null);
+        code.jump(opcode, label);
+        return;
+      }
+    }
+    cond.visit(this, null);
+    code.jump(jumpIf ? IFNE : IFEQ, label);
+  }
+
+  private static int compareJump(OperatorKind operator, TypeKind operandKind, boolean jumpIf) {
+    boolean references = operandKind != TypeKind.INT && operandKind != TypeKind.BOOLEAN;
+    switch (operator) {
+      case LESS_THAN:
+        return jumpIf ? IF_ICMPLT : IF_ICMPGE;
+      case LESS_EQUAL:
+        return jumpIf ? IF_ICMPLE : IF_ICMPGT;
+      case GREATER_THAN:
+        return jumpIf ? IF_ICMPGT : IF_ICMPLE;
+      case GREATER_EQUAL:
+        return jumpIf ? IF_ICMPGE : IF_ICMPLT;
+      case EQUAL:
+        return references ? (jumpIf ? IF_ACMPEQ : IF_ACMPNE) : (jumpIf ? IF_ICMPEQ : IF_ICMPNE);
+      case NOT_EQUAL:
+        return references ? (jumpIf ? IF_ACMPNE : IF_ACMPEQ) : (jumpIf ? IF_ICMPNE : IF_ICMPEQ);
+      default:
+        return NOP;
+    }
+  }
+
+  // members
+
+  /**
+   * Push the arguments and call the method.
+   *
+   * @return true if the call leaves a value on the stack
+   */
+  private boolean call(Reference methodRef, ExprList args) {
+    MethodDecl md = (MethodDecl) methodRef.decl;
+    if (md == environment.println) {
+      code.op(
+          GETSTATIC,
+          pool.fieldRef(className, OUT_FIELD, "L" + PRINT_STREAM + ";"),
+          0,
+          object(pool.classRef(PRINT_STREAM)));
+      args.get(0).visit(this, null);
+      code.op(INVOKEVIRTUAL, pool.methodRef(PRINT_STREAM, "println", "(I)V"), 2, TOP);
+      return false;
+    }
+    ClassDecl owner = owners.get(md);
+    if (!md.isStatic) {
+      loadReceiver(methodRef, owner);
+      if (methodRef instanceof QualRef && !isQuiet(args)) {
+        nullCheck(NULL_REFERENCE);
+      }
+    }
+    for (Expression e : args) {
+      e.visit(this, null);
+    }
+    String descriptor = descriptor(md);
+    int result = md.type.typeKind == TypeKind.VOID ? TOP : verificationType(md.type);
+    int pops = args.size() + (md.isStatic ? 0 : 1);
+    if (owner == currentClass) {
+      int method = pool.methodRef(className, md.name, descriptor);
+      code.op(md.isStatic ? INVOKESTATIC : INVOKEVIRTUAL, method, pops, result);
+    } else if (md.isStatic) {
+      dynamic(JvmLinker.INVOKE_STATIC, owner, md.name, descriptor, pops, result);
+    } else {
+      dynamic(
+          JvmLinker.INVOKE_VIRTUAL,
+          owner,
+          md.name,
+          "(" + OBJECT_DESCRIPTOR + descriptor.substring(1),
+          pops,
+          result);
+    }
+    return result != TOP;
+  }
+
+  private void loadField(Reference ref, FieldDecl fd) {
+    if (fd == environment.systemClass.fieldDeclList.get(0)) {
+      code.op(
+          GETSTATIC,
+          pool.fieldRef(className, OUT_FIELD, "L" + PRINT_STREAM + ";"),
+          0,
+          object(pool.classRef(PRINT_STREAM)));
+      return;
+    }
+    ClassDecl owner = owners.get(fd);
+    String descriptor = descriptor(fd.type);
+    int type = verificationType(fd.type);
+    if (fd.isStatic) {
+      if (owner == currentClass) {
+        code.op(GETSTATIC, pool.fieldRef(className, fd.name, descriptor), 0, type);
+      } else {
+        dynamic(JvmLinker.GET_STATIC, owner, fd.name, "()" + descriptor, 0, type);
+      }
+      return;
+    }
+    loadReceiver(ref, owner);
+    if (owner == currentClass) {
+      code.op(GETFIELD, pool.fieldRef(className, fd.name, descriptor), 1, type);
+    } else {
+      dynamic(
+          JvmLinker.GET_FIELD, owner, fd.name, "(" + OBJECT_DESCRIPTOR + ")" + descriptor, 1, type);
+    }
+  }
+
+  /**
+   * Push the object whose member the reference names: its qualifier, or this for a bare name. An
+   * object of the current class is cast to it so its members can be used directly.
+   */
+  private void loadReceiver(Reference ref, ClassDecl owner) {
+    if (ref instanceof QualRef) {
+      ((QualRef) ref).ref.visit(this, null);
+    } else {
+      code.load(0);
+    }
+    if (owner == currentClass && code.top() != object(thisClass)) {
+      code.op(CHECKCAST, thisClass, 1, object(thisClass));
+    }
+  }
+
+  private void dynamic(
+      int kind, ClassDecl owner, String name, String descriptor, int pops, int pushed) {
+    String key = kind + ":" + owner.name;
+    Integer bootstrap = bootstrapIndexes.get(key);
+    if (bootstrap == null) {
+      bootstrap = bootstrapMethods.size();
+      bootstrapMethods.add(
+          new int[] {
+            pool.staticMethodHandle(PACKAGE + "JvmLinker", "link", JvmLinker.BOOTSTRAP_DESCRIPTOR),
+            pool.integer(kind),
+            pool.string(owner.name)
+          });
+      bootstrapIndexes.put(key, bootstrap);
+    }
+    code.invokeDynamic(pool.invokeDynamic(bootstrap, name, descriptor), pops, pushed);
+  }
+
+  // types
+
+  private static String descriptor(MethodDecl md) {
+    StringBuilder descriptor = new StringBuilder("(");
+    for (ParameterDecl pd : md.parameterDeclList) {
+      descriptor.append(descriptor(pd.type));
+    }
+    return descriptor.append(')').append(descriptor(md.type)).toString();
+  }
+
+  private static String descriptor(TypeDenoter type) {
+    switch (type.typeKind) {
+      case INT:
+        return "I";
+      case BOOLEAN:
+        return "Z";
+      case VOID:
+        return "V";
+      case ARRAY:
+        return ((ArrayType) type).eltType.typeKind == TypeKind.INT ? INT_ARRAY : OBJECT_ARRAY;
+      default:
+        return OBJECT_DESCRIPTOR;
+    }
+  }
+
+  private int verificationType(TypeDenoter type) {
+    switch (type.typeKind) {
+      case INT:
+      case BOOLEAN:
+        return INT;
+      case ARRAY:
+        return object(pool.classRef(descriptor(type)));
+      default:
+        return objectType();
+    }
+  }
+
+  private int objectType() {
+    return object(pool.classRef(OBJECT));
+  }
+
+  /**
+   * Fail on a null array on top of the stack before its index is computed, as the interpreter does.
+   * The JVM's own NullPointerException could not be told apart from a null receiver, so this one
+   * carries NULL_ARRAY as its message; the JIT folds the check into the access.
+   */
+  private void nullCheck() {
+    nullCheck(NULL_ARRAY);
+  }
+
+  /**
+   * Fail on a null object on top of the stack, with message as the NullPointerException's message.
+   * Receivers of field stores and calls are checked this way before the value or the arguments,
+   * unless evaluating those can neither print nor fail.
+   */
+  private void nullCheck(String message) {
+    code.op(DUP, 0, code.top());
+    code.op(LDC_W, pool.string(message), 0, object(pool.classRef(STRING)));
+    code.op(
+        INVOKESTATIC,
+        pool.methodRef(
+            "java/util/Objects",
+            "requireNonNull",
+            "(" + OBJECT_DESCRIPTOR + "Ljava/lang/String;)" + OBJECT_DESCRIPTOR),
+        2,
+        object(pool.classRef(OBJECT)));
+    code.op(POP, 1, TOP);
+  }
+
+  private static boolean isQuiet(ExprList args) {
+    for (Expression e : args) {
+      if (!isQuiet(e)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if evaluating expr can neither print nor fail
+   */
+  private static boolean isQuiet(Expression expr) {
+    return expr instanceof LiteralExpr
+        || expr instanceof RefExpr && !(((RefExpr) expr).ref instanceof QualRef);
+  }
+
+  private static boolean intElements(Reference arrayRef) {
+    return ((ArrayType) arrayRef.decl.type).eltType.typeKind == TypeKind.INT;
+  }
+
+  private static int access(MemberDecl md) {
+    return (md.isPrivate ? ACC_PRIVATE : ACC_PUBLIC) | (md.isStatic ? ACC_STATIC : 0);
+  }
+}
@@ -0,0 +1,77 @@
+package miniJava.CodeGeneration;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+
+/*
+ * Bootstrap for the invokedynamic instructions that reach into another
+ * miniJava class.
+ *
+ * Hidden classes cannot name each other in their constant pools, so every
+ * member of another class is used through an invokedynamic instruction
+ * that names the owning miniJava class. The class data of every hidden
+ * class of a program is the same map from class name to that class's
+ * Lookup, which this bootstrap uses to find the member. The call site is
+ * constant, so the JIT inlines straight through it.
+ */
+public final class JvmLinker {
+  public static final int GET_FIELD = 0;
+  public static final int PUT_FIELD = 1;
+  public static final int GET_STATIC = 2;
+  public static final int PUT_STATIC = 3;
+  public static final int INVOKE_STATIC = 4;
+  public static final int INVOKE_VIRTUAL = 5;
+  public static final int NEW_INSTANCE = 6;
+
+  static final String BOOTSTRAP_DESCRIPTOR =
+      "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+          + "ILjava/lang/String;)Ljava/lang/invoke/CallSite;";
+
+  private JvmLinker() {}
+
+  /**
+   * @param kind what to do with the member, one of the constants above
+   * @param owner name of the miniJava class declaring the member
+   */
+  public static CallSite link(
+      MethodHandles.Lookup caller, String name, MethodType type, int kind, String owner)
+      throws ReflectiveOperationException {
+    @SuppressWarnings("unchecked")
+    Map<String, MethodHandles.Lookup> classes =
+        MethodHandles.classData(caller, ConstantDescs.DEFAULT_NAME, Map.class);
+    MethodHandles.Lookup lookup = classes.get(owner);
+    Class<?> target = lookup.lookupClass();
+    MethodHandle handle;
+    switch (kind) {
+      case GET_FIELD:
+        handle = lookup.findGetter(target, name, type.returnType());
+        break;
+      case PUT_FIELD:
+        handle = lookup.findSetter(target, name, type.parameterType(1));
+        break;
+      case GET_STATIC:
+        handle = lookup.findStaticGetter(target, name, type.returnType());
+        break;
+      case PUT_STATIC:
+        handle = lookup.findStaticSetter(target, name, type.parameterType(0));
+        break;
+      case INVOKE_STATIC:
+        handle = lookup.findStatic(target, name, type);
+        break;
+      case INVOKE_VIRTUAL:
+        handle = lookup.findVirtual(target, name, type.dropParameterTypes(0, 1));
+        break;
+      case NEW_INSTANCE:
+        handle = lookup.findConstructor(target, MethodType.methodType(void.class));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown link kind " + kind);
+    }
+    return new ConstantCallSite(handle.asType(type));
+  }
+}
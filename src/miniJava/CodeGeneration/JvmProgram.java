@@ -0,0 +1,116 @@
+package miniJava.CodeGeneration;
+
+import miniJava.ErrorReporter;
+import miniJava.Execution.ExecutionError;
+import miniJava.Execution.MainThread;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * The class files of one program, loaded into this JVM as hidden classes.
+ *
+ * Every class shares one class data map from miniJava class name to the
+ * Lookup of its hidden class, which JvmLinker consults when an
+ * invokedynamic instruction first runs. The classes are unreachable from
+ * anything but this object, so they are unloaded along with it.
+ */
+public class JvmProgram {
+  private final Map<String, byte[]> classFiles;
+  private final String mainClass;
+
+  public JvmProgram(Map<String, byte[]> generatedClassFiles, String mainClassName) {
+    classFiles = generatedClassFiles;
+    mainClass = mainClassName;
+  }
+
+  /** Write each class file as dir/miniJava/CodeGeneration/Name.class for javap and friends. */
+  public void writeClassFiles(Path dir) throws IOException {
+    Path packageDir = dir.resolve(JvmGenerator.PACKAGE);
+    Files.createDirectories(packageDir);
+    for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+      Files.write(packageDir.resolve(entry.getKey() + ".class"), entry.getValue());
+    }
+  }
+
+  /**
+   * Define the classes and run the main method on a {@link MainThread}.
+   *
+   * @return true if the program ran to completion, otherwise the failure is reported
+   */
+  public boolean run(PrintStream out, ErrorReporter reporter) {
+    if (mainClass == null) {
+      reporter.reportError("*** no method public static void main(String[] args)");
+      return false;
+    }
+    MethodHandle main;
+    try {
+      main = load(out);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      reporter.reportError("*** " + e);
+      return false;
+    }
+    return MainThread.run(() -> run(main, out, reporter));
+  }
+
+  private static boolean run(MethodHandle main, PrintStream out, ErrorReporter reporter) {
+    try {
+      main.invokeExact(new Object[0]);
+      return true;
+    } catch (StackOverflowError e) {
+      reporter.reportError("*** stack overflow");
+    } catch (Throwable e) {
+      reporter.reportError(describe(e));
+    } finally {
+      out.flush();
+    }
+    return false;
+  }
+
+  private MethodHandle load(PrintStream out) throws ReflectiveOperationException {
+    Map<String, MethodHandles.Lookup> lookups = new HashMap<>();
+    MethodHandles.Lookup host = MethodHandles.lookup();
+    for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+      MethodHandles.Lookup lookup =
+          host.defineHiddenClassWithClassData(entry.getValue(), lookups, true);
+      lookup
+          .findStaticVarHandle(lookup.lookupClass(), JvmGenerator.OUT_FIELD, PrintStream.class)
+          .set(out);
+      lookups.put(entry.getKey(), lookup);
+    }
+    MethodHandles.Lookup lookup = lookups.get(mainClass);
+    return lookup.findStatic(
+        lookup.lookupClass(), "main", MethodType.methodType(void.class, Object[].class));
+  }
+
+  /** Describe an exception thrown by generated code the way the bytecode VM would. */
+  private static String describe(Throwable e) {
+    String desc;
+    if (e instanceof ArithmeticException) {
+      desc = "division by zero";
+    } else if (e instanceof NullPointerException) {
+      desc = JvmGenerator.NULL_ARRAY.equals(e.getMessage()) ? "null array" : "null reference";
+    } else if (e instanceof ArrayIndexOutOfBoundsException) {
+      desc = "index" + e.getMessage().substring("Index".length());
+    } else if (e instanceof NegativeArraySizeException) {
+      desc = "negative array size " + e.getMessage();
+    } else {
+      return "*** " + e;
+    }
+    String trace = new ExecutionError(desc, null).toString();
+    for (StackTraceElement frame : e.getStackTrace()) {
+      if (frame.getClassName().startsWith("miniJava.CodeGeneration.")
+          && frame.getClassName().indexOf('/') >= 0) {
+        return trace + "@line " + frame.getLineNumber();
+      }
+    }
+    return trace;
+  }
+}
@@ -0,0 +1,637 @@
+package miniJava.CodeGeneration;
+
+import static miniJava.CodeGeneration.X86Assembler.*;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+import miniJava.ErrorReporter;
+import miniJava.Execution.BytecodeCompiler;
+import miniJava.Execution.ExecutionError;
+import miniJava.SyntacticAnalyzer.LineTable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+ * Compile an analyzed program to a static x86-64 Linux executable.
+ *
+ * Every value takes 8 bytes; ints and booleans live in the low half and
+ * are computed with 32-bit instructions. Expressions leave their value in
+ * rax and intermediate values are pushed on the machine stack, so nothing
+ * needs to be saved across calls.
+ *
+ * The caller pushes the arguments in order and then the receiver, calls,
+ * and pops them again; the result comes back in rax. Locals live below
+ * rbp, and a block's slots are reused after it ends. An object is its
+ * fields, 8 bytes each; an array is its length followed by its elements.
+ * Static fields are in the bss.
+ *
+ * Every dereference, index, division and array size is checked, and a
+ * failed check jumps to a stub at the end of the method that reports the
+ * failure with its source position, the way the interpreter would.
+ */
+public class NativeGenerator implements Visitor<Object, Object> {
+  private final StandardEnvironment environment;
+  private final X86Assembler asm = new X86Assembler();
+  private final NativeRuntime runtime = new NativeRuntime(asm);
+
+  private final Map<MethodDecl, Label> methodLabels = new IdentityHashMap<>();
+  private final Map<FieldDecl, Integer> fieldOffsets = new IdentityHashMap<>();
+  private final Map<ClassDecl, Integer> objectSizes = new IdentityHashMap<>();
+  private int statics;
+
+  private LineTable lineTable;
+  private Map<LocalDecl, Integer> locals = new IdentityHashMap<>();
+  private int nextSlot;
+  private int thisOffset;
+  private boolean returned;
+  private final Map<String, Label> failures = new HashMap<>();
+  private final Map<String, Label> indexFailures = new HashMap<>();
+  private final Map<String, Label> sizeFailures = new HashMap<>();
+
+  public NativeGenerator(StandardEnvironment standardEnvironment) {
+    environment = standardEnvironment;
+  }
+
+  /**
+   * @return the executable, or null if the program cannot be compiled, which is reported
+   */
+  public byte[] generate(Package prog, ErrorReporter reporter) {
+    lineTable = prog.lineTable;
+    MethodDecl main = null;
+    for (ClassDecl cd : prog.classDeclList) {
+      int fields = 0;
+      for (FieldDecl fd : cd.fieldDeclList) {
+        fieldOffsets.put(fd, 8 * (fd.isStatic ? statics++ : fields++));
+      }
+      objectSizes.put(cd, 8 * Math.max(fields, 1));
+      for (MethodDecl md : cd.methodDeclList) {
+        methodLabels.put(md, new Label());
+        if (main == null && BytecodeCompiler.isMain(md)) {
+          main = md;
+        }
+      }
+    }
+    if (main == null) {
+      reporter.reportError("*** no method public static void main(String[] args)");
+      return null;
+    }
+
+    int entry = asm.position();
+    runtime.emitEntry(methodLabels.get(main));
+    try {
+      for (ClassDecl cd : prog.classDeclList) {
+        cd.visit(this, null);
+      }
+    } catch (ExecutionError e) {
+      reporter.reportError(e.toString() + "@" + lineTable.getPosition(e.node.offset));
+      return null;
+    }
+    runtime.emitRoutines();
+
+    int codeLength = asm.position();
+    byte[] code = asm.link(ElfWriter.CODE_ADDRESS, ElfWriter.bssAddress(codeLength));
+    return ElfWriter.executable(code, entry, NativeRuntime.bssSize(statics));
+  }
+
+  // declarations
+
+  public Object visitPackage(Package prog, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Object arg) {
+    for (MethodDecl md : cd.methodDeclList) {
+      md.visit(this, null);
+    }
+    return null;
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Object arg) {
+    locals.clear();
+    failures.clear();
+    indexFailures.clear();
+    sizeFailures.clear();
+    int parameters = md.parameterDeclList.size();
+    for (int i = 0; i < parameters; i++) {
+      locals.put(md.parameterDeclList.get(i), 16 + 8 * (parameters - 1 - i));
+    }
+    thisOffset = 16 + 8 * parameters;
+    nextSlot = 0;
+
+    asm.bind(methodLabels.get(md));
+    asm.push(RBP);
+    asm.mov(RBP, RSP);
+    asm.compareBss(RSP, NativeRuntime.STACK_LIMIT);
+    asm.jump(BELOW, runtime.stackOverflow);
+    int slots = frameSlots(md.statementList, 0);
+    if (slots > 0) {
+      asm.aluImmediate(SUB, RSP, 8 * slots, true);
+    }
+
+    returned = false;
+    for (Statement s : md.statementList) {
+      statement(s);
+    }
+    if (!returned) {
+      asm.movImmediate(RAX, 0);
+      epilogue();
+    }
+    emitFailures();
+    return null;
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitVarDecl(VarDecl decl, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitBaseType(BaseType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitClassType(ClassType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitArrayType(ArrayType type, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  // statements
+
+  /** Statements after a return are never reached and are not generated. */
+  private void statement(Statement stmt) {
+    if (!returned) {
+      stmt.visit(this, null);
+    }
+  }
+
+  public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+    int mark = nextSlot;
+    for (Statement s : stmt.sl) {
+      statement(s);
+    }
+    nextSlot = mark;
+    return null;
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    stmt.initExp.visit(this, null);
+    int offset = -8 * ++nextSlot;
+    locals.put(stmt.varDecl, offset);
+    asm.store(RBP, offset, RAX);
+    return null;
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+    Declaration decl = stmt.ref.decl;
+    if (decl instanceof LocalDecl) {
+      stmt.val.visit(this, null);
+      asm.store(RBP, locals.get(decl), RAX);
+      return null;
+    }
+    FieldDecl fd = (FieldDecl) decl;
+    if (fd.isStatic) {
+      stmt.val.visit(this, null);
+      asm.storeBss(NativeRuntime.STATICS + fieldOffsets.get(fd), RAX);
+      return null;
+    }
+    receiver(stmt.ref);
+    asm.push(RAX);
+    stmt.val.visit(this, null);
+    asm.pop(RCX);
+    asm.store(RCX, fieldOffsets.get(fd), RAX);
+    return null;
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    stmt.ref.visit(this, null);
+    nullCheck("null array", stmt.ref);
+    asm.push(RAX);
+    stmt.ix.visit(this, null);
+    asm.push(RAX);
+    stmt.exp.visit(this, null);
+    asm.pop(RCX);
+    asm.pop(R8);
+    element(stmt.ix);
+    asm.storeIndexed(R8, RCX, 8, RAX);
+    return null;
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Object arg) {
+    call(stmt.methodRef, stmt.argList);
+    return null;
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+    if (stmt.returnExpr == null) {
+      asm.movImmediate(RAX, 0);
+    } else {
+      stmt.returnExpr.visit(this, null);
+    }
+    epilogue();
+    returned = true;
+    return null;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Object arg) {
+    Label otherwise = new Label();
+    branch(stmt.cond, false, otherwise);
+    statement(stmt.thenStmt);
+    boolean thenReturned = returned;
+    returned = false;
+    if (stmt.elseStmt == null) {
+      asm.bind(otherwise);
+    } else {
+      Label end = new Label();
+      if (!thenReturned) {
+        asm.jump(end);
+      }
+      asm.bind(otherwise);
+      statement(stmt.elseStmt);
+      returned = returned && thenReturned;
+      asm.bind(end);
+    }
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+    Label test = new Label();
+    Label body = new Label();
+    asm.jump(test);
+    asm.bind(body);
+    statement(stmt.body);
+    returned = false;
+    asm.bind(test);
+    branch(stmt.cond, true, body);
+    return null;
+  }
+
+  // expressions leave their value in rax
+
+  public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+    expr.expr.visit(this, null);
+    if (expr.operator.operatorKind == OperatorKind.NOT) {
+      asm.aluImmediate(XOR, RAX, 1, false);
+    } else {
+      asm.neg(RAX, false);
+    }
+    return null;
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+    OperatorKind operator = expr.operator.operatorKind;
+    if (operator != OperatorKind.PLUS
+        && operator != OperatorKind.MINUS
+        && operator != OperatorKind.TIMES
+        && operator != OperatorKind.DIVIDE) {
+      Label isFalse = new Label();
+      Label end = new Label();
+      branch(expr, false, isFalse);
+      asm.movImmediate(RAX, 1);
+      asm.jump(end);
+      asm.bind(isFalse);
+      asm.movImmediate(RAX, 0);
+      asm.bind(end);
+      return null;
+    }
+    expr.left.visit(this, null);
+    asm.push(RAX);
+    expr.right.visit(this, null);
+    asm.mov(RCX, RAX);
+    asm.pop(RAX);
+    switch (operator) {
+      case PLUS:
+        asm.alu(ADD, RAX, RCX, false);
+        break;
+      case MINUS:
+        asm.alu(SUB, RAX, RCX, false);
+        break;
+      case TIMES:
+        asm.imul32(RAX, RCX);
+        break;
+      default:
+        // idiv faults on MIN_VALUE / -1, which Java defines as MIN_VALUE
+        Label divide = new Label();
+        Label end = new Label();
+        asm.alu(TEST, RCX, RCX, false);
+        asm.jump(EQUAL, failure("division by zero", expr));
+        asm.aluImmediate(CMP, RCX, -1, false);
+        asm.jump(NOT_EQUAL, divide);
+        asm.neg(RAX, false);
+        asm.jump(end);
+        asm.bind(divide);
+        asm.cdq();
+        asm.idiv32(RCX);
+        asm.bind(end);
+    }
+    return null;
+  }
+
+  public Object visitRefExpr(RefExpr expr, Object arg) {
+    return expr.ref.visit(this, null);
+  }
+
+  public Object visitIxExpr(IxExpr expr, Object arg) {
+    expr.ref.visit(this, null);
+    nullCheck("null array", expr.ref);
+    asm.push(RAX);
+    expr.ixExpr.visit(this, null);
+    asm.mov32(RCX, RAX);
+    asm.pop(R8);
+    element(expr.ixExpr);
+    asm.loadIndexed(RAX, R8, RCX, 8);
+    return null;
+  }
+
+  public Object visitCallExpr(CallExpr expr, Object arg) {
+    call(expr.functionRef, expr.argList);
+    return null;
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+    return expr.lit.visit(this, null);
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    asm.mov(RAX, R15);
+    asm.aluImmediate(ADD, R15, objectSizes.get(expr.classtype.className.decl), true);
+    asm.alu(CMP, R15, R14, true);
+    asm.jump(ABOVE, runtime.outOfMemory);
+    return null;
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    expr.sizeExpr.visit(this, null);
+    asm.alu(TEST, RAX, RAX, false);
+    asm.jump(SIGN, sizeFailure(expr.sizeExpr));
+    asm.mov32(RCX, RAX);
+    asm.mov(RDX, RCX);
+    asm.shiftLeft(RDX, 3);
+    asm.aluImmediate(ADD, RDX, 8, true);
+    asm.mov(RAX, R15);
+    asm.alu(ADD, R15, RDX, true);
+    asm.alu(CMP, R15, R14, true);
+    asm.jump(ABOVE, runtime.outOfMemory);
+    asm.store(RAX, 0, RCX);
+    return null;
+  }
+
+  // references leave the value they denote in rax
+
+  public Object visitThisRef(ThisRef ref, Object arg) {
+    asm.load(RAX, RBP, thisOffset);
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Object arg) {
+    if (ref.decl instanceof LocalDecl) {
+      asm.load(RAX, RBP, locals.get(ref.decl));
+    } else {
+      loadField(ref, (FieldDecl) ref.decl);
+    }
+    return null;
+  }
+
+  public Object visitQRef(QualRef ref, Object arg) {
+    if (ref.decl == environment.arrayLength) {
+      ref.ref.visit(this, null);
+      nullCheck("null array", ref.ref);
+      asm.load(RAX, RAX, 0);
+    } else {
+      loadField(ref, (FieldDecl) ref.decl);
+    }
+    return null;
+  }
+
+  // terminals
+
+  public Object visitIdentifier(Identifier id, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitOperator(Operator op, Object arg) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Object arg) {
+    try {
+      asm.movImmediate(RAX, Integer.parseInt(num.spelling) & 0xFFFFFFFFL);
+    } catch (NumberFormatException e) {
+      throw new ExecutionError("integer literal out of range", num);
+    }
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    asm.movImmediate(RAX, bool.spelling.equals("true") ? 1 : 0);
+    return null;
+  }
+
+  // conditions
+
+  /** Jump to the label if the condition evaluates to jumpIf, otherwise fall through. */
+  private void branch(Expression cond, boolean jumpIf, Label label) {
+    if (cond instanceof UnaryExpr) {
+      branch(((UnaryExpr) cond).expr, !jumpIf, label);
+      return;
+    }
+    if (cond instanceof BinaryExpr) {
+      BinaryExpr expr = (BinaryExpr) cond;
+      OperatorKind operator = expr.operator.operatorKind;
+      if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+        if ((operator == OperatorKind.OR) == jumpIf) {
+          branch(expr.left, jumpIf, label);
+          branch(expr.right, jumpIf, label);
+        } else {
+          Label skip = new Label();
+          branch(expr.left, !jumpIf, skip);
+          branch(expr.right, jumpIf, label);
+          asm.bind(skip);
+        }
+        return;
+      }
+      int condition = condition(operator);
+      if (condition >= 0) {
+        TypeKind operandKind = expr.left.type.typeKind;
+        expr.left.visit(this, null);
+        asm.push(RAX);
+        expr.right.visit(this, null);
+        asm.pop(RCX);
+        asm.alu(CMP, RCX, RAX, operandKind != TypeKind.INT && operandKind != TypeKind.BOOLEAN);
+        asm.jump(jumpIf ? condition : condition ^ 1, label);
+        return;
+      }
+    }
+    cond.visit(this, null);
+    asm.alu(TEST, RAX, RAX, false);
+    asm.jump(jumpIf ? NOT_EQUAL : EQUAL, label);
+  }
+
+  /**
+   * @return the condition code under which the comparison is true, or -1
+   */
+  private static int condition(OperatorKind operator) {
+    switch (operator) {
+      case LESS_THAN:
+        return LESS;
+      case LESS_EQUAL:
+        return LESS_EQUAL;
+      case GREATER_THAN:
+        return GREATER;
+      case GREATER_EQUAL:
+        return GREATER_EQUAL;
+      case EQUAL:
+        return EQUAL;
+      case NOT_EQUAL:
+        return NOT_EQUAL;
+      default:
+        return -1;
+    }
+  }
+
+  // members
+
+  private void call(Reference methodRef, ExprList args) {
+    MethodDecl md = (MethodDecl) methodRef.decl;
+    if (md == environment.println) {
+      args.get(0).visit(this, null);
+      asm.mov(RDI, RAX);
+      asm.call(runtime.println);
+      return;
+    }
+    if (!md.isStatic) {
+      receiver(methodRef);
+      asm.push(RAX);
+    }
+    for (Expression e : args) {
+      e.visit(this, null);
+      asm.push(RAX);
+    }
+    asm.call(methodLabels.get(md));
+    int pushed = args.size() + (md.isStatic ? 0 : 1);
+    if (pushed > 0) {
+      asm.aluImmediate(ADD, RSP, 8 * pushed, true);
+    }
+  }
+
+  private void loadField(Reference ref, FieldDecl fd) {
+    if (fd == environment.systemClass.fieldDeclList.get(0)) {
+      // System.out is never dereferenced, it only needs to be some non-null value
+      asm.leaBss(RAX, NativeRuntime.OUT_BUFFER);
+    } else if (fd.isStatic) {
+      asm.loadBss(RAX, NativeRuntime.STATICS + fieldOffsets.get(fd));
+    } else {
+      receiver(ref);
+      asm.load(RAX, RAX, fieldOffsets.get(fd));
+    }
+  }
+
+  /** Load the object whose member the reference names: its qualifier, or this for a bare name. */
+  private void receiver(Reference ref) {
+    if (ref instanceof QualRef) {
+      Reference qualifier = ((QualRef) ref).ref;
+      qualifier.visit(this, null);
+      if (!(qualifier instanceof ThisRef)) {
+        nullCheck("null reference", qualifier);
+      }
+    } else {
+      asm.load(RAX, RBP, thisOffset);
+    }
+  }
+
+  /** Check index ecx against the length of array r8, and zero-extend the index for addressing. */
+  private void element(AST indexNode) {
+    asm.load(RDX, R8, 0);
+    asm.alu(CMP, RCX, RDX, false);
+    asm.jump(ABOVE_EQUAL, indexFailure(indexNode));
+    asm.mov32(RCX, RCX);
+  }
+
+  private void nullCheck(String desc, AST node) {
+    asm.alu(TEST, RAX, RAX, true);
+    asm.jump(EQUAL, failure(desc, node));
+  }
+
+  private void epilogue() {
+    asm.mov(RSP, RBP);
+    asm.pop(RBP);
+    asm.ret();
+  }
+
+  // failure stubs, shared within a method by failures at the same position
+
+  private Label failure(String desc, AST node) {
+    return failures.computeIfAbsent(
+        NativeRuntime.ERROR_PREFIX + desc + position(node), key -> new Label());
+  }
+
+  private Label indexFailure(AST node) {
+    return indexFailures.computeIfAbsent(position(node), key -> new Label());
+  }
+
+  private Label sizeFailure(AST node) {
+    return sizeFailures.computeIfAbsent(position(node), key -> new Label());
+  }
+
+  private void emitFailures() {
+    for (Map.Entry<String, Label> stub : failures.entrySet()) {
+      asm.bind(stub.getValue());
+      asm.lea(RSI, runtime.string(stub.getKey()));
+      asm.jump(runtime.fail);
+    }
+    for (Map.Entry<String, Label> stub : indexFailures.entrySet()) {
+      asm.bind(stub.getValue());
+      asm.mov32(RDI, RCX);
+      asm.lea(RSI, runtime.string(stub.getKey()));
+      asm.jump(runtime.failIndex);
+    }
+    for (Map.Entry<String, Label> stub : sizeFailures.entrySet()) {
+      asm.bind(stub.getValue());
+      asm.mov32(RDI, RAX);
+      asm.lea(RSI, runtime.string(stub.getKey()));
+      asm.jump(runtime.failSize);
+    }
+  }
+
+  private String position(AST node) {
+    return "@" + lineTable.getPosition(node.offset) + "\n";
+  }
+
+  /**
+   * @return the most locals alive at once in the statements, given used slots already taken
+   */
+  private static int frameSlots(Iterable<Statement> statements, int used) {
+    int most = used;
+    for (Statement s : statements) {
+      if (s instanceof VarDeclStmt) {
+        used++;
+      }
+      most = Math.max(most, Math.max(used, nestedSlots(s, used)));
+    }
+    return most;
+  }
+
+  private static int nestedSlots(Statement s, int used) {
+    if (s instanceof BlockStmt) {
+      return frameSlots(((BlockStmt) s).sl, used);
+    } else if (s instanceof IfStmt) {
+      IfStmt stmt = (IfStmt) s;
+      int then = nestedSlots(stmt.thenStmt, used);
+      return stmt.elseStmt == null ? then : Math.max(then, nestedSlots(stmt.elseStmt, used));
+    } else if (s instanceof WhileStmt) {
+      return nestedSlots(((WhileStmt) s).body, used);
+    }
+    return used;
+  }
+}
@@ -0,0 +1,283 @@
+package miniJava.CodeGeneration;
+
+import static miniJava.CodeGeneration.X86Assembler.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * The runtime linked into every native executable: program entry,
+ * buffered output, and failure reports that read like the interpreter's.
+ *
+ * The heap is one large anonymous mapping that is never freed. r15 points
+ * at its next free byte and r14 at its end, and nothing else uses them, so
+ * an allocation is a bump of r15. The mapping is zero-filled, which gives
+ * every field and array element its default value.
+ *
+ * Output is collected in a buffer in the bss and written when it fills up
+ * and on exit. Runtime routines may clobber every register except rbx,
+ * rbp, rsp, r14 and r15.
+ *
+ * Strings live in the code segment as an 8-byte length followed by the
+ * bytes.
+ */
+class NativeRuntime {
+  static final int OUT_BUFFER_SIZE = 1 << 16;
+  static final long HEAP_SIZE = 1L << 32;
+
+  /** Native stack the program may use before it reports a stack overflow. */
+  static final int STACK_SIZE = 7 << 20;
+
+  // bss layout
+  static final int OUT_BUFFER = 0;
+  static final int OUT_LENGTH = OUT_BUFFER_SIZE;
+  static final int STACK_LIMIT = OUT_LENGTH + 8;
+  static final int EMPTY_ARRAY = STACK_LIMIT + 8;
+  static final int NUMBER = EMPTY_ARRAY + 8;
+  static final int NUMBER_SIZE = 32;
+  static final int STATICS = NUMBER + NUMBER_SIZE;
+
+  static final String ERROR_PREFIX = "miniJava.Execution.ExecutionError: ";
+
+  static final int SYS_WRITE = 1;
+  static final int SYS_MMAP = 9;
+  static final int SYS_EXIT_GROUP = 231;
+
+  final Label println = new Label();
+  final Label flush = new Label();
+
+  /** Report the failure described by the string in rsi and exit. */
+  final Label fail = new Label();
+
+  /** Report index edi out of bounds for length edx; rsi holds the position suffix. */
+  final Label failIndex = new Label();
+
+  /** Report negative array size edi; rsi holds the position suffix. */
+  final Label failSize = new Label();
+
+  final Label stackOverflow = new Label();
+  final Label outOfMemory = new Label();
+
+  private final X86Assembler asm;
+  private final Label append = new Label();
+  private final Label appendInt = new Label();
+  private final Label exit = new Label();
+  private final Map<String, Label> strings = new LinkedHashMap<>();
+
+  NativeRuntime(X86Assembler assembler) {
+    asm = assembler;
+  }
+
+  /**
+   * @return label of the string in the code segment
+   */
+  Label string(String text) {
+    return strings.computeIfAbsent(text, key -> new Label());
+  }
+
+  /**
+   * Program entry: set up the stack limit and heap, call main with an empty args array, flush the
+   * output and exit with status 0.
+   */
+  void emitEntry(Label main) {
+    asm.mov(RAX, RSP);
+    asm.aluImmediate(SUB, RAX, STACK_SIZE, true);
+    asm.storeBss(STACK_LIMIT, RAX);
+
+    asm.movImmediate(RDI, 0);
+    asm.movImmediate(RSI, HEAP_SIZE);
+    asm.movImmediate(RDX, 3); // PROT_READ | PROT_WRITE
+    asm.movImmediate(R10, 0x4022); // MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE
+    asm.movImmediate(R8, -1);
+    asm.movImmediate(R9, 0);
+    asm.movImmediate(RAX, SYS_MMAP);
+    asm.syscall();
+    // mmap returns -errno on failure
+    asm.aluImmediate(CMP, RAX, -4096, true);
+    asm.jump(ABOVE, outOfMemory);
+    asm.mov(R15, RAX);
+    asm.movImmediate(R14, HEAP_SIZE);
+    asm.alu(ADD, R14, RAX, true);
+
+    asm.leaBss(RAX, EMPTY_ARRAY);
+    asm.push(RAX);
+    asm.call(main);
+    asm.call(flush);
+    asm.movImmediate(RDI, 0);
+    asm.jump(exit);
+  }
+
+  /** Emit the runtime routines and every string asked for so far. */
+  void emitRoutines() {
+    Label done = new Label();
+    Label loop = new Label();
+
+    // println(edi)
+    asm.bind(println);
+    asm.call(appendInt);
+    asm.lea(RSI, string("\n"));
+    asm.jump(append);
+
+    // append the string at rsi
+    Label fits = new Label();
+    asm.bind(append);
+    asm.load(RCX, RSI, 0);
+    asm.aluImmediate(ADD, RSI, 8, true);
+    asm.loadBss(RAX, OUT_LENGTH);
+    asm.alu(ADD, RAX, RCX, true);
+    asm.aluImmediate(CMP, RAX, OUT_BUFFER_SIZE, true);
+    asm.jump(BELOW_EQUAL, fits);
+    asm.push(RSI);
+    asm.push(RCX);
+    asm.call(flush);
+    asm.pop(RCX);
+    asm.pop(RSI);
+    asm.bind(fits);
+    copyToBuffer();
+
+    // append the decimal digits of edi
+    Label roomy = new Label();
+    Label positive = new Label();
+    Label digit = new Label();
+    Label copy = new Label();
+    asm.bind(appendInt);
+    asm.loadBss(RAX, OUT_LENGTH);
+    asm.aluImmediate(CMP, RAX, OUT_BUFFER_SIZE - NUMBER_SIZE, true);
+    asm.jump(BELOW_EQUAL, roomy);
+    asm.push(RDI);
+    asm.call(flush);
+    asm.pop(RDI);
+    asm.bind(roomy);
+    asm.movsxd(RAX, RDI);
+    asm.leaBss(R8, NUMBER + NUMBER_SIZE);
+    asm.mov(RSI, R8);
+    asm.movImmediate(R9, 0);
+    asm.alu(TEST, RAX, RAX, true);
+    asm.jump(NOT_SIGN, positive);
+    asm.neg(RAX, true);
+    asm.movImmediate(R9, 1);
+    asm.bind(positive);
+    asm.movImmediate(RCX, 10);
+    asm.bind(digit);
+    asm.movImmediate(RDX, 0);
+    asm.div(RCX);
+    asm.aluImmediate(ADD, RDX, '0', false);
+    asm.aluImmediate(SUB, RSI, 1, true);
+    asm.storeByte(RSI, 0, RDX);
+    asm.alu(TEST, RAX, RAX, true);
+    asm.jump(NOT_EQUAL, digit);
+    asm.alu(TEST, R9, R9, true);
+    asm.jump(EQUAL, copy);
+    asm.aluImmediate(SUB, RSI, 1, true);
+    asm.storeByteImmediate(RSI, 0, '-');
+    asm.bind(copy);
+    asm.mov(RCX, R8);
+    asm.alu(SUB, RCX, RSI, true);
+    copyToBuffer();
+
+    // write the whole buffer to stdout
+    asm.bind(flush);
+    asm.leaBss(RSI, OUT_BUFFER);
+    asm.loadBss(RDX, OUT_LENGTH);
+    asm.bind(loop);
+    asm.alu(TEST, RDX, RDX, true);
+    asm.jump(EQUAL, done);
+    asm.movImmediate(RDI, 1);
+    asm.movImmediate(RAX, SYS_WRITE);
+    asm.syscall();
+    asm.alu(TEST, RAX, RAX, true);
+    asm.jump(LESS_EQUAL, done);
+    asm.alu(ADD, RSI, RAX, true);
+    asm.alu(SUB, RDX, RAX, true);
+    asm.jump(loop);
+    asm.bind(done);
+    asm.movImmediate(RAX, 0);
+    asm.storeBss(OUT_LENGTH, RAX);
+    asm.ret();
+
+    // failures: the output so far, then Error and the description, then exit status 1
+    asm.bind(stackOverflow);
+    asm.lea(RSI, string("*** stack overflow\n"));
+    asm.jump(fail);
+    asm.bind(outOfMemory);
+    asm.lea(RSI, string("*** out of memory\n"));
+    asm.jump(fail);
+
+    asm.bind(fail);
+    asm.push(RSI);
+    beginFailure();
+    asm.pop(RSI);
+    endFailure();
+
+    asm.bind(failIndex);
+    asm.push(RSI);
+    asm.push(RDX);
+    asm.push(RDI);
+    beginFailure();
+    asm.lea(RSI, string(ERROR_PREFIX + "index "));
+    asm.call(append);
+    asm.pop(RDI);
+    asm.call(appendInt);
+    asm.lea(RSI, string(" out of bounds for length "));
+    asm.call(append);
+    asm.pop(RDI);
+    asm.call(appendInt);
+    asm.pop(RSI);
+    endFailure();
+
+    asm.bind(failSize);
+    asm.push(RSI);
+    asm.push(RDI);
+    beginFailure();
+    asm.lea(RSI, string(ERROR_PREFIX + "negative array size "));
+    asm.call(append);
+    asm.pop(RDI);
+    asm.call(appendInt);
+    asm.pop(RSI);
+    endFailure();
+
+    asm.bind(exit);
+    asm.movImmediate(RAX, SYS_EXIT_GROUP);
+    asm.syscall();
+
+    for (Map.Entry<String, Label> entry : strings.entrySet()) {
+      byte[] bytes = entry.getKey().getBytes(StandardCharsets.ISO_8859_1);
+      asm.bind(entry.getValue());
+      asm.data8(bytes.length);
+      asm.data(bytes);
+    }
+  }
+
+  /** Copy rcx bytes from rsi to the end of the output buffer and return. */
+  private void copyToBuffer() {
+    asm.leaBss(RDI, OUT_BUFFER);
+    asm.loadBss(RAX, OUT_LENGTH);
+    asm.alu(ADD, RDI, RAX, true);
+    asm.alu(ADD, RAX, RCX, true);
+    asm.storeBss(OUT_LENGTH, RAX);
+    asm.repMovsb();
+    asm.ret();
+  }
+
+  private void beginFailure() {
+    asm.call(flush);
+    asm.lea(RSI, string("Error\n"));
+    asm.call(append);
+  }
+
+  /** Append the string at rsi, flush and exit with status 1. */
+  private void endFailure() {
+    asm.call(append);
+    asm.call(flush);
+    asm.movImmediate(RDI, 1);
+    asm.jump(exit);
+  }
+
+  /**
+   * @return bss bytes needed with the given number of static fields
+   */
+  static long bssSize(int statics) {
+    return STATICS + 8L * statics;
+  }
+}
@@ -0,0 +1,410 @@
+package miniJava.CodeGeneration;
+
+import java.util.Arrays;
+
+/*
+ * Encoder for the few x86-64 instructions the native backend needs.
+ *
+ * Memory operands are [base + disp], [base + index * scale + disp] or
+ * RIP-relative, either to a label in the code or to an offset in the bss
+ * segment, whose address is only known once the code has been laid out.
+ * Jumps, calls and RIP-relative operands always use 32-bit displacements;
+ * they are patched by link().
+ *
+ * Method names say what is done with which operand size: the 32-bit forms
+ * are used for miniJava int and boolean values, the 64-bit forms for
+ * pointers and stack slots.
+ */
+class X86Assembler {
+  static final int RAX = 0;
+  static final int RCX = 1;
+  static final int RDX = 2;
+  static final int RBX = 3;
+  static final int RSP = 4;
+  static final int RBP = 5;
+  static final int RSI = 6;
+  static final int RDI = 7;
+  static final int R8 = 8;
+  static final int R9 = 9;
+  static final int R10 = 10;
+  static final int R11 = 11;
+  static final int R14 = 14;
+  static final int R15 = 15;
+
+  // two-operand ALU opcodes, register to register
+  static final int ADD = 0x01;
+  static final int OR = 0x09;
+  static final int AND = 0x21;
+  static final int SUB = 0x29;
+  static final int XOR = 0x31;
+  static final int CMP = 0x39;
+  static final int TEST = 0x85;
+
+  // condition codes
+  static final int BELOW = 0x2;
+  static final int ABOVE_EQUAL = 0x3;
+  static final int EQUAL = 0x4;
+  static final int NOT_EQUAL = 0x5;
+  static final int BELOW_EQUAL = 0x6;
+  static final int ABOVE = 0x7;
+  static final int SIGN = 0x8;
+  static final int NOT_SIGN = 0x9;
+  static final int LESS = 0xC;
+  static final int GREATER_EQUAL = 0xD;
+  static final int LESS_EQUAL = 0xE;
+  static final int GREATER = 0xF;
+
+  static class Label {
+    int position = -1;
+  }
+
+  private static final int NO_INDEX = -1;
+  private static final int RIP = -2;
+
+  private byte[] code = new byte[4096];
+  private int length = 0;
+
+  // rel32 fields to patch: position of the field, then label or bss offset
+  private int[] labelFixups = new int[64];
+  private Label[] fixupLabels = new Label[64];
+  private int labelFixupCount = 0;
+  private int[] bssFixups = new int[64];
+  private int bssFixupCount = 0;
+
+  int position() {
+    return length;
+  }
+
+  void bind(Label label) {
+    label.position = length;
+  }
+
+  // moves
+
+  /** mov dst, src (64-bit) */
+  void mov(int dst, int src) {
+    registers(true, 0x89, src, dst);
+  }
+
+  /** mov dst32, src32, which also clears the upper half of dst */
+  void mov32(int dst, int src) {
+    registers(false, 0x89, src, dst);
+  }
+
+  /** Load an immediate in the shortest form that gives dst the 64-bit value. */
+  void movImmediate(int dst, long value) {
+    if (value >= 0 && value <= 0xFFFFFFFFL) {
+      rex(false, 0, 0, dst);
+      emit1(0xB8 + (dst & 7));
+      emit4((int) value);
+    } else if (value == (int) value) {
+      rex(true, 0, 0, dst);
+      emit1(0xC7);
+      emit1(0xC0 | (dst & 7));
+      emit4((int) value);
+    } else {
+      rex(true, 0, 0, dst);
+      emit1(0xB8 + (dst & 7));
+      emit4((int) value);
+      emit4((int) (value >>> 32));
+    }
+  }
+
+  /** mov dst, [base + disp] */
+  void load(int dst, int base, int disp) {
+    memory(true, 0x8B, dst, base, NO_INDEX, disp);
+  }
+
+  /** mov [base + disp], src */
+  void store(int base, int disp, int src) {
+    memory(true, 0x89, src, base, NO_INDEX, disp);
+  }
+
+  /** mov dst, [base + index * 8 + disp] */
+  void loadIndexed(int dst, int base, int index, int disp) {
+    memory(true, 0x8B, dst, base, index, disp);
+  }
+
+  /** mov [base + index * 8 + disp], src */
+  void storeIndexed(int base, int index, int disp, int src) {
+    memory(true, 0x89, src, base, index, disp);
+  }
+
+  /** mov byte [base + disp], src8, for src in AL, CL, DL or BL */
+  void storeByte(int base, int disp, int src) {
+    memory(false, 0x88, src, base, NO_INDEX, disp);
+  }
+
+  /** mov byte [base + disp], value */
+  void storeByteImmediate(int base, int disp, int value) {
+    memory(false, 0xC6, 0, base, NO_INDEX, disp);
+    emit1(value);
+  }
+
+  /** movsxd dst, src32 */
+  void movsxd(int dst, int src) {
+    registers(true, 0x63, dst, src);
+  }
+
+  void loadBss(int dst, int offset) {
+    memory(true, 0x8B, dst, RIP, NO_INDEX, 0);
+    bssFixup(offset);
+  }
+
+  void storeBss(int offset, int src) {
+    memory(true, 0x89, src, RIP, NO_INDEX, 0);
+    bssFixup(offset);
+  }
+
+  /** lea dst, [rip + bss offset] */
+  void leaBss(int dst, int offset) {
+    memory(true, 0x8D, dst, RIP, NO_INDEX, 0);
+    bssFixup(offset);
+  }
+
+  /** lea dst, [rip + label] */
+  void lea(int dst, Label label) {
+    memory(true, 0x8D, dst, RIP, NO_INDEX, 0);
+    labelFixup(label);
+  }
+
+  /** cmp reg, qword [rip + bss offset] */
+  void compareBss(int reg, int offset) {
+    memory(true, 0x3B, reg, RIP, NO_INDEX, 0);
+    bssFixup(offset);
+  }
+
+  void push(int reg) {
+    rex(false, 0, 0, reg);
+    emit1(0x50 + (reg & 7));
+  }
+
+  void pop(int reg) {
+    rex(false, 0, 0, reg);
+    emit1(0x58 + (reg & 7));
+  }
+
+  // arithmetic
+
+  /** One of ADD, OR, AND, SUB, XOR, CMP or TEST: dst op= src. */
+  void alu(int opcode, int dst, int src, boolean wide) {
+    registers(wide, opcode, src, dst);
+  }
+
+  /** dst op= imm32 for ADD, OR, AND, SUB, XOR or CMP. */
+  void aluImmediate(int opcode, int dst, int value, boolean wide) {
+    int extension = opcode >> 3;
+    rex(wide, 0, 0, dst);
+    if (value == (byte) value) {
+      emit1(0x83);
+      emit1(0xC0 | extension << 3 | (dst & 7));
+      emit1(value);
+    } else {
+      emit1(0x81);
+      emit1(0xC0 | extension << 3 | (dst & 7));
+      emit4(value);
+    }
+  }
+
+  /** imul dst32, src32 */
+  void imul32(int dst, int src) {
+    rex(false, dst, 0, src);
+    emit1(0x0F);
+    emit1(0xAF);
+    emit1(0xC0 | (dst & 7) << 3 | (src & 7));
+  }
+
+  void neg(int reg, boolean wide) {
+    group3(wide, 3, reg);
+  }
+
+  /** edx:eax / src32, quotient in eax */
+  void idiv32(int src) {
+    group3(false, 7, src);
+  }
+
+  /** rdx:rax / src unsigned, quotient in rax and remainder in rdx */
+  void div(int src) {
+    group3(true, 6, src);
+  }
+
+  /** Sign-extend eax into edx. */
+  void cdq() {
+    emit1(0x99);
+  }
+
+  /** shl reg, count (64-bit) */
+  void shiftLeft(int reg, int count) {
+    rex(true, 0, 0, reg);
+    emit1(0xC1);
+    emit1(0xE0 | (reg & 7));
+    emit1(count);
+  }
+
+  // control
+
+  void jump(Label label) {
+    emit1(0xE9);
+    labelFixup(label);
+  }
+
+  void jump(int condition, Label label) {
+    emit1(0x0F);
+    emit1(0x80 + condition);
+    labelFixup(label);
+  }
+
+  void call(Label label) {
+    emit1(0xE8);
+    labelFixup(label);
+  }
+
+  void ret() {
+    emit1(0xC3);
+  }
+
+  void syscall() {
+    emit1(0x0F);
+    emit1(0x05);
+  }
+
+  /** rep movsb: copy rcx bytes from [rsi] to [rdi] */
+  void repMovsb() {
+    emit1(0xF3);
+    emit1(0xA4);
+  }
+
+  // data
+
+  void data(byte[] bytes) {
+    ensure(bytes.length);
+    System.arraycopy(bytes, 0, code, length, bytes.length);
+    length += bytes.length;
+  }
+
+  void data8(long value) {
+    emit4((int) value);
+    emit4((int) (value >>> 32));
+  }
+
+  // layout
+
+  /**
+   * Resolve every jump, call and RIP-relative operand.
+   *
+   * @param codeAddress virtual address the code is loaded at
+   * @param bssAddress virtual address of the bss segment
+   * @return the finished code
+   */
+  byte[] link(long codeAddress, long bssAddress) {
+    for (int i = 0; i < labelFixupCount; i++) {
+      Label label = fixupLabels[i];
+      if (label.position < 0) {
+        throw new IllegalStateException("unbound label");
+      }
+      patch4(labelFixups[i], label.position - (labelFixups[i] + 4));
+    }
+    for (int i = 0; i < bssFixupCount; i++) {
+      int field = bssFixups[i * 2];
+      long target = bssAddress + bssFixups[i * 2 + 1];
+      patch4(field, Math.toIntExact(target - (codeAddress + field + 4)));
+    }
+    return Arrays.copyOf(code, length);
+  }
+
+  // encoding
+
+  private void registers(boolean wide, int opcode, int reg, int rm) {
+    rex(wide, reg, 0, rm);
+    emit1(opcode);
+    emit1(0xC0 | (reg & 7) << 3 | (rm & 7));
+  }
+
+  private void group3(boolean wide, int extension, int rm) {
+    rex(wide, 0, 0, rm);
+    emit1(0xF7);
+    emit1(0xC0 | extension << 3 | (rm & 7));
+  }
+
+  /**
+   * Emit a REX prefix if any operand needs one. For the memory forms, rm is the base register and
+   * index the index register.
+   */
+  private void rex(boolean wide, int reg, int index, int rm) {
+    int rex = (wide ? 8 : 0) | (reg & 8) >> 1 | (index & 8) >> 2 | (rm & 8) >> 3;
+    if (rex != 0) {
+      emit1(0x40 | rex);
+    }
+  }
+
+  /** An instruction with a memory operand; index is scaled by 8. */
+  private void memory(boolean wide, int opcode, int reg, int base, int index, int disp) {
+    if (base == RIP) {
+      rex(wide, reg, 0, 0);
+      emit1(opcode);
+      emit1((reg & 7) << 3 | 5);
+      return;
+    }
+    rex(wide, reg, index == NO_INDEX ? 0 : index, base);
+    emit1(opcode);
+    int mode = disp == 0 && (base & 7) != RBP ? 0 : disp == (byte) disp ? 1 : 2;
+    if (index != NO_INDEX) {
+      emit1(mode << 6 | (reg & 7) << 3 | 4);
+      emit1(3 << 6 | (index & 7) << 3 | (base & 7));
+    } else if ((base & 7) == RSP) {
+      emit1(mode << 6 | (reg & 7) << 3 | 4);
+      emit1(0x24);
+    } else {
+      emit1(mode << 6 | (reg & 7) << 3 | (base & 7));
+    }
+    if (mode == 1) {
+      emit1(disp);
+    } else if (mode == 2) {
+      emit4(disp);
+    }
+  }
+
+  private void labelFixup(Label label) {
+    if (labelFixupCount == labelFixups.length) {
+      labelFixups = Arrays.copyOf(labelFixups, labelFixupCount * 2);
+      fixupLabels = Arrays.copyOf(fixupLabels, labelFixupCount * 2);
+    }
+    labelFixups[labelFixupCount] = length;
+    fixupLabels[labelFixupCount++] = label;
+    emit4(0);
+  }
+
+  private void bssFixup(int offset) {
+    if (bssFixupCount * 2 == bssFixups.length) {
+      bssFixups = Arrays.copyOf(bssFixups, bssFixups.length * 2);
+    }
+    bssFixups[bssFixupCount * 2] = length;
+    bssFixups[bssFixupCount * 2 + 1] = offset;
+    bssFixupCount++;
+    emit4(0);
+  }
+
+  private void emit1(int b) {
+    ensure(1);
+    code[length++] = (byte) b;
+  }
+
+  private void emit4(int value) {
+    ensure(4);
+    patch4(length, value);
+    length += 4;
+  }
+
+  private void patch4(int position, int value) {
+    code[position] = (byte) value;
+    code[position + 1] = (byte) (value >> 8);
+    code[position + 2] = (byte) (value >> 16);
+    code[position + 3] = (byte) (value >> 24);
+  }
+
+  private void ensure(int bytes) {
+    if (length + bytes > code.length) {
+      code = Arrays.copyOf(code, Math.max(code.length * 2, length + bytes));
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package miniJava;
+
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.Identification;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+import miniJava.ContextualAnalysis.TypeChecker;
+import miniJava.Optimization.ConstantFolder;
+import miniJava.Optimization.DeadCodeEliminator;
+import miniJava.Optimization.SsaOptimizer;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CompilationPipeline {
+  ErrorReporter reporter;
+  NameTable names;
+  Map<String, Long> phaseTimes;
+  ParseCache cache;
+  boolean analyze;
+  boolean optimize;
+  Map<String, Integer> eliminated;
+  SsaOptimizer ssa;
+  StandardEnvironment environment;
+
+  public CompilationPipeline(ErrorReporter errorReporter) {
+    this(errorReporter, new NameTable());
+  }
+
+  public CompilationPipeline(ErrorReporter errorReporter, NameTable nameTable) {
+    reporter = errorReporter;
+    names = nameTable;
+    phaseTimes = new LinkedHashMap<>();
+    eliminated = new LinkedHashMap<>();
+  }
+
+  public Package compile(Path path) throws IOException {
+    long start = System.nanoTime();
+    SourceBuffer source = SourceBuffer.fromFile(path);
+    recordPhase("read", start);
+    return compile(source);
+  }
+
+  public Package compile(SourceBuffer source) {
+    Package ast = parse(source);
+    if (analyze && ast != null && reporter.isEmpty()) {
+      long start = System.nanoTime();
+      environment = new StandardEnvironment();
+      new Identification(reporter, names, environment).identify(ast);
+      start = recordPhase("identify", start);
+      if (reporter.isEmpty()) {
+        new TypeChecker(reporter, environment).check(ast);
+        start = recordPhase("typecheck", start);
+      }
+      if (optimize && reporter.isEmpty()) {
+        optimize(ast, start);
+      }
+    }
+    return ast;
+  }
+
+  private void optimize(Package ast, long start) {
+    eliminated.merge("fold", new ConstantFolder().fold(ast), Integer::sum);
+    start = recordPhase("fold", start);
+    eliminated.merge("dce", new DeadCodeEliminator().eliminate(ast), Integer::sum);
+    start = recordPhase("dce", start);
+    ssa = new SsaOptimizer(environment);
+    ssa.optimize(ast);
+    recordPhase("ssa", start);
+  }
+
+  private Package parse(SourceBuffer source) {
+    long start = System.nanoTime();
+    if (cache != null) {
+      Package cached = cache.load(source, names);
+      start = recordPhase("cache", start);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    TokenBuffer tokens = new Scanner(source, reporter).scanAll();
+    start = recordPhase("scan", start);
+
+    Parser parser = new Parser(tokens, reporter, names);
+    Package ast = parser.parse();
+    start = recordPhase("parse", start);
+
+    if (cache != null && reporter.isEmpty()) {
+      cache.store(source, ast);
+      recordPhase("cache", start);
+    }
+    return ast;
+  }
+
+  /**
+   * Reuse trees from earlier runs: a source whose bytes are already in the cache skips scanning and
+   * parsing, and every source that parses without errors is added to it.
+   */
+  public void setParseCache(ParseCache parseCache) {
+    cache = parseCache;
+  }
+
+  /** Run contextual analysis on every tree that parses without errors. */
+  public void setContextualAnalysis(boolean enabled) {
+    analyze = enabled;
+  }
+
+  /** Simplify every tree that analyzes without errors before it is returned. */
+  public void setOptimization(boolean enabled) {
+    optimize = enabled;
+  }
+
+  /**
+   * @return the predefined classes the last analyzed tree was linked to, or null if none was
+   */
+  public StandardEnvironment getEnvironment() {
+    return environment;
+  }
+
+  public ErrorReporter getReporter() {
+    return reporter;
+  }
+
+  public NameTable getNameTable() {
+    return names;
+  }
+
+  /**
+   * @return nanoseconds spent in each phase so far, in the order the phases first ran
+   */
+  public Map<String, Long> getPhaseTimes() {
+    return Collections.unmodifiableMap(phaseTimes);
+  }
+
+  /**
+   * @return AST nodes each optimization pass has removed so far, in the order the passes first ran
+   */
+  public Map<String, Integer> getEliminatedNodes() {
+    return Collections.unmodifiableMap(eliminated);
+  }
+
+  /**
+   * @return the SSA optimizer that ran on the last optimized tree, which holds its intermediate
+   *     code, or null if none was optimized
+   */
+  public SsaOptimizer getSsaOptimizer() {
+    return ssa;
+  }
+
+  private long recordPhase(String phase, long start) {
+    long end = System.nanoTime();
+    phaseTimes.merge(phase, end - start, Long::sum);
+    return end;
+  }
+}
@@ -0,0 +1,110 @@
+package miniJava;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/*
+ * Thin client for CompileServer. Sends every source named on the command
+ * line to a running server and prints the replies in the same format as
+ * batch mode of Compiler.
+ *
+ *   java miniJava.CompileClient [-socket path] [-check] [-shutdown] files-or-directories...
+ */
+public class CompileClient {
+  SocketChannel socket;
+  BufferedReader in;
+  Writer out;
+
+  public CompileClient(Path socketPath) throws IOException {
+    socket = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+    in =
+        new BufferedReader(
+            new InputStreamReader(Channels.newInputStream(socket), StandardCharsets.UTF_8));
+    out =
+        new BufferedWriter(
+            new OutputStreamWriter(Channels.newOutputStream(socket), StandardCharsets.UTF_8));
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path socketPath = CompileServer.DEFAULT_SOCKET;
+    String command = "COMPILE";
+    boolean shutdown = false;
+    int first = 0;
+    while (first < args.length && args[first].startsWith("-")) {
+      switch (args[first]) {
+        case "-socket":
+          socketPath = Paths.get(args[++first]);
+          break;
+        case "-check":
+          command = "CHECK";
+          break;
+        case "-shutdown":
+          shutdown = true;
+          break;
+        default:
+          throw new IllegalArgumentException("unknown option " + args[first]);
+      }
+      first++;
+    }
+
+    String[] sources = new String[args.length - first];
+    System.arraycopy(args, first, sources, 0, sources.length);
+    List<Path> paths = BatchCompiler.collectSources(sources);
+
+    CompileClient client = new CompileClient(socketPath);
+    try {
+      for (Path path : paths) {
+        System.out.println("=== " + path);
+        StringBuilder reply = new StringBuilder();
+        String status = client.send(command + " " + path.toAbsolutePath(), reply);
+        if (status.equals("ERROR") && command.equals("COMPILE")) {
+          System.out.println("Error");
+        }
+        System.out.print(reply);
+      }
+      if (shutdown) {
+        client.send("SHUTDOWN", System.out);
+      }
+    } finally {
+      client.close();
+    }
+  }
+
+  /**
+   * Send one request line and copy the payload of the reply to the given sink.
+   *
+   * @return the status line of the reply
+   */
+  public String send(String request, Appendable sink) throws IOException {
+    out.write(request);
+    out.write('\n');
+    out.flush();
+    String status = in.readLine();
+    if (status == null) {
+      throw new IOException("compile server closed the connection");
+    }
+    String line;
+    while ((line = in.readLine()) != null && !line.equals(CompileServer.TERMINATOR)) {
+      if (line.startsWith(CompileServer.TERMINATOR)) {
+        line = line.substring(1);
+      }
+      sink.append(line).append('\n');
+    }
+    return status;
+  }
+
+  public void close() throws IOException {
+    socket.close();
+  }
+}
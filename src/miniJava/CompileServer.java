@@ -0,0 +1,232 @@
+package miniJava;
+
+import miniJava.AbstractSyntaxTrees.ASTDisplay;
+import miniJava.AbstractSyntaxTrees.Package;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Long-lived compile server. Keeping one JVM alive across requests keeps the
+ * Scanner and Parser hot paths JIT-compiled between builds.
+ *
+ * The server listens on a Unix domain socket, by default compile.sock in
+ * a miniJava-<user> directory under the system temporary directory. The
+ * directory must be accessible to its owner only, so no other local user
+ * can connect and have files read with the owner's rights or stop the
+ * server; one that is not is refused rather than fixed.
+ *
+ * Protocol, one UTF-8 line per request:
+ *
+ *   COMPILE <path>    parse the file and return its AST display
+ *   CHECK <path>      parse the file and return diagnostics only
+ *   SHUTDOWN          stop the server
+ *
+ * Each response starts with a status line, OK or ERROR, followed by the
+ * payload lines and a terminating line holding a single ".". Payload lines
+ * that begin with "." are sent with an extra "." prepended. A request
+ * that fails unexpectedly gets an ERROR response naming the exception.
+ */
+public class CompileServer {
+  /** Per-user directory under the system temporary directory, also holding the -cc cache. */
+  public static final Path USER_DIRECTORY =
+      Paths.get(
+          System.getProperty("java.io.tmpdir"), "miniJava-" + System.getProperty("user.name"));
+
+  public static final Path DEFAULT_SOCKET = USER_DIRECTORY.resolve("compile.sock");
+
+  static final String TERMINATOR = ".";
+
+  private static final Set<PosixFilePermission> OWNER_ONLY =
+      PosixFilePermissions.fromString("rwx------");
+
+  Path socketPath;
+  ServerSocketChannel serverChannel;
+  ExecutorService workers;
+  volatile boolean running = true;
+
+  public CompileServer(Path socket) throws IOException {
+    socketPath = socket.toAbsolutePath();
+    secureDirectory(socketPath.getParent());
+    UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+    if (Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+      if (isListening(address)) {
+        throw new IOException("a compile server is already listening on " + socketPath);
+      }
+      // left behind by a server that did not shut down
+      Files.delete(socketPath);
+    }
+    serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    serverChannel.bind(address);
+    workers = Executors.newCachedThreadPool();
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path socket = args.length > 0 ? Paths.get(args[0]) : DEFAULT_SOCKET;
+    CompileServer server = new CompileServer(socket);
+    System.err.println("miniJava compile server listening on " + server.getSocketPath());
+    server.serve();
+  }
+
+  public Path getSocketPath() {
+    return socketPath;
+  }
+
+  private static boolean isListening(UnixDomainSocketAddress address) {
+    try {
+      SocketChannel.open(address).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Create dir accessible to its owner only, or check that it already is one owned by this user.
+   * File systems without POSIX permissions, like Windows', keep temporary directories per user.
+   */
+  static void secureDirectory(Path dir) throws IOException {
+    if (!dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.createDirectories(dir);
+      return;
+    }
+    if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+      Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+    }
+    UserPrincipal user =
+        dir.getFileSystem()
+            .getUserPrincipalLookupService()
+            .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)
+        || !Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).equals(user)
+        || !Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(OWNER_ONLY)) {
+      throw new IOException(dir + " must be a directory only " + user.getName() + " can access");
+    }
+  }
+
+  public void serve() throws IOException {
+    try {
+      while (running) {
+        SocketChannel socket;
+        try {
+          socket = serverChannel.accept();
+        } catch (IOException e) {
+          if (!running) {
+            break;
+          }
+          throw e;
+        }
+        workers.execute(() -> handle(socket));
+      }
+    } finally {
+      workers.shutdown();
+    }
+  }
+
+  public void shutdown() {
+    running = false;
+    try {
+      serverChannel.close();
+      Files.deleteIfExists(socketPath);
+    } catch (IOException e) {
+      // already closed
+    }
+  }
+
+  private void handle(SocketChannel socket) {
+    try (socket;
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(socket), StandardCharsets.UTF_8));
+        Writer out =
+            new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(socket), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        int space = line.indexOf(' ');
+        String command = space < 0 ? line : line.substring(0, space);
+        String argument = space < 0 ? "" : line.substring(space + 1);
+        switch (command) {
+          case "COMPILE":
+          case "CHECK":
+            try {
+              respond(out, argument, command.equals("COMPILE"));
+            } catch (RuntimeException e) {
+              writeResponse(out, "ERROR", e.toString());
+            }
+            break;
+          case "SHUTDOWN":
+            writeResponse(out, "OK", "");
+            shutdown();
+            return;
+          default:
+            writeResponse(out, "ERROR", "unknown command " + command);
+        }
+      }
+    } catch (IOException e) {
+      System.err.println(e.toString());
+    }
+  }
+
+  private void respond(Writer out, String path, boolean showTree) throws IOException {
+    ErrorReporter reporter = new ErrorReporter();
+    CompilationPipeline pipeline = new CompilationPipeline(reporter);
+    Package ast;
+    try {
+      ast = pipeline.compile(Paths.get(path));
+    } catch (IOException e) {
+      writeResponse(out, "ERROR", e.toString());
+      return;
+    }
+
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    PrintStream printer = new PrintStream(payload, false, StandardCharsets.UTF_8);
+    if (reporter.isEmpty()) {
+      if (showTree) {
+        new ASTDisplay(printer).showTree(ast);
+      }
+    } else {
+      reporter.showErrorQueue(printer);
+    }
+    printer.flush();
+    writeResponse(
+        out, reporter.isEmpty() ? "OK" : "ERROR", payload.toString(StandardCharsets.UTF_8));
+  }
+
+  private void writeResponse(Writer out, String status, String payload) throws IOException {
+    out.write(status);
+    out.write('\n');
+    for (String line : payload.isEmpty() ? new String[0] : payload.split("\\R")) {
+      if (line.startsWith(TERMINATOR)) {
+        out.write(TERMINATOR);
+      }
+      out.write(line);
+      out.write('\n');
+    }
+    out.write(TERMINATOR);
+    out.write('\n');
+    out.flush();
+  }
+}
@@ -1,46 +1,262 @@
 package miniJava;
 
-import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.Package;
 import miniJava.AbstractSyntaxTrees.ASTDisplay;
-import miniJava.SyntacticAnalyzer.Parser;
-import miniJava.SyntacticAnalyzer.Scanner;
-import miniJava.SyntacticAnalyzer.SourcePosition;
+import miniJava.CodeGeneration.CGenerator;
+import miniJava.CodeGeneration.CProgram;
+import miniJava.CodeGeneration.JvmGenerator;
+import miniJava.CodeGeneration.JvmProgram;
+import miniJava.CodeGeneration.NativeGenerator;
+import miniJava.Execution.BytecodeCompiler;
+import miniJava.Execution.ExecutionError;
+import miniJava.Execution.Interpreter;
+import miniJava.Execution.VirtualMachine;
+import miniJava.IntermediateRepresentation.Function;
+import miniJava.Optimization.SsaOptimizer;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 public class Compiler {
   public static void main(String[] args) {
     ErrorReporter reporter = new ErrorReporter();
 
-    if (args == null || args[0] == null) {
+    if (args == null || args.length == 0 || args[0] == null) {
       throw new UnsupportedOperationException();
     }
 
-    InputStream in = null;
+    ParseCache cache = null;
+    boolean analyze = false;
+    boolean run = false;
+    boolean interpret = false;
+    boolean jvm = false;
+    boolean c = false;
+    boolean optimize = false;
+    boolean ir = false;
+    Path cacheDir = null;
+    Path classDir = null;
+    Path executable = null;
+    while (args[0].startsWith("-")) {
+      if (args[0].equals("-analyze") && args.length > 1) {
+        analyze = true;
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if ((args[0].equals("-run")
+              || args[0].equals("-interpret")
+              || args[0].equals("-jvm")
+              || args[0].equals("-cc"))
+          && args.length == 2) {
+        analyze = true;
+        run = true;
+        interpret = args[0].equals("-interpret");
+        jvm = args[0].equals("-jvm");
+        c = args[0].equals("-cc");
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if (args[0].equals("-native") && args.length == 3) {
+        analyze = true;
+        executable = Paths.get(args[1]);
+        args = Arrays.copyOfRange(args, 2, args.length);
+      } else if (args[0].equals("-optimize") && args.length > 1) {
+        analyze = true;
+        optimize = true;
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if (args[0].equals("-ir") && args.length > 1) {
+        analyze = true;
+        optimize = true;
+        ir = true;
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if (args[0].equals("-classdir") && args.length > 2) {
+        classDir = Paths.get(args[1]);
+        args = Arrays.copyOfRange(args, 2, args.length);
+      } else if (args[0].equals("-cache") && args.length > 2) {
+        try {
+          cache = new ParseCache(Paths.get(args[1]));
+          cacheDir = Paths.get(args[1]);
+        } catch (IOException e) {
+          System.err.println(e.toString());
+          System.exit(-1);
+        }
+        args = Arrays.copyOfRange(args, 2, args.length);
+      } else {
+        throw new UnsupportedOperationException();
+      }
+    }
+
+    if (args.length > 1 || Files.isDirectory(Paths.get(args[0]))) {
+      if (run || optimize || executable != null) {
+        throw new UnsupportedOperationException();
+      }
+      compileBatch(args, cache, analyze);
+      return;
+    }
+
+    CompilationPipeline pipeline = new CompilationPipeline(reporter);
+    pipeline.setParseCache(cache);
+    pipeline.setContextualAnalysis(analyze);
+    pipeline.setOptimization(optimize);
+    ASTDisplay display = new ASTDisplay();
+    Package ast = null;
 
     try {
-      in = new FileInputStream(args[0]);
-    } catch (FileNotFoundException e) {
+      ast = pipeline.compile(Paths.get(args[0]));
+    } catch (IOException e) {
       System.err.println(e.toString());
       System.exit(-1);
     }
 
-    SourcePosition position = new SourcePosition(0, 0);
+    for (Map.Entry<String, Integer> pass : pipeline.getEliminatedNodes().entrySet()) {
+      System.err.println(pass.getKey() + ": " + pass.getValue() + " nodes eliminated");
+    }
+    SsaOptimizer ssa = pipeline.getSsaOptimizer();
+    if (ssa != null) {
+      System.err.println("gvn: " + ssa.getRedundant() + " redundant values removed");
+      System.err.println("licm: " + ssa.getHoisted() + " loop-invariant values hoisted");
+    }
 
-    Scanner sc = new Scanner(in, reporter, position);
-    Parser parser = new Parser(sc, reporter);
-    ASTDisplay display = new ASTDisplay();
-    AST ast = parser.parse();
+    if (run && reporter.isEmpty()) {
+      PrintStream out =
+          new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+      if (c) {
+        executeC(ast, pipeline, cacheDir, reporter);
+        if (reporter.isEmpty()) {
+          return;
+        }
+      } else if (jvm
+          ? executeJvm(ast, pipeline, out, classDir, reporter)
+          : execute(ast, pipeline, out, interpret, reporter)) {
+        return;
+      }
+    }
 
-    parser.parse();
+    if (executable != null && reporter.isEmpty()) {
+      byte[] binary = new NativeGenerator(pipeline.getEnvironment()).generate(ast, reporter);
+      if (binary != null) {
+        try {
+          Files.write(executable, binary);
+          executable.toFile().setExecutable(true);
+        } catch (IOException e) {
+          System.err.println(e.toString());
+          System.exit(-1);
+        }
+        return;
+      }
+    }
 
-    if (reporter.isEmpty()) {
+    if (reporter.isEmpty() && ir) {
+      for (Function function : ssa.getFunctions()) {
+        System.out.print(function);
+      }
+    } else if (reporter.isEmpty()) {
       display.showTree(ast);
     } else {
       System.out.println("Error");
       reporter.showErrorQueue();
     }
   }
+
+  private static boolean execute(
+      Package ast,
+      CompilationPipeline pipeline,
+      PrintStream out,
+      boolean interpret,
+      ErrorReporter reporter) {
+    if (interpret) {
+      return new Interpreter(pipeline.getEnvironment(), out).run(ast, reporter);
+    }
+    try {
+      BytecodeCompiler compiler = new BytecodeCompiler(pipeline.getEnvironment());
+      return new VirtualMachine(compiler.compile(ast), out).run(ast, reporter);
+    } catch (ExecutionError e) {
+      reporter.reportError(e.toString() + "@" + ast.lineTable.getPosition(e.node.offset));
+      return false;
+    }
+  }
+
+  private static boolean executeJvm(
+      Package ast,
+      CompilationPipeline pipeline,
+      PrintStream out,
+      Path classDir,
+      ErrorReporter reporter) {
+    JvmGenerator generator = new JvmGenerator(pipeline.getEnvironment());
+    JvmProgram program;
+    try {
+      program = new JvmProgram(generator.generate(ast), generator.getMainClass());
+    } catch (ExecutionError e) {
+      reporter.reportError(e.toString() + "@" + ast.lineTable.getPosition(e.node.offset));
+      return false;
+    }
+    if (classDir != null) {
+      try {
+        program.writeClassFiles(classDir);
+      } catch (IOException e) {
+        System.err.println(e.toString());
+        System.exit(-1);
+      }
+    }
+    return program.run(out, reporter);
+  }
+
+  /** The C program prints its own output and failures; only build problems are reported. */
+  private static void executeC(
+      Package ast, CompilationPipeline pipeline, Path cacheDir, ErrorReporter reporter) {
+    CProgram program;
+    try {
+      program = new CGenerator(pipeline.getEnvironment()).generate(ast);
+    } catch (ExecutionError e) {
+      reporter.reportError(e.toString() + "@" + ast.lineTable.getPosition(e.node.offset));
+      return;
+    }
+    if (program == null) {
+      reporter.reportError("*** no method public static void main(String[] args)");
+      return;
+    }
+    if (cacheDir == null) {
+      // objects found here are linked and run, so no other user may be able to plant one
+      cacheDir = CompileServer.USER_DIRECTORY;
+      try {
+        CompileServer.secureDirectory(cacheDir);
+      } catch (IOException e) {
+        reporter.reportError("*** " + e.getMessage());
+        return;
+      }
+    }
+    program.run(cacheDir, reporter);
+  }
+
+  private static void compileBatch(String[] args, ParseCache cache, boolean analyze) {
+    List<Path> paths = null;
+
+    try {
+      paths = BatchCompiler.collectSources(args);
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      System.exit(-1);
+    }
+
+    ASTDisplay display = new ASTDisplay();
+    BatchCompiler compiler = new BatchCompiler();
+    compiler.setParseCache(cache);
+    compiler.setContextualAnalysis(analyze);
+
+    for (BatchCompiler.Result result : compiler.compile(paths)) {
+      System.out.println("=== " + result.path);
+      if (result.failure != null) {
+        System.err.println(result.failure.toString());
+      } else if (result.reporter.isEmpty()) {
+        display.showTree(result.ast);
+      } else {
+        System.out.println("Error");
+        result.reporter.showErrorQueue();
+      }
+    }
+  }
 }
@@ -0,0 +1,462 @@
+package miniJava.ContextualAnalysis;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+import miniJava.NameTable;
+import miniJava.SyntacticAnalyzer.LineTable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+ * Link every name in the AST to its declaration: Identifier.decl for
+ * identifiers and Reference.decl for references.
+ *
+ * Class names live in one table and each class gets its own member table,
+ * so references into other classes cost a single probe. Parameters and
+ * locals share a ScopedSymbolTable with one scope per method and per
+ * BlockStmt. A name is looked up as a local, then as a member of the
+ * current class, then (only in front of a '.') as a class name.
+ *
+ * Every error is reported and identification carries on.
+ */
+public class Identification implements Visitor<Identification.Context, Object> {
+
+  /** How a reference is used, which decides the declarations it may denote. */
+  enum Context {
+    VALUE,
+    QUALIFIER,
+    CALL
+  }
+
+  private final ErrorReporter reporter;
+  private final NameTable names;
+  private final StandardEnvironment environment;
+  private final ScopedSymbolTable classes = new ScopedSymbolTable();
+  private final Map<ClassDecl, ScopedSymbolTable> members = new IdentityHashMap<>();
+  private final ScopedSymbolTable locals = new ScopedSymbolTable();
+  private final int lengthSymbol;
+
+  private LineTable lineTable;
+  private ClassDecl currentClass;
+  private MethodDecl currentMethod;
+  private int declaringSymbol = NameTable.NO_SYMBOL;
+
+  public Identification(ErrorReporter errorReporter, NameTable nameTable) {
+    this(errorReporter, nameTable, new StandardEnvironment());
+  }
+
+  public Identification(
+      ErrorReporter errorReporter, NameTable nameTable, StandardEnvironment standardEnvironment) {
+    reporter = errorReporter;
+    names = nameTable;
+    environment = standardEnvironment;
+    lengthSymbol = names.intern(environment.arrayLength.name);
+  }
+
+  public void identify(Package prog) {
+    prog.visit(this, null);
+  }
+
+  // declarations
+
+  public Object visitPackage(Package prog, Context context) {
+    lineTable = prog.lineTable;
+    classes.openScope();
+    for (ClassDecl cd : environment.classes()) {
+      declareClass(cd);
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      declareClass(cd);
+    }
+    for (ClassDecl cd : environment.classes()) {
+      declareMembers(cd);
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      declareMembers(cd);
+    }
+    // field types first, so a method can reach through a field of a class declared after it
+    for (ClassDecl cd : prog.classDeclList) {
+      for (FieldDecl fd : cd.fieldDeclList) {
+        fd.visit(this, null);
+      }
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      cd.visit(this, null);
+    }
+    return null;
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Context context) {
+    currentClass = cd;
+    for (MethodDecl md : cd.methodDeclList) {
+      md.visit(this, null);
+    }
+    currentClass = null;
+    return null;
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Context context) {
+    fd.type.visit(this, null);
+    return null;
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Context context) {
+    currentMethod = md;
+    md.type.visit(this, null);
+    locals.openScope();
+    for (ParameterDecl pd : md.parameterDeclList) {
+      pd.visit(this, null);
+    }
+    locals.openScope();
+    for (Statement s : md.statementList) {
+      s.visit(this, null);
+    }
+    locals.closeScope();
+    locals.closeScope();
+    currentMethod = null;
+    return null;
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Context context) {
+    pd.type.visit(this, null);
+    declareLocal(pd);
+    return null;
+  }
+
+  public Object visitVarDecl(VarDecl decl, Context context) {
+    decl.type.visit(this, null);
+    return null;
+  }
+
+  // types
+
+  public Object visitBaseType(BaseType type, Context context) {
+    return null;
+  }
+
+  public Object visitClassType(ClassType type, Context context) {
+    Declaration decl = classes.lookup(symbol(type.className));
+    if (decl == null) {
+      report(type, "cannot find class " + type.className.spelling);
+    }
+    type.className.decl = decl;
+    return null;
+  }
+
+  public Object visitArrayType(ArrayType type, Context context) {
+    type.eltType.visit(this, null);
+    return null;
+  }
+
+  // statements
+
+  public Object visitBlockStmt(BlockStmt stmt, Context context) {
+    locals.openScope();
+    for (Statement s : stmt.sl) {
+      s.visit(this, null);
+    }
+    locals.closeScope();
+    return null;
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Context context) {
+    stmt.varDecl.visit(this, null);
+    declaringSymbol = names.intern(stmt.varDecl.name);
+    stmt.initExp.visit(this, Context.VALUE);
+    declaringSymbol = NameTable.NO_SYMBOL;
+    declareLocal(stmt.varDecl);
+    return null;
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Context context) {
+    stmt.ref.visit(this, Context.VALUE);
+    stmt.val.visit(this, Context.VALUE);
+    return null;
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Context context) {
+    stmt.ref.visit(this, Context.VALUE);
+    stmt.ix.visit(this, Context.VALUE);
+    stmt.exp.visit(this, Context.VALUE);
+    return null;
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Context context) {
+    stmt.methodRef.visit(this, Context.CALL);
+    for (Expression e : stmt.argList) {
+      e.visit(this, Context.VALUE);
+    }
+    return null;
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Context context) {
+    if (stmt.returnExpr != null) {
+      stmt.returnExpr.visit(this, Context.VALUE);
+    }
+    return null;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Context context) {
+    stmt.cond.visit(this, Context.VALUE);
+    visitBranch(stmt.thenStmt);
+    if (stmt.elseStmt != null) {
+      visitBranch(stmt.elseStmt);
+    }
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Context context) {
+    stmt.cond.visit(this, Context.VALUE);
+    visitBranch(stmt.body);
+    return null;
+  }
+
+  private void visitBranch(Statement branch) {
+    if (branch instanceof VarDeclStmt) {
+      report(branch, "variable declaration is not allowed here");
+    }
+    branch.visit(this, null);
+  }
+
+  // expressions
+
+  public Object visitUnaryExpr(UnaryExpr expr, Context context) {
+    expr.expr.visit(this, Context.VALUE);
+    return null;
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Context context) {
+    expr.left.visit(this, Context.VALUE);
+    expr.right.visit(this, Context.VALUE);
+    return null;
+  }
+
+  public Object visitRefExpr(RefExpr expr, Context context) {
+    expr.ref.visit(this, Context.VALUE);
+    return null;
+  }
+
+  public Object visitIxExpr(IxExpr expr, Context context) {
+    expr.ref.visit(this, Context.VALUE);
+    expr.ixExpr.visit(this, Context.VALUE);
+    return null;
+  }
+
+  public Object visitCallExpr(CallExpr expr, Context context) {
+    expr.functionRef.visit(this, Context.CALL);
+    for (Expression e : expr.argList) {
+      e.visit(this, Context.VALUE);
+    }
+    return null;
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Context context) {
+    return null;
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Context context) {
+    expr.classtype.visit(this, null);
+    return null;
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Context context) {
+    expr.eltType.visit(this, null);
+    expr.sizeExpr.visit(this, Context.VALUE);
+    return null;
+  }
+
+  // references
+
+  public Object visitThisRef(ThisRef ref, Context context) {
+    if (currentMethod.isStatic) {
+      report(ref, "this cannot be used in static method " + currentMethod.name);
+    } else if (context == Context.CALL) {
+      report(ref, "this is not a method");
+    } else {
+      ref.decl = currentClass;
+    }
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Context context) {
+    Identifier id = ref.id;
+    int symbol = symbol(id);
+    if (symbol == declaringSymbol) {
+      report(ref, "variable " + id.spelling + " is used in its own initializer");
+      return null;
+    }
+    Declaration decl = locals.lookup(symbol);
+    if (decl == null) {
+      decl = members.get(currentClass).lookup(symbol);
+      if (decl != null && currentMethod.isStatic && !((MemberDecl) decl).isStatic) {
+        report(ref, id.spelling + " is not static and cannot be used in " + currentMethod.name);
+        return null;
+      }
+    }
+    if (decl == null && context == Context.QUALIFIER) {
+      decl = classes.lookup(symbol);
+    }
+    if (decl == null) {
+      report(ref, "cannot find symbol " + id.spelling);
+      return null;
+    }
+    if (checkUse(ref, decl, context)) {
+      ref.decl = decl;
+      id.decl = decl;
+    }
+    return null;
+  }
+
+  public Object visitQRef(QualRef ref, Context context) {
+    ref.ref.visit(this, Context.QUALIFIER);
+    Declaration qualifier = ref.ref.decl;
+    if (qualifier == null) {
+      return null;
+    }
+    Identifier id = ref.id;
+    int symbol = symbol(id);
+    ClassDecl target;
+    boolean throughClassName = false;
+    if (ref.ref instanceof ThisRef) {
+      target = currentClass;
+    } else if (qualifier instanceof ClassDecl) {
+      target = (ClassDecl) qualifier;
+      throughClassName = true;
+    } else if (qualifier.type instanceof ArrayType) {
+      if (symbol != lengthSymbol || context == Context.CALL) {
+        report(ref, "arrays have no member " + id.spelling);
+        return null;
+      }
+      ref.decl = environment.arrayLength;
+      id.decl = environment.arrayLength;
+      return null;
+    } else if (qualifier.type instanceof ClassType) {
+      target = (ClassDecl) ((ClassType) qualifier.type).className.decl;
+      if (target == null) {
+        return null;
+      }
+    } else {
+      report(ref, qualifier.name + " cannot be dereferenced");
+      return null;
+    }
+
+    MemberDecl member = (MemberDecl) members.get(target).lookup(symbol);
+    if (member == null) {
+      report(ref, "cannot find member " + id.spelling + " in class " + target.name);
+      return null;
+    }
+    if (member.isPrivate && target != currentClass) {
+      report(ref, id.spelling + " is private in class " + target.name);
+      return null;
+    }
+    if (throughClassName && !member.isStatic) {
+      report(ref, id.spelling + " is not static and cannot be used through class " + target.name);
+      return null;
+    }
+    if (checkUse(ref, member, context)) {
+      ref.decl = member;
+      id.decl = member;
+    }
+    return null;
+  }
+
+  /**
+   * A method may only be called and anything else may not; a class name may only stand in front of
+   * a '.'.
+   *
+   * @return true if the declaration fits the context
+   */
+  private boolean checkUse(Reference ref, Declaration decl, Context context) {
+    if (context == Context.CALL && !(decl instanceof MethodDecl)) {
+      report(ref, decl.name + " is not a method");
+      return false;
+    }
+    if (context != Context.CALL && decl instanceof MethodDecl) {
+      report(ref, "method " + decl.name + " cannot be used as a value");
+      return false;
+    }
+    if (context != Context.QUALIFIER && decl instanceof ClassDecl) {
+      report(ref, "class " + decl.name + " cannot be used as a value");
+      return false;
+    }
+    return true;
+  }
+
+  // terminals are handled by the references and types that contain them
+
+  public Object visitIdentifier(Identifier id, Context context) {
+    return null;
+  }
+
+  public Object visitOperator(Operator op, Context context) {
+    return null;
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Context context) {
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Context context) {
+    return null;
+  }
+
+  // declaring names
+
+  private void declareClass(ClassDecl cd) {
+    int symbol = names.intern(cd.name);
+    if (classes.lookup(symbol) != null) {
+      report(cd, "duplicate class " + cd.name);
+      return;
+    }
+    classes.enter(symbol, cd);
+  }
+
+  private void declareMembers(ClassDecl cd) {
+    ScopedSymbolTable table =
+        new ScopedSymbolTable(cd.fieldDeclList.size() + cd.methodDeclList.size());
+    table.openScope();
+    for (FieldDecl fd : cd.fieldDeclList) {
+      declareMember(table, cd, fd);
+    }
+    for (MethodDecl md : cd.methodDeclList) {
+      declareMember(table, cd, md);
+    }
+    members.put(cd, table);
+  }
+
+  private void declareMember(ScopedSymbolTable table, ClassDecl cd, MemberDecl md) {
+    int symbol = names.intern(md.name);
+    if (table.lookup(symbol) != null) {
+      report(md, "duplicate member " + md.name + " in class " + cd.name);
+      return;
+    }
+    table.enter(symbol, md);
+  }
+
+  /** Parameters and locals may not hide another parameter or local of the same method. */
+  private void declareLocal(LocalDecl decl) {
+    int symbol = names.intern(decl.name);
+    if (locals.lookup(symbol) != null) {
+      report(decl, "variable " + decl.name + " is already defined in " + currentMethod.name);
+      return;
+    }
+    locals.enter(symbol, decl);
+  }
+
+  private int symbol(Identifier id) {
+    if (id.symbol == NameTable.NO_SYMBOL) {
+      id.symbol = names.intern(id.spelling);
+    }
+    return id.symbol;
+  }
+
+  private void report(AST node, String message) {
+    String trace = new IdentificationError(message).toString();
+    if (lineTable != null && node.offset >= 0) {
+      trace += "@" + lineTable.getPosition(node.offset);
+    }
+    reporter.reportError(trace);
+  }
+}
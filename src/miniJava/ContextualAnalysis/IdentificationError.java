@@ -0,0 +1,9 @@
+package miniJava.ContextualAnalysis;
+
+/** A name that cannot be resolved, or that is declared or used where miniJava forbids it. */
+public class IdentificationError extends Exception {
+
+  public IdentificationError(String desc) {
+    super(desc, null, false, false);
+  }
+}
@@ -0,0 +1,145 @@
+package miniJava.ContextualAnalysis;
+
+import miniJava.AbstractSyntaxTrees.Declaration;
+
+import java.util.Arrays;
+
+/*
+ * Symbol table for nested scopes, keyed by NameTable symbols.
+ *
+ * An open-addressing hash table maps each symbol to the innermost entry
+ * declaring it; every entry links to the entry it shadows. Entries live in
+ * one array in declaration order, so the entries of the innermost scope are
+ * always at its end: opening a scope records the entry count and closing it
+ * unlinks the entries after that mark. Nothing is copied per scope, and a
+ * slot stays claimed by its symbol once used, so no tombstones are needed.
+ */
+public class ScopedSymbolTable {
+  public static final int NO_LEVEL = -1;
+
+  static final int INITIAL_CAPACITY = 64;
+
+  int[] slotSymbols;
+  int[] slotEntries;
+  int usedSlots = 0;
+
+  Declaration[] entryDecls;
+  int[] entryLevels;
+  int[] entryShadowed;
+  int[] entrySlots;
+  int entryCount = 0;
+
+  int[] scopeMarks;
+  int level = 0;
+
+  public ScopedSymbolTable() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public ScopedSymbolTable(int expectedEntries) {
+    int capacity = Integer.highestOneBit(Math.max(expectedEntries, 4) * 2 - 1);
+    slotSymbols = new int[capacity * 2];
+    slotEntries = new int[capacity * 2];
+    entryDecls = new Declaration[capacity];
+    entryLevels = new int[capacity];
+    entryShadowed = new int[capacity];
+    entrySlots = new int[capacity];
+    scopeMarks = new int[16];
+  }
+
+  public void openScope() {
+    if (level == scopeMarks.length) {
+      scopeMarks = Arrays.copyOf(scopeMarks, level * 2);
+    }
+    scopeMarks[level++] = entryCount;
+  }
+
+  public void closeScope() {
+    int mark = scopeMarks[--level];
+    while (entryCount > mark) {
+      int entry = --entryCount;
+      slotEntries[entrySlots[entry]] = entryShadowed[entry];
+      entryDecls[entry] = null;
+    }
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public void enter(int symbol, Declaration decl) {
+    if (entryCount == entryDecls.length) {
+      int capacity = entryCount * 2;
+      entryDecls = Arrays.copyOf(entryDecls, capacity);
+      entryLevels = Arrays.copyOf(entryLevels, capacity);
+      entryShadowed = Arrays.copyOf(entryShadowed, capacity);
+      entrySlots = Arrays.copyOf(entrySlots, capacity);
+    }
+    int slot = findSlot(symbol);
+    if (slotSymbols[slot] == 0) {
+      slotSymbols[slot] = symbol + 1;
+      slotEntries[slot] = -1;
+      usedSlots++;
+    }
+    int entry = entryCount++;
+    entryDecls[entry] = decl;
+    entryLevels[entry] = level;
+    entryShadowed[entry] = slotEntries[slot];
+    entrySlots[entry] = slot;
+    slotEntries[slot] = entry;
+    if (usedSlots * 2 > slotSymbols.length) {
+      rehash();
+    }
+  }
+
+  /**
+   * @return the innermost declaration of a symbol, or null
+   */
+  public Declaration lookup(int symbol) {
+    int entry = innermost(symbol);
+    return entry < 0 ? null : entryDecls[entry];
+  }
+
+  /**
+   * @return the scope level of the innermost declaration of a symbol, or NO_LEVEL
+   */
+  public int lookupLevel(int symbol) {
+    int entry = innermost(symbol);
+    return entry < 0 ? NO_LEVEL : entryLevels[entry];
+  }
+
+  private int innermost(int symbol) {
+    int slot = findSlot(symbol);
+    return slotSymbols[slot] == 0 ? -1 : slotEntries[slot];
+  }
+
+  private int findSlot(int symbol) {
+    int mask = slotSymbols.length - 1;
+    int hash = symbol * 0x9E3779B9;
+    for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+      int claimed = slotSymbols[slot];
+      if (claimed == 0 || claimed == symbol + 1) {
+        return slot;
+      }
+    }
+  }
+
+  private void rehash() {
+    int[] oldSymbols = slotSymbols;
+    int[] oldEntries = slotEntries;
+    int[] moved = new int[oldSymbols.length];
+    slotSymbols = new int[oldSymbols.length * 2];
+    slotEntries = new int[oldSymbols.length * 2];
+    for (int old = 0; old < oldSymbols.length; old++) {
+      if (oldSymbols[old] != 0) {
+        int slot = findSlot(oldSymbols[old] - 1);
+        slotSymbols[slot] = oldSymbols[old];
+        slotEntries[slot] = oldEntries[old];
+        moved[old] = slot;
+      }
+    }
+    for (int entry = 0; entry < entryCount; entry++) {
+      entrySlots[entry] = moved[entrySlots[entry]];
+    }
+  }
+}
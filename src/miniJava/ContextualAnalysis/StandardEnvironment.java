@@ -0,0 +1,58 @@
+package miniJava.ContextualAnalysis;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+/*
+ * Declarations every miniJava program can use without declaring them:
+ *
+ *   class System { public static _PrintStream out; }
+ *   class _PrintStream { public void println(int n) { } }
+ *   class String { }
+ *
+ * plus the length field of arrays. The nodes have no source offset.
+ */
+public class StandardEnvironment {
+  public static final int NO_OFFSET = -1;
+
+  public final ClassDecl systemClass;
+  public final ClassDecl printStreamClass;
+  public final ClassDecl stringClass;
+  public final MethodDecl println;
+  public final FieldDecl arrayLength;
+
+  public StandardEnvironment() {
+    MethodDeclList printStreamMethods = new MethodDeclList();
+    ParameterDeclList printlnParameters = new ParameterDeclList();
+    printlnParameters.add(new ParameterDecl(new BaseType(TypeKind.INT, NO_OFFSET), "n", NO_OFFSET));
+    println =
+        new MethodDecl(
+            new FieldDecl(
+                false, false, new BaseType(TypeKind.VOID, NO_OFFSET), "println", NO_OFFSET),
+            printlnParameters,
+            new StatementList(),
+            NO_OFFSET);
+    printStreamMethods.add(println);
+    printStreamClass =
+        new ClassDecl("_PrintStream", new FieldDeclList(), printStreamMethods, NO_OFFSET);
+
+    FieldDeclList systemFields = new FieldDeclList();
+    systemFields.add(new FieldDecl(false, true, classType(printStreamClass), "out", NO_OFFSET));
+    systemClass = new ClassDecl("System", systemFields, new MethodDeclList(), NO_OFFSET);
+
+    stringClass = new ClassDecl("String", new FieldDeclList(), new MethodDeclList(), NO_OFFSET);
+
+    arrayLength =
+        new FieldDecl(false, false, new BaseType(TypeKind.INT, NO_OFFSET), "length", NO_OFFSET);
+  }
+
+  public ClassDecl[] classes() {
+    return new ClassDecl[] {systemClass, printStreamClass, stringClass};
+  }
+
+  private static ClassType classType(ClassDecl classDecl) {
+    Identifier className = new Identifier(TokenType.ID, classDecl.name, NO_OFFSET);
+    className.decl = classDecl;
+    return new ClassType(className, NO_OFFSET);
+  }
+}
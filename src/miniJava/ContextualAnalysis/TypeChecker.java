@@ -0,0 +1,458 @@
+package miniJava.ContextualAnalysis;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.LineTable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+ * Give every expression its canonical type (Expression.type) and check
+ * that statements and operators get the types they need.
+ *
+ * Runs after Identification. All types come from one TypeTable, so type
+ * equality is a reference comparison. An expression that already failed
+ * to type gets the error type, which fits everywhere, so one mistake is
+ * reported once rather than at every enclosing expression.
+ *
+ * As in Java, the body of a method with a return type must not be able
+ * to complete normally: every path through it ends in a return or in a
+ * while loop whose condition is constantly true.
+ */
+public class TypeChecker implements Visitor<Object, TypeDenoter> {
+  private final ErrorReporter reporter;
+  private final StandardEnvironment environment;
+  private final TypeTable types;
+  private final Map<Declaration, TypeDenoter> declTypes = new IdentityHashMap<>();
+
+  private LineTable lineTable;
+  private ClassDecl currentClass;
+  private MethodDecl currentMethod;
+
+  public TypeChecker(ErrorReporter errorReporter, StandardEnvironment standardEnvironment) {
+    reporter = errorReporter;
+    environment = standardEnvironment;
+    types = new TypeTable(standardEnvironment);
+  }
+
+  public void check(Package prog) {
+    prog.visit(this, null);
+  }
+
+  public TypeTable getTypeTable() {
+    return types;
+  }
+
+  // declarations
+
+  public TypeDenoter visitPackage(Package prog, Object arg) {
+    lineTable = prog.lineTable;
+    for (ClassDecl cd : prog.classDeclList) {
+      cd.visit(this, null);
+    }
+    return null;
+  }
+
+  public TypeDenoter visitClassDecl(ClassDecl cd, Object arg) {
+    currentClass = cd;
+    for (FieldDecl fd : cd.fieldDeclList) {
+      fd.visit(this, null);
+    }
+    for (MethodDecl md : cd.methodDeclList) {
+      md.visit(this, null);
+    }
+    currentClass = null;
+    return null;
+  }
+
+  public TypeDenoter visitFieldDecl(FieldDecl fd, Object arg) {
+    if (typeOf(fd) == types.voidType) {
+      report(fd, "field " + fd.name + " cannot have type void");
+    }
+    return null;
+  }
+
+  public TypeDenoter visitMethodDecl(MethodDecl md, Object arg) {
+    currentMethod = md;
+    for (ParameterDecl pd : md.parameterDeclList) {
+      pd.visit(this, null);
+    }
+    for (Statement s : md.statementList) {
+      s.visit(this, null);
+    }
+    TypeDenoter returnType = typeOf(md);
+    if (returnType != types.voidType
+        && returnType != types.errorType
+        && canCompleteNormally(md.statementList)) {
+      report(md, "missing return statement in method " + md.name);
+    }
+    currentMethod = null;
+    return null;
+  }
+
+  public TypeDenoter visitParameterDecl(ParameterDecl pd, Object arg) {
+    if (typeOf(pd) == types.voidType) {
+      report(pd, "parameter " + pd.name + " cannot have type void");
+    }
+    return null;
+  }
+
+  public TypeDenoter visitVarDecl(VarDecl decl, Object arg) {
+    if (typeOf(decl) == types.voidType) {
+      report(decl, "variable " + decl.name + " cannot have type void");
+    }
+    return null;
+  }
+
+  // types are canonicalized by the TypeTable rather than visited
+
+  public TypeDenoter visitBaseType(BaseType type, Object arg) {
+    return types.canonical(type);
+  }
+
+  public TypeDenoter visitClassType(ClassType type, Object arg) {
+    return types.canonical(type);
+  }
+
+  public TypeDenoter visitArrayType(ArrayType type, Object arg) {
+    return types.canonical(type);
+  }
+
+  // statements
+
+  public TypeDenoter visitBlockStmt(BlockStmt stmt, Object arg) {
+    for (Statement s : stmt.sl) {
+      s.visit(this, null);
+    }
+    return null;
+  }
+
+  public TypeDenoter visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    stmt.varDecl.visit(this, null);
+    expect(typeOf(stmt.varDecl), stmt.initExp);
+    return null;
+  }
+
+  public TypeDenoter visitAssignStmt(AssignStmt stmt, Object arg) {
+    TypeDenoter refType = stmt.ref.visit(this, null);
+    if (stmt.ref.decl == environment.arrayLength) {
+      report(stmt, "array length cannot be assigned");
+      refType = types.errorType;
+    } else if (stmt.ref instanceof ThisRef) {
+      report(stmt, "this cannot be assigned");
+      refType = types.errorType;
+    }
+    expect(refType, stmt.val);
+    return null;
+  }
+
+  public TypeDenoter visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    TypeDenoter eltType = elementType(stmt.ref, stmt.ix);
+    expect(eltType, stmt.exp);
+    return null;
+  }
+
+  public TypeDenoter visitCallStmt(CallStmt stmt, Object arg) {
+    checkCall(stmt, stmt.methodRef, stmt.argList);
+    return null;
+  }
+
+  public TypeDenoter visitReturnStmt(ReturnStmt stmt, Object arg) {
+    TypeDenoter returnType = typeOf(currentMethod);
+    if (stmt.returnExpr == null) {
+      if (returnType != types.voidType && returnType != types.errorType) {
+        report(stmt, "method " + currentMethod.name + " must return a value");
+      }
+    } else if (returnType == types.voidType) {
+      stmt.returnExpr.visit(this, null);
+      report(stmt, "void method " + currentMethod.name + " cannot return a value");
+    } else {
+      expect(returnType, stmt.returnExpr);
+    }
+    return null;
+  }
+
+  public TypeDenoter visitIfStmt(IfStmt stmt, Object arg) {
+    expect(types.booleanType, stmt.cond);
+    stmt.thenStmt.visit(this, null);
+    if (stmt.elseStmt != null) {
+      stmt.elseStmt.visit(this, null);
+    }
+    return null;
+  }
+
+  public TypeDenoter visitWhileStmt(WhileStmt stmt, Object arg) {
+    expect(types.booleanType, stmt.cond);
+    stmt.body.visit(this, null);
+    return null;
+  }
+
+  // expressions
+
+  public TypeDenoter visitUnaryExpr(UnaryExpr expr, Object arg) {
+    TypeDenoter operandType =
+        expr.operator.operatorKind == OperatorKind.NOT ? types.booleanType : types.intType;
+    expect(operandType, expr.expr);
+    return expr.type = operandType;
+  }
+
+  public TypeDenoter visitBinaryExpr(BinaryExpr expr, Object arg) {
+    switch (expr.operator.operatorKind) {
+      case OR:
+      case AND:
+        expect(types.booleanType, expr.left);
+        expect(types.booleanType, expr.right);
+        return expr.type = types.booleanType;
+      case LESS_THAN:
+      case LESS_EQUAL:
+      case GREATER_THAN:
+      case GREATER_EQUAL:
+        expect(types.intType, expr.left);
+        expect(types.intType, expr.right);
+        return expr.type = types.booleanType;
+      case EQUAL:
+      case NOT_EQUAL:
+        TypeDenoter leftType = value(expr.left);
+        TypeDenoter rightType = value(expr.right);
+        if (leftType != rightType && leftType != types.errorType && rightType != types.errorType) {
+          report(expr, "cannot compare " + name(leftType) + " with " + name(rightType));
+        }
+        return expr.type = types.booleanType;
+      default:
+        expect(types.intType, expr.left);
+        expect(types.intType, expr.right);
+        return expr.type = types.intType;
+    }
+  }
+
+  public TypeDenoter visitRefExpr(RefExpr expr, Object arg) {
+    return expr.type = expr.ref.visit(this, null);
+  }
+
+  public TypeDenoter visitIxExpr(IxExpr expr, Object arg) {
+    return expr.type = elementType(expr.ref, expr.ixExpr);
+  }
+
+  public TypeDenoter visitCallExpr(CallExpr expr, Object arg) {
+    TypeDenoter returnType = checkCall(expr, expr.functionRef, expr.argList);
+    if (returnType == types.voidType) {
+      report(expr, "void method " + expr.functionRef.decl.name + " has no value");
+      returnType = types.errorType;
+    }
+    return expr.type = returnType;
+  }
+
+  public TypeDenoter visitLiteralExpr(LiteralExpr expr, Object arg) {
+    return expr.type = expr.lit.visit(this, null);
+  }
+
+  public TypeDenoter visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    TypeDenoter type = types.canonical(expr.classtype);
+    if (type == types.unsupportedType) {
+      report(expr, "cannot create an instance of String");
+      type = types.errorType;
+    }
+    return expr.type = type;
+  }
+
+  public TypeDenoter visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    expect(types.intType, expr.sizeExpr);
+    TypeDenoter eltType = types.canonical(expr.eltType);
+    if (eltType == types.errorType) {
+      return expr.type = types.errorType;
+    }
+    if (eltType != types.intType && !(eltType instanceof ClassType)) {
+      report(expr, "cannot create an array of " + name(eltType));
+      return expr.type = types.errorType;
+    }
+    return expr.type = types.arrayType(eltType);
+  }
+
+  // references denote the type of their declaration
+
+  public TypeDenoter visitThisRef(ThisRef ref, Object arg) {
+    return types.classType(currentClass);
+  }
+
+  public TypeDenoter visitIdRef(IdRef ref, Object arg) {
+    return ref.decl == null ? types.errorType : typeOf(ref.decl);
+  }
+
+  public TypeDenoter visitQRef(QualRef ref, Object arg) {
+    return ref.decl == null ? types.errorType : typeOf(ref.decl);
+  }
+
+  // terminals
+
+  public TypeDenoter visitIdentifier(Identifier id, Object arg) {
+    return null;
+  }
+
+  public TypeDenoter visitOperator(Operator op, Object arg) {
+    return null;
+  }
+
+  public TypeDenoter visitIntLiteral(IntLiteral num, Object arg) {
+    return types.intType;
+  }
+
+  public TypeDenoter visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    return types.booleanType;
+  }
+
+  // helpers
+
+  /** Type the expression and report it unless it has the expected type. */
+  private void expect(TypeDenoter expected, Expression expr) {
+    TypeDenoter actual = value(expr);
+    if (actual != expected && actual != types.errorType && expected != types.errorType) {
+      report(expr, "expected " + name(expected) + " but found " + name(actual));
+    }
+  }
+
+  /**
+   * @return the type of an expression used as a value; String values are reported and become the
+   *     error type
+   */
+  private TypeDenoter value(Expression expr) {
+    TypeDenoter type = expr.visit(this, null);
+    if (type == types.unsupportedType) {
+      report(expr, "values of type String are not supported");
+      expr.type = types.errorType;
+    }
+    return expr.type;
+  }
+
+  private TypeDenoter elementType(Reference ref, Expression ix) {
+    TypeDenoter refType = ref.visit(this, null);
+    expect(types.intType, ix);
+    if (refType instanceof ArrayType) {
+      return ((ArrayType) refType).eltType;
+    }
+    if (refType != types.errorType) {
+      report(ref, name(refType) + " is not an array");
+    }
+    return types.errorType;
+  }
+
+  /**
+   * @return the return type of the called method
+   */
+  private TypeDenoter checkCall(AST call, Reference methodRef, ExprList args) {
+    MethodDecl method = (MethodDecl) methodRef.decl;
+    if (method == null) {
+      for (Expression e : args) {
+        e.visit(this, null);
+      }
+      return types.errorType;
+    }
+    ParameterDeclList parameters = method.parameterDeclList;
+    if (args.size() != parameters.size()) {
+      report(
+          call,
+          "method "
+              + method.name
+              + " takes "
+              + parameters.size()
+              + " arguments but is given "
+              + args.size());
+      for (Expression e : args) {
+        e.visit(this, null);
+      }
+    } else {
+      for (int i = 0; i < args.size(); i++) {
+        expect(typeOf(parameters.get(i)), args.get(i));
+      }
+    }
+    return typeOf(method);
+  }
+
+  // normal completion
+
+  private static boolean canCompleteNormally(StatementList sl) {
+    for (Statement s : sl) {
+      if (!canCompleteNormally(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if running stmt can get past its end, by the rules of JLS 14.22 for the statements
+   *     miniJava has
+   */
+  private static boolean canCompleteNormally(Statement stmt) {
+    if (stmt instanceof ReturnStmt) {
+      return false;
+    } else if (stmt instanceof BlockStmt) {
+      return canCompleteNormally(((BlockStmt) stmt).sl);
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      return s.elseStmt == null
+          || canCompleteNormally(s.thenStmt)
+          || canCompleteNormally(s.elseStmt);
+    } else if (stmt instanceof WhileStmt) {
+      return !Boolean.TRUE.equals(constantValue(((WhileStmt) stmt).cond));
+    }
+    return true;
+  }
+
+  /**
+   * @return the value of a constant boolean expression, made of literals and boolean operators, or
+   *     null if expr is not one
+   */
+  private static Boolean constantValue(Expression expr) {
+    if (expr instanceof LiteralExpr && ((LiteralExpr) expr).lit instanceof BooleanLiteral) {
+      return ((LiteralExpr) expr).lit.spelling.equals("true");
+    } else if (expr instanceof UnaryExpr
+        && ((UnaryExpr) expr).operator.operatorKind == OperatorKind.NOT) {
+      Boolean operand = constantValue(((UnaryExpr) expr).expr);
+      return operand == null ? null : !operand;
+    } else if (expr instanceof BinaryExpr) {
+      BinaryExpr e = (BinaryExpr) expr;
+      OperatorKind operator = e.operator.operatorKind;
+      if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+        Boolean left = constantValue(e.left);
+        Boolean right = constantValue(e.right);
+        if (left == null || right == null) {
+          return null;
+        }
+        return operator == OperatorKind.AND ? left && right : left || right;
+      }
+    }
+    return null;
+  }
+
+  private TypeDenoter typeOf(Declaration decl) {
+    TypeDenoter type = declTypes.get(decl);
+    if (type == null) {
+      type = types.canonical(decl.type);
+      declTypes.put(decl, type);
+    }
+    return type;
+  }
+
+  private static String name(TypeDenoter type) {
+    switch (type.typeKind) {
+      case CLASS:
+        return ((ClassType) type).className.spelling;
+      case ARRAY:
+        return name(((ArrayType) type).eltType) + "[]";
+      case UNSUPPORTED:
+        return "String";
+      default:
+        return type.typeKind.name().toLowerCase();
+    }
+  }
+
+  private void report(AST node, String message) {
+    String trace = new TypeError(message).toString();
+    if (lineTable != null && node.offset >= 0) {
+      trace += "@" + lineTable.getPosition(node.offset);
+    }
+    reporter.reportError(trace);
+  }
+}
@@ -0,0 +1,9 @@
+package miniJava.ContextualAnalysis;
+
+/** An expression or statement whose types do not fit together. */
+public class TypeError extends Exception {
+
+  public TypeError(String desc) {
+    super(desc, null, false, false);
+  }
+}
@@ -0,0 +1,91 @@
+package miniJava.ContextualAnalysis;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+ * One canonical TypeDenoter per distinct miniJava type.
+ *
+ * Base types are fixed instances, class types are keyed by their ClassDecl
+ * and array types by their canonical element type, so two canonical types
+ * are equal exactly when they are the same object. Types written in the
+ * source are mapped here with canonical(); they are never modified.
+ */
+public class TypeTable {
+  public final BaseType voidType = new BaseType(TypeKind.VOID, StandardEnvironment.NO_OFFSET);
+  public final BaseType intType = new BaseType(TypeKind.INT, StandardEnvironment.NO_OFFSET);
+  public final BaseType booleanType = new BaseType(TypeKind.BOOLEAN, StandardEnvironment.NO_OFFSET);
+  public final BaseType unsupportedType =
+      new BaseType(TypeKind.UNSUPPORTED, StandardEnvironment.NO_OFFSET);
+  public final BaseType errorType = new BaseType(TypeKind.ERROR, StandardEnvironment.NO_OFFSET);
+
+  private final ClassDecl stringClass;
+  private final Map<ClassDecl, ClassType> classTypes = new IdentityHashMap<>();
+  private final Map<TypeDenoter, ArrayType> arrayTypes = new IdentityHashMap<>();
+
+  public TypeTable(StandardEnvironment environment) {
+    stringClass = environment.stringClass;
+  }
+
+  /**
+   * @return the canonical type of a type written in the source, after identification has linked its
+   *     class names
+   */
+  public TypeDenoter canonical(TypeDenoter type) {
+    switch (type.typeKind) {
+      case VOID:
+        return voidType;
+      case INT:
+        return intType;
+      case BOOLEAN:
+        return booleanType;
+      case CLASS:
+        ClassDecl decl = (ClassDecl) ((ClassType) type).className.decl;
+        return decl == null ? errorType : classType(decl);
+      case ARRAY:
+        TypeDenoter eltType = canonical(((ArrayType) type).eltType);
+        return eltType == errorType ? errorType : arrayType(eltType);
+      case UNSUPPORTED:
+        return unsupportedType;
+      default:
+        return errorType;
+    }
+  }
+
+  /** String is declared so that main can be written, but no String value may be used. */
+  public TypeDenoter classType(ClassDecl decl) {
+    if (decl == stringClass) {
+      return unsupportedType;
+    }
+    ClassType type = classTypes.get(decl);
+    if (type == null) {
+      Identifier className = new Identifier(TokenType.ID, decl.name, StandardEnvironment.NO_OFFSET);
+      className.decl = decl;
+      type = new ClassType(className, StandardEnvironment.NO_OFFSET);
+      classTypes.put(decl, type);
+    }
+    return type;
+  }
+
+  /**
+   * @param eltType a canonical type
+   */
+  public ArrayType arrayType(TypeDenoter eltType) {
+    ArrayType type = arrayTypes.get(eltType);
+    if (type == null) {
+      type = new ArrayType(eltType, StandardEnvironment.NO_OFFSET);
+      arrayTypes.put(eltType, type);
+    }
+    return type;
+  }
+
+  /**
+   * @return the number of distinct class and array types created so far
+   */
+  public int size() {
+    return classTypes.size() + arrayTypes.size();
+  }
+}
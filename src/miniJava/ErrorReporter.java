@@ -1,5 +1,6 @@
 package miniJava;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +16,13 @@ public class ErrorReporter {
   }
 
   public void showErrorQueue() {
-    System.out.println(errorQueue.get(0));
+    showErrorQueue(System.out);
+  }
+
+  public void showErrorQueue(PrintStream out) {
+    for (String error : errorQueue) {
+      out.println(error);
+    }
   }
 
   public void reportError(String s) {
@@ -0,0 +1,125 @@
+package miniJava.Execution;
+
+/*
+ * Instruction set of the register VM.
+ *
+ * An instruction is an opcode followed by its operands in the same int[]
+ * code array. Registers are numbered separately for ints (and booleans)
+ * and references, and are local to a frame; jump targets are code
+ * indexes. Instructions that can fail carry a site operand, the index of
+ * the AST node to blame in CompiledMethod.sites.
+ *
+ *   ICONST d k          d = k
+ *   IMOV d s, RMOV d s  d = s
+ *   IADD d a b ...      d = a op b        (IDIV also has a site)
+ *   IADDI d a k         d = a + k
+ *   INEG d a, INOT d a  d = -a, d = a ^ 1
+ *   ILT d a b ...       d = a cmp b ? 1 : 0   (REQ/RNE compare references)
+ *   JMP t               goto t
+ *   JZ a t, JNZ a t     goto t if a == 0 / a != 0
+ *   BLT a b t ...       goto t if a cmp b    (BREQ/BRNE compare references)
+ *   GETSI d f ...       static field f          PUTSI f s ...
+ *   GETFI d o f site    field f of object o     PUTFI o f s site ...
+ *   NEWOBJ d c          new instance of class c
+ *   NEWIARR d n site    new int[n], NEWRARR for reference elements
+ *   IALOAD d a i site   d = a[i]                IASTORE a i s site ...
+ *   ALEN d a site       d = a.length
+ *   CALL d m r n a1..an site
+ *                       call method m with receiver r (-1 if static) and n
+ *                       arguments; the result goes to d (-1 if unused)
+ *   PRINT a             System.out.println(a)
+ *   RET, IRET a, RRET a return nothing, an int, a reference
+ *   NCHK a site         fail if the object a is null
+ */
+public final class Bytecode {
+  public static final int ICONST = 0;
+  public static final int IMOV = 1;
+  public static final int RMOV = 2;
+  public static final int IADD = 3;
+  public static final int ISUB = 4;
+  public static final int IMUL = 5;
+  public static final int IDIV = 6;
+  public static final int IADDI = 7;
+  public static final int INEG = 8;
+  public static final int INOT = 9;
+  public static final int ILT = 10;
+  public static final int ILE = 11;
+  public static final int IGT = 12;
+  public static final int IGE = 13;
+  public static final int IEQ = 14;
+  public static final int INE = 15;
+  public static final int REQ = 16;
+  public static final int RNE = 17;
+  public static final int JMP = 18;
+  public static final int JZ = 19;
+  public static final int JNZ = 20;
+  public static final int BLT = 21;
+  public static final int BLE = 22;
+  public static final int BGT = 23;
+  public static final int BGE = 24;
+  public static final int BEQ = 25;
+  public static final int BNE = 26;
+  public static final int BREQ = 27;
+  public static final int BRNE = 28;
+  public static final int GETSI = 29;
+  public static final int GETSR = 30;
+  public static final int PUTSI = 31;
+  public static final int PUTSR = 32;
+  public static final int GETFI = 33;
+  public static final int GETFR = 34;
+  public static final int PUTFI = 35;
+  public static final int PUTFR = 36;
+  public static final int NEWOBJ = 37;
+  public static final int NEWIARR = 38;
+  public static final int NEWRARR = 39;
+  public static final int IALOAD = 40;
+  public static final int RALOAD = 41;
+  public static final int IASTORE = 42;
+  public static final int RASTORE = 43;
+  public static final int ALEN = 44;
+  public static final int CALL = 45;
+  public static final int PRINT = 46;
+  public static final int RET = 47;
+  public static final int IRET = 48;
+  public static final int RRET = 49;
+  public static final int NCHK = 50;
+
+  static final String[] NAMES = {
+    "ICONST", "IMOV", "RMOV", "IADD", "ISUB", "IMUL", "IDIV", "IADDI", "INEG", "INOT", "ILT", "ILE",
+    "IGT", "IGE", "IEQ", "INE", "REQ", "RNE", "JMP", "JZ", "JNZ", "BLT", "BLE", "BGT", "BGE", "BEQ",
+    "BNE", "BREQ", "BRNE", "GETSI", "GETSR", "PUTSI", "PUTSR", "GETFI", "GETFR", "PUTFI", "PUTFR",
+    "NEWOBJ", "NEWIARR", "NEWRARR", "IALOAD", "RALOAD", "IASTORE", "RASTORE", "ALEN", "CALL",
+    "PRINT", "RET", "IRET", "RRET", "NCHK"
+  };
+
+  /** Operand count of every opcode; CALL also has one operand per argument. */
+  static final int[] OPERANDS = {
+    2, 2, 2, 3, 3, 3, 4, 3, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3, 1, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3, 2, 2, 2,
+    2, 4, 4, 4, 4, 2, 3, 3, 4, 4, 4, 4, 3, 5, 1, 0, 1, 1, 2
+  };
+
+  private Bytecode() {}
+
+  /**
+   * @return the number of code entries taken by the instruction at pc
+   */
+  public static int length(int[] code, int pc) {
+    int opcode = code[pc];
+    return 1 + OPERANDS[opcode] + (opcode == CALL ? code[pc + 4] : 0);
+  }
+
+  /**
+   * @return one line per instruction: its index, mnemonic and operands
+   */
+  public static String disassemble(int[] code) {
+    StringBuilder text = new StringBuilder();
+    for (int pc = 0; pc < code.length; pc += length(code, pc)) {
+      text.append(String.format("%5d  %-8s", pc, NAMES[code[pc]]));
+      for (int i = pc + 1; i < pc + length(code, pc); i++) {
+        text.append(' ').append(code[i]);
+      }
+      text.append('\n');
+    }
+    return text.toString();
+  }
+}
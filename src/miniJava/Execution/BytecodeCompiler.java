@@ -0,0 +1,757 @@
+package miniJava.Execution;
+
+import static miniJava.Execution.Bytecode.*;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Lower an analyzed program to Bytecode.
+ *
+ * Locals keep the registers SlotAllocator gives them, so reading a local
+ * needs no instruction. Every distinct literal of a method gets an int
+ * register after the locals that is loaded when the frame is created, so
+ * literals cost no instruction either. The receiver of an instance method
+ * gets the first reference register after the locals, and temporaries are
+ * stacked above all of these; a statement releases all of its
+ * temporaries.
+ *
+ * Visiting an expression takes the register it should be computed into,
+ * or ANY to let the compiler choose, and returns the register holding the
+ * value. Conditions of if and while statements are compiled to jumps
+ * rather than values, so a loop test like i < n is a single BLT.
+ */
+public class BytecodeCompiler implements Visitor<Integer, Integer> {
+  static final int ANY = -1;
+  static final int UNUSED = -1;
+
+  private final StandardEnvironment environment;
+  private final Map<MethodDecl, Integer> methodIndexes = new IdentityHashMap<>();
+  private final Map<ClassDecl, Integer> classIndexes = new IdentityHashMap<>();
+
+  private int[] code;
+  private int length;
+  private List<AST> sites;
+  private CompiledMethod method;
+  private Map<Integer, Integer> constants;
+  private int intTop;
+  private int refTop;
+  private int maxInts;
+  private int maxRefs;
+
+  public BytecodeCompiler(StandardEnvironment standardEnvironment) {
+    environment = standardEnvironment;
+  }
+
+  public BytecodeProgram compile(Package prog) {
+    SlotAllocator allocator = new SlotAllocator();
+    for (ClassDecl cd : environment.classes()) {
+      allocator.allocate(cd);
+    }
+    List<ClassDecl> classes = new ArrayList<>();
+    List<MethodDecl> methods = new ArrayList<>();
+    int main = UNUSED;
+    for (ClassDecl cd : prog.classDeclList) {
+      allocator.allocate(cd);
+      classIndexes.put(cd, classes.size());
+      classes.add(cd);
+      for (MethodDecl md : cd.methodDeclList) {
+        if (main == UNUSED && isMain(md)) {
+          main = methods.size();
+        }
+        methodIndexes.put(md, methods.size());
+        methods.add(md);
+      }
+    }
+
+    CompiledMethod[] compiled = new CompiledMethod[methods.size()];
+    for (int i = 0; i < compiled.length; i++) {
+      compiled[i] = compile(methods.get(i));
+    }
+    return new BytecodeProgram(
+        compiled,
+        classes.toArray(new ClassDecl[0]),
+        main,
+        allocator.staticInts,
+        allocator.staticRefs,
+        environment.systemClass.fieldDeclList.get(0).slot);
+  }
+
+  /**
+   * @return true for public static void main(String[] args)
+   */
+  public static boolean isMain(MethodDecl md) {
+    return md.name.equals("main")
+        && md.isStatic
+        && !md.isPrivate
+        && md.type.typeKind == TypeKind.VOID
+        && md.parameterDeclList.size() == 1
+        && md.parameterDeclList.get(0).type.typeKind == TypeKind.ARRAY;
+  }
+
+  private CompiledMethod compile(MethodDecl md) {
+    method = new CompiledMethod(md);
+    code = new int[64];
+    length = 0;
+    sites = new ArrayList<>();
+    constants = new HashMap<>();
+    for (Statement s : md.statementList) {
+      collectConstants(s);
+    }
+    method.constantBase = md.intSlots;
+    method.constants = new int[constants.size()];
+    for (Map.Entry<Integer, Integer> constant : constants.entrySet()) {
+      method.constants[constant.getValue() - md.intSlots] = constant.getKey();
+    }
+    intTop = maxInts = md.intSlots + constants.size();
+    refTop = maxRefs = md.refSlots;
+    if (!md.isStatic) {
+      method.thisRegister = refTop++;
+      maxRefs = refTop;
+    }
+
+    ParameterDeclList parameters = md.parameterDeclList;
+    method.parameterRegisters = new int[parameters.size()];
+    method.parameterIsInt = new boolean[parameters.size()];
+    for (int i = 0; i < parameters.size(); i++) {
+      method.parameterRegisters[i] = parameters.get(i).slot;
+      method.parameterIsInt[i] = SlotAllocator.isInt(parameters.get(i).type);
+    }
+    method.returnsInt = SlotAllocator.isInt(md.type);
+
+    for (Statement s : md.statementList) {
+      statement(s);
+    }
+    emit(RET);
+
+    method.code = Arrays.copyOf(code, length);
+    method.sites = sites.toArray(new AST[0]);
+    method.intRegisters = maxInts;
+    method.refRegisters = maxRefs;
+    return method;
+  }
+
+  // declarations and types are handled by compile()
+
+  public Integer visitPackage(Package prog, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitClassDecl(ClassDecl cd, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitFieldDecl(FieldDecl fd, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitMethodDecl(MethodDecl md, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitParameterDecl(ParameterDecl pd, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitVarDecl(VarDecl decl, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitBaseType(BaseType type, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitClassType(ClassType type, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitArrayType(ArrayType type, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  // statements
+
+  private void statement(Statement stmt) {
+    int intMark = intTop;
+    int refMark = refTop;
+    stmt.visit(this, ANY);
+    intTop = intMark;
+    refTop = refMark;
+  }
+
+  public Integer visitBlockStmt(BlockStmt stmt, Integer dest) {
+    for (Statement s : stmt.sl) {
+      statement(s);
+    }
+    return null;
+  }
+
+  public Integer visitVardeclStmt(VarDeclStmt stmt, Integer dest) {
+    stmt.initExp.visit(this, stmt.varDecl.slot);
+    return null;
+  }
+
+  public Integer visitAssignStmt(AssignStmt stmt, Integer dest) {
+    Declaration decl = stmt.ref.decl;
+    boolean isInt = SlotAllocator.isInt(decl.type);
+    if (decl instanceof LocalDecl) {
+      stmt.val.visit(this, decl.slot);
+    } else if (((FieldDecl) decl).isStatic) {
+      int value = stmt.val.visit(this, ANY);
+      emit(isInt ? PUTSI : PUTSR, decl.slot, value);
+    } else {
+      Reference qualifier = stmt.ref instanceof QualRef ? ((QualRef) stmt.ref).ref : null;
+      int target = qualifier != null ? qualifier.visit(this, ANY) : method.thisRegister;
+      if (qualifier != null && !isQuiet(stmt.val)) {
+        emit(NCHK, target, site(qualifier));
+      }
+      int value = stmt.val.visit(this, ANY);
+      emit(
+          isInt ? PUTFI : PUTFR,
+          target,
+          decl.slot,
+          value,
+          site(qualifier != null ? qualifier : stmt.ref));
+    }
+    return null;
+  }
+
+  public Integer visitIxAssignStmt(IxAssignStmt stmt, Integer dest) {
+    int array = stmt.ref.visit(this, ANY);
+    if (!isQuiet(stmt.ix) || !isQuiet(stmt.exp)) {
+      nullCheck(stmt.ref, array);
+    }
+    int index = stmt.ix.visit(this, ANY);
+    int value = stmt.exp.visit(this, ANY);
+    emit(intElements(stmt.ref) ? IASTORE : RASTORE, array, index, value, site(stmt));
+    return null;
+  }
+
+  public Integer visitCallStmt(CallStmt stmt, Integer dest) {
+    call(stmt.methodRef, stmt.argList, UNUSED);
+    return null;
+  }
+
+  public Integer visitReturnStmt(ReturnStmt stmt, Integer dest) {
+    if (stmt.returnExpr == null) {
+      emit(RET);
+    } else {
+      int value = stmt.returnExpr.visit(this, ANY);
+      emit(SlotAllocator.isInt(stmt.returnExpr.type) ? IRET : RRET, value);
+    }
+    return null;
+  }
+
+  public Integer visitIfStmt(IfStmt stmt, Integer dest) {
+    Label otherwise = new Label();
+    branch(stmt.cond, false, otherwise);
+    statement(stmt.thenStmt);
+    if (stmt.elseStmt == null) {
+      bind(otherwise);
+    } else {
+      Label end = new Label();
+      jump(JMP, end);
+      bind(otherwise);
+      statement(stmt.elseStmt);
+      bind(end);
+    }
+    return null;
+  }
+
+  public Integer visitWhileStmt(WhileStmt stmt, Integer dest) {
+    Label test = new Label();
+    Label body = new Label();
+    jump(JMP, test);
+    bind(body);
+    statement(stmt.body);
+    bind(test);
+    branch(stmt.cond, true, body);
+    return null;
+  }
+
+  // expressions
+
+  public Integer visitUnaryExpr(UnaryExpr expr, Integer dest) {
+    int intMark = intTop;
+    int refMark = refTop;
+    int operand = expr.expr.visit(this, ANY);
+    intTop = intMark;
+    refTop = refMark;
+    int result = target(dest, true);
+    emit(expr.operator.operatorKind == OperatorKind.NOT ? INOT : INEG, result, operand);
+    return result;
+  }
+
+  public Integer visitBinaryExpr(BinaryExpr expr, Integer dest) {
+    OperatorKind operator = expr.operator.operatorKind;
+    if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+      Label isFalse = new Label();
+      Label end = new Label();
+      branch(expr, false, isFalse);
+      int result = target(dest, true);
+      emit(ICONST, result, 1);
+      jump(JMP, end);
+      bind(isFalse);
+      emit(ICONST, result, 0);
+      bind(end);
+      return result;
+    }
+
+    int intMark = intTop;
+    int refMark = refTop;
+    int left = expr.left.visit(this, ANY);
+    if ((operator == OperatorKind.PLUS || operator == OperatorKind.MINUS)
+        && expr.right instanceof LiteralExpr
+        && ((LiteralExpr) expr.right).lit instanceof IntLiteral) {
+      int constant = literal((IntLiteral) ((LiteralExpr) expr.right).lit);
+      intTop = intMark;
+      refTop = refMark;
+      int result = target(dest, true);
+      emit(IADDI, result, left, operator == OperatorKind.PLUS ? constant : -constant);
+      return result;
+    }
+    int right = expr.right.visit(this, ANY);
+    intTop = intMark;
+    refTop = refMark;
+    int result = target(dest, true);
+    boolean references = !SlotAllocator.isInt(expr.left.type);
+    switch (operator) {
+      case PLUS:
+        emit(IADD, result, left, right);
+        break;
+      case MINUS:
+        emit(ISUB, result, left, right);
+        break;
+      case TIMES:
+        emit(IMUL, result, left, right);
+        break;
+      case DIVIDE:
+        emit(IDIV, result, left, right, site(expr));
+        break;
+      case LESS_THAN:
+        emit(ILT, result, left, right);
+        break;
+      case LESS_EQUAL:
+        emit(ILE, result, left, right);
+        break;
+      case GREATER_THAN:
+        emit(IGT, result, left, right);
+        break;
+      case GREATER_EQUAL:
+        emit(IGE, result, left, right);
+        break;
+      case EQUAL:
+        emit(references ? REQ : IEQ, result, left, right);
+        break;
+      case NOT_EQUAL:
+        emit(references ? RNE : INE, result, left, right);
+        break;
+      default:
+        throw new UnsupportedOperationException(operator.name());
+    }
+    return result;
+  }
+
+  public Integer visitRefExpr(RefExpr expr, Integer dest) {
+    return expr.ref.visit(this, dest);
+  }
+
+  public Integer visitIxExpr(IxExpr expr, Integer dest) {
+    int intMark = intTop;
+    int refMark = refTop;
+    int array = expr.ref.visit(this, ANY);
+    if (!isQuiet(expr.ixExpr)) {
+      nullCheck(expr.ref, array);
+    }
+    int index = expr.ixExpr.visit(this, ANY);
+    intTop = intMark;
+    refTop = refMark;
+    boolean isInt = intElements(expr.ref);
+    int result = target(dest, isInt);
+    emit(isInt ? IALOAD : RALOAD, result, array, index, site(expr));
+    return result;
+  }
+
+  public Integer visitCallExpr(CallExpr expr, Integer dest) {
+    return call(expr.functionRef, expr.argList, target(dest, SlotAllocator.isInt(expr.type)));
+  }
+
+  public Integer visitLiteralExpr(LiteralExpr expr, Integer dest) {
+    return move(constants.get(literal(expr)), dest, true);
+  }
+
+  public Integer visitNewObjectExpr(NewObjectExpr expr, Integer dest) {
+    int result = target(dest, false);
+    emit(NEWOBJ, result, classIndexes.get((ClassDecl) expr.classtype.className.decl));
+    return result;
+  }
+
+  public Integer visitNewArrayExpr(NewArrayExpr expr, Integer dest) {
+    int intMark = intTop;
+    int refMark = refTop;
+    int size = expr.sizeExpr.visit(this, ANY);
+    intTop = intMark;
+    refTop = refMark;
+    int result = target(dest, false);
+    emit(
+        expr.eltType.typeKind == TypeKind.INT ? NEWIARR : NEWRARR,
+        result,
+        size,
+        site(expr.sizeExpr));
+    return result;
+  }
+
+  // references
+
+  public Integer visitThisRef(ThisRef ref, Integer dest) {
+    return move(method.thisRegister, dest, false);
+  }
+
+  public Integer visitIdRef(IdRef ref, Integer dest) {
+    Declaration decl = ref.decl;
+    if (decl instanceof LocalDecl) {
+      return move(decl.slot, dest, SlotAllocator.isInt(decl.type));
+    }
+    return loadField((FieldDecl) decl, method.thisRegister, ref, dest);
+  }
+
+  public Integer visitQRef(QualRef ref, Integer dest) {
+    Declaration decl = ref.decl;
+    if (decl == environment.arrayLength) {
+      int refMark = refTop;
+      int array = ref.ref.visit(this, ANY);
+      refTop = refMark;
+      int result = target(dest, true);
+      emit(ALEN, result, array, site(ref.ref));
+      return result;
+    }
+    if (((FieldDecl) decl).isStatic) {
+      return loadField((FieldDecl) decl, UNUSED, ref, dest);
+    }
+    int refMark = refTop;
+    int object = ref.ref.visit(this, ANY);
+    refTop = refMark;
+    return loadField((FieldDecl) decl, object, ref.ref, dest);
+  }
+
+  // terminals are compiled by the expressions that contain them
+
+  public Integer visitIdentifier(Identifier id, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitOperator(Operator op, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitIntLiteral(IntLiteral num, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Integer visitBooleanLiteral(BooleanLiteral bool, Integer dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  // conditions
+
+  /** Jump to the label if the condition evaluates to jumpIf, otherwise fall through. */
+  private void branch(Expression cond, boolean jumpIf, Label label) {
+    if (cond instanceof LiteralExpr && ((LiteralExpr) cond).lit instanceof BooleanLiteral) {
+      if (((LiteralExpr) cond).lit.spelling.equals("true") == jumpIf) {
+        jump(JMP, label);
+      }
+      return;
+    }
+    if (cond instanceof UnaryExpr) {
+      branch(((UnaryExpr) cond).expr, !jumpIf, label);
+      return;
+    }
+    if (cond instanceof BinaryExpr) {
+      BinaryExpr expr = (BinaryExpr) cond;
+      OperatorKind operator = expr.operator.operatorKind;
+      if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+        // jump when the left operand alone decides the result in the direction we want
+        boolean decides = operator == OperatorKind.OR;
+        if (decides == jumpIf) {
+          branch(expr.left, jumpIf, label);
+          branch(expr.right, jumpIf, label);
+        } else {
+          Label skip = new Label();
+          branch(expr.left, !jumpIf, skip);
+          branch(expr.right, jumpIf, label);
+          bind(skip);
+        }
+        return;
+      }
+      int opcode = compareBranch(operator, !SlotAllocator.isInt(expr.left.type), jumpIf);
+      if (opcode != UNUSED) {
+        int intMark = intTop;
+        int refMark = refTop;
+        int left = expr.left.visit(this, ANY);
+        int right = expr.right.visit(this, ANY);
+        intTop = intMark;
+        refTop = refMark;
+        jump(opcode, left, right, label);
+        return;
+      }
+    }
+    int intMark = intTop;
+    int refMark = refTop;
+    int value = cond.visit(this, ANY);
+    intTop = intMark;
+    refTop = refMark;
+    jump(jumpIf ? JNZ : JZ, value, label);
+  }
+
+  private static int compareBranch(OperatorKind operator, boolean references, boolean jumpIf) {
+    switch (operator) {
+      case LESS_THAN:
+        return jumpIf ? BLT : BGE;
+      case LESS_EQUAL:
+        return jumpIf ? BLE : BGT;
+      case GREATER_THAN:
+        return jumpIf ? BGT : BLE;
+      case GREATER_EQUAL:
+        return jumpIf ? BGE : BLT;
+      case EQUAL:
+        return references ? (jumpIf ? BREQ : BRNE) : (jumpIf ? BEQ : BNE);
+      case NOT_EQUAL:
+        return references ? (jumpIf ? BRNE : BREQ) : (jumpIf ? BNE : BEQ);
+      default:
+        return UNUSED;
+    }
+  }
+
+  // helpers
+
+  private int call(Reference methodRef, ExprList args, int dest) {
+    MethodDecl callee = (MethodDecl) methodRef.decl;
+    int intMark = intTop;
+    int refMark = refTop;
+    if (callee == environment.println) {
+      int value = args.get(0).visit(this, ANY);
+      intTop = intMark;
+      refTop = refMark;
+      emit(PRINT, value);
+      return dest;
+    }
+
+    Reference qualifier = methodRef instanceof QualRef ? ((QualRef) methodRef).ref : methodRef;
+    int receiver = UNUSED;
+    if (!callee.isStatic) {
+      receiver = qualifier != methodRef ? qualifier.visit(this, ANY) : method.thisRegister;
+      if (qualifier != methodRef && !isQuiet(args)) {
+        emit(NCHK, receiver, site(qualifier));
+      }
+    }
+    int[] registers = new int[args.size()];
+    for (int i = 0; i < registers.length; i++) {
+      registers[i] = args.get(i).visit(this, ANY);
+    }
+    intTop = intMark;
+    refTop = refMark;
+
+    emit(CALL, dest, methodIndexes.get(callee), receiver, registers.length);
+    for (int register : registers) {
+      emit(register);
+    }
+    emit(site(qualifier));
+    return dest;
+  }
+
+  private int loadField(FieldDecl fd, int object, AST node, int dest) {
+    boolean isInt = SlotAllocator.isInt(fd.type);
+    int result = target(dest, isInt);
+    if (fd.isStatic) {
+      emit(isInt ? GETSI : GETSR, result, fd.slot);
+    } else {
+      emit(isInt ? GETFI : GETFR, result, object, fd.slot, site(node));
+    }
+    return result;
+  }
+
+  /** A value already in a register only needs an instruction if it must end up elsewhere. */
+  private int move(int register, int dest, boolean isInt) {
+    if (dest == ANY || dest == register) {
+      return register;
+    }
+    emit(isInt ? IMOV : RMOV, dest, register);
+    return dest;
+  }
+
+  private int target(int dest, boolean isInt) {
+    if (dest != ANY) {
+      return dest;
+    }
+    if (isInt) {
+      maxInts = Math.max(maxInts, intTop + 1);
+      return intTop++;
+    }
+    maxRefs = Math.max(maxRefs, refTop + 1);
+    return refTop++;
+  }
+
+  /**
+   * An array is null-checked before its index is computed, as the interpreter does, unless nothing
+   * between the two can print or fail; the element access checks it anyway. Receivers of field
+   * stores and calls get an NCHK before the value or the arguments on the same terms.
+   */
+  private void nullCheck(Reference arrayRef, int array) {
+    emit(ALEN, target(ANY, true), array, site(arrayRef));
+  }
+
+  /**
+   * @return true if evaluating none of args can print or fail
+   */
+  private static boolean isQuiet(ExprList args) {
+    for (Expression e : args) {
+      if (!isQuiet(e)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if evaluating expr can neither print nor fail
+   */
+  private static boolean isQuiet(Expression expr) {
+    return expr instanceof LiteralExpr
+        || expr instanceof RefExpr && !(((RefExpr) expr).ref instanceof QualRef);
+  }
+
+  private static boolean intElements(Reference arrayRef) {
+    TypeDenoter type = arrayRef.decl.type;
+    return ((ArrayType) type).eltType.typeKind == TypeKind.INT;
+  }
+
+  private static int literal(LiteralExpr expr) {
+    if (expr.lit instanceof IntLiteral) {
+      return literal((IntLiteral) expr.lit);
+    }
+    return expr.lit.spelling.equals("true") ? 1 : 0;
+  }
+
+  private static int literal(IntLiteral num) {
+    try {
+      return Integer.parseInt(num.spelling);
+    } catch (NumberFormatException e) {
+      throw new ExecutionError("integer literal out of range", num);
+    }
+  }
+
+  /** Give each distinct literal value in the statement a constant register. */
+  private void collectConstants(Statement stmt) {
+    if (stmt instanceof BlockStmt) {
+      for (Statement s : ((BlockStmt) stmt).sl) {
+        collectConstants(s);
+      }
+    } else if (stmt instanceof VarDeclStmt) {
+      collectConstants(((VarDeclStmt) stmt).initExp);
+    } else if (stmt instanceof AssignStmt) {
+      collectConstants(((AssignStmt) stmt).val);
+    } else if (stmt instanceof IxAssignStmt) {
+      collectConstants(((IxAssignStmt) stmt).ix);
+      collectConstants(((IxAssignStmt) stmt).exp);
+    } else if (stmt instanceof CallStmt) {
+      collectConstants(((CallStmt) stmt).argList);
+    } else if (stmt instanceof ReturnStmt) {
+      collectConstants(((ReturnStmt) stmt).returnExpr);
+    } else if (stmt instanceof IfStmt) {
+      collectConstants(((IfStmt) stmt).cond);
+      collectConstants(((IfStmt) stmt).thenStmt);
+      if (((IfStmt) stmt).elseStmt != null) {
+        collectConstants(((IfStmt) stmt).elseStmt);
+      }
+    } else if (stmt instanceof WhileStmt) {
+      collectConstants(((WhileStmt) stmt).cond);
+      collectConstants(((WhileStmt) stmt).body);
+    }
+  }
+
+  private void collectConstants(Expression expr) {
+    if (expr instanceof LiteralExpr) {
+      constants.putIfAbsent(literal((LiteralExpr) expr), method.decl.intSlots + constants.size());
+    } else if (expr instanceof UnaryExpr) {
+      collectConstants(((UnaryExpr) expr).expr);
+    } else if (expr instanceof BinaryExpr) {
+      collectConstants(((BinaryExpr) expr).left);
+      collectConstants(((BinaryExpr) expr).right);
+    } else if (expr instanceof IxExpr) {
+      collectConstants(((IxExpr) expr).ixExpr);
+    } else if (expr instanceof CallExpr) {
+      collectConstants(((CallExpr) expr).argList);
+    } else if (expr instanceof NewArrayExpr) {
+      collectConstants(((NewArrayExpr) expr).sizeExpr);
+    }
+  }
+
+  private void collectConstants(ExprList args) {
+    for (Expression e : args) {
+      collectConstants(e);
+    }
+  }
+
+  private int site(AST node) {
+    sites.add(node);
+    return sites.size() - 1;
+  }
+
+  // code emission
+
+  private static class Label {
+    int target = UNUSED;
+    int[] uses = new int[2];
+    int useCount = 0;
+  }
+
+  private void jump(int opcode, Label label) {
+    emit(opcode);
+    use(label);
+  }
+
+  private void jump(int opcode, int operand, Label label) {
+    emit(opcode, operand);
+    use(label);
+  }
+
+  private void jump(int opcode, int left, int right, Label label) {
+    emit(opcode, left, right);
+    use(label);
+  }
+
+  private void use(Label label) {
+    if (label.target != UNUSED) {
+      emit(label.target);
+      return;
+    }
+    if (label.useCount == label.uses.length) {
+      label.uses = Arrays.copyOf(label.uses, label.useCount * 2);
+    }
+    label.uses[label.useCount++] = length;
+    emit(UNUSED);
+  }
+
+  private void bind(Label label) {
+    label.target = length;
+    for (int i = 0; i < label.useCount; i++) {
+      code[label.uses[i]] = length;
+    }
+  }
+
+  private void emit(int... words) {
+    if (length + words.length > code.length) {
+      code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+    }
+    System.arraycopy(words, 0, code, length, words.length);
+    length += words.length;
+  }
+}
@@ -0,0 +1,30 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+
+/** Every method of a program in Bytecode, plus what NEWOBJ and the static fields refer to. */
+public class BytecodeProgram {
+  public final CompiledMethod[] methods;
+  public final ClassDecl[] classes;
+  public final int main;
+  public final int staticInts;
+  public final int staticRefs;
+
+  /** Static slot of System.out, which holds the only _PrintStream. */
+  final int systemOut;
+
+  BytecodeProgram(
+      CompiledMethod[] compiledMethods,
+      ClassDecl[] classDecls,
+      int mainIndex,
+      int staticIntCount,
+      int staticRefCount,
+      int systemOutSlot) {
+    methods = compiledMethods;
+    classes = classDecls;
+    main = mainIndex;
+    staticInts = staticIntCount;
+    staticRefs = staticRefCount;
+    systemOut = systemOutSlot;
+  }
+}
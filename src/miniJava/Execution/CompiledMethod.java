@@ -0,0 +1,39 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+
+/** A method lowered to Bytecode, with the register counts and parameter layout its frame needs. */
+public class CompiledMethod {
+  public final MethodDecl decl;
+  public int[] code;
+  public AST[] sites;
+  public int intRegisters;
+  public int refRegisters;
+
+  /** Literal values, loaded into the int registers from constantBase on when a frame is created. */
+  public int[] constants;
+
+  public int constantBase;
+
+  /** Register of the receiver, or -1 for a static method. */
+  public int thisRegister = -1;
+
+  public int[] parameterRegisters;
+  public boolean[] parameterIsInt;
+  public boolean returnsInt;
+
+  CompiledMethod(MethodDecl md) {
+    decl = md;
+  }
+
+  public String toString() {
+    return decl.name
+        + " (ints "
+        + intRegisters
+        + ", refs "
+        + refRegisters
+        + ")\n"
+        + Bytecode.disassemble(code);
+  }
+}
@@ -0,0 +1,16 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.AST;
+
+/**
+ * A miniJava program failed at run time: null dereference, bad array index or size, division by
+ * zero.
+ */
+public class ExecutionError extends RuntimeException {
+  public final AST node;
+
+  public ExecutionError(String desc, AST failingNode) {
+    super(desc, null, false, false);
+    node = failingNode;
+  }
+}
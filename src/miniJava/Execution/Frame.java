@@ -0,0 +1,16 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+
+/** Parameters and locals of one method activation, indexed by LocalDecl.slot. */
+public class Frame {
+  final int[] ints;
+  final Object[] refs;
+  final Instance self;
+
+  Frame(MethodDecl md, Instance receiver) {
+    ints = new int[md.intSlots];
+    refs = new Object[md.refSlots];
+    self = receiver;
+  }
+}
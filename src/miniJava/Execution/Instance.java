@@ -0,0 +1,16 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+
+/** An object of a miniJava class; fields are indexed by FieldDecl.slot. */
+public class Instance {
+  public final ClassDecl classDecl;
+  public final int[] ints;
+  public final Object[] refs;
+
+  public Instance(ClassDecl cd) {
+    classDecl = cd;
+    ints = new int[cd.intFields];
+    refs = new Object[cd.refFields];
+  }
+}
@@ -0,0 +1,499 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+import miniJava.ErrorReporter;
+
+import java.io.PrintStream;
+
+/*
+ * Run a miniJava program by walking its AST.
+ *
+ * The program must have passed identification and type checking: the
+ * interpreter follows Reference.decl and reads Expression.type. Before
+ * running, SlotAllocator numbers every local and field, so a variable
+ * access is one array index. Ints and booleans (as 0 and 1) are kept
+ * unboxed in int arrays and everything else in Object arrays; int[] is a
+ * Java int[] and other arrays are Object[].
+ *
+ * Evaluating an expression leaves its value in intValue or refValue,
+ * according to its type, and returns null. Executing a statement returns
+ * RETURN once a return statement has run, and null otherwise.
+ */
+public class Interpreter implements Visitor<Frame, Object> {
+  static final Object RETURN = new Object();
+
+  private final StandardEnvironment environment;
+  private final PrintStream out;
+
+  private int intValue;
+  private Object refValue;
+  private int[] staticInts;
+  private Object[] staticRefs;
+
+  public Interpreter(StandardEnvironment standardEnvironment, PrintStream output) {
+    environment = standardEnvironment;
+    out = output;
+  }
+
+  /**
+   * Run the program's main method on a {@link MainThread}.
+   *
+   * @return true if the program ran to completion, otherwise the failure is reported
+   */
+  public boolean run(Package prog, ErrorReporter reporter) {
+    SlotAllocator allocator = new SlotAllocator();
+    for (ClassDecl cd : environment.classes()) {
+      allocator.allocate(cd);
+    }
+    for (ClassDecl cd : prog.classDeclList) {
+      allocator.allocate(cd);
+    }
+    staticInts = new int[allocator.staticInts];
+    staticRefs = new Object[allocator.staticRefs];
+    FieldDecl systemOut = environment.systemClass.fieldDeclList.get(0);
+    staticRefs[systemOut.slot] = new Instance(environment.printStreamClass);
+
+    MethodDecl main = findMain(prog);
+    if (main == null) {
+      reporter.reportError("*** no method public static void main(String[] args)");
+      return false;
+    }
+    Frame frame = new Frame(main, null);
+    frame.refs[main.parameterDeclList.get(0).slot] = new Object[0];
+    return MainThread.run(() -> run(prog, main, frame, reporter));
+  }
+
+  private boolean run(Package prog, MethodDecl main, Frame frame, ErrorReporter reporter) {
+    try {
+      execute(main.statementList, frame);
+      return true;
+    } catch (ExecutionError e) {
+      String trace = e.toString();
+      if (prog.lineTable != null && e.node.offset >= 0) {
+        trace += "@" + prog.lineTable.getPosition(e.node.offset);
+      }
+      reporter.reportError(trace);
+    } catch (StackOverflowError e) {
+      reporter.reportError("*** stack overflow");
+    } finally {
+      out.flush();
+    }
+    return false;
+  }
+
+  private static MethodDecl findMain(Package prog) {
+    for (ClassDecl cd : prog.classDeclList) {
+      for (MethodDecl md : cd.methodDeclList) {
+        if (md.name.equals("main")
+            && md.isStatic
+            && !md.isPrivate
+            && md.type.typeKind == TypeKind.VOID
+            && md.parameterDeclList.size() == 1
+            && md.parameterDeclList.get(0).type.typeKind == TypeKind.ARRAY) {
+          return md;
+        }
+      }
+    }
+    return null;
+  }
+
+  private Object execute(StatementList statements, Frame frame) {
+    for (Statement s : statements) {
+      if (s.visit(this, frame) == RETURN) {
+        return RETURN;
+      }
+    }
+    return null;
+  }
+
+  // declarations and types are never executed
+
+  public Object visitPackage(Package prog, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitVarDecl(VarDecl decl, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitBaseType(BaseType type, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitClassType(ClassType type, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitArrayType(ArrayType type, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  // statements
+
+  public Object visitBlockStmt(BlockStmt stmt, Frame frame) {
+    return execute(stmt.sl, frame);
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Frame frame) {
+    stmt.initExp.visit(this, frame);
+    storeLocal(stmt.varDecl, frame);
+    return null;
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Frame frame) {
+    Declaration decl = stmt.ref.decl;
+    if (decl instanceof LocalDecl) {
+      stmt.val.visit(this, frame);
+      storeLocal(decl, frame);
+    } else if (((FieldDecl) decl).isStatic) {
+      stmt.val.visit(this, frame);
+      if (SlotAllocator.isInt(decl.type)) {
+        staticInts[decl.slot] = intValue;
+      } else {
+        staticRefs[decl.slot] = refValue;
+      }
+    } else {
+      Instance target =
+          stmt.ref instanceof QualRef ? instance(((QualRef) stmt.ref).ref, frame) : frame.self;
+      stmt.val.visit(this, frame);
+      if (SlotAllocator.isInt(decl.type)) {
+        target.ints[decl.slot] = intValue;
+      } else {
+        target.refs[decl.slot] = refValue;
+      }
+    }
+    return null;
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Frame frame) {
+    stmt.ref.visit(this, frame);
+    Object array = refValue;
+    if (array == null) {
+      throw new ExecutionError("null array", stmt.ref);
+    }
+    stmt.ix.visit(this, frame);
+    int index = intValue;
+    stmt.exp.visit(this, frame);
+    if (array instanceof int[]) {
+      int[] ints = (int[]) array;
+      checkIndex(index, ints.length, stmt.ix);
+      ints[index] = intValue;
+    } else {
+      Object[] refs = (Object[]) array;
+      checkIndex(index, refs.length, stmt.ix);
+      refs[index] = refValue;
+    }
+    return null;
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Frame frame) {
+    call(stmt.methodRef, stmt.argList, frame);
+    return null;
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Frame frame) {
+    if (stmt.returnExpr != null) {
+      stmt.returnExpr.visit(this, frame);
+    }
+    return RETURN;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Frame frame) {
+    stmt.cond.visit(this, frame);
+    if (intValue != 0) {
+      return stmt.thenStmt.visit(this, frame);
+    } else if (stmt.elseStmt != null) {
+      return stmt.elseStmt.visit(this, frame);
+    }
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Frame frame) {
+    while (true) {
+      stmt.cond.visit(this, frame);
+      if (intValue == 0) {
+        return null;
+      }
+      if (stmt.body.visit(this, frame) == RETURN) {
+        return RETURN;
+      }
+    }
+  }
+
+  // expressions
+
+  public Object visitUnaryExpr(UnaryExpr expr, Frame frame) {
+    expr.expr.visit(this, frame);
+    if (expr.operator.operatorKind == OperatorKind.NOT) {
+      intValue ^= 1;
+    } else {
+      intValue = -intValue;
+    }
+    return null;
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Frame frame) {
+    OperatorKind operator = expr.operator.operatorKind;
+    expr.left.visit(this, frame);
+    switch (operator) {
+      case AND:
+        if (intValue != 0) {
+          expr.right.visit(this, frame);
+        }
+        return null;
+      case OR:
+        if (intValue == 0) {
+          expr.right.visit(this, frame);
+        }
+        return null;
+      case EQUAL:
+      case NOT_EQUAL:
+        if (!SlotAllocator.isInt(expr.left.type)) {
+          Object left = refValue;
+          expr.right.visit(this, frame);
+          intValue = (left == refValue) == (operator == OperatorKind.EQUAL) ? 1 : 0;
+          return null;
+        }
+        break;
+      default:
+        break;
+    }
+    int left = intValue;
+    expr.right.visit(this, frame);
+    int right = intValue;
+    switch (operator) {
+      case EQUAL:
+        intValue = left == right ? 1 : 0;
+        break;
+      case NOT_EQUAL:
+        intValue = left != right ? 1 : 0;
+        break;
+      case LESS_THAN:
+        intValue = left < right ? 1 : 0;
+        break;
+      case LESS_EQUAL:
+        intValue = left <= right ? 1 : 0;
+        break;
+      case GREATER_THAN:
+        intValue = left > right ? 1 : 0;
+        break;
+      case GREATER_EQUAL:
+        intValue = left >= right ? 1 : 0;
+        break;
+      case PLUS:
+        intValue = left + right;
+        break;
+      case MINUS:
+        intValue = left - right;
+        break;
+      case TIMES:
+        intValue = left * right;
+        break;
+      case DIVIDE:
+        if (right == 0) {
+          throw new ExecutionError("division by zero", expr);
+        }
+        intValue = left / right;
+        break;
+      default:
+        throw new UnsupportedOperationException(operator.name());
+    }
+    return null;
+  }
+
+  public Object visitRefExpr(RefExpr expr, Frame frame) {
+    return expr.ref.visit(this, frame);
+  }
+
+  public Object visitIxExpr(IxExpr expr, Frame frame) {
+    expr.ref.visit(this, frame);
+    Object array = refValue;
+    if (array == null) {
+      throw new ExecutionError("null array", expr.ref);
+    }
+    expr.ixExpr.visit(this, frame);
+    int index = intValue;
+    if (array instanceof int[]) {
+      int[] ints = (int[]) array;
+      checkIndex(index, ints.length, expr.ixExpr);
+      intValue = ints[index];
+    } else {
+      Object[] refs = (Object[]) array;
+      checkIndex(index, refs.length, expr.ixExpr);
+      refValue = refs[index];
+    }
+    return null;
+  }
+
+  public Object visitCallExpr(CallExpr expr, Frame frame) {
+    call(expr.functionRef, expr.argList, frame);
+    return null;
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Frame frame) {
+    return expr.lit.visit(this, frame);
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Frame frame) {
+    refValue = new Instance((ClassDecl) expr.classtype.className.decl);
+    return null;
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Frame frame) {
+    expr.sizeExpr.visit(this, frame);
+    if (intValue < 0) {
+      throw new ExecutionError("negative array size " + intValue, expr.sizeExpr);
+    }
+    if (expr.eltType.typeKind == TypeKind.INT) {
+      refValue = new int[intValue];
+    } else {
+      refValue = new Object[intValue];
+    }
+    return null;
+  }
+
+  // references load the value they denote
+
+  public Object visitThisRef(ThisRef ref, Frame frame) {
+    refValue = frame.self;
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Frame frame) {
+    Declaration decl = ref.decl;
+    if (decl instanceof LocalDecl) {
+      if (SlotAllocator.isInt(decl.type)) {
+        intValue = frame.ints[decl.slot];
+      } else {
+        refValue = frame.refs[decl.slot];
+      }
+    } else {
+      loadField((FieldDecl) decl, frame.self);
+    }
+    return null;
+  }
+
+  public Object visitQRef(QualRef ref, Frame frame) {
+    Declaration decl = ref.decl;
+    if (decl == environment.arrayLength) {
+      ref.ref.visit(this, frame);
+      if (refValue == null) {
+        throw new ExecutionError("null array", ref.ref);
+      }
+      intValue =
+          refValue instanceof int[] ? ((int[]) refValue).length : ((Object[]) refValue).length;
+    } else if (((FieldDecl) decl).isStatic) {
+      loadField((FieldDecl) decl, null);
+    } else {
+      loadField((FieldDecl) decl, instance(ref.ref, frame));
+    }
+    return null;
+  }
+
+  // terminals
+
+  public Object visitIdentifier(Identifier id, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitOperator(Operator op, Frame frame) {
+    throw new UnsupportedOperationException();
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Frame frame) {
+    try {
+      intValue = Integer.parseInt(num.spelling);
+    } catch (NumberFormatException e) {
+      throw new ExecutionError("integer literal out of range", num);
+    }
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Frame frame) {
+    intValue = bool.spelling.equals("true") ? 1 : 0;
+    return null;
+  }
+
+  // helpers
+
+  private void call(Reference methodRef, ExprList args, Frame frame) {
+    MethodDecl method = (MethodDecl) methodRef.decl;
+    if (method == environment.println) {
+      args.get(0).visit(this, frame);
+      out.println(intValue);
+      return;
+    }
+    Instance receiver = null;
+    if (!method.isStatic) {
+      receiver =
+          methodRef instanceof QualRef ? instance(((QualRef) methodRef).ref, frame) : frame.self;
+    }
+    Frame callee = new Frame(method, receiver);
+    ParameterDeclList parameters = method.parameterDeclList;
+    for (int i = 0; i < parameters.size(); i++) {
+      args.get(i).visit(this, frame);
+      storeLocal(parameters.get(i), callee);
+    }
+    // a method that ends without a return gives 0 or null, as in the other backends
+    intValue = 0;
+    refValue = null;
+    execute(method.statementList, callee);
+  }
+
+  /**
+   * @return the object a reference denotes, which must not be null
+   */
+  private Instance instance(Reference ref, Frame frame) {
+    ref.visit(this, frame);
+    if (refValue == null) {
+      throw new ExecutionError("null reference", ref);
+    }
+    return (Instance) refValue;
+  }
+
+  private void loadField(FieldDecl fd, Instance target) {
+    if (fd.isStatic) {
+      if (SlotAllocator.isInt(fd.type)) {
+        intValue = staticInts[fd.slot];
+      } else {
+        refValue = staticRefs[fd.slot];
+      }
+    } else if (SlotAllocator.isInt(fd.type)) {
+      intValue = target.ints[fd.slot];
+    } else {
+      refValue = target.refs[fd.slot];
+    }
+  }
+
+  private void storeLocal(Declaration decl, Frame frame) {
+    if (SlotAllocator.isInt(decl.type)) {
+      frame.ints[decl.slot] = intValue;
+    } else {
+      frame.refs[decl.slot] = refValue;
+    }
+  }
+
+  private static void checkIndex(int index, int length, AST node) {
+    if (index < 0 || index >= length) {
+      throw new ExecutionError("index " + index + " out of bounds for length " + length, node);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package miniJava.Execution;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the main method of a program on a thread of its own, with a stack large enough that a
+ * recursion the C and native backends accept on the usual 8 MiB process stack does not overflow
+ * here, although an interpreter frame is many times larger than a native one.
+ */
+public final class MainThread {
+  static final long STACK_SIZE = 1L << 29;
+
+  private MainThread() {}
+
+  /**
+   * Run main on a fresh thread and wait for it.
+   *
+   * @return what main returned; anything it throws is rethrown here
+   */
+  public static boolean run(BooleanSupplier main) {
+    boolean[] result = new boolean[1];
+    Throwable[] failure = new Throwable[1];
+    Thread thread =
+        new Thread(
+            null,
+            () -> {
+              try {
+                result[0] = main.getAsBoolean();
+              } catch (Throwable e) {
+                failure[0] = e;
+              }
+            },
+            "main",
+            STACK_SIZE);
+    thread.start();
+    boolean interrupted = false;
+    while (true) {
+      try {
+        thread.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure[0] instanceof RuntimeException) {
+      throw (RuntimeException) failure[0];
+    } else if (failure[0] instanceof Error) {
+      throw (Error) failure[0];
+    }
+    return result[0];
+  }
+}
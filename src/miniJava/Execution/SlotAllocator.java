@@ -0,0 +1,86 @@
+package miniJava.Execution;
+
+import miniJava.AbstractSyntaxTrees.*;
+
+/*
+ * Assign every field, parameter and local its slot before execution.
+ *
+ * Values whose type is int or boolean go in int slots and all others in
+ * reference slots, each numbered from zero. Parameters come first in a
+ * frame; a local's slot is reused once the block declaring it ends.
+ * Static fields of all classes share one pair of static arrays.
+ */
+class SlotAllocator {
+  int staticInts = 0;
+  int staticRefs = 0;
+
+  private int ints;
+  private int refs;
+  private int maxInts;
+  private int maxRefs;
+
+  static boolean isInt(TypeDenoter type) {
+    return type.typeKind == TypeKind.INT || type.typeKind == TypeKind.BOOLEAN;
+  }
+
+  void allocate(ClassDecl cd) {
+    int instanceInts = 0;
+    int instanceRefs = 0;
+    for (FieldDecl fd : cd.fieldDeclList) {
+      boolean isInt = isInt(fd.type);
+      if (fd.isStatic) {
+        fd.slot = isInt ? staticInts++ : staticRefs++;
+      } else {
+        fd.slot = isInt ? instanceInts++ : instanceRefs++;
+      }
+    }
+    cd.intFields = instanceInts;
+    cd.refFields = instanceRefs;
+    for (MethodDecl md : cd.methodDeclList) {
+      allocate(md);
+    }
+  }
+
+  private void allocate(MethodDecl md) {
+    ints = refs = maxInts = maxRefs = 0;
+    for (ParameterDecl pd : md.parameterDeclList) {
+      declare(pd);
+    }
+    for (Statement s : md.statementList) {
+      allocate(s);
+    }
+    md.intSlots = maxInts;
+    md.refSlots = maxRefs;
+  }
+
+  private void allocate(Statement stmt) {
+    if (stmt instanceof VarDeclStmt) {
+      declare(((VarDeclStmt) stmt).varDecl);
+    } else if (stmt instanceof BlockStmt) {
+      int blockInts = ints;
+      int blockRefs = refs;
+      for (Statement s : ((BlockStmt) stmt).sl) {
+        allocate(s);
+      }
+      ints = blockInts;
+      refs = blockRefs;
+    } else if (stmt instanceof IfStmt) {
+      allocate(((IfStmt) stmt).thenStmt);
+      if (((IfStmt) stmt).elseStmt != null) {
+        allocate(((IfStmt) stmt).elseStmt);
+      }
+    } else if (stmt instanceof WhileStmt) {
+      allocate(((WhileStmt) stmt).body);
+    }
+  }
+
+  private void declare(LocalDecl decl) {
+    if (isInt(decl.type)) {
+      decl.slot = ints++;
+      maxInts = Math.max(maxInts, ints);
+    } else {
+      decl.slot = refs++;
+      maxRefs = Math.max(maxRefs, refs);
+    }
+  }
+}
@@ -0,0 +1,389 @@
+package miniJava.Execution;
+
+import static miniJava.Execution.Bytecode.*;
+
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.IxAssignStmt;
+import miniJava.AbstractSyntaxTrees.IxExpr;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+
+import java.io.PrintStream;
+
+/*
+ * Run a BytecodeProgram.
+ *
+ * Each call gets fresh int and reference register arrays sized by its
+ * CompiledMethod, and execute() dispatches the method's code with one
+ * switch per instruction. A miniJava call is a Java call of execute(), and
+ * results come back in intResult or refResult.
+ */
+public class VirtualMachine {
+  static final Object[] NO_REFS = new Object[0];
+
+  private final BytecodeProgram program;
+  private final CompiledMethod[] methods;
+  private final PrintStream out;
+
+  private int[] staticInts;
+  private Object[] staticRefs;
+  private int intResult;
+  private Object refResult;
+
+  public VirtualMachine(BytecodeProgram bytecodeProgram, PrintStream output) {
+    program = bytecodeProgram;
+    methods = bytecodeProgram.methods;
+    out = output;
+  }
+
+  /**
+   * Run the program's main method with fresh static fields, on a {@link MainThread}.
+   *
+   * @param prog the analyzed tree the program was compiled from, for error positions
+   * @return true if the program ran to completion, otherwise the failure is reported
+   */
+  public boolean run(Package prog, ErrorReporter reporter) {
+    if (program.main == BytecodeCompiler.UNUSED) {
+      reporter.reportError("*** no method public static void main(String[] args)");
+      return false;
+    }
+    staticInts = new int[program.staticInts];
+    staticRefs = new Object[program.staticRefs];
+    staticRefs[program.systemOut] = new Object();
+
+    CompiledMethod main = methods[program.main];
+    Object[] refs = new Object[main.refRegisters];
+    refs[main.parameterRegisters[0]] = new Object[0];
+    return MainThread.run(() -> run(prog, main, refs, reporter));
+  }
+
+  private boolean run(Package prog, CompiledMethod main, Object[] refs, ErrorReporter reporter) {
+    try {
+      execute(main, frame(main), refs);
+      return true;
+    } catch (ExecutionError e) {
+      String trace = e.toString();
+      if (prog.lineTable != null && e.node.offset >= 0) {
+        trace += "@" + prog.lineTable.getPosition(e.node.offset);
+      }
+      reporter.reportError(trace);
+    } catch (StackOverflowError e) {
+      reporter.reportError("*** stack overflow");
+    } finally {
+      out.flush();
+    }
+    return false;
+  }
+
+  private void execute(CompiledMethod method, int[] is, Object[] rs) {
+    int[] code = method.code;
+    int pc = 0;
+    while (true) {
+      switch (code[pc]) {
+        case ICONST:
+          is[code[pc + 1]] = code[pc + 2];
+          pc += 3;
+          break;
+        case IMOV:
+          is[code[pc + 1]] = is[code[pc + 2]];
+          pc += 3;
+          break;
+        case RMOV:
+          rs[code[pc + 1]] = rs[code[pc + 2]];
+          pc += 3;
+          break;
+        case IADD:
+          is[code[pc + 1]] = is[code[pc + 2]] + is[code[pc + 3]];
+          pc += 4;
+          break;
+        case ISUB:
+          is[code[pc + 1]] = is[code[pc + 2]] - is[code[pc + 3]];
+          pc += 4;
+          break;
+        case IMUL:
+          is[code[pc + 1]] = is[code[pc + 2]] * is[code[pc + 3]];
+          pc += 4;
+          break;
+        case IDIV:
+          {
+            int divisor = is[code[pc + 3]];
+            if (divisor == 0) {
+              throw new ExecutionError("division by zero", method.sites[code[pc + 4]]);
+            }
+            is[code[pc + 1]] = is[code[pc + 2]] / divisor;
+            pc += 5;
+            break;
+          }
+        case IADDI:
+          is[code[pc + 1]] = is[code[pc + 2]] + code[pc + 3];
+          pc += 4;
+          break;
+        case INEG:
+          is[code[pc + 1]] = -is[code[pc + 2]];
+          pc += 3;
+          break;
+        case INOT:
+          is[code[pc + 1]] = is[code[pc + 2]] ^ 1;
+          pc += 3;
+          break;
+        case ILT:
+          is[code[pc + 1]] = is[code[pc + 2]] < is[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case ILE:
+          is[code[pc + 1]] = is[code[pc + 2]] <= is[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case IGT:
+          is[code[pc + 1]] = is[code[pc + 2]] > is[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case IGE:
+          is[code[pc + 1]] = is[code[pc + 2]] >= is[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case IEQ:
+          is[code[pc + 1]] = is[code[pc + 2]] == is[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case INE:
+          is[code[pc + 1]] = is[code[pc + 2]] != is[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case REQ:
+          is[code[pc + 1]] = rs[code[pc + 2]] == rs[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case RNE:
+          is[code[pc + 1]] = rs[code[pc + 2]] != rs[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+          break;
+        case JMP:
+          pc = code[pc + 1];
+          break;
+        case JZ:
+          pc = is[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+          break;
+        case JNZ:
+          pc = is[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+          break;
+        case BLT:
+          pc = is[code[pc + 1]] < is[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BLE:
+          pc = is[code[pc + 1]] <= is[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BGT:
+          pc = is[code[pc + 1]] > is[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BGE:
+          pc = is[code[pc + 1]] >= is[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BEQ:
+          pc = is[code[pc + 1]] == is[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BNE:
+          pc = is[code[pc + 1]] != is[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BREQ:
+          pc = rs[code[pc + 1]] == rs[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case BRNE:
+          pc = rs[code[pc + 1]] != rs[code[pc + 2]] ? code[pc + 3] : pc + 4;
+          break;
+        case GETSI:
+          is[code[pc + 1]] = staticInts[code[pc + 2]];
+          pc += 3;
+          break;
+        case GETSR:
+          rs[code[pc + 1]] = staticRefs[code[pc + 2]];
+          pc += 3;
+          break;
+        case PUTSI:
+          staticInts[code[pc + 1]] = is[code[pc + 2]];
+          pc += 3;
+          break;
+        case PUTSR:
+          staticRefs[code[pc + 1]] = rs[code[pc + 2]];
+          pc += 3;
+          break;
+        case GETFI:
+          is[code[pc + 1]] = instance(method, rs[code[pc + 2]], code[pc + 4]).ints[code[pc + 3]];
+          pc += 5;
+          break;
+        case GETFR:
+          rs[code[pc + 1]] = instance(method, rs[code[pc + 2]], code[pc + 4]).refs[code[pc + 3]];
+          pc += 5;
+          break;
+        case PUTFI:
+          instance(method, rs[code[pc + 1]], code[pc + 4]).ints[code[pc + 2]] = is[code[pc + 3]];
+          pc += 5;
+          break;
+        case PUTFR:
+          instance(method, rs[code[pc + 1]], code[pc + 4]).refs[code[pc + 2]] = rs[code[pc + 3]];
+          pc += 5;
+          break;
+        case NEWOBJ:
+          rs[code[pc + 1]] = new Instance(program.classes[code[pc + 2]]);
+          pc += 3;
+          break;
+        case NEWIARR:
+          rs[code[pc + 1]] = new int[size(method, is[code[pc + 2]], code[pc + 3])];
+          pc += 4;
+          break;
+        case NEWRARR:
+          rs[code[pc + 1]] = new Object[size(method, is[code[pc + 2]], code[pc + 3])];
+          pc += 4;
+          break;
+        case IALOAD:
+          {
+            int[] array = (int[]) elements(method, rs[code[pc + 2]], code[pc + 4]);
+            int index = is[code[pc + 3]];
+            checkIndex(method, index, array.length, code[pc + 4]);
+            is[code[pc + 1]] = array[index];
+            pc += 5;
+            break;
+          }
+        case RALOAD:
+          {
+            Object[] array = (Object[]) elements(method, rs[code[pc + 2]], code[pc + 4]);
+            int index = is[code[pc + 3]];
+            checkIndex(method, index, array.length, code[pc + 4]);
+            rs[code[pc + 1]] = array[index];
+            pc += 5;
+            break;
+          }
+        case IASTORE:
+          {
+            int[] array = (int[]) elements(method, rs[code[pc + 1]], code[pc + 4]);
+            int index = is[code[pc + 2]];
+            checkIndex(method, index, array.length, code[pc + 4]);
+            array[index] = is[code[pc + 3]];
+            pc += 5;
+            break;
+          }
+        case RASTORE:
+          {
+            Object[] array = (Object[]) elements(method, rs[code[pc + 1]], code[pc + 4]);
+            int index = is[code[pc + 2]];
+            checkIndex(method, index, array.length, code[pc + 4]);
+            array[index] = rs[code[pc + 3]];
+            pc += 5;
+            break;
+          }
+        case ALEN:
+          {
+            Object array = array(method, rs[code[pc + 2]], code[pc + 3]);
+            is[code[pc + 1]] =
+                array instanceof int[] ? ((int[]) array).length : ((Object[]) array).length;
+            pc += 4;
+            break;
+          }
+        case CALL:
+          pc = call(method, code, pc, is, rs);
+          break;
+        case PRINT:
+          out.println(is[code[pc + 1]]);
+          pc += 2;
+          break;
+        case RET:
+          // a method that ends without a return gives 0 or null, as in the other backends
+          intResult = 0;
+          refResult = null;
+          return;
+        case IRET:
+          intResult = is[code[pc + 1]];
+          return;
+        case RRET:
+          refResult = rs[code[pc + 1]];
+          return;
+        case NCHK:
+          instance(method, rs[code[pc + 1]], code[pc + 2]);
+          pc += 3;
+          break;
+        default:
+          throw new IllegalStateException("bad opcode " + code[pc] + " at " + pc);
+      }
+    }
+  }
+
+  /**
+   * @return the index of the instruction after the call
+   */
+  private int call(CompiledMethod method, int[] code, int pc, int[] is, Object[] rs) {
+    CompiledMethod callee = methods[code[pc + 2]];
+    int receiver = code[pc + 3];
+    int argCount = code[pc + 4];
+    int[] calleeInts = frame(callee);
+    Object[] calleeRefs = callee.refRegisters == 0 ? NO_REFS : new Object[callee.refRegisters];
+    if (receiver >= 0) {
+      calleeRefs[callee.thisRegister] = instance(method, rs[receiver], code[pc + 5 + argCount]);
+    }
+    for (int i = 0; i < argCount; i++) {
+      if (callee.parameterIsInt[i]) {
+        calleeInts[callee.parameterRegisters[i]] = is[code[pc + 5 + i]];
+      } else {
+        calleeRefs[callee.parameterRegisters[i]] = rs[code[pc + 5 + i]];
+      }
+    }
+    execute(callee, calleeInts, calleeRefs);
+    int dest = code[pc + 1];
+    if (dest >= 0) {
+      if (callee.returnsInt) {
+        is[dest] = intResult;
+      } else {
+        rs[dest] = refResult;
+      }
+    }
+    return pc + 6 + argCount;
+  }
+
+  private static int[] frame(CompiledMethod method) {
+    int[] ints = new int[method.intRegisters];
+    System.arraycopy(method.constants, 0, ints, method.constantBase, method.constants.length);
+    return ints;
+  }
+
+  private static Instance instance(CompiledMethod method, Object object, int site) {
+    if (object == null) {
+      throw new ExecutionError("null reference", method.sites[site]);
+    }
+    return (Instance) object;
+  }
+
+  private static Object array(CompiledMethod method, Object array, int site) {
+    if (array == null) {
+      throw new ExecutionError("null array", method.sites[site]);
+    }
+    return array;
+  }
+
+  /**
+   * The site of an element access is its IxExpr or IxAssignStmt, which fails at the array or at the
+   * index like the interpreter does.
+   */
+  private static Object elements(CompiledMethod method, Object array, int site) {
+    if (array == null) {
+      AST node = method.sites[site];
+      throw new ExecutionError(
+          "null array", node instanceof IxExpr ? ((IxExpr) node).ref : ((IxAssignStmt) node).ref);
+    }
+    return array;
+  }
+
+  private static int size(CompiledMethod method, int size, int site) {
+    if (size < 0) {
+      throw new ExecutionError("negative array size " + size, method.sites[site]);
+    }
+    return size;
+  }
+
+  private static void checkIndex(CompiledMethod method, int index, int length, int site) {
+    if (index < 0 || index >= length) {
+      AST node = method.sites[site];
+      throw new ExecutionError(
+          "index " + index + " out of bounds for length " + length,
+          node instanceof IxExpr ? ((IxExpr) node).ixExpr : ((IxAssignStmt) node).ix);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package miniJava.IntermediateRepresentation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A straight run of instructions entered only at the top: its phis, then
+ * its instructions, then one terminator that jumps, branches or returns.
+ * The i-th operand of every phi is the value arriving from the i-th
+ * predecessor.
+ */
+public class BasicBlock {
+  public final int id;
+  public final List<Instruction> phis = new ArrayList<>();
+  public final List<Instruction> instructions = new ArrayList<>();
+  public final List<BasicBlock> predecessors = new ArrayList<>();
+  public final List<BasicBlock> successors = new ArrayList<>();
+  public Instruction terminator;
+
+  /** The immediate dominator, null for the entry block. */
+  public BasicBlock dominator;
+
+  /** The blocks this one immediately dominates. */
+  public final List<BasicBlock> dominated = new ArrayList<>();
+
+  /** Position in reverse postorder. */
+  int order;
+
+  BasicBlock(int id) {
+    this.id = id;
+  }
+
+  /** Add an instruction at the end of the block, before its terminator. */
+  public void append(Instruction instruction) {
+    instructions.add(instruction);
+    instruction.block = this;
+  }
+
+  public String toString() {
+    return "b" + id;
+  }
+}
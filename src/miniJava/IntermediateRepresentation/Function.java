@@ -0,0 +1,125 @@
+package miniJava.IntermediateRepresentation;
+
+import miniJava.AbstractSyntaxTrees.Expression;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The SSA form of one method: its reachable blocks in reverse postorder,
+ * starting with the entry block, their dominator tree and the loops of
+ * its while statements, innermost first.
+ */
+public class Function {
+  public final String name;
+  public final MethodDecl method;
+  public final BasicBlock entry;
+  public final List<BasicBlock> blocks = new ArrayList<>();
+  public final List<Loop> loops = new ArrayList<>();
+  final Map<Expression, Instruction> values = new IdentityHashMap<>();
+
+  Function(String name, MethodDecl method, BasicBlock entry) {
+    this.name = name;
+    this.method = method;
+    this.entry = entry;
+  }
+
+  /**
+   * @return the instruction built for expr, or null if it has none, like a read of a local
+   */
+  public Instruction valueOf(Expression expr) {
+    return values.get(expr);
+  }
+
+  /**
+   * @return true if every path from the entry to b goes through a
+   */
+  public boolean dominates(BasicBlock a, BasicBlock b) {
+    while (b != null && b != a) {
+      b = b.dominator;
+    }
+    return b == a;
+  }
+
+  /** Number the blocks and find immediate dominators with the Cooper-Harvey-Kennedy iteration. */
+  void computeDominators() {
+    for (int i = 0; i < blocks.size(); i++) {
+      blocks.get(i).order = i;
+      blocks.get(i).dominator = null;
+      blocks.get(i).dominated.clear();
+    }
+    entry.dominator = entry;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (BasicBlock block : blocks) {
+        if (block == entry) {
+          continue;
+        }
+        BasicBlock dominator = null;
+        for (BasicBlock predecessor : block.predecessors) {
+          if (predecessor.dominator != null) {
+            dominator = dominator == null ? predecessor : intersect(predecessor, dominator);
+          }
+        }
+        if (block.dominator != dominator) {
+          block.dominator = dominator;
+          changed = true;
+        }
+      }
+    }
+    entry.dominator = null;
+    for (BasicBlock block : blocks) {
+      if (block.dominator != null) {
+        block.dominator.dominated.add(block);
+      }
+    }
+  }
+
+  private static BasicBlock intersect(BasicBlock a, BasicBlock b) {
+    while (a != b) {
+      while (a.order > b.order) {
+        a = a.dominator;
+      }
+      while (b.order > a.order) {
+        b = b.dominator;
+      }
+    }
+    return a;
+  }
+
+  /**
+   * @return the blocks and their instructions as text, one instruction per line
+   */
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append("function ").append(name).append(" {\n");
+    for (BasicBlock block : blocks) {
+      text.append(block).append(':');
+      if (!block.predecessors.isEmpty()) {
+        text.append("  ; preds");
+        for (BasicBlock predecessor : block.predecessors) {
+          text.append(' ').append(predecessor);
+        }
+        text.append(", idom ").append(block.dominator);
+      }
+      for (Loop loop : loops) {
+        if (loop.header == block) {
+          text.append(", loop header");
+        }
+      }
+      text.append('\n');
+      for (Instruction phi : block.phis) {
+        text.append("  ").append(phi.format()).append('\n');
+      }
+      for (Instruction instruction : block.instructions) {
+        text.append("  ").append(instruction.format()).append('\n');
+      }
+      text.append("  ").append(block.terminator.format()).append('\n');
+    }
+    return text.append("}\n").toString();
+  }
+}
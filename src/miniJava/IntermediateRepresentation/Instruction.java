@@ -0,0 +1,169 @@
+package miniJava.IntermediateRepresentation;
+
+import miniJava.AbstractSyntaxTrees.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * One SSA value and the operation computing it.
+ *
+ * Operands are other instructions, and every instruction knows its
+ * users, so replacing a value updates every use at once. CONST keeps its
+ * value in constant; fields, methods, classes and parameters are named
+ * by decl. An instruction computing an expression of the AST points back
+ * to it through node, which is how optimizations are carried back into
+ * the tree.
+ */
+public class Instruction {
+  public final Opcode opcode;
+  public final int id;
+  public final List<Instruction> operands = new ArrayList<>();
+  public final List<Instruction> users = new ArrayList<>();
+  public BasicBlock block;
+  public int constant;
+  public Declaration decl;
+  public Expression node;
+
+  Instruction(Opcode opcode, int id) {
+    this.opcode = opcode;
+    this.id = id;
+  }
+
+  void addOperand(Instruction value) {
+    operands.add(value);
+    value.users.add(this);
+  }
+
+  /** Make every user of this instruction use value instead. */
+  public void replaceAllUsesWith(Instruction value) {
+    for (Instruction user : users) {
+      for (int i = 0; i < user.operands.size(); i++) {
+        if (user.operands.get(i) == this) {
+          user.operands.set(i, value);
+          value.users.add(user);
+        }
+      }
+    }
+    users.clear();
+  }
+
+  /** Take this instruction out of its block and out of the users of its operands. */
+  public void remove() {
+    for (Instruction operand : operands) {
+      operand.users.remove(this);
+    }
+    operands.clear();
+    if (block != null) {
+      if (opcode == Opcode.PHI) {
+        block.phis.remove(this);
+      } else {
+        block.instructions.remove(this);
+      }
+      block = null;
+    }
+  }
+
+  /**
+   * @return true if this computes its value from its operands alone, without failing or any other
+   *     effect, so it can be computed once for all equal instructions, or earlier than written
+   */
+  public boolean isPure() {
+    if (opcode == Opcode.DIV) {
+      Instruction divisor = operands.get(1);
+      return divisor.opcode == Opcode.CONST && divisor.constant != 0;
+    }
+    return opcode.isOperator();
+  }
+
+  public boolean hasValue() {
+    switch (opcode) {
+      case PUTFIELD:
+      case PUTSTATIC:
+      case ASTORE:
+      case PRINT:
+      case JUMP:
+      case BRANCH:
+      case RETURN:
+        return false;
+      case CALL:
+        return decl.type.typeKind != TypeKind.VOID;
+      default:
+        return true;
+    }
+  }
+
+  public String toString() {
+    return "%" + id;
+  }
+
+  /**
+   * @return the instruction as one line of text, such as "%3 = add %1, %2"
+   */
+  public String format() {
+    StringBuilder text = new StringBuilder();
+    if (hasValue()) {
+      text.append(this).append(" = ");
+    }
+    text.append(opcode.mnemonic);
+    switch (opcode) {
+      case PARAM:
+        return text.append(' ').append(decl.name).toString();
+      case CONST:
+        return text.append(' ').append(constant).toString();
+      case INVALID:
+        return text.append(' ').append(((LiteralExpr) node).lit.spelling).toString();
+      case PHI:
+        for (int i = 0; i < operands.size(); i++) {
+          text.append(i == 0 ? " [" : ", [");
+          text.append(block.predecessors.get(i)).append(' ').append(operands.get(i)).append(']');
+        }
+        return text.toString();
+      case GETFIELD:
+        return text.append(' ').append(operands.get(0)).append(" .").append(decl.name).toString();
+      case PUTFIELD:
+        return text.append(' ')
+            .append(operands.get(0))
+            .append(" .")
+            .append(decl.name)
+            .append(", ")
+            .append(operands.get(1))
+            .toString();
+      case GETSTATIC:
+        return text.append(' ').append(decl.name).toString();
+      case PUTSTATIC:
+        return text.append(' ').append(decl.name).append(", ").append(operands.get(0)).toString();
+      case NEW:
+        return text.append(' ').append(decl.name).toString();
+      case CALL:
+        {
+          MethodDecl md = (MethodDecl) decl;
+          int first = md.isStatic ? 0 : 1;
+          text.append(' ');
+          if (!md.isStatic) {
+            text.append(operands.get(0)).append('.');
+          }
+          text.append(md.name).append('(');
+          for (int i = first; i < operands.size(); i++) {
+            text.append(i == first ? "" : ", ").append(operands.get(i));
+          }
+          return text.append(')').toString();
+        }
+      case JUMP:
+        return text.append(' ').append(block.successors.get(0)).toString();
+      case BRANCH:
+        return text.append(' ')
+            .append(operands.get(0))
+            .append(", ")
+            .append(block.successors.get(0))
+            .append(", ")
+            .append(block.successors.get(1))
+            .toString();
+      default:
+        for (int i = 0; i < operands.size(); i++) {
+          text.append(i == 0 ? " " : ", ").append(operands.get(i));
+        }
+        return text.toString();
+    }
+  }
+}
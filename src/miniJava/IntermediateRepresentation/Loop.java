@@ -0,0 +1,31 @@
+package miniJava.IntermediateRepresentation;
+
+import miniJava.AbstractSyntaxTrees.WhileStmt;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/*
+ * The blocks of one while statement: the header evaluating its
+ * condition, the body, and the latch jumping back to the header. The
+ * preheader is the only way into the header from outside, so values
+ * computed there are available throughout the loop.
+ */
+public class Loop {
+  public final WhileStmt statement;
+  public final BasicBlock preheader;
+  public final BasicBlock header;
+  public final Set<BasicBlock> blocks = Collections.newSetFromMap(new IdentityHashMap<>());
+  BasicBlock latch;
+
+  Loop(WhileStmt statement, BasicBlock preheader, BasicBlock header) {
+    this.statement = statement;
+    this.preheader = preheader;
+    this.header = header;
+  }
+
+  public boolean contains(Instruction instruction) {
+    return blocks.contains(instruction.block);
+  }
+}
@@ -0,0 +1,58 @@
+package miniJava.IntermediateRepresentation;
+
+/** What an Instruction does; see Instruction.format for the operands of each. */
+public enum Opcode {
+  PARAM("param"),
+  THIS("this"),
+  CONST("const"),
+  UNDEF("undef"),
+  INVALID("invalid"),
+  PHI("phi"),
+  NEG("neg"),
+  NOT("not"),
+  ADD("add"),
+  SUB("sub"),
+  MUL("mul"),
+  DIV("div"),
+  LT("lt"),
+  LE("le"),
+  GT("gt"),
+  GE("ge"),
+  EQ("eq"),
+  NE("ne"),
+  GETFIELD("getfield"),
+  PUTFIELD("putfield"),
+  GETSTATIC("getstatic"),
+  PUTSTATIC("putstatic"),
+  ALOAD("aload"),
+  ASTORE("astore"),
+  ALEN("alen"),
+  NEW("new"),
+  NEWARRAY("newarray"),
+  CALL("call"),
+  PRINT("print"),
+  JUMP("jump"),
+  BRANCH("branch"),
+  RETURN("return");
+
+  public final String mnemonic;
+
+  Opcode(String mnemonic) {
+    this.mnemonic = mnemonic;
+  }
+
+  /**
+   * @return true for operators whose value depends on nothing but their operands
+   */
+  public boolean isOperator() {
+    return this == CONST || (ordinal() >= NEG.ordinal() && ordinal() <= NE.ordinal());
+  }
+
+  public boolean isCommutative() {
+    return this == ADD || this == MUL || this == EQ || this == NE;
+  }
+
+  public boolean isTerminator() {
+    return this == JUMP || this == BRANCH || this == RETURN;
+  }
+}
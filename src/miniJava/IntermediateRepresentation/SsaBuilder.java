@@ -0,0 +1,575 @@
+package miniJava.IntermediateRepresentation;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Build the SSA form of an analyzed method.
+ *
+ * Phis are placed while the method is translated, following Braun et
+ * al., "Simple and Efficient Construction of Static Single Assignment
+ * Form": a read of a local looks for its definition in the current block
+ * and then in its predecessors, and a block that may still get
+ * predecessors, the header of a loop whose body is being translated, gets
+ * an operandless phi that is completed when the block is sealed. Phis
+ * that turn out to merge a single value are removed as soon as they are
+ * complete.
+ *
+ * Conditions of if and while statements become branches, with && and ||
+ * short-circuiting through blocks of their own; in other expressions
+ * they also meet in a phi. Each while statement gets a preheader block
+ * of its own in front of its header. Statements after a return go to a
+ * block without predecessors, which is dropped at the end together with
+ * everything else unreachable.
+ */
+public class SsaBuilder {
+  private final StandardEnvironment environment;
+  private final Map<BasicBlock, Map<Declaration, Instruction>> definitions =
+      new IdentityHashMap<>();
+  private final Map<BasicBlock, Map<Declaration, Instruction>> incompletePhis =
+      new IdentityHashMap<>();
+  private final Set<BasicBlock> sealed = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final Map<Instruction, Instruction> replaced = new IdentityHashMap<>();
+  private final List<BasicBlock> created = new ArrayList<>();
+
+  private Function function;
+  private BasicBlock current;
+  private Instruction thisValue;
+  private int nextInstruction;
+  private int nextBlock;
+
+  public SsaBuilder(StandardEnvironment standardEnvironment) {
+    environment = standardEnvironment;
+  }
+
+  public Function build(ClassDecl cd, MethodDecl md) {
+    definitions.clear();
+    incompletePhis.clear();
+    sealed.clear();
+    replaced.clear();
+    created.clear();
+    nextInstruction = 0;
+    nextBlock = 0;
+    function = new Function(cd.name + "." + md.name, md, newBlock());
+    current = function.entry;
+    seal(current);
+    thisValue = md.isStatic ? null : emit(Opcode.THIS);
+    for (ParameterDecl pd : md.parameterDeclList) {
+      Instruction parameter = emit(Opcode.PARAM);
+      parameter.decl = pd;
+      write(pd, current, parameter);
+    }
+    for (Statement s : md.statementList) {
+      statement(s);
+    }
+    terminate(Opcode.RETURN);
+    finish();
+    return function;
+  }
+
+  // statements
+
+  private void statement(Statement stmt) {
+    if (stmt instanceof BlockStmt) {
+      for (Statement s : ((BlockStmt) stmt).sl) {
+        statement(s);
+      }
+    } else if (stmt instanceof VarDeclStmt) {
+      VarDeclStmt s = (VarDeclStmt) stmt;
+      write(s.varDecl, current, expression(s.initExp));
+    } else if (stmt instanceof AssignStmt) {
+      assign((AssignStmt) stmt);
+    } else if (stmt instanceof IxAssignStmt) {
+      IxAssignStmt s = (IxAssignStmt) stmt;
+      Instruction array = reference(s.ref, null);
+      Instruction index = expression(s.ix);
+      emit(Opcode.ASTORE, array, index, expression(s.exp));
+    } else if (stmt instanceof CallStmt) {
+      call(((CallStmt) stmt).methodRef, ((CallStmt) stmt).argList);
+    } else if (stmt instanceof ReturnStmt) {
+      Expression value = ((ReturnStmt) stmt).returnExpr;
+      if (value == null) {
+        terminate(Opcode.RETURN);
+      } else {
+        terminate(Opcode.RETURN, expression(value));
+      }
+      current = newBlock();
+      seal(current);
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      BasicBlock thenBlock = newBlock();
+      BasicBlock elseBlock = s.elseStmt == null ? null : newBlock();
+      BasicBlock join = newBlock();
+      condition(s.cond, thenBlock, elseBlock == null ? join : elseBlock);
+      seal(thenBlock);
+      current = thenBlock;
+      statement(s.thenStmt);
+      jump(join);
+      if (elseBlock != null) {
+        seal(elseBlock);
+        current = elseBlock;
+        statement(s.elseStmt);
+        jump(join);
+      }
+      seal(join);
+      current = join;
+    } else {
+      WhileStmt s = (WhileStmt) stmt;
+      BasicBlock preheader = newBlock();
+      jump(preheader);
+      seal(preheader);
+      current = preheader;
+      BasicBlock header = newBlock();
+      jump(header);
+      BasicBlock body = newBlock();
+      BasicBlock exit = newBlock();
+      current = header;
+      condition(s.cond, body, exit);
+      seal(body);
+      seal(exit);
+      current = body;
+      statement(s.body);
+      Loop loop = new Loop(s, preheader, header);
+      loop.latch = current;
+      function.loops.add(loop);
+      jump(header);
+      seal(header);
+      current = exit;
+    }
+  }
+
+  private void assign(AssignStmt stmt) {
+    Declaration decl = stmt.ref.decl;
+    if (decl instanceof LocalDecl) {
+      write(decl, current, expression(stmt.val));
+    } else if (((FieldDecl) decl).isStatic) {
+      emit(Opcode.PUTSTATIC, expression(stmt.val)).decl = decl;
+    } else {
+      Instruction object =
+          stmt.ref instanceof QualRef ? reference(((QualRef) stmt.ref).ref, null) : thisValue;
+      emit(Opcode.PUTFIELD, object, expression(stmt.val)).decl = decl;
+    }
+  }
+
+  // conditions
+
+  /** Branch to ifTrue or ifFalse on the value of cond, leaving the current block terminated. */
+  private void condition(Expression cond, BasicBlock ifTrue, BasicBlock ifFalse) {
+    if (cond instanceof LiteralExpr && ((LiteralExpr) cond).lit instanceof BooleanLiteral) {
+      jump(((LiteralExpr) cond).lit.spelling.equals("true") ? ifTrue : ifFalse);
+      return;
+    }
+    if (cond instanceof UnaryExpr && ((UnaryExpr) cond).operator.operatorKind == OperatorKind.NOT) {
+      condition(((UnaryExpr) cond).expr, ifFalse, ifTrue);
+      return;
+    }
+    if (cond instanceof BinaryExpr) {
+      BinaryExpr expr = (BinaryExpr) cond;
+      OperatorKind operator = expr.operator.operatorKind;
+      if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+        BasicBlock right = newBlock();
+        if (operator == OperatorKind.AND) {
+          condition(expr.left, right, ifFalse);
+        } else {
+          condition(expr.left, ifTrue, right);
+        }
+        seal(right);
+        current = right;
+        condition(expr.right, ifTrue, ifFalse);
+        return;
+      }
+    }
+    Instruction value = expression(cond);
+    terminate(Opcode.BRANCH, value);
+    link(current, ifTrue);
+    link(current, ifFalse);
+  }
+
+  // expressions
+
+  private Instruction expression(Expression expr) {
+    Instruction value;
+    if (expr instanceof LiteralExpr) {
+      Terminal lit = ((LiteralExpr) expr).lit;
+      if (lit instanceof BooleanLiteral) {
+        value = constant(lit.spelling.equals("true") ? 1 : 0);
+      } else {
+        try {
+          value = constant(Integer.parseInt(lit.spelling));
+        } catch (NumberFormatException e) {
+          value = emit(Opcode.INVALID);
+        }
+      }
+    } else if (expr instanceof UnaryExpr) {
+      UnaryExpr e = (UnaryExpr) expr;
+      Opcode opcode = e.operator.operatorKind == OperatorKind.NOT ? Opcode.NOT : Opcode.NEG;
+      value = emit(opcode, expression(e.expr));
+    } else if (expr instanceof BinaryExpr) {
+      BinaryExpr e = (BinaryExpr) expr;
+      OperatorKind operator = e.operator.operatorKind;
+      if (operator == OperatorKind.AND || operator == OperatorKind.OR) {
+        return shortCircuit(e, operator == OperatorKind.AND);
+      }
+      Instruction left = expression(e.left);
+      value = emit(opcode(operator), left, expression(e.right));
+    } else if (expr instanceof RefExpr) {
+      return reference(((RefExpr) expr).ref, expr);
+    } else if (expr instanceof IxExpr) {
+      IxExpr e = (IxExpr) expr;
+      Instruction array = reference(e.ref, null);
+      value = emit(Opcode.ALOAD, array, expression(e.ixExpr));
+    } else if (expr instanceof CallExpr) {
+      value = call(((CallExpr) expr).functionRef, ((CallExpr) expr).argList);
+    } else if (expr instanceof NewObjectExpr) {
+      value = emit(Opcode.NEW);
+      value.decl = ((NewObjectExpr) expr).classtype.className.decl;
+    } else {
+      value = emit(Opcode.NEWARRAY, expression(((NewArrayExpr) expr).sizeExpr));
+    }
+    return record(value, expr);
+  }
+
+  /** Evaluate a && b or a || b for its value, which is constant on the short-circuit path. */
+  private Instruction shortCircuit(BinaryExpr expr, boolean isAnd) {
+    BasicBlock right = newBlock();
+    BasicBlock join = newBlock();
+    Instruction left = expression(expr.left);
+    Instruction shortValue = constant(isAnd ? 0 : 1);
+    BasicBlock leftEnd = current;
+    terminate(Opcode.BRANCH, left);
+    link(current, isAnd ? right : join);
+    link(current, isAnd ? join : right);
+    seal(right);
+    current = right;
+    Instruction rightValue = expression(expr.right);
+    jump(join);
+    seal(join);
+    current = join;
+    Instruction phi = newPhi(join);
+    for (BasicBlock predecessor : join.predecessors) {
+      phi.addOperand(predecessor == leftEnd ? shortValue : rightValue);
+    }
+    return phi;
+  }
+
+  private static Opcode opcode(OperatorKind operator) {
+    switch (operator) {
+      case PLUS:
+        return Opcode.ADD;
+      case MINUS:
+        return Opcode.SUB;
+      case TIMES:
+        return Opcode.MUL;
+      case DIVIDE:
+        return Opcode.DIV;
+      case LESS_THAN:
+        return Opcode.LT;
+      case LESS_EQUAL:
+        return Opcode.LE;
+      case GREATER_THAN:
+        return Opcode.GT;
+      case GREATER_EQUAL:
+        return Opcode.GE;
+      case EQUAL:
+        return Opcode.EQ;
+      default:
+        return Opcode.NE;
+    }
+  }
+
+  /**
+   * @param expr the expression the reference is read for, if any
+   * @return the value the reference denotes
+   */
+  private Instruction reference(Reference ref, Expression expr) {
+    Declaration decl = ref.decl;
+    if (ref instanceof ThisRef) {
+      return thisValue;
+    } else if (decl instanceof LocalDecl) {
+      return read(decl, current);
+    }
+    Instruction value;
+    if (decl == environment.arrayLength) {
+      value = emit(Opcode.ALEN, reference(((QualRef) ref).ref, null));
+    } else if (((FieldDecl) decl).isStatic) {
+      value = emit(Opcode.GETSTATIC);
+    } else if (ref instanceof QualRef) {
+      value = emit(Opcode.GETFIELD, reference(((QualRef) ref).ref, null));
+    } else {
+      value = emit(Opcode.GETFIELD, thisValue);
+    }
+    if (decl != environment.arrayLength) {
+      value.decl = decl;
+    }
+    return expr == null ? value : record(value, expr);
+  }
+
+  private Instruction call(Reference methodRef, ExprList args) {
+    MethodDecl md = (MethodDecl) methodRef.decl;
+    if (md == environment.println) {
+      return emit(Opcode.PRINT, expression(args.get(0)));
+    }
+    List<Instruction> operands = new ArrayList<>();
+    if (!md.isStatic) {
+      operands.add(
+          methodRef instanceof QualRef ? reference(((QualRef) methodRef).ref, null) : thisValue);
+    }
+    for (Expression e : args) {
+      operands.add(expression(e));
+    }
+    Instruction call = emit(Opcode.CALL, operands.toArray(new Instruction[0]));
+    call.decl = md;
+    return call;
+  }
+
+  private Instruction record(Instruction value, Expression expr) {
+    value.node = expr;
+    function.values.put(expr, value);
+    return value;
+  }
+
+  // locals
+
+  private void write(Declaration local, BasicBlock block, Instruction value) {
+    definitions.computeIfAbsent(block, b -> new IdentityHashMap<>()).put(local, value);
+  }
+
+  private Instruction read(Declaration local, BasicBlock block) {
+    Map<Declaration, Instruction> defined = definitions.get(block);
+    if (defined != null && defined.containsKey(local)) {
+      return resolve(defined.get(local));
+    }
+    Instruction value;
+    if (!sealed.contains(block)) {
+      value = newPhi(block);
+      incompletePhis.computeIfAbsent(block, b -> new IdentityHashMap<>()).put(local, value);
+    } else if (block.predecessors.size() == 1) {
+      value = read(local, block.predecessors.get(0));
+    } else if (block.predecessors.isEmpty()) {
+      value = undefined(block);
+    } else {
+      Instruction phi = newPhi(block);
+      write(local, block, phi);
+      value = addPhiOperands(local, phi);
+    }
+    write(local, block, value);
+    return value;
+  }
+
+  private Instruction addPhiOperands(Declaration local, Instruction phi) {
+    for (BasicBlock predecessor : phi.block.predecessors) {
+      phi.addOperand(read(local, predecessor));
+    }
+    return removeTrivialPhi(phi);
+  }
+
+  /**
+   * @return the only value other than itself that phi merges, which replaces it, or phi if there
+   *     are more
+   */
+  private Instruction removeTrivialPhi(Instruction phi) {
+    Instruction same = null;
+    for (Instruction operand : phi.operands) {
+      if (operand == same || operand == phi) {
+        continue;
+      }
+      if (same != null) {
+        return phi;
+      }
+      same = operand;
+    }
+    if (same == null) {
+      same = undefined(phi.block);
+    }
+    List<Instruction> users = new ArrayList<>(phi.users);
+    phi.replaceAllUsesWith(same);
+    phi.remove();
+    replaced.put(phi, same);
+    for (Instruction user : users) {
+      if (user != phi && user.opcode == Opcode.PHI && user.block != null) {
+        removeTrivialPhi(user);
+      }
+    }
+    return same;
+  }
+
+  private Instruction resolve(Instruction value) {
+    while (replaced.containsKey(value)) {
+      value = replaced.get(value);
+    }
+    return value;
+  }
+
+  private void seal(BasicBlock block) {
+    Map<Declaration, Instruction> phis = incompletePhis.remove(block);
+    if (phis != null) {
+      for (Map.Entry<Declaration, Instruction> entry : phis.entrySet()) {
+        addPhiOperands(entry.getKey(), entry.getValue());
+      }
+    }
+    sealed.add(block);
+  }
+
+  // blocks and instructions
+
+  private BasicBlock newBlock() {
+    BasicBlock block = new BasicBlock(nextBlock++);
+    created.add(block);
+    return block;
+  }
+
+  private Instruction emit(Opcode opcode, Instruction... operands) {
+    Instruction instruction = new Instruction(opcode, nextInstruction++);
+    for (Instruction operand : operands) {
+      instruction.addOperand(operand);
+    }
+    current.append(instruction);
+    return instruction;
+  }
+
+  private Instruction constant(int value) {
+    Instruction constant = emit(Opcode.CONST);
+    constant.constant = value;
+    return constant;
+  }
+
+  private Instruction undefined(BasicBlock block) {
+    Instruction undefined = new Instruction(Opcode.UNDEF, nextInstruction++);
+    block.append(undefined);
+    return undefined;
+  }
+
+  private Instruction newPhi(BasicBlock block) {
+    Instruction phi = new Instruction(Opcode.PHI, nextInstruction++);
+    phi.block = block;
+    block.phis.add(phi);
+    return phi;
+  }
+
+  private void terminate(Opcode opcode, Instruction... operands) {
+    Instruction terminator = new Instruction(opcode, nextInstruction++);
+    for (Instruction operand : operands) {
+      terminator.addOperand(operand);
+    }
+    terminator.block = current;
+    current.terminator = terminator;
+  }
+
+  private void jump(BasicBlock target) {
+    terminate(Opcode.JUMP);
+    link(current, target);
+  }
+
+  private static void link(BasicBlock from, BasicBlock to) {
+    from.successors.add(to);
+    to.predecessors.add(from);
+  }
+
+  // finishing
+
+  /**
+   * Drop the unreachable blocks, then order the rest, find their dominators and the blocks of each
+   * loop.
+   */
+  private void finish() {
+    Set<BasicBlock> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<BasicBlock> postorder = new ArrayList<>();
+    postorder(function.entry, reachable, postorder);
+    for (BasicBlock block : created) {
+      if (!reachable.contains(block)) {
+        for (Instruction phi : new ArrayList<>(block.phis)) {
+          phi.remove();
+        }
+        for (Instruction instruction : new ArrayList<>(block.instructions)) {
+          instruction.remove();
+        }
+        block.terminator.remove();
+        continue;
+      }
+      for (int i = block.predecessors.size() - 1; i >= 0; i--) {
+        if (!reachable.contains(block.predecessors.get(i))) {
+          block.predecessors.remove(i);
+          for (Instruction phi : block.phis) {
+            Instruction operand = phi.operands.remove(i);
+            operand.users.remove(phi);
+          }
+        }
+      }
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int i = postorder.size() - 1; i >= 0; i--) {
+        for (Instruction phi : new ArrayList<>(postorder.get(i).phis)) {
+          if (phi.block != null && removeTrivialPhi(phi) != phi) {
+            changed = true;
+          }
+        }
+      }
+    }
+    for (int i = postorder.size() - 1; i >= 0; i--) {
+      function.blocks.add(postorder.get(i));
+    }
+    function.computeDominators();
+    List<Loop> loops = new ArrayList<>();
+    for (Loop loop : function.loops) {
+      if (reachable.contains(loop.latch) && reachable.contains(loop.header)) {
+        collect(loop);
+        loops.add(loop);
+      }
+    }
+    loops.sort((a, b) -> Integer.compare(a.blocks.size(), b.blocks.size()));
+    function.loops.clear();
+    function.loops.addAll(loops);
+  }
+
+  /** Successors are visited last to first, so the first comes first in reverse postorder. */
+  private static void postorder(
+      BasicBlock start, Set<BasicBlock> visited, List<BasicBlock> postorder) {
+    Deque<BasicBlock> stack = new ArrayDeque<>();
+    Deque<Integer> next = new ArrayDeque<>();
+    visited.add(start);
+    stack.push(start);
+    next.push(start.successors.size());
+    while (!stack.isEmpty()) {
+      BasicBlock block = stack.peek();
+      int i = next.pop();
+      if (i > 0) {
+        next.push(i - 1);
+        BasicBlock successor = block.successors.get(i - 1);
+        if (visited.add(successor)) {
+          stack.push(successor);
+          next.push(successor.successors.size());
+        }
+      } else {
+        stack.pop();
+        postorder.add(block);
+      }
+    }
+  }
+
+  /** The natural loop: the header and every block that reaches the latch without passing it. */
+  private static void collect(Loop loop) {
+    loop.blocks.add(loop.header);
+    Deque<BasicBlock> work = new ArrayDeque<>();
+    if (loop.blocks.add(loop.latch)) {
+      work.push(loop.latch);
+    }
+    while (!work.isEmpty()) {
+      for (BasicBlock predecessor : work.pop().predecessors) {
+        if (loop.blocks.add(predecessor)) {
+          work.push(predecessor);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package miniJava;
+
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+
+import java.util.Arrays;
+
+public class NameTable {
+  public static final int NO_SYMBOL = -1;
+
+  static final int INITIAL_CAPACITY = 256;
+
+  String[] names;
+  int[] hashes;
+  int[] slots;
+  int size = 0;
+
+  public NameTable() {
+    names = new String[INITIAL_CAPACITY];
+    hashes = new int[INITIAL_CAPACITY];
+    slots = new int[INITIAL_CAPACITY * 2];
+  }
+
+  public int intern(String name) {
+    int hash = name.hashCode();
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int symbol = slots[slot] - 1;
+      if (symbol == NO_SYMBOL) {
+        return add(name, hash, slot);
+      }
+      if (hashes[symbol] == hash && names[symbol].equals(name)) {
+        return symbol;
+      }
+    }
+  }
+
+  public int intern(SourceBuffer source, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + source.charAt(i);
+    }
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int symbol = slots[slot] - 1;
+      if (symbol == NO_SYMBOL) {
+        return add(source.substring(start, end), hash, slot);
+      }
+      if (hashes[symbol] == hash && source.regionMatches(start, end, names[symbol])) {
+        return symbol;
+      }
+    }
+  }
+
+  public String getName(int symbol) {
+    return names[symbol];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private int add(String name, int hash, int slot) {
+    if (size == names.length) {
+      names = Arrays.copyOf(names, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    int symbol = size++;
+    names[symbol] = name;
+    hashes[symbol] = hash;
+    slots[slot] = symbol + 1;
+    if (size * 2 > slots.length) {
+      rehash();
+    }
+    return symbol;
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    int mask = slots.length - 1;
+    for (int symbol = 0; symbol < size; symbol++) {
+      int slot = hashes[symbol] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = symbol + 1;
+    }
+  }
+}
@@ -0,0 +1,396 @@
+package miniJava.Optimization;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+/*
+ * Fold constant subexpressions of an analyzed program in place.
+ *
+ * Operators whose operands are all int or boolean literals are replaced
+ * by a literal of the result, with Java's wrapping int arithmetic; a
+ * division by a zero literal is left alone so it still fails at run time,
+ * and so is a literal too large for an int. Identities that keep the
+ * other operand's value and side effects are applied as well: x + 0,
+ * x - 0, x * 1, x / 1, b && true, b || false, the constant-first forms
+ * of these, false && b, true || b, !!b and -(-x). An if statement with a
+ * literal condition becomes the branch it would take, and while (false)
+ * disappears.
+ *
+ * Every visitor returns the node that replaces the one visited, or null
+ * for a statement that disappears. A new literal takes its type from the
+ * expression it replaces, so the result can go straight to any backend.
+ */
+public class ConstantFolder implements Visitor<Object, AST> {
+  private int eliminated;
+
+  /**
+   * @return the number of AST nodes removed from the program
+   */
+  public int fold(Package prog) {
+    eliminated = 0;
+    prog.visit(this, null);
+    return eliminated;
+  }
+
+  public int getEliminated() {
+    return eliminated;
+  }
+
+  // declarations
+
+  public AST visitPackage(Package prog, Object arg) {
+    for (ClassDecl cd : prog.classDeclList) {
+      cd.visit(this, null);
+    }
+    return prog;
+  }
+
+  public AST visitClassDecl(ClassDecl cd, Object arg) {
+    for (MethodDecl md : cd.methodDeclList) {
+      md.visit(this, null);
+    }
+    return cd;
+  }
+
+  public AST visitFieldDecl(FieldDecl fd, Object arg) {
+    return fd;
+  }
+
+  public AST visitMethodDecl(MethodDecl md, Object arg) {
+    md.statementList = fold(md.statementList);
+    return md;
+  }
+
+  public AST visitParameterDecl(ParameterDecl pd, Object arg) {
+    return pd;
+  }
+
+  public AST visitVarDecl(VarDecl decl, Object arg) {
+    return decl;
+  }
+
+  // types
+
+  public AST visitBaseType(BaseType type, Object arg) {
+    return type;
+  }
+
+  public AST visitClassType(ClassType type, Object arg) {
+    return type;
+  }
+
+  public AST visitArrayType(ArrayType type, Object arg) {
+    return type;
+  }
+
+  // statements
+
+  public AST visitBlockStmt(BlockStmt stmt, Object arg) {
+    stmt.sl = fold(stmt.sl);
+    return stmt;
+  }
+
+  public AST visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+    stmt.initExp = fold(stmt.initExp);
+    return stmt;
+  }
+
+  public AST visitAssignStmt(AssignStmt stmt, Object arg) {
+    stmt.val = fold(stmt.val);
+    return stmt;
+  }
+
+  public AST visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+    stmt.ix = fold(stmt.ix);
+    stmt.exp = fold(stmt.exp);
+    return stmt;
+  }
+
+  public AST visitCallStmt(CallStmt stmt, Object arg) {
+    fold(stmt.argList);
+    return stmt;
+  }
+
+  public AST visitReturnStmt(ReturnStmt stmt, Object arg) {
+    if (stmt.returnExpr != null) {
+      stmt.returnExpr = fold(stmt.returnExpr);
+    }
+    return stmt;
+  }
+
+  public AST visitIfStmt(IfStmt stmt, Object arg) {
+    stmt.cond = fold(stmt.cond);
+    Boolean cond = booleanValue(stmt.cond);
+    if (cond != null) {
+      Statement taken = cond ? stmt.thenStmt : stmt.elseStmt;
+      eliminated += NodeCounter.count(stmt) - NodeCounter.count(taken);
+      return taken == null ? null : fold(taken);
+    }
+    stmt.thenStmt = branch(stmt.thenStmt);
+    if (stmt.elseStmt != null) {
+      stmt.elseStmt = fold(stmt.elseStmt);
+    }
+    return stmt;
+  }
+
+  public AST visitWhileStmt(WhileStmt stmt, Object arg) {
+    stmt.cond = fold(stmt.cond);
+    if (Boolean.FALSE.equals(booleanValue(stmt.cond))) {
+      eliminated += NodeCounter.count(stmt);
+      return null;
+    }
+    stmt.body = branch(stmt.body);
+    return stmt;
+  }
+
+  // expressions
+
+  public AST visitUnaryExpr(UnaryExpr expr, Object arg) {
+    expr.expr = fold(expr.expr);
+    OperatorKind operator = expr.operator.operatorKind;
+    Expression result = expr;
+    if (expr.expr instanceof UnaryExpr
+        && ((UnaryExpr) expr.expr).operator.operatorKind == operator) {
+      result = ((UnaryExpr) expr.expr).expr;
+    } else if (operator == OperatorKind.NOT) {
+      Boolean value = booleanValue(expr.expr);
+      if (value != null) {
+        result = literal(!value, expr);
+      }
+    } else {
+      Integer value = intValue(expr.expr);
+      if (value != null) {
+        result = literal(-value, expr);
+      }
+    }
+    return replace(expr, result);
+  }
+
+  public AST visitBinaryExpr(BinaryExpr expr, Object arg) {
+    expr.left = fold(expr.left);
+    expr.right = fold(expr.right);
+    OperatorKind operator = expr.operator.operatorKind;
+    Expression result = expr;
+    switch (operator) {
+      case AND:
+      case OR:
+        {
+          boolean identity = operator == OperatorKind.AND;
+          Boolean left = booleanValue(expr.left);
+          Boolean right = booleanValue(expr.right);
+          if (left != null) {
+            result = left == identity ? expr.right : expr.left;
+          } else if (right != null && right == identity) {
+            result = expr.left;
+          }
+          break;
+        }
+      case EQUAL:
+      case NOT_EQUAL:
+        {
+          Object left = value(expr.left);
+          Object right = value(expr.right);
+          if (left != null && right != null) {
+            result = literal(left.equals(right) == (operator == OperatorKind.EQUAL), expr);
+          }
+          break;
+        }
+      default:
+        {
+          Integer left = intValue(expr.left);
+          Integer right = intValue(expr.right);
+          if (left != null && right != null) {
+            result = fold(operator, left, right, expr);
+          } else if (right != null) {
+            if (right == 0 && (operator == OperatorKind.PLUS || operator == OperatorKind.MINUS)
+                || right == 1
+                    && (operator == OperatorKind.TIMES || operator == OperatorKind.DIVIDE)) {
+              result = expr.left;
+            }
+          } else if (left != null) {
+            if (left == 0 && operator == OperatorKind.PLUS
+                || left == 1 && operator == OperatorKind.TIMES) {
+              result = expr.right;
+            }
+          }
+        }
+    }
+    return replace(expr, result);
+  }
+
+  public AST visitRefExpr(RefExpr expr, Object arg) {
+    return expr;
+  }
+
+  public AST visitIxExpr(IxExpr expr, Object arg) {
+    expr.ixExpr = fold(expr.ixExpr);
+    return expr;
+  }
+
+  public AST visitCallExpr(CallExpr expr, Object arg) {
+    fold(expr.argList);
+    return expr;
+  }
+
+  public AST visitLiteralExpr(LiteralExpr expr, Object arg) {
+    return expr;
+  }
+
+  public AST visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+    return expr;
+  }
+
+  public AST visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+    expr.sizeExpr = fold(expr.sizeExpr);
+    return expr;
+  }
+
+  // references
+
+  public AST visitThisRef(ThisRef ref, Object arg) {
+    return ref;
+  }
+
+  public AST visitIdRef(IdRef ref, Object arg) {
+    return ref;
+  }
+
+  public AST visitQRef(QualRef ref, Object arg) {
+    return ref;
+  }
+
+  // terminals
+
+  public AST visitIdentifier(Identifier id, Object arg) {
+    return id;
+  }
+
+  public AST visitOperator(Operator op, Object arg) {
+    return op;
+  }
+
+  public AST visitIntLiteral(IntLiteral num, Object arg) {
+    return num;
+  }
+
+  public AST visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+    return bool;
+  }
+
+  // helpers
+
+  private StatementList fold(StatementList sl) {
+    StatementList folded = new StatementList();
+    for (Statement s : sl) {
+      Statement result = fold(s);
+      if (result != null) {
+        folded.add(result);
+      }
+    }
+    return folded;
+  }
+
+  private Statement fold(Statement stmt) {
+    return (Statement) stmt.visit(this, null);
+  }
+
+  /** Fold the only statement of an if or while, which cannot disappear altogether. */
+  private Statement branch(Statement stmt) {
+    Statement result = fold(stmt);
+    if (result == null) {
+      eliminated--;
+      return new BlockStmt(new StatementList(), stmt.offset);
+    }
+    return result;
+  }
+
+  private void fold(ExprList el) {
+    for (int i = 0; i < el.size(); i++) {
+      el.set(i, fold(el.get(i)));
+    }
+  }
+
+  private Expression fold(Expression expr) {
+    return (Expression) expr.visit(this, null);
+  }
+
+  private Expression replace(Expression expr, Expression result) {
+    if (result != expr) {
+      eliminated += NodeCounter.count(expr) - NodeCounter.count(result);
+    }
+    return result;
+  }
+
+  /**
+   * @return the literal for left op right, or expr if the operation must happen at run time
+   */
+  private Expression fold(OperatorKind operator, int left, int right, Expression expr) {
+    switch (operator) {
+      case PLUS:
+        return literal(left + right, expr);
+      case MINUS:
+        return literal(left - right, expr);
+      case TIMES:
+        return literal(left * right, expr);
+      case DIVIDE:
+        return right == 0 ? expr : literal(left / right, expr);
+      case LESS_THAN:
+        return literal(left < right, expr);
+      case LESS_EQUAL:
+        return literal(left <= right, expr);
+      case GREATER_THAN:
+        return literal(left > right, expr);
+      case GREATER_EQUAL:
+        return literal(left >= right, expr);
+      default:
+        return expr;
+    }
+  }
+
+  private static Object value(Expression expr) {
+    Integer value = intValue(expr);
+    return value != null ? value : booleanValue(expr);
+  }
+
+  /**
+   * @return the value of an int literal that fits in an int, otherwise null
+   */
+  static Integer intValue(Expression expr) {
+    if (expr instanceof LiteralExpr && ((LiteralExpr) expr).lit instanceof IntLiteral) {
+      try {
+        return Integer.parseInt(((LiteralExpr) expr).lit.spelling);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the value of a boolean literal, otherwise null
+   */
+  static Boolean booleanValue(Expression expr) {
+    if (expr instanceof LiteralExpr && ((LiteralExpr) expr).lit instanceof BooleanLiteral) {
+      return ((LiteralExpr) expr).lit.spelling.equals("true");
+    }
+    return null;
+  }
+
+  private static Expression literal(int value, Expression like) {
+    LiteralExpr expr =
+        new LiteralExpr(
+            new IntLiteral(TokenType.INT_LITERAL, Integer.toString(value), like.offset),
+            like.offset);
+    expr.type = like.type;
+    return expr;
+  }
+
+  private static Expression literal(boolean value, Expression like) {
+    TokenType kind = value ? TokenType.TRUE : TokenType.FALSE;
+    LiteralExpr expr =
+        new LiteralExpr(new BooleanLiteral(kind, kind.getSpelling(), like.offset), like.offset);
+    expr.type = like.type;
+    return expr;
+  }
+}
@@ -0,0 +1,99 @@
+package miniJava.Optimization;
+
+import miniJava.AbstractSyntaxTrees.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The control flow of one method, one node per statement.
+ *
+ * A simple statement flows to the statement after it, a block to its
+ * first statement, a return to the exit node, an if to its branches and
+ * a while to its body and the statement after it; the end of a loop body
+ * flows back to the while. A branch that a literal condition never takes
+ * gets no edge, so its statements, and everything after a while (true),
+ * are unreachable from the entry.
+ */
+class ControlFlowGraph {
+  static class Node {
+    final Statement stmt;
+    final List<Node> successors = new ArrayList<>();
+
+    Node(Statement stmt) {
+      this.stmt = stmt;
+    }
+  }
+
+  private final Map<Statement, Node> nodes = new IdentityHashMap<>();
+  private final Set<Node> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final Node exit = new Node(null);
+
+  ControlFlowGraph(MethodDecl md) {
+    Node entry = build(md.statementList, exit);
+    Deque<Node> work = new ArrayDeque<>();
+    work.push(entry);
+    while (!work.isEmpty()) {
+      Node node = work.pop();
+      if (reachable.add(node)) {
+        for (Node successor : node.successors) {
+          work.push(successor);
+        }
+      }
+    }
+  }
+
+  boolean isReachable(Statement stmt) {
+    return reachable.contains(nodes.get(stmt));
+  }
+
+  /**
+   * @return the node control reaches at the start of sl, which continues at next
+   */
+  private Node build(StatementList sl, Node next) {
+    for (int i = sl.size() - 1; i >= 0; i--) {
+      next = build(sl.get(i), next);
+    }
+    return next;
+  }
+
+  private Node build(Statement stmt, Node next) {
+    Node node = new Node(stmt);
+    nodes.put(stmt, node);
+    if (stmt instanceof BlockStmt) {
+      node.successors.add(build(((BlockStmt) stmt).sl, next));
+    } else if (stmt instanceof ReturnStmt) {
+      node.successors.add(exit);
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      Boolean cond = ConstantFolder.booleanValue(s.cond);
+      Node thenNode = build(s.thenStmt, next);
+      Node elseNode = s.elseStmt == null ? next : build(s.elseStmt, next);
+      if (!Boolean.FALSE.equals(cond)) {
+        node.successors.add(thenNode);
+      }
+      if (!Boolean.TRUE.equals(cond)) {
+        node.successors.add(elseNode);
+      }
+    } else if (stmt instanceof WhileStmt) {
+      WhileStmt s = (WhileStmt) stmt;
+      Boolean cond = ConstantFolder.booleanValue(s.cond);
+      Node body = build(s.body, node);
+      if (!Boolean.FALSE.equals(cond)) {
+        node.successors.add(body);
+      }
+      if (!Boolean.TRUE.equals(cond)) {
+        node.successors.add(next);
+      }
+    } else {
+      node.successors.add(next);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,280 @@
+package miniJava.Optimization;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/*
+ * Remove the statements of an analyzed program that never run, and the
+ * locals that are never read.
+ *
+ * Reachability comes from a ControlFlowGraph of each method: statements
+ * after a return or a while (true), branches a literal condition never
+ * takes and the bodies of while (false) are dropped, and so are if and
+ * while statements left with nothing to run. A local that is never read
+ * is dropped with every assignment to it, as long as its initializer and
+ * all assigned values are pure: they can neither fail nor print, so
+ * skipping them changes nothing but the time taken. Dropping one local
+ * can leave others unread, so this repeats until nothing changes.
+ */
+public class DeadCodeEliminator {
+  private int eliminated;
+  private ControlFlowGraph graph;
+  private Set<Declaration> read;
+  private Set<Declaration> impure;
+  private Set<Declaration> unused;
+
+  /**
+   * @return the number of AST nodes removed from the program
+   */
+  public int eliminate(Package prog) {
+    eliminated = 0;
+    for (ClassDecl cd : prog.classDeclList) {
+      for (MethodDecl md : cd.methodDeclList) {
+        eliminate(md);
+      }
+    }
+    return eliminated;
+  }
+
+  public int getEliminated() {
+    return eliminated;
+  }
+
+  private void eliminate(MethodDecl md) {
+    graph = new ControlFlowGraph(md);
+    md.statementList = reachable(md.statementList);
+    graph = null;
+    while (findUnusedLocals(md)) {
+      md.statementList = used(md.statementList);
+    }
+  }
+
+  // unreachable statements
+
+  private StatementList reachable(StatementList sl) {
+    StatementList result = new StatementList();
+    for (Statement s : sl) {
+      Statement r = reachable(s);
+      if (r != null) {
+        result.add(r);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return what is left of stmt once its unreachable parts are removed, or null for nothing
+   */
+  private Statement reachable(Statement stmt) {
+    if (!graph.isReachable(stmt)) {
+      eliminated += NodeCounter.count(stmt);
+      return null;
+    }
+    if (stmt instanceof BlockStmt) {
+      ((BlockStmt) stmt).sl = reachable(((BlockStmt) stmt).sl);
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      boolean thenReached = graph.isReachable(s.thenStmt);
+      boolean elseReached = s.elseStmt != null && graph.isReachable(s.elseStmt);
+      if (!thenReached) {
+        // the condition is the literal false
+        eliminated += NodeCounter.count(stmt) - NodeCounter.count(s.elseStmt);
+        return elseReached ? reachable(s.elseStmt) : null;
+      } else if (s.elseStmt != null && !elseReached || s.elseStmt == null && isLiteral(s.cond)) {
+        // the condition is the literal true
+        eliminated += NodeCounter.count(stmt) - NodeCounter.count(s.thenStmt);
+        return reachable(s.thenStmt);
+      }
+      s.thenStmt = branch(reachable(s.thenStmt), s.thenStmt);
+      if (s.elseStmt != null) {
+        s.elseStmt = reachable(s.elseStmt);
+      }
+    } else if (stmt instanceof WhileStmt) {
+      WhileStmt s = (WhileStmt) stmt;
+      if (!graph.isReachable(s.body)) {
+        eliminated += NodeCounter.count(stmt);
+        return null;
+      }
+      s.body = branch(reachable(s.body), s.body);
+    }
+    return stmt;
+  }
+
+  /** The only statement of an if or while, which cannot disappear altogether. */
+  private Statement branch(Statement result, Statement stmt) {
+    if (result == null) {
+      eliminated--;
+      return new BlockStmt(new StatementList(), stmt.offset);
+    }
+    return result;
+  }
+
+  private static boolean isLiteral(Expression expr) {
+    return ConstantFolder.booleanValue(expr) != null;
+  }
+
+  // unused locals
+
+  /**
+   * @return true if md declares locals that can be removed, which are then in unused
+   */
+  private boolean findUnusedLocals(MethodDecl md) {
+    read = Collections.newSetFromMap(new IdentityHashMap<>());
+    impure = Collections.newSetFromMap(new IdentityHashMap<>());
+    unused = Collections.newSetFromMap(new IdentityHashMap<>());
+    scan(md.statementList);
+    unused.removeAll(read);
+    unused.removeAll(impure);
+    return !unused.isEmpty();
+  }
+
+  private void scan(StatementList sl) {
+    for (Statement s : sl) {
+      scan(s);
+    }
+  }
+
+  private void scan(Statement stmt) {
+    if (stmt instanceof BlockStmt) {
+      scan(((BlockStmt) stmt).sl);
+    } else if (stmt instanceof VarDeclStmt) {
+      VarDeclStmt s = (VarDeclStmt) stmt;
+      (isPure(s.initExp) ? unused : impure).add(s.varDecl);
+      scan(s.initExp);
+    } else if (stmt instanceof AssignStmt) {
+      AssignStmt s = (AssignStmt) stmt;
+      if (s.ref instanceof IdRef) {
+        if (!isPure(s.val)) {
+          impure.add(s.ref.decl);
+        }
+      } else {
+        scan(s.ref);
+      }
+      scan(s.val);
+    } else if (stmt instanceof IxAssignStmt) {
+      IxAssignStmt s = (IxAssignStmt) stmt;
+      scan(s.ref);
+      scan(s.ix);
+      scan(s.exp);
+    } else if (stmt instanceof CallStmt) {
+      scan(((CallStmt) stmt).methodRef);
+      scan(((CallStmt) stmt).argList);
+    } else if (stmt instanceof ReturnStmt) {
+      if (((ReturnStmt) stmt).returnExpr != null) {
+        scan(((ReturnStmt) stmt).returnExpr);
+      }
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      scan(s.cond);
+      scan(s.thenStmt);
+      if (s.elseStmt != null) {
+        scan(s.elseStmt);
+      }
+    } else {
+      scan(((WhileStmt) stmt).cond);
+      scan(((WhileStmt) stmt).body);
+    }
+  }
+
+  private void scan(Expression expr) {
+    if (expr instanceof UnaryExpr) {
+      scan(((UnaryExpr) expr).expr);
+    } else if (expr instanceof BinaryExpr) {
+      scan(((BinaryExpr) expr).left);
+      scan(((BinaryExpr) expr).right);
+    } else if (expr instanceof RefExpr) {
+      scan(((RefExpr) expr).ref);
+    } else if (expr instanceof IxExpr) {
+      scan(((IxExpr) expr).ref);
+      scan(((IxExpr) expr).ixExpr);
+    } else if (expr instanceof CallExpr) {
+      scan(((CallExpr) expr).functionRef);
+      scan(((CallExpr) expr).argList);
+    } else if (expr instanceof NewArrayExpr) {
+      scan(((NewArrayExpr) expr).sizeExpr);
+    }
+  }
+
+  private void scan(ExprList el) {
+    for (Expression e : el) {
+      scan(e);
+    }
+  }
+
+  private void scan(Reference ref) {
+    if (ref instanceof IdRef) {
+      read.add(ref.decl);
+    } else if (ref instanceof QualRef) {
+      scan(((QualRef) ref).ref);
+    }
+  }
+
+  /**
+   * @return true if evaluating expr can neither fail, print nor change any variable
+   */
+  private static boolean isPure(Expression expr) {
+    if (expr instanceof LiteralExpr) {
+      return ((LiteralExpr) expr).lit instanceof BooleanLiteral
+          || ConstantFolder.intValue(expr) != null;
+    } else if (expr instanceof UnaryExpr) {
+      return isPure(((UnaryExpr) expr).expr);
+    } else if (expr instanceof BinaryExpr) {
+      BinaryExpr e = (BinaryExpr) expr;
+      if (e.operator.operatorKind == OperatorKind.DIVIDE) {
+        Integer divisor = ConstantFolder.intValue(e.right);
+        if (divisor == null || divisor == 0) {
+          return false;
+        }
+      }
+      return isPure(e.left) && isPure(e.right);
+    } else if (expr instanceof RefExpr) {
+      Reference ref = ((RefExpr) expr).ref;
+      return !(ref instanceof QualRef) || ((QualRef) ref).ref.decl instanceof ClassDecl;
+    } else if (expr instanceof NewObjectExpr) {
+      return true;
+    } else if (expr instanceof NewArrayExpr) {
+      Integer size = ConstantFolder.intValue(((NewArrayExpr) expr).sizeExpr);
+      return size != null && size >= 0;
+    }
+    return false;
+  }
+
+  private StatementList used(StatementList sl) {
+    StatementList result = new StatementList();
+    for (Statement s : sl) {
+      Statement r = used(s);
+      if (r != null) {
+        result.add(r);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return stmt without declarations of and assignments to unused locals, or null for nothing
+   */
+  private Statement used(Statement stmt) {
+    if (stmt instanceof VarDeclStmt && unused.contains(((VarDeclStmt) stmt).varDecl)
+        || stmt instanceof AssignStmt && unused.contains(((AssignStmt) stmt).ref.decl)) {
+      eliminated += NodeCounter.count(stmt);
+      return null;
+    }
+    if (stmt instanceof BlockStmt) {
+      ((BlockStmt) stmt).sl = used(((BlockStmt) stmt).sl);
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      s.thenStmt = branch(used(s.thenStmt), s.thenStmt);
+      if (s.elseStmt != null) {
+        s.elseStmt = used(s.elseStmt);
+      }
+    } else if (stmt instanceof WhileStmt) {
+      WhileStmt s = (WhileStmt) stmt;
+      s.body = branch(used(s.body), s.body);
+    }
+    return stmt;
+  }
+}
@@ -0,0 +1,75 @@
+package miniJava.Optimization;
+
+import miniJava.IntermediateRepresentation.BasicBlock;
+import miniJava.IntermediateRepresentation.Function;
+import miniJava.IntermediateRepresentation.Instruction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Find the pure instructions of a function that compute a value already
+ * computed by an instruction dominating them, and use that value
+ * instead.
+ *
+ * The dominator tree is walked from the entry with a table of the pure
+ * instructions seen on the way down, keyed on opcode, constant and
+ * operands, with the operands of commutative opcodes sorted. An
+ * instruction found in the table is replaced by the one already there,
+ * its leader; a block only sees the entries of the blocks dominating it.
+ */
+class GlobalValueNumbering {
+  private final Map<String, Instruction> leaders = new HashMap<>();
+  private final Map<Instruction, Instruction> redundant;
+
+  /**
+   * @param redundantValues where each instruction removed is mapped to the instruction replacing it
+   */
+  GlobalValueNumbering(Map<Instruction, Instruction> redundantValues) {
+    redundant = redundantValues;
+  }
+
+  void number(Function function) {
+    leaders.clear();
+    number(function.entry);
+  }
+
+  private void number(BasicBlock block) {
+    List<String> added = new ArrayList<>();
+    for (Instruction instruction : new ArrayList<>(block.instructions)) {
+      if (!instruction.isPure()) {
+        continue;
+      }
+      String key = key(instruction);
+      Instruction leader = leaders.get(key);
+      if (leader == null) {
+        leaders.put(key, instruction);
+        added.add(key);
+      } else {
+        instruction.replaceAllUsesWith(leader);
+        instruction.remove();
+        redundant.put(instruction, leader);
+      }
+    }
+    for (BasicBlock dominated : block.dominated) {
+      number(dominated);
+    }
+    for (String key : added) {
+      leaders.remove(key);
+    }
+  }
+
+  private static String key(Instruction instruction) {
+    int[] operands = new int[instruction.operands.size()];
+    for (int i = 0; i < operands.length; i++) {
+      operands[i] = instruction.operands.get(i).id;
+    }
+    if (instruction.opcode.isCommutative()) {
+      Arrays.sort(operands);
+    }
+    return instruction.opcode + " " + instruction.constant + " " + Arrays.toString(operands);
+  }
+}
@@ -0,0 +1,58 @@
+package miniJava.Optimization;
+
+import miniJava.IntermediateRepresentation.BasicBlock;
+import miniJava.IntermediateRepresentation.Function;
+import miniJava.IntermediateRepresentation.Instruction;
+import miniJava.IntermediateRepresentation.Loop;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+/*
+ * Move the pure instructions of each loop whose operands all come from
+ * outside it to the end of its preheader, so they run once instead of
+ * once per iteration.
+ *
+ * Pure instructions can neither fail nor have any other effect, so
+ * computing one before the loop is safe even if the loop never reaches
+ * it. Loops are visited innermost first, so an instruction can move out
+ * of several nested loops, and the blocks of a loop in reverse
+ * postorder, so an instruction whose operands have just moved can follow
+ * them.
+ */
+class LoopInvariantCodeMotion {
+  private final Set<Instruction> hoisted;
+
+  /**
+   * @param hoistedValues where each instruction moved out of a loop is added
+   */
+  LoopInvariantCodeMotion(Set<Instruction> hoistedValues) {
+    hoisted = hoistedValues;
+  }
+
+  void hoist(Function function) {
+    for (Loop loop : function.loops) {
+      for (BasicBlock block : function.blocks) {
+        if (!loop.blocks.contains(block)) {
+          continue;
+        }
+        for (Instruction instruction : new ArrayList<>(block.instructions)) {
+          if (instruction.isPure() && isInvariant(instruction, loop)) {
+            block.instructions.remove(instruction);
+            loop.preheader.append(instruction);
+            hoisted.add(instruction);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isInvariant(Instruction instruction, Loop loop) {
+    for (Instruction operand : instruction.operands) {
+      if (loop.contains(operand)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
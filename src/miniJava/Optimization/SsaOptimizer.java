@@ -0,0 +1,392 @@
+package miniJava.Optimization;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ContextualAnalysis.StandardEnvironment;
+import miniJava.IntermediateRepresentation.Function;
+import miniJava.IntermediateRepresentation.Instruction;
+import miniJava.IntermediateRepresentation.Loop;
+import miniJava.IntermediateRepresentation.Opcode;
+import miniJava.IntermediateRepresentation.SsaBuilder;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Optimize each method of an analyzed program in SSA form, then carry
+ * the results back into its tree, which every backend compiles as
+ * before.
+ *
+ * Global value numbering removes recomputations of values already
+ * computed on every path to them, and loop-invariant code motion moves
+ * computations that give the same value on every iteration of a loop in
+ * front of it, after which value numbering runs again, since a value
+ * moved in front of a loop can now be reused after it. Back in the
+ * tree, such a value becomes a new local, named _t and its instruction
+ * number so it cannot clash with a local of the program, declared with
+ * the expression computing it right before the loop it left or the
+ * statement computing it first, and the expressions it stands for read
+ * that local instead.
+ *
+ * The tree can only show what reading locals again would compute, so a
+ * value is carried back only if its expression is made of operators that
+ * cannot fail, literals and locals that keep their value until the new
+ * local is used: no local read by a hoisted expression may be assigned in
+ * its loop. A value first computed in the condition of a while statement
+ * is only carried back if it leaves that loop.
+ */
+public class SsaOptimizer {
+  private final SsaBuilder builder;
+  private final List<Function> functions = new ArrayList<>();
+  private final Map<Instruction, Instruction> redundant = new IdentityHashMap<>();
+  private final Set<Instruction> hoisted = Collections.newSetFromMap(new IdentityHashMap<>());
+  private int replaced;
+
+  private Function function;
+  private Map<Expression, Statement> owners;
+  private Map<WhileStmt, Set<Declaration>> assigned;
+  private Map<Statement, List<Instruction>> temps;
+  private Map<Instruction, VarDecl> visible;
+
+  public SsaOptimizer(StandardEnvironment standardEnvironment) {
+    builder = new SsaBuilder(standardEnvironment);
+  }
+
+  public void optimize(Package prog) {
+    for (ClassDecl cd : prog.classDeclList) {
+      for (MethodDecl md : cd.methodDeclList) {
+        function = builder.build(cd, md);
+        new GlobalValueNumbering(redundant).number(function);
+        new LoopInvariantCodeMotion(hoisted).hoist(function);
+        new GlobalValueNumbering(redundant).number(function);
+        functions.add(function);
+        rewrite(md);
+      }
+    }
+    function = null;
+  }
+
+  /**
+   * @return the SSA form of every method optimized so far, after optimization
+   */
+  public List<Function> getFunctions() {
+    return Collections.unmodifiableList(functions);
+  }
+
+  /**
+   * @return the number of expressions replaced by a read of a value computed already
+   */
+  public int getRedundant() {
+    return replaced;
+  }
+
+  /**
+   * @return the number of values other than constants moved out of a loop
+   */
+  public int getHoisted() {
+    int count = 0;
+    for (Instruction instruction : hoisted) {
+      if (instruction.opcode != Opcode.CONST) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // choosing the new locals
+
+  private void rewrite(MethodDecl md) {
+    owners = new IdentityHashMap<>();
+    assigned = new IdentityHashMap<>();
+    temps = new IdentityHashMap<>();
+    visible = new IdentityHashMap<>();
+    for (Statement s : md.statementList) {
+      own(s);
+    }
+    Set<Instruction> leaders = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Instruction value : redundant.keySet()) {
+      leaders.add(leader(value));
+    }
+    List<Instruction> chosen = new ArrayList<>();
+    for (Expression expr : owners.keySet()) {
+      Instruction value = function.valueOf(expr);
+      if (value != null && value.opcode != Opcode.CONST && value.block != null) {
+        chosen.add(value);
+      }
+    }
+    chosen.sort((a, b) -> Integer.compare(a.id, b.id));
+    for (Instruction value : chosen) {
+      Statement owner = owners.get(value.node);
+      Loop loop = hoisted.contains(value) ? loopBefore(value) : null;
+      if (loop != null && isPure(value.node, assigned(loop.statement))) {
+        temps.computeIfAbsent(loop.statement, s -> new ArrayList<>()).add(value);
+      } else if (leaders.contains(value)
+          && !(owner instanceof WhileStmt)
+          && isPure(value.node, Collections.emptySet())) {
+        temps.computeIfAbsent(owner, s -> new ArrayList<>()).add(value);
+      }
+    }
+    md.statementList = rewrite(md.statementList);
+    owners = null;
+    assigned = null;
+    temps = null;
+    visible = null;
+  }
+
+  /** The instruction left computing value, which a later round of numbering may have replaced. */
+  private Instruction leader(Instruction value) {
+    while (redundant.containsKey(value)) {
+      value = redundant.get(value);
+    }
+    return value;
+  }
+
+  /** The loop whose preheader a hoisted value ended up in. */
+  private Loop loopBefore(Instruction value) {
+    for (Loop loop : function.loops) {
+      if (loop.preheader == value.block) {
+        return loop;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if expr can be computed earlier with the same result, as long as none of the
+   *     locals in changed are assigned in between
+   */
+  private static boolean isPure(Expression expr, Set<Declaration> changed) {
+    if (expr instanceof LiteralExpr) {
+      return ((LiteralExpr) expr).lit instanceof BooleanLiteral
+          || ConstantFolder.intValue(expr) != null;
+    } else if (expr instanceof UnaryExpr) {
+      return isPure(((UnaryExpr) expr).expr, changed);
+    } else if (expr instanceof BinaryExpr) {
+      BinaryExpr e = (BinaryExpr) expr;
+      if (e.operator.operatorKind == OperatorKind.DIVIDE) {
+        Integer divisor = ConstantFolder.intValue(e.right);
+        if (divisor == null || divisor == 0) {
+          return false;
+        }
+      }
+      return isPure(e.left, changed) && isPure(e.right, changed);
+    } else if (expr instanceof RefExpr) {
+      Reference ref = ((RefExpr) expr).ref;
+      return ref instanceof ThisRef
+          || ref instanceof IdRef && ref.decl instanceof LocalDecl && !changed.contains(ref.decl);
+    }
+    return false;
+  }
+
+  private Set<Declaration> assigned(WhileStmt stmt) {
+    Set<Declaration> locals = assigned.get(stmt);
+    if (locals == null) {
+      locals = Collections.newSetFromMap(new IdentityHashMap<>());
+      assign(stmt.body, locals);
+      assigned.put(stmt, locals);
+    }
+    return locals;
+  }
+
+  private static void assign(Statement stmt, Set<Declaration> locals) {
+    if (stmt instanceof BlockStmt) {
+      for (Statement s : ((BlockStmt) stmt).sl) {
+        assign(s, locals);
+      }
+    } else if (stmt instanceof VarDeclStmt) {
+      locals.add(((VarDeclStmt) stmt).varDecl);
+    } else if (stmt instanceof AssignStmt) {
+      locals.add(((AssignStmt) stmt).ref.decl);
+    } else if (stmt instanceof IfStmt) {
+      assign(((IfStmt) stmt).thenStmt, locals);
+      if (((IfStmt) stmt).elseStmt != null) {
+        assign(((IfStmt) stmt).elseStmt, locals);
+      }
+    } else if (stmt instanceof WhileStmt) {
+      assign(((WhileStmt) stmt).body, locals);
+    }
+  }
+
+  /** Map every expression of stmt to the innermost statement containing it. */
+  private void own(Statement stmt) {
+    if (stmt instanceof BlockStmt) {
+      for (Statement s : ((BlockStmt) stmt).sl) {
+        own(s);
+      }
+    } else if (stmt instanceof VarDeclStmt) {
+      own(((VarDeclStmt) stmt).initExp, stmt);
+    } else if (stmt instanceof AssignStmt) {
+      own(((AssignStmt) stmt).val, stmt);
+    } else if (stmt instanceof IxAssignStmt) {
+      IxAssignStmt s = (IxAssignStmt) stmt;
+      own(s.ix, stmt);
+      own(s.exp, stmt);
+    } else if (stmt instanceof CallStmt) {
+      for (Expression e : ((CallStmt) stmt).argList) {
+        own(e, stmt);
+      }
+    } else if (stmt instanceof ReturnStmt) {
+      if (((ReturnStmt) stmt).returnExpr != null) {
+        own(((ReturnStmt) stmt).returnExpr, stmt);
+      }
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      own(s.cond, stmt);
+      own(s.thenStmt);
+      if (s.elseStmt != null) {
+        own(s.elseStmt);
+      }
+    } else {
+      own(((WhileStmt) stmt).cond, stmt);
+      own(((WhileStmt) stmt).body);
+    }
+  }
+
+  private void own(Expression expr, Statement owner) {
+    owners.put(expr, owner);
+    if (expr instanceof UnaryExpr) {
+      own(((UnaryExpr) expr).expr, owner);
+    } else if (expr instanceof BinaryExpr) {
+      own(((BinaryExpr) expr).left, owner);
+      own(((BinaryExpr) expr).right, owner);
+    } else if (expr instanceof IxExpr) {
+      own(((IxExpr) expr).ixExpr, owner);
+    } else if (expr instanceof CallExpr) {
+      for (Expression e : ((CallExpr) expr).argList) {
+        own(e, owner);
+      }
+    } else if (expr instanceof NewArrayExpr) {
+      own(((NewArrayExpr) expr).sizeExpr, owner);
+    }
+  }
+
+  // rewriting the tree
+
+  private StatementList rewrite(StatementList sl) {
+    StatementList result = new StatementList();
+    List<Instruction> declared = new ArrayList<>();
+    for (Statement s : sl) {
+      declare(s, result, declared);
+      result.add(rewrite(s));
+    }
+    for (Instruction value : declared) {
+      visible.remove(value);
+    }
+    return result;
+  }
+
+  /** Add the new locals that go before stmt to sl. */
+  private void declare(Statement stmt, StatementList sl, List<Instruction> declared) {
+    List<Instruction> values = temps.get(stmt);
+    if (values == null) {
+      return;
+    }
+    for (Instruction value : values) {
+      Expression init = value.node;
+      rewriteOperands(init);
+      VarDecl temp = new VarDecl(init.type, "_t" + value.id, init.offset);
+      sl.add(new VarDeclStmt(temp, init, init.offset));
+      visible.put(value, temp);
+      declared.add(value);
+    }
+  }
+
+  private Statement rewrite(Statement stmt) {
+    if (stmt instanceof BlockStmt) {
+      ((BlockStmt) stmt).sl = rewrite(((BlockStmt) stmt).sl);
+    } else if (stmt instanceof VarDeclStmt) {
+      VarDeclStmt s = (VarDeclStmt) stmt;
+      s.initExp = rewrite(s.initExp);
+    } else if (stmt instanceof AssignStmt) {
+      AssignStmt s = (AssignStmt) stmt;
+      s.val = rewrite(s.val);
+    } else if (stmt instanceof IxAssignStmt) {
+      IxAssignStmt s = (IxAssignStmt) stmt;
+      s.ix = rewrite(s.ix);
+      s.exp = rewrite(s.exp);
+    } else if (stmt instanceof CallStmt) {
+      rewrite(((CallStmt) stmt).argList);
+    } else if (stmt instanceof ReturnStmt) {
+      ReturnStmt s = (ReturnStmt) stmt;
+      if (s.returnExpr != null) {
+        s.returnExpr = rewrite(s.returnExpr);
+      }
+    } else if (stmt instanceof IfStmt) {
+      IfStmt s = (IfStmt) stmt;
+      s.cond = rewrite(s.cond);
+      s.thenStmt = branch(s.thenStmt);
+      if (s.elseStmt != null) {
+        s.elseStmt = branch(s.elseStmt);
+      }
+    } else {
+      WhileStmt s = (WhileStmt) stmt;
+      s.cond = rewrite(s.cond);
+      s.body = branch(s.body);
+    }
+    return stmt;
+  }
+
+  /** The only statement of an if or while, which becomes a block if locals go before it. */
+  private Statement branch(Statement stmt) {
+    if (!temps.containsKey(stmt)) {
+      return rewrite(stmt);
+    }
+    StatementList sl = new StatementList();
+    sl.add(stmt);
+    return rewrite(new BlockStmt(sl, stmt.offset));
+  }
+
+  /**
+   * @return a read of the new local holding the value of expr, or expr with its operands rewritten
+   */
+  private Expression rewrite(Expression expr) {
+    Instruction value = function.valueOf(expr);
+    if (value != null) {
+      VarDecl temp = visible.get(leader(value));
+      if (temp != null) {
+        if (redundant.containsKey(value)) {
+          replaced++;
+        }
+        Identifier id = new Identifier(TokenType.ID, temp.name, expr.offset);
+        id.decl = temp;
+        IdRef ref = new IdRef(id, expr.offset);
+        ref.decl = temp;
+        RefExpr read = new RefExpr(ref, expr.offset);
+        read.type = expr.type;
+        return read;
+      }
+    }
+    rewriteOperands(expr);
+    return expr;
+  }
+
+  private void rewriteOperands(Expression expr) {
+    if (expr instanceof UnaryExpr) {
+      UnaryExpr e = (UnaryExpr) expr;
+      e.expr = rewrite(e.expr);
+    } else if (expr instanceof BinaryExpr) {
+      BinaryExpr e = (BinaryExpr) expr;
+      e.left = rewrite(e.left);
+      e.right = rewrite(e.right);
+    } else if (expr instanceof IxExpr) {
+      IxExpr e = (IxExpr) expr;
+      e.ixExpr = rewrite(e.ixExpr);
+    } else if (expr instanceof CallExpr) {
+      rewrite(((CallExpr) expr).argList);
+    } else if (expr instanceof NewArrayExpr) {
+      NewArrayExpr e = (NewArrayExpr) expr;
+      e.sizeExpr = rewrite(e.sizeExpr);
+    }
+  }
+
+  private void rewrite(ExprList el) {
+    for (int i = 0; i < el.size(); i++) {
+      el.set(i, rewrite(el.get(i)));
+    }
+  }
+}
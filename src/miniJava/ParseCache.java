@@ -0,0 +1,102 @@
+package miniJava;
+
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.ASTReader;
+import miniJava.AbstractSyntaxTrees.ASTWriter;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.LineTable;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class ParseCache {
+  static final String SUFFIX = ".ast";
+  static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  Path directory;
+
+  public ParseCache(Path cacheDirectory) throws IOException {
+    directory = Files.createDirectories(cacheDirectory);
+  }
+
+  /**
+   * Look up the tree for a source that was parsed before. Entries are keyed by the SHA-256 of the
+   * source bytes and the AST encoding version, so an edited file or a format change is simply a
+   * miss. Unreadable entries, and entries whose checksum does not match their contents, are treated
+   * as misses too.
+   *
+   * @return the cached tree, or null if there is none
+   */
+  public Package load(SourceBuffer source, NameTable names) {
+    Path entry = entryFor(source);
+    try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      AST ast = new ASTReader(mapped, names).read();
+      if (!(ast instanceof Package)) {
+        return null;
+      }
+      ((Package) ast).lineTable = new LineTable(source);
+      return (Package) ast;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Save the tree parsed from a source. The entry is written to a temporary file and moved into
+   * place, so concurrent compilers never see a partial entry.
+   *
+   * @return false if the entry could not be written
+   */
+  public boolean store(SourceBuffer source, Package ast) {
+    Path entry = entryFor(source);
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+      Files.write(temp, ASTWriter.write(ast));
+      Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } catch (IOException e) {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+          // leave the stray temporary file behind
+        }
+      }
+      return false;
+    }
+  }
+
+  Path entryFor(SourceBuffer source) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update((byte) ASTWriter.VERSION);
+    source.update(digest);
+    return directory.resolve(toHex(digest.digest()) + SUFFIX);
+  }
+
+  /**
+   * @return bytes as lowercase hexadecimal digits, as cache entries are named
+   */
+  public static String toHex(byte[] bytes) {
+    char[] digits = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      digits[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+      digits[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+    }
+    return new String(digits);
+  }
+}
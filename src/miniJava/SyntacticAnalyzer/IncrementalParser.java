@@ -0,0 +1,207 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FieldDecl;
+import miniJava.AbstractSyntaxTrees.MemberDecl;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.ErrorReporter;
+import miniJava.NameTable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class IncrementalParser {
+  SourceBuffer source;
+  ErrorReporter reporter;
+  NameTable names;
+  Package ast;
+  Map<AST, int[]> ranges = new IdentityHashMap<>();
+
+  int reparsedLength;
+
+  public IncrementalParser(SourceBuffer sourceBuffer, NameTable nameTable) {
+    source = sourceBuffer;
+    names = nameTable;
+  }
+
+  /** Parse the whole source; errors go to a new ErrorReporter, see getReporter. */
+  public Package parse() {
+    ranges.clear();
+    reporter = new ErrorReporter();
+    Parser parser = new Parser(new Scanner(source, reporter).scanAll(), reporter, names);
+    parser.recordDeclarationRanges(ranges);
+    ast = parser.parse();
+    reparsedLength = source.length();
+    return ast;
+  }
+
+  /**
+   * Replace the characters in [start, end) of the source and bring the AST up to date. Only the
+   * smallest member or class declaration enclosing the edit is rescanned and reparsed, and the new
+   * subtree replaces the old one in its declaration list; every other node is kept. The whole
+   * source is parsed again when the edit spans several declarations, when the edited text no longer
+   * forms a single declaration of the same kind, or when the last parse failed.
+   *
+   * @return the updated AST, the same Package object unless the whole source was reparsed
+   */
+  public Package edit(int start, int end, String replacement) {
+    if (start < 0 || end < start || end > source.length()) {
+      throw new IndexOutOfBoundsException("edit [" + start + ", " + end + ")");
+    }
+    source = source.edit(start, end, replacement);
+    int delta = replacement.length() - (end - start);
+    if (ast == null) {
+      return parse();
+    }
+
+    for (int c = 0; c < ast.classDeclList.size(); c++) {
+      ClassDecl classDecl = ast.classDeclList.get(c);
+      int[] classRange = ranges.get(classDecl);
+      if (!encloses(classRange, start, end)) {
+        continue;
+      }
+      if (reparseMember(classDecl, start, end, delta) || reparseClass(c, start, end, delta)) {
+        ast.lineTable = new LineTable(source);
+        return ast;
+      }
+      break;
+    }
+    return parse();
+  }
+
+  /**
+   * @return the errors of the most recent full parse
+   */
+  public ErrorReporter getReporter() {
+    return reporter;
+  }
+
+  /**
+   * @return the current source text, including all edits
+   */
+  public SourceBuffer getSource() {
+    return source;
+  }
+
+  /**
+   * @return number of characters rescanned by the most recent parse or edit
+   */
+  public int getReparsedLength() {
+    return reparsedLength;
+  }
+
+  private boolean reparseMember(ClassDecl classDecl, int start, int end, int delta) {
+    MemberDecl oldMember = null;
+    int index = -1;
+    for (int f = 0; f < classDecl.fieldDeclList.size() && oldMember == null; f++) {
+      if (encloses(ranges.get(classDecl.fieldDeclList.get(f)), start, end)) {
+        oldMember = classDecl.fieldDeclList.get(f);
+        index = f;
+      }
+    }
+    for (int m = 0; m < classDecl.methodDeclList.size() && oldMember == null; m++) {
+      if (encloses(ranges.get(classDecl.methodDeclList.get(m)), start, end)) {
+        oldMember = classDecl.methodDeclList.get(m);
+        index = m;
+      }
+    }
+    if (oldMember == null) {
+      return false;
+    }
+
+    int[] range = ranges.get(oldMember);
+    Parser parser = regionParser(range[0], range[1] + delta);
+    MemberDecl newMember = parser.parseMemberRegion();
+    if (newMember instanceof MethodDecl && oldMember instanceof MethodDecl) {
+      classDecl.methodDeclList.set(index, (MethodDecl) newMember);
+    } else if (newMember instanceof FieldDecl && oldMember instanceof FieldDecl) {
+      classDecl.fieldDeclList.set(index, (FieldDecl) newMember);
+    } else {
+      ranges.remove(newMember);
+      return false;
+    }
+    ranges.remove(oldMember);
+    shiftFollowing(classDecl, range[1], delta);
+    shiftRanges(newMember, range[1], delta);
+    return true;
+  }
+
+  private boolean reparseClass(int index, int start, int end, int delta) {
+    ClassDecl oldClass = ast.classDeclList.get(index);
+    int[] range = ranges.get(oldClass);
+    Map<AST, int[]> regionRanges = new IdentityHashMap<>();
+    Parser parser = regionParser(range[0], range[1] + delta);
+    parser.recordDeclarationRanges(regionRanges);
+    ClassDecl newClass = parser.parseClassRegion();
+    if (newClass == null) {
+      return false;
+    }
+    ast.classDeclList.set(index, newClass);
+    ranges.remove(oldClass);
+    oldClass.fieldDeclList.forEach(ranges::remove);
+    oldClass.methodDeclList.forEach(ranges::remove);
+    shiftFollowing(null, range[1], delta);
+    shiftRanges(null, range[1], delta);
+    ranges.putAll(regionRanges);
+    return true;
+  }
+
+  private Parser regionParser(int start, int end) {
+    reparsedLength = end - start;
+    ErrorReporter regionReporter = new ErrorReporter();
+    Scanner scanner = new Scanner(source, start, end, regionReporter);
+    Parser parser = new Parser(scanner.scanAll(), regionReporter, names);
+    parser.recordDeclarationRanges(ranges);
+    return parser;
+  }
+
+  /**
+   * Move the nodes of every declaration that starts after the edited one: later members of the
+   * enclosing class, if any, and later classes.
+   */
+  private void shiftFollowing(ClassDecl enclosing, int oldEnd, int delta) {
+    if (enclosing != null) {
+      for (FieldDecl fieldDecl : enclosing.fieldDeclList) {
+        shiftIfAfter(fieldDecl, oldEnd, delta);
+      }
+      for (MethodDecl methodDecl : enclosing.methodDeclList) {
+        shiftIfAfter(methodDecl, oldEnd, delta);
+      }
+    }
+    for (ClassDecl classDecl : ast.classDeclList) {
+      shiftIfAfter(classDecl, oldEnd, delta);
+    }
+  }
+
+  private void shiftIfAfter(AST declaration, int oldEnd, int delta) {
+    int[] range = ranges.get(declaration);
+    if (range != null && range[0] >= oldEnd) {
+      OffsetShifter.shift(declaration, delta);
+    }
+  }
+
+  /**
+   * Move the declaration ranges after an edit by the change in length. Ranges ending at or after
+   * the old end of the edited declaration either enclose it or follow it.
+   */
+  private void shiftRanges(AST edited, int oldEnd, int delta) {
+    for (Map.Entry<AST, int[]> entry : ranges.entrySet()) {
+      if (entry.getKey() == edited) {
+        continue;
+      }
+      int[] range = entry.getValue();
+      if (range[0] >= oldEnd) {
+        range[0] += delta;
+      }
+      if (range[1] >= oldEnd) {
+        range[1] += delta;
+      }
+    }
+  }
+
+  private static boolean encloses(int[] range, int start, int end) {
+    return range != null && range[0] <= start && end <= range[1];
+  }
+}
@@ -0,0 +1,35 @@
+package miniJava.SyntacticAnalyzer;
+
+public class Keywords {
+  static final int TABLE_MASK = 31;
+  static final TokenType[] TABLE = new TokenType[TABLE_MASK + 1];
+
+  static {
+    for (TokenType type : TokenType.VALUES) {
+      String spelling = type.getSpelling();
+      if (spelling == null || spelling.isEmpty() || !Character.isLetter(spelling.charAt(0))) {
+        continue;
+      }
+      int slot = hash(spelling.charAt(0), spelling.charAt(1));
+      if (TABLE[slot] != null) {
+        throw new IllegalStateException("keyword hash collision: " + TABLE[slot] + ", " + type);
+      }
+      TABLE[slot] = type;
+    }
+  }
+
+  static int hash(int firstChar, int secondChar) {
+    return (2 * firstChar + 3 * secondChar) & TABLE_MASK;
+  }
+
+  public static TokenType lookup(SourceBuffer source, int start, int end) {
+    if (end - start < 2) {
+      return null;
+    }
+    TokenType candidate = TABLE[hash(source.charAt(start), source.charAt(start + 1))];
+    if (candidate != null && source.regionMatches(start, end, candidate.getSpelling())) {
+      return candidate;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,46 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+
+public class LineTable {
+  SourceBuffer source;
+  int[] lineStarts;
+  int lineCount;
+
+  public LineTable(SourceBuffer sourceBuffer) {
+    source = sourceBuffer;
+  }
+
+  /**
+   * Turn a character offset into a 1-based row and column. The table of line start offsets is built
+   * the first time a position is asked for, so sources that compile cleanly never pay for it.
+   */
+  public SourcePosition getPosition(int offset) {
+    if (lineStarts == null) {
+      buildLineStarts();
+    }
+    int line = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+    if (line < 0) {
+      line = -line - 2;
+    }
+    return new SourcePosition(line + 1, offset - lineStarts[line] + 1);
+  }
+
+  private void buildLineStarts() {
+    int[] starts = new int[64];
+    int count = 0;
+    starts[count++] = 0;
+    int length = source.length();
+    for (int i = 0; i < length; i++) {
+      int c = source.charAt(i);
+      if (c == '\n' || (c == '\r' && source.charAt(i + 1) != '\n')) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = i + 1;
+      }
+    }
+    lineStarts = starts;
+    lineCount = count;
+  }
+}
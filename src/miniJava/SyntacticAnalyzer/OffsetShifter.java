@@ -0,0 +1,205 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+
+/** Moves every node of a subtree by the same number of characters after an edit. */
+class OffsetShifter implements Visitor<Integer, Object> {
+
+  static void shift(AST ast, int delta) {
+    if (delta != 0) {
+      ast.visit(new OffsetShifter(), delta);
+    }
+  }
+
+  private Object shiftAll(Iterable<? extends AST> nodes, int delta) {
+    for (AST node : nodes) {
+      node.visit(this, delta);
+    }
+    return null;
+  }
+
+  public Object visitPackage(Package prog, Integer delta) {
+    prog.offset += delta;
+    return shiftAll(prog.classDeclList, delta);
+  }
+
+  public Object visitClassDecl(ClassDecl cd, Integer delta) {
+    cd.offset += delta;
+    shiftAll(cd.fieldDeclList, delta);
+    return shiftAll(cd.methodDeclList, delta);
+  }
+
+  public Object visitFieldDecl(FieldDecl fd, Integer delta) {
+    fd.offset += delta;
+    return fd.type.visit(this, delta);
+  }
+
+  public Object visitMethodDecl(MethodDecl md, Integer delta) {
+    md.offset += delta;
+    md.type.visit(this, delta);
+    shiftAll(md.parameterDeclList, delta);
+    return shiftAll(md.statementList, delta);
+  }
+
+  public Object visitParameterDecl(ParameterDecl pd, Integer delta) {
+    pd.offset += delta;
+    return pd.type.visit(this, delta);
+  }
+
+  public Object visitVarDecl(VarDecl decl, Integer delta) {
+    decl.offset += delta;
+    return decl.type.visit(this, delta);
+  }
+
+  public Object visitBaseType(BaseType type, Integer delta) {
+    type.offset += delta;
+    return null;
+  }
+
+  public Object visitClassType(ClassType type, Integer delta) {
+    type.offset += delta;
+    return type.className.visit(this, delta);
+  }
+
+  public Object visitArrayType(ArrayType type, Integer delta) {
+    type.offset += delta;
+    return type.eltType.visit(this, delta);
+  }
+
+  public Object visitBlockStmt(BlockStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    return shiftAll(stmt.sl, delta);
+  }
+
+  public Object visitVardeclStmt(VarDeclStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    stmt.varDecl.visit(this, delta);
+    return stmt.initExp.visit(this, delta);
+  }
+
+  public Object visitAssignStmt(AssignStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    stmt.ref.visit(this, delta);
+    return stmt.val.visit(this, delta);
+  }
+
+  public Object visitIxAssignStmt(IxAssignStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    stmt.ref.visit(this, delta);
+    stmt.ix.visit(this, delta);
+    return stmt.exp.visit(this, delta);
+  }
+
+  public Object visitCallStmt(CallStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    stmt.methodRef.visit(this, delta);
+    return shiftAll(stmt.argList, delta);
+  }
+
+  public Object visitReturnStmt(ReturnStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    if (stmt.returnExpr != null) {
+      stmt.returnExpr.visit(this, delta);
+    }
+    return null;
+  }
+
+  public Object visitIfStmt(IfStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    stmt.cond.visit(this, delta);
+    stmt.thenStmt.visit(this, delta);
+    if (stmt.elseStmt != null) {
+      stmt.elseStmt.visit(this, delta);
+    }
+    return null;
+  }
+
+  public Object visitWhileStmt(WhileStmt stmt, Integer delta) {
+    stmt.offset += delta;
+    stmt.cond.visit(this, delta);
+    return stmt.body.visit(this, delta);
+  }
+
+  public Object visitUnaryExpr(UnaryExpr expr, Integer delta) {
+    expr.offset += delta;
+    expr.operator.visit(this, delta);
+    return expr.expr.visit(this, delta);
+  }
+
+  public Object visitBinaryExpr(BinaryExpr expr, Integer delta) {
+    expr.offset += delta;
+    expr.operator.visit(this, delta);
+    expr.left.visit(this, delta);
+    return expr.right.visit(this, delta);
+  }
+
+  public Object visitRefExpr(RefExpr expr, Integer delta) {
+    expr.offset += delta;
+    return expr.ref.visit(this, delta);
+  }
+
+  public Object visitIxExpr(IxExpr expr, Integer delta) {
+    expr.offset += delta;
+    expr.ref.visit(this, delta);
+    return expr.ixExpr.visit(this, delta);
+  }
+
+  public Object visitCallExpr(CallExpr expr, Integer delta) {
+    expr.offset += delta;
+    expr.functionRef.visit(this, delta);
+    return shiftAll(expr.argList, delta);
+  }
+
+  public Object visitLiteralExpr(LiteralExpr expr, Integer delta) {
+    expr.offset += delta;
+    return expr.lit.visit(this, delta);
+  }
+
+  public Object visitNewObjectExpr(NewObjectExpr expr, Integer delta) {
+    expr.offset += delta;
+    return expr.classtype.visit(this, delta);
+  }
+
+  public Object visitNewArrayExpr(NewArrayExpr expr, Integer delta) {
+    expr.offset += delta;
+    expr.eltType.visit(this, delta);
+    return expr.sizeExpr.visit(this, delta);
+  }
+
+  public Object visitThisRef(ThisRef ref, Integer delta) {
+    ref.offset += delta;
+    return null;
+  }
+
+  public Object visitIdRef(IdRef ref, Integer delta) {
+    ref.offset += delta;
+    return ref.id.visit(this, delta);
+  }
+
+  public Object visitQRef(QualRef ref, Integer delta) {
+    ref.offset += delta;
+    ref.ref.visit(this, delta);
+    return ref.id.visit(this, delta);
+  }
+
+  public Object visitIdentifier(Identifier id, Integer delta) {
+    id.offset += delta;
+    return null;
+  }
+
+  public Object visitOperator(Operator op, Integer delta) {
+    op.offset += delta;
+    return null;
+  }
+
+  public Object visitIntLiteral(IntLiteral num, Integer delta) {
+    num.offset += delta;
+    return null;
+  }
+
+  public Object visitBooleanLiteral(BooleanLiteral bool, Integer delta) {
+    bool.offset += delta;
+    return null;
+  }
+}
@@ -1,12 +1,16 @@
 package miniJava.SyntacticAnalyzer;
 
+/**
+ * A syntax error. The parser recovers from these and keeps going, so they are thrown often on bad
+ * input; they carry no stack trace, which would cost far more than the parse itself.
+ */
 public class ParseException extends Exception {
 
   public ParseException() {
-    super();
+    this(null);
   }
 
   public ParseException(String desc) {
-    super(desc);
+    super(desc, null, false, false);
   }
 }
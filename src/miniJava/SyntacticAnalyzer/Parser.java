@@ -3,103 +3,215 @@ package miniJava.SyntacticAnalyzer;
 import miniJava.AbstractSyntaxTrees.*;
 import miniJava.AbstractSyntaxTrees.Package;
 import miniJava.ErrorReporter;
+import miniJava.NameTable;
 
-import java.util.Objects;
+import java.util.Map;
 
 public class Parser {
-  Scanner scanner;
+  TokenBuffer tokens;
   ErrorReporter reporter;
-  Token token;
+  NameTable names;
+  int current = 0;
+  LineTable lines;
 
-  boolean showPositionTrace = false;
+  int expressionDepth = 0;
+  int errorCount = 0;
+  int lastErrorToken = -1;
+  Map<AST, int[]> declarationRanges;
+
+  static final int MAX_EXPRESSION_DEPTH = 1000;
+
+  boolean showPositionTrace = true;
 
   public Parser(Scanner newScanner, ErrorReporter errorReporter) {
-    scanner = newScanner;
+    this(newScanner, errorReporter, new NameTable());
+  }
+
+  public Parser(Scanner newScanner, ErrorReporter errorReporter, NameTable nameTable) {
+    this(newScanner.scanAll(), errorReporter, nameTable);
+  }
+
+  public Parser(TokenBuffer tokenBuffer, ErrorReporter errorReporter, NameTable nameTable) {
+    tokens = tokenBuffer;
+    lines = new LineTable(tokenBuffer.getSource());
     reporter = errorReporter;
-    token = scanner.scan();
+    names = nameTable;
+  }
+
+  public NameTable getNameTable() {
+    return names;
   }
 
   private void debug(String debugMessage) {
-    System.out.println("[DEBUG]: " + debugMessage + "@" + token.getTokenPosition());
+    System.out.println("[DEBUG]: " + debugMessage + "@" + lines.getPosition(offset()));
   }
 
+  /**
+   * Parse the whole token stream. After a syntax error the parser skips ahead to the next
+   * statement, member or class and carries on, so every error in the file is reported.
+   *
+   * @return the program, or null if any error was reported
+   */
   public Package parse() {
+    expressionDepth = 0;
     try {
-      return parseProgram();
-    } catch (ParseException e) {
-      String trace = e.toString();
-      if (showPositionTrace) {
-        trace += "@" + token.getTokenPosition();
-      }
-      reporter.reportError(trace);
+      Package program = parseProgram();
+      return errorCount == 0 ? program : null;
+    } catch (StackOverflowError e) {
+      reporter.reportError(new ParseException("program nested too deeply").toString());
       return null;
     }
   }
 
-  private Package parseProgram() throws ParseException {
+  /**
+   * Report a syntax error at the current token. An error at the token where the last one was
+   * reported is a consequence of that one, so it is dropped.
+   */
+  private void reportError(ParseException e) {
+    if (current == lastErrorToken) {
+      return;
+    }
+    lastErrorToken = current;
+    errorCount++;
+    String trace = e.toString();
+    if (showPositionTrace) {
+      trace += "@" + lines.getPosition(offset());
+    }
+    reporter.reportError(trace);
+  }
+
+  /**
+   * Record the source range [start, end) of every class and member declaration parsed from now on,
+   * keyed by node identity.
+   */
+  void recordDeclarationRanges(Map<AST, int[]> ranges) {
+    declarationRanges = ranges;
+  }
+
+  /**
+   * Parse a token stream holding exactly one class declaration.
+   *
+   * @return the declaration, or null if the tokens are not a single class
+   */
+  ClassDecl parseClassRegion() {
+    expressionDepth = 0;
+    try {
+      int first = current;
+      ClassDecl classDecl = parseClassDeclaration();
+      recordRange(classDecl, first);
+      return errorCount == 0 && canAcceptToken(TokenType.EOF) ? classDecl : null;
+    } catch (ParseException | StackOverflowError e) {
+      return null;
+    }
+  }
+
+  /**
+   * Parse a token stream holding exactly one field or method declaration.
+   *
+   * @return the declaration, or null if the tokens are not a single member
+   */
+  MemberDecl parseMemberRegion() {
+    expressionDepth = 0;
+    try {
+      int first = current;
+      MemberDecl memberDecl = parseMemberDeclaration();
+      recordRange(memberDecl, first);
+      return errorCount == 0 && canAcceptToken(TokenType.EOF) ? memberDecl : null;
+    } catch (ParseException | StackOverflowError e) {
+      return null;
+    }
+  }
+
+  private void recordRange(AST node, int firstToken) {
+    if (declarationRanges != null) {
+      int last = current - 1;
+      declarationRanges.put(
+          node,
+          new int[] {tokens.getStart(firstToken), tokens.getStart(last) + tokens.getLength(last)});
+    }
+  }
+
+  private Package parseProgram() {
     ClassDeclList classDeclList = new ClassDeclList();
-    while (token.getTokenType() != TokenType.EOF && token.getTokenType() != TokenType.ERROR) {
-      classDeclList.add(parseClassDeclaration());
-      if (token.getTokenType() == TokenType.ERROR) {
-        throw new ParseException();
+    while (!canAcceptToken(TokenType.EOF)) {
+      int first = current;
+      try {
+        ClassDecl classDecl = parseClassDeclaration();
+        recordRange(classDecl, first);
+        classDeclList.add(classDecl);
+      } catch (ParseException e) {
+        reportError(e);
+        expressionDepth = 0;
+        skipClass(first);
       }
     }
-    return new Package(classDeclList, token.getTokenPosition());
+    Package program = new Package(classDeclList, 0);
+    program.lineTable = lines;
+    return program;
   }
 
   private ClassDecl parseClassDeclaration() throws ParseException {
+    int start = offset();
     FieldDeclList fieldDeclList = new FieldDeclList();
     MethodDeclList methodDeclList = new MethodDeclList();
     acceptToken(TokenType.CLASS);
-    String className = token.getTokenText();
+    String className = name(current);
     acceptToken(TokenType.ID);
     acceptToken(TokenType.OPEN_BRACE);
-    while (!canAcceptToken(TokenType.CLOSED_BRACE)) {
-      MemberDecl memberDecl = parseMemberDeclaration();
-      if (memberDecl instanceof MethodDecl) {
-        methodDeclList.add((MethodDecl) memberDecl);
-      } else if (memberDecl instanceof FieldDecl) {
-        fieldDeclList.add((FieldDecl) memberDecl);
+    while (!canAcceptToken(TokenType.CLOSED_BRACE)
+        && !canAcceptToken(TokenType.CLASS)
+        && !canAcceptToken(TokenType.EOF)) {
+      int first = current;
+      try {
+        MemberDecl memberDecl = parseMemberDeclaration();
+        recordRange(memberDecl, first);
+        if (memberDecl instanceof MethodDecl) {
+          methodDeclList.add((MethodDecl) memberDecl);
+        } else if (memberDecl instanceof FieldDecl) {
+          fieldDeclList.add((FieldDecl) memberDecl);
+        }
+      } catch (ParseException e) {
+        reportError(e);
+        expressionDepth = 0;
+        skipMember(first);
       }
     }
     acceptToken(TokenType.CLOSED_BRACE);
-    return new ClassDecl(className, fieldDeclList, methodDeclList, token.getTokenPosition());
+    return new ClassDecl(className, fieldDeclList, methodDeclList, start);
   }
 
   private MemberDecl parseMemberDeclaration() throws ParseException {
+    int start = offset();
     boolean isPrivate = parseVisibility();
     boolean isStatic = parseAccess();
     if (canAcceptToken(TokenType.VOID)) {
+      int typeStart = offset();
       acceptToken(TokenType.VOID);
-      String memberId = token.getTokenText();
+      String memberId = name(current);
       acceptToken(TokenType.ID);
       ParameterDeclList parameterDeclList = parseOptionalParameterList();
       StatementList statementList = parseMethodDeclarationBody();
       return new MethodDecl(
           new FieldDecl(
-              isPrivate,
-              isStatic,
-              new BaseType(TypeKind.VOID, token.getTokenPosition()),
-              memberId,
-              token.getTokenPosition()),
+              isPrivate, isStatic, new BaseType(TypeKind.VOID, typeStart), memberId, start),
           parameterDeclList,
           statementList,
-          token.getTokenPosition());
+          start);
     } else {
       TypeDenoter typeDenoter = parseType();
-      String memberId = token.getTokenText();
+      String memberId = name(current);
       acceptToken(TokenType.ID);
       if (canAcceptToken(TokenType.SEMICOLON)) {
         acceptToken(TokenType.SEMICOLON);
-        return new FieldDecl(isPrivate, isStatic, typeDenoter, memberId, token.getTokenPosition());
+        return new FieldDecl(isPrivate, isStatic, typeDenoter, memberId, start);
       } else {
         ParameterDeclList parameterDeclList = parseOptionalParameterList();
         StatementList statementList = parseMethodDeclarationBody();
         return new MethodDecl(
-            new FieldDecl(isPrivate, isStatic, typeDenoter, memberId, token.getTokenPosition()),
+            new FieldDecl(isPrivate, isStatic, typeDenoter, memberId, start),
             parameterDeclList,
             statementList,
-            token.getTokenPosition());
+            start);
       }
     }
   }
@@ -116,26 +228,105 @@ public class Parser {
   }
 
   private StatementList parseMethodDeclarationBody() throws ParseException {
-    StatementList statementList = new StatementList();
     acceptToken(TokenType.OPEN_BRACE);
-    while (!canAcceptToken(TokenType.CLOSED_BRACE)) {
-      Statement statement = parseStatement();
-      statementList.add(statement);
-    }
+    StatementList statementList = parseStatements();
     acceptToken(TokenType.CLOSED_BRACE);
     return statementList;
   }
 
+  private StatementList parseStatements() {
+    StatementList statementList = new StatementList();
+    while (!canAcceptToken(TokenType.CLOSED_BRACE) && !canAcceptToken(TokenType.EOF)) {
+      try {
+        statementList.add(parseStatement());
+      } catch (ParseException e) {
+        reportError(e);
+        expressionDepth = 0;
+        skipStatement();
+      }
+    }
+    return statementList;
+  }
+
+  // panic-mode recovery: skip tokens up to a point where parsing can resume
+
+  /**
+   * Skip the rest of a statement: through the next ';' or balanced '{' ... '}', stopping early at
+   * the '}' that closes the enclosing block.
+   */
+  private void skipStatement() {
+    int depth = 0;
+    while (!canAcceptToken(TokenType.EOF)) {
+      TokenType type = tokens.getType(current);
+      if (type == TokenType.OPEN_BRACE) {
+        depth++;
+      } else if (type == TokenType.CLOSED_BRACE) {
+        if (depth == 0) {
+          return;
+        }
+        if (--depth == 0) {
+          current++;
+          return;
+        }
+      } else if (type == TokenType.SEMICOLON && depth == 0) {
+        current++;
+        return;
+      }
+      current++;
+    }
+  }
+
+  /**
+   * Skip the rest of a member: through the next ';' or method body, stopping early at the '}' that
+   * closes the class or at a token that starts another member or class.
+   */
+  private void skipMember(int first) {
+    int depth = 0;
+    while (!canAcceptToken(TokenType.EOF)) {
+      TokenType type = tokens.getType(current);
+      if (type == TokenType.OPEN_BRACE) {
+        depth++;
+      } else if (type == TokenType.CLOSED_BRACE) {
+        if (depth == 0) {
+          return;
+        }
+        if (--depth == 0) {
+          current++;
+          return;
+        }
+      } else if (depth == 0 && type == TokenType.SEMICOLON) {
+        current++;
+        return;
+      } else if (depth == 0 && current > first && startsMember(type)) {
+        return;
+      }
+      current++;
+    }
+  }
+
+  private static boolean startsMember(TokenType type) {
+    return type == TokenType.PUBLIC
+        || type == TokenType.PRIVATE
+        || type == TokenType.STATIC
+        || type == TokenType.VOID
+        || type == TokenType.CLASS;
+  }
+
+  /** Skip to the next class declaration. */
+  private void skipClass(int first) {
+    while (!canAcceptToken(TokenType.EOF)
+        && (current == first || !canAcceptToken(TokenType.CLASS))) {
+      current++;
+    }
+  }
+
   private Statement parseStatement() throws ParseException {
+    int start = offset();
     if (canAcceptToken(TokenType.OPEN_BRACE)) {
-      StatementList statementList = new StatementList();
       acceptToken(TokenType.OPEN_BRACE);
-      while (!canAcceptToken(TokenType.CLOSED_BRACE)) {
-        Statement statement = parseStatement();
-        statementList.add(statement);
-      }
+      StatementList statementList = parseStatements();
       acceptToken(TokenType.CLOSED_BRACE);
-      return new BlockStmt(statementList, token.getTokenPosition());
+      return new BlockStmt(statementList, start);
     } else if (canAcceptToken(TokenType.RETURN)) {
       acceptToken(TokenType.RETURN);
       Expression expression = null;
@@ -143,7 +334,7 @@ public class Parser {
         expression = parseExpression();
       }
       acceptToken(TokenType.SEMICOLON);
-      return new ReturnStmt(expression, token.getTokenPosition());
+      return new ReturnStmt(expression, start);
     } else if (canAcceptToken(TokenType.IF)) {
       acceptToken(TokenType.IF);
       acceptToken(TokenType.OPEN_P);
@@ -153,97 +344,85 @@ public class Parser {
       if (canAcceptToken(TokenType.ELSE)) {
         acceptToken(TokenType.ELSE);
         Statement elseStatement = parseStatement();
-        return new IfStmt(expression, ifStatement, elseStatement, token.getTokenPosition());
+        return new IfStmt(expression, ifStatement, elseStatement, start);
       }
-      return new IfStmt(expression, ifStatement, token.getTokenPosition());
+      return new IfStmt(expression, ifStatement, start);
     } else if (canAcceptToken(TokenType.WHILE)) {
       acceptToken(TokenType.WHILE);
       acceptToken(TokenType.OPEN_P);
       Expression expression = parseExpression();
       acceptToken(TokenType.CLOSED_P);
       Statement statement = parseStatement();
-      return new WhileStmt(expression, statement, token.getTokenPosition());
+      return new WhileStmt(expression, statement, start);
     } else if (canAcceptToken(TokenType.INT) || canAcceptToken(TokenType.BOOLEAN)) {
       TypeDenoter typeDenoter = parseType();
-      String id = token.getTokenText();
+      String id = name(current);
       acceptToken(TokenType.ID);
       acceptToken(TokenType.EQUAL);
       Expression expression = parseExpression();
       acceptToken(TokenType.SEMICOLON);
-      return new VarDeclStmt(
-          new VarDecl(typeDenoter, id, token.getTokenPosition()),
-          expression,
-          token.getTokenPosition());
+      return new VarDeclStmt(new VarDecl(typeDenoter, id, start), expression, start);
     } else if (canAcceptToken(TokenType.THIS)) {
       Reference reference = parseReference();
       return parseStatementBullShit(reference);
     } else if (canAcceptToken(TokenType.ID)) {
-      IdRef idRef = new IdRef(new Identifier(token), token.getTokenPosition());
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
+      IdRef idRef = new IdRef(identifier(current), start);
+      int currentToken = current;
       acceptToken(TokenType.ID);
       if (canAcceptToken(TokenType.PERIOD)) {
-        QualRef qualRef = new QualRef(idRef, new Identifier(token), token.getTokenPosition());
+        Reference reference = idRef;
         while (canAcceptToken(TokenType.PERIOD)) {
           acceptToken(TokenType.PERIOD);
-          qualRef = new QualRef(idRef, new Identifier(token), token.getTokenPosition());
+          reference = new QualRef(reference, identifier(current), start);
           acceptToken(TokenType.ID);
         }
-        return parseStatementBullShit(qualRef);
+        return parseStatementBullShit(reference);
       } else if (canAcceptToken(TokenType.OPEN_BRACKET)) {
         acceptToken(TokenType.OPEN_BRACKET);
         if (canAcceptToken(TokenType.CLOSED_BRACKET)) {
           acceptToken(TokenType.CLOSED_BRACKET);
-          String id = token.getTokenText();
+          String id = name(current);
           acceptToken(TokenType.ID);
           acceptToken(TokenType.EQUAL);
           Expression expression = parseExpression();
           acceptToken(TokenType.SEMICOLON);
           return new VarDeclStmt(
               new VarDecl(
-                  new ArrayType(
-                      new ClassType(new Identifier(currentToken), token.getTokenPosition()),
-                      token.getTokenPosition()),
-                  id,
-                  token.getTokenPosition()),
+                  new ArrayType(new ClassType(identifier(currentToken), start), start), id, start),
               expression,
-              token.getTokenPosition());
+              start);
         } else {
           Expression firstExpression = parseExpression();
           acceptToken(TokenType.CLOSED_BRACKET);
           acceptToken(TokenType.EQUAL);
           Expression secondExpression = parseExpression();
           acceptToken(TokenType.SEMICOLON);
-          return new IxAssignStmt(
-              idRef, firstExpression, secondExpression, token.getTokenPosition());
+          return new IxAssignStmt(idRef, firstExpression, secondExpression, start);
         }
       } else if (canAcceptToken(TokenType.EQUAL)) {
         acceptToken(TokenType.EQUAL);
         Expression expression = parseExpression();
         acceptToken(TokenType.SEMICOLON);
-        return new AssignStmt(idRef, expression, token.getTokenPosition());
+        return new AssignStmt(idRef, expression, start);
       } else if (canAcceptToken(TokenType.OPEN_P)) {
         ExprList exprList = parseOptionalArgumentList();
         acceptToken(TokenType.SEMICOLON);
-        return new CallStmt(idRef, exprList, token.getTokenPosition());
+        return new CallStmt(idRef, exprList, start);
       } else if (canAcceptToken(TokenType.ID)) {
-        String id = token.getTokenText();
+        String id = name(current);
         acceptToken(TokenType.ID);
         acceptToken(TokenType.EQUAL);
         Expression expression = parseExpression();
         acceptToken(TokenType.SEMICOLON);
         return new VarDeclStmt(
-            new VarDecl(
-                new ClassType(new Identifier(currentToken), token.getTokenPosition()),
-                id,
-                token.getTokenPosition()),
+            new VarDecl(new ClassType(identifier(currentToken), start), id, start),
             expression,
-            token.getTokenPosition());
+            start);
       } else {
-        throw new ParseException();
+        throw unexpected("PERIOD, OPEN_BRACKET, EQUAL, OPEN_P or ID");
       }
     } else {
-      throw new ParseException();
+      throw unexpected("statement");
     }
   }
 
@@ -252,7 +431,7 @@ public class Parser {
       acceptToken(TokenType.EQUAL);
       Expression expression = parseExpression();
       acceptToken(TokenType.SEMICOLON);
-      return new AssignStmt(reference, expression, token.getTokenPosition());
+      return new AssignStmt(reference, expression, reference.offset);
     } else if (canAcceptToken(TokenType.OPEN_BRACKET)) {
       acceptToken(TokenType.OPEN_BRACKET);
       Expression firstExpression = parseExpression();
@@ -260,196 +439,98 @@ public class Parser {
       acceptToken(TokenType.EQUAL);
       Expression secondExpression = parseExpression();
       acceptToken(TokenType.SEMICOLON);
-      return new IxAssignStmt(
-          reference, firstExpression, secondExpression, token.getTokenPosition());
+      return new IxAssignStmt(reference, firstExpression, secondExpression, reference.offset);
     } else if (canAcceptToken(TokenType.OPEN_P)) {
       ExprList exprList = parseOptionalArgumentList();
       acceptToken(TokenType.SEMICOLON);
-      return new CallStmt(reference, exprList, token.getTokenPosition());
+      return new CallStmt(reference, exprList, reference.offset);
     } else {
-      throw new ParseException();
+      throw unexpected("EQUAL, OPEN_BRACKET or OPEN_P");
     }
   }
 
   private Expression parseExpression() throws ParseException {
-    return parseDisjunction();
-  }
-
-  private Expression parseUnary() throws ParseException {
-    if (canAcceptToken(TokenType.OPERATOR)
-        && (Objects.equals(token.getTokenText(), "-")
-            || Objects.equals(token.getTokenText(), "!"))) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression nextUnary = parseUnary();
-      return new UnaryExpr(new Operator(currentToken), nextUnary, token.getTokenPosition());
-    } else {
-      return parseNextExpression();
-    }
+    enterExpression();
+    Expression expression = parseBinary(1);
+    expressionDepth--;
+    return expression;
   }
 
-  private Expression parseMultiplicative() throws ParseException {
+  private Expression parseBinary(int minPrecedence) throws ParseException {
     Expression firstExpression = parseUnary();
-    while (canAcceptToken(TokenType.OPERATOR)
-        && (Objects.equals(token.getTokenText(), "/")
-            || Objects.equals(token.getTokenText(), "*"))) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression secondExpression = parseUnary();
-      firstExpression =
-          new BinaryExpr(
-              new Operator(currentToken),
-              firstExpression,
-              secondExpression,
-              token.getTokenPosition());
-    }
-    return firstExpression;
-  }
-
-  private Expression parseAdditive() throws ParseException {
-    Expression firstExpression = parseMultiplicative();
-    while (canAcceptToken(TokenType.OPERATOR)
-        && (Objects.equals(token.getTokenText(), "+")
-            || Objects.equals(token.getTokenText(), "-"))) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression secondExpression = parseMultiplicative();
-      firstExpression =
-          new BinaryExpr(
-              new Operator(currentToken),
-              firstExpression,
-              secondExpression,
-              token.getTokenPosition());
-    }
-    return firstExpression;
-  }
-
-  private Expression parseRelational() throws ParseException {
-    Expression firstExpression = parseAdditive();
-    while (canAcceptToken(TokenType.OPERATOR)
-        && (Objects.equals(token.getTokenText(), "<=")
-            || Objects.equals(token.getTokenText(), ">=")
-            || Objects.equals(token.getTokenText(), ">")
-            || Objects.equals(token.getTokenText(), "<"))) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression secondExpression = parseAdditive();
-      firstExpression =
-          new BinaryExpr(
-              new Operator(currentToken),
-              firstExpression,
-              secondExpression,
-              token.getTokenPosition());
-    }
-    return firstExpression;
-  }
-
-  private Expression parseEquality() throws ParseException {
-    Expression firstExpression = parseRelational();
-    while (canAcceptToken(TokenType.OPERATOR)
-        && (Objects.equals(token.getTokenText(), "==")
-            || Objects.equals(token.getTokenText(), "!="))) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression secondExpression = parseRelational();
+    OperatorKind kind = OperatorKind.fromTokenType(tokens.getType(current));
+    while (kind != null && kind.binaryPrecedence >= minPrecedence) {
+      Operator operator = acceptOperator();
+      Expression secondExpression = parseBinary(kind.binaryPrecedence + 1);
       firstExpression =
-          new BinaryExpr(
-              new Operator(currentToken),
-              firstExpression,
-              secondExpression,
-              token.getTokenPosition());
+          new BinaryExpr(operator, firstExpression, secondExpression, firstExpression.offset);
+      kind = OperatorKind.fromTokenType(tokens.getType(current));
     }
     return firstExpression;
   }
 
-  private Expression parseConjunction() throws ParseException {
-    Expression firstExpression = parseEquality();
-    while (canAcceptToken(TokenType.OPERATOR) && Objects.equals(token.getTokenText(), "&&")) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression secondExpression = parseEquality();
-      firstExpression =
-          new BinaryExpr(
-              new Operator(currentToken),
-              firstExpression,
-              secondExpression,
-              token.getTokenPosition());
+  private Expression parseUnary() throws ParseException {
+    if (canAcceptToken(TokenType.MINUS) || canAcceptToken(TokenType.NOT)) {
+      int start = offset();
+      Operator operator = acceptOperator();
+      enterExpression();
+      Expression nextUnary = parseUnary();
+      expressionDepth--;
+      return new UnaryExpr(operator, nextUnary, start);
+    } else {
+      return parseNextExpression();
     }
-    return firstExpression;
   }
 
-  private Expression parseDisjunction() throws ParseException {
-    Expression firstExpression = parseConjunction();
-    while (canAcceptToken(TokenType.OPERATOR) && Objects.equals(token.getTokenText(), "||")) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
-      acceptToken(TokenType.OPERATOR);
-      Expression secondExpression = parseConjunction();
-      firstExpression =
-          new BinaryExpr(
-              new Operator(currentToken),
-              firstExpression,
-              secondExpression,
-              token.getTokenPosition());
+  private void enterExpression() throws ParseException {
+    if (++expressionDepth > MAX_EXPRESSION_DEPTH) {
+      throw new ParseException("expression nested deeper than " + MAX_EXPRESSION_DEPTH);
     }
-    return firstExpression;
   }
 
   private Expression parseNextExpression() throws ParseException {
+    int start = offset();
     if (canAcceptToken(TokenType.NEW)) {
       acceptToken(TokenType.NEW);
       if (canAcceptToken(TokenType.ID)) {
-        Token currentToken =
-            new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
+        int currentToken = current;
         acceptToken(TokenType.ID);
         if (canAcceptToken(TokenType.OPEN_P)) {
           acceptToken(TokenType.OPEN_P);
           acceptToken(TokenType.CLOSED_P);
           return new NewObjectExpr(
-              new ClassType(new Identifier(currentToken), token.getTokenPosition()),
-              token.getTokenPosition());
+              new ClassType(identifier(currentToken), tokens.getStart(currentToken)), start);
         } else if (canAcceptToken(TokenType.OPEN_BRACKET)) {
           acceptToken(TokenType.OPEN_BRACKET);
           Expression expression = parseExpression();
           acceptToken(TokenType.CLOSED_BRACKET);
           return new NewArrayExpr(
-              new ClassType(new Identifier(currentToken), token.getTokenPosition()),
+              new ClassType(identifier(currentToken), tokens.getStart(currentToken)),
               expression,
-              token.getTokenPosition());
+              start);
         } else {
-          throw new ParseException();
+          throw unexpected("OPEN_P or OPEN_BRACKET");
         }
       } else if (canAcceptToken(TokenType.INT)) {
+        int typeStart = offset();
         acceptToken(TokenType.INT);
         acceptToken(TokenType.OPEN_BRACKET);
         Expression expression = parseExpression();
         acceptToken(TokenType.CLOSED_BRACKET);
-        return new NewArrayExpr(
-            new BaseType(TypeKind.INT, token.getTokenPosition()),
-            expression,
-            token.getTokenPosition());
+        return new NewArrayExpr(new BaseType(TypeKind.INT, typeStart), expression, start);
       }
     } else if (canAcceptToken(TokenType.INT_LITERAL)) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
+      int currentToken = current;
       acceptToken(TokenType.INT_LITERAL);
-      return new LiteralExpr(new IntLiteral(currentToken), token.getTokenPosition());
+      return new LiteralExpr(intLiteral(currentToken), start);
     } else if (canAcceptToken(TokenType.TRUE)) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
+      int currentToken = current;
       acceptToken(TokenType.TRUE);
-      return new LiteralExpr(new BooleanLiteral(currentToken), token.getTokenPosition());
+      return new LiteralExpr(booleanLiteral(currentToken), start);
     } else if (canAcceptToken(TokenType.FALSE)) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
+      int currentToken = current;
       acceptToken(TokenType.FALSE);
-      return new LiteralExpr(new BooleanLiteral(currentToken), token.getTokenPosition());
+      return new LiteralExpr(booleanLiteral(currentToken), start);
     } else if (canAcceptToken(TokenType.OPEN_P)) {
       acceptToken(TokenType.OPEN_P);
       Expression expression = parseExpression();
@@ -461,15 +542,15 @@ public class Parser {
         acceptToken(TokenType.OPEN_BRACKET);
         Expression expression = parseExpression();
         acceptToken(TokenType.CLOSED_BRACKET);
-        return new IxExpr(reference, expression, token.getTokenPosition());
+        return new IxExpr(reference, expression, start);
       } else if (canAcceptToken(TokenType.OPEN_P)) {
         ExprList exprList = parseOptionalArgumentList();
-        return new CallExpr(reference, exprList, token.getTokenPosition());
+        return new CallExpr(reference, exprList, start);
       } else {
-        return new RefExpr(reference, token.getTokenPosition());
+        return new RefExpr(reference, start);
       }
     } else {
-      throw new ParseException();
+      throw unexpected("expression");
     }
     return null;
   }
@@ -479,15 +560,15 @@ public class Parser {
     acceptToken(TokenType.OPEN_P);
     while (!canAcceptToken(TokenType.CLOSED_P)) {
       TypeDenoter typeDenoter = parseType();
-      String memberName = token.getTokenText();
+      String memberName = name(current);
       acceptToken(TokenType.ID);
-      parameterDeclList.add(new ParameterDecl(typeDenoter, memberName, token.getTokenPosition()));
+      parameterDeclList.add(new ParameterDecl(typeDenoter, memberName, typeDenoter.offset));
       while (canAcceptToken(TokenType.COMMA)) {
         acceptToken(TokenType.COMMA);
         TypeDenoter nextTypeDenoter = parseType();
-        String nextMemberName = token.getTokenText();
+        String nextMemberName = name(current);
         parameterDeclList.add(
-            new ParameterDecl(nextTypeDenoter, nextMemberName, token.getTokenPosition()));
+            new ParameterDecl(nextTypeDenoter, nextMemberName, nextTypeDenoter.offset));
         acceptToken(TokenType.ID);
       }
     }
@@ -512,50 +593,48 @@ public class Parser {
   }
 
   private Reference parseReference() throws ParseException {
+    int start = offset();
     Reference reference = null;
     if (canAcceptToken(TokenType.ID)) {
-      reference = new IdRef(new Identifier(token), token.getTokenPosition());
+      reference = new IdRef(identifier(current), start);
       acceptToken(TokenType.ID);
     } else if (canAcceptToken(TokenType.THIS)) {
-      reference = new ThisRef(token.getTokenPosition());
+      reference = new ThisRef(start);
       acceptToken(TokenType.THIS);
     }
 
     while (canAcceptToken(TokenType.PERIOD)) {
       acceptToken(TokenType.PERIOD);
-      reference = new QualRef(reference, new Identifier(token), token.getTokenPosition());
+      reference = new QualRef(reference, identifier(current), start);
       acceptToken(TokenType.ID);
     }
     return reference;
   }
 
   private TypeDenoter parseType() throws ParseException {
+    int start = offset();
     if (canAcceptToken(TokenType.INT)) {
       acceptToken(TokenType.INT);
       if (canAcceptToken(TokenType.OPEN_BRACKET)) {
         acceptToken(TokenType.OPEN_BRACKET);
         acceptToken(TokenType.CLOSED_BRACKET);
-        return new ArrayType(
-            new BaseType(TypeKind.INT, token.getTokenPosition()), token.getTokenPosition());
+        return new ArrayType(new BaseType(TypeKind.INT, start), start);
       }
-      return new BaseType(TypeKind.INT, token.getTokenPosition());
+      return new BaseType(TypeKind.INT, start);
     } else if (canAcceptToken(TokenType.BOOLEAN)) {
       acceptToken(TokenType.BOOLEAN);
-      return new BaseType(TypeKind.BOOLEAN, token.getTokenPosition());
+      return new BaseType(TypeKind.BOOLEAN, start);
     } else if (canAcceptToken(TokenType.ID)) {
-      Token currentToken =
-          new Token(token.getTokenType(), token.getTokenText(), token.getTokenPosition());
+      int currentToken = current;
       acceptToken(TokenType.ID);
       if (canAcceptToken(TokenType.OPEN_BRACKET)) {
         acceptToken(TokenType.OPEN_BRACKET);
         acceptToken(TokenType.CLOSED_BRACKET);
-        return new ArrayType(
-            new ClassType(new Identifier(currentToken), token.getTokenPosition()),
-            token.getTokenPosition());
+        return new ArrayType(new ClassType(identifier(currentToken), start), start);
       }
-      return new ClassType(new Identifier(currentToken), token.getTokenPosition());
+      return new ClassType(identifier(currentToken), start);
     } else {
-      throw new ParseException();
+      throw unexpected("type");
     }
   }
 
@@ -567,16 +646,51 @@ public class Parser {
     return false;
   }
 
+  private String name(int index) {
+    return names.getName(tokens.intern(index, names));
+  }
+
+  private Identifier identifier(int index) {
+    int symbol = tokens.intern(index, names);
+    return new Identifier(
+        tokens.getType(index), names.getName(symbol), symbol, tokens.getStart(index));
+  }
+
+  private Operator acceptOperator() throws ParseException {
+    TokenType type = tokens.getType(current);
+    int start = offset();
+    acceptToken(type);
+    return new Operator(type, type.getSpelling(), OperatorKind.fromTokenType(type), start);
+  }
+
+  private IntLiteral intLiteral(int index) {
+    return new IntLiteral(tokens.getType(index), tokens.getText(index), tokens.getStart(index));
+  }
+
+  private BooleanLiteral booleanLiteral(int index) {
+    return new BooleanLiteral(tokens.getType(index), tokens.getText(index), tokens.getStart(index));
+  }
+
+  private int offset() {
+    return tokens.getStart(current);
+  }
+
   private boolean canAcceptToken(TokenType expectedType) {
-    return token.getTokenType() == expectedType;
+    return tokens.getType(current) == expectedType;
   }
 
   private void acceptToken(TokenType expectedType) throws ParseException {
     if (canAcceptToken(expectedType)) {
-      token = scanner.scan();
+      if (current < tokens.size() - 1) {
+        current++;
+      }
     } else {
-      throw new ParseException(
-          String.format("expected %s but got %s", expectedType, token.getTokenType()));
+      throw unexpected(expectedType.toString());
     }
   }
+
+  private ParseException unexpected(String expected) {
+    return new ParseException(
+        String.format("expected %s but got %s", expected, tokens.getType(current)));
+  }
 }
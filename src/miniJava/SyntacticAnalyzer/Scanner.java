@@ -6,102 +6,95 @@ import java.io.IOException;
 import java.io.InputStream;
 
 public class Scanner {
-  InputStream in;
+  SourceBuffer source;
+  int offset = -1;
+  int tokenStart;
   ErrorReporter reporter;
   char currentChar;
   boolean eof = false;
-  SourcePosition position;
 
   static final char eolUnix = '\n';
   static final char eolWindows = '\r';
 
-  public Scanner(
-      InputStream inputStream, ErrorReporter errorReporter, SourcePosition sourcePosition) {
-    in = inputStream;
+  public Scanner(InputStream inputStream, ErrorReporter errorReporter) {
+    this(readStream(inputStream), errorReporter);
+  }
+
+  public Scanner(SourceBuffer sourceBuffer, ErrorReporter errorReporter) {
+    this(sourceBuffer, 0, sourceBuffer.length(), errorReporter);
+  }
+
+  /** Scan only the characters in [start, end); token offsets stay relative to the whole buffer. */
+  public Scanner(SourceBuffer sourceBuffer, int start, int end, ErrorReporter errorReporter) {
+    source = end < sourceBuffer.length() ? sourceBuffer.truncate(end) : sourceBuffer;
+    offset = start - 1;
     reporter = errorReporter;
-    position = sourcePosition;
     nextChar();
   }
 
   public Token scan() {
+    TokenType type = scanToken();
+    return new Token(type, tokenText(type, tokenStart, offset), tokenStart);
+  }
+
+  public TokenBuffer scanAll() {
+    TokenBuffer tokens = new TokenBuffer(source);
+    TokenType type;
+    do {
+      type = scanToken();
+      tokens.add(type, tokenStart, offset - tokenStart);
+    } while (type != TokenType.EOF);
+    return tokens;
+  }
+
+  private TokenType scanToken() {
     while (isWhiteSpace()) {
       if (eof) {
-        return new Token(TokenType.EOF, "", position);
+        return TokenType.EOF;
       }
       nextChar();
     }
-    StringBuilder builder = new StringBuilder();
+    tokenStart = offset;
     if (isLetter()) {
       while (isLetter() || isDigit()) {
-        builder.append(currentChar);
         nextChar();
       }
-      switch (builder.toString()) {
-        case "class":
-          return new Token(TokenType.CLASS, "class", position);
-        case "void":
-          return new Token(TokenType.VOID, "void", position);
-        case "public":
-          return new Token(TokenType.PUBLIC, "public", position);
-        case "private":
-          return new Token(TokenType.PRIVATE, "private", position);
-        case "static":
-          return new Token(TokenType.STATIC, "static", position);
-        case "int":
-          return new Token(TokenType.INT, "int", position);
-        case "boolean":
-          return new Token(TokenType.BOOLEAN, "boolean", position);
-        case "this":
-          return new Token(TokenType.THIS, "this", position);
-        case "true":
-          return new Token(TokenType.TRUE, "true", position);
-        case "false":
-          return new Token(TokenType.FALSE, "false", position);
-        case "new":
-          return new Token(TokenType.NEW, "new", position);
-        case "return":
-          return new Token(TokenType.RETURN, "return", position);
-        case "if":
-          return new Token(TokenType.IF, "if", position);
-        case "else":
-          return new Token(TokenType.ELSE, "else", position);
-        case "while":
-          return new Token(TokenType.WHILE, "while", position);
-        default:
-          char firstChar = builder.charAt(0);
-          if (firstChar == '_' || ('0' <= firstChar && firstChar <= '9')) {
-            return new Token(TokenType.ERROR, "", position);
-          } else {
-            return new Token(TokenType.ID, builder.toString(), position);
-          }
+      TokenType keyword = Keywords.lookup(source, tokenStart, offset);
+      if (keyword != null) {
+        return keyword;
+      }
+      int firstChar = source.charAt(tokenStart);
+      if (firstChar == '_' || ('0' <= firstChar && firstChar <= '9')) {
+        return TokenType.ERROR;
+      } else {
+        return TokenType.ID;
       }
     } else if (isDigit()) {
       while (isDigit()) {
-        builder.append(currentChar);
         nextChar();
       }
-      return new Token(TokenType.INT_LITERAL, builder.toString(), position);
+      return TokenType.INT_LITERAL;
     } else {
       switch (currentChar) {
         case ';':
           nextChar();
-          return new Token(TokenType.SEMICOLON, ";", position);
+          return TokenType.SEMICOLON;
         case '.':
           nextChar();
-          return new Token(TokenType.PERIOD, ".", position);
+          return TokenType.PERIOD;
         case ',':
           nextChar();
-          return new Token(TokenType.COMMA, ",", position);
+          return TokenType.COMMA;
         case '/':
           nextChar();
           if (currentChar == '/') {
             while (currentChar != eolUnix && currentChar != eolWindows) {
               if (eof) {
-                return new Token(TokenType.EOF, "", position);
+                return TokenType.EOF;
               }
               nextChar();
             }
-            return scan();
+            return scanToken();
           } else if (currentChar == '*') {
             nextChar();
             while (!eof) {
@@ -109,90 +102,91 @@ public class Scanner {
                 nextChar();
                 if (currentChar == '/') {
                   nextChar();
-                  return scan();
+                  return scanToken();
                 }
               } else {
                 nextChar();
               }
             }
-            return new Token(TokenType.ERROR, "", position);
+            return TokenType.ERROR;
           } else {
-            return new Token(TokenType.OPERATOR, "/", position);
+            return TokenType.DIVIDE;
           }
         case '+':
           nextChar();
-          return new Token(TokenType.OPERATOR, "+", position);
+          return TokenType.PLUS;
         case '-':
           nextChar();
-          return new Token(TokenType.OPERATOR, "-", position);
+          return TokenType.MINUS;
         case '*':
           nextChar();
-          return new Token(TokenType.OPERATOR, "*", position);
+          return TokenType.TIMES;
         case '&':
           nextChar();
           if (currentChar == '&') {
             nextChar();
-            return new Token(TokenType.OPERATOR, "&&", position);
+            return TokenType.AND;
           }
-          return new Token(TokenType.ERROR, "", position);
+          return TokenType.ERROR;
         case '|':
           nextChar();
           if (currentChar == '|') {
             nextChar();
-            return new Token(TokenType.OPERATOR, "||", position);
+            return TokenType.OR;
           }
-          return new Token(TokenType.ERROR, "", position);
+          return TokenType.ERROR;
         case '!':
           nextChar();
           if (currentChar == '=') {
             nextChar();
-            return new Token(TokenType.OPERATOR, "!=", position);
+            return TokenType.NOT_EQUAL;
           }
-          return new Token(TokenType.OPERATOR, "!", position);
+          return TokenType.NOT;
         case '>':
           nextChar();
           if (currentChar == '=') {
             nextChar();
-            return new Token(TokenType.OPERATOR, ">=", position);
+            return TokenType.GREATER_EQUAL;
           }
-          return new Token(TokenType.OPERATOR, ">", position);
+          return TokenType.GREATER_THAN;
         case '<':
           nextChar();
           if (currentChar == '=') {
             nextChar();
-            return new Token(TokenType.OPERATOR, "<=", position);
+            return TokenType.LESS_EQUAL;
           }
-          return new Token(TokenType.OPERATOR, "<", position);
+          return TokenType.LESS_THAN;
         case '=':
           nextChar();
           if (currentChar == '=') {
             nextChar();
-            return new Token(TokenType.OPERATOR, "==", position);
+            return TokenType.EQUAL_EQUAL;
           }
-          return new Token(TokenType.EQUAL, "=", position);
+          return TokenType.EQUAL;
         case '{':
           nextChar();
-          return new Token(TokenType.OPEN_BRACE, "{", position);
+          return TokenType.OPEN_BRACE;
         case '}':
           nextChar();
-          return new Token(TokenType.CLOSED_BRACE, "}", position);
+          return TokenType.CLOSED_BRACE;
         case '(':
           nextChar();
-          return new Token(TokenType.OPEN_P, "(", position);
+          return TokenType.OPEN_P;
         case ')':
           nextChar();
-          return new Token(TokenType.CLOSED_P, ")", position);
+          return TokenType.CLOSED_P;
         case '[':
           nextChar();
-          return new Token(TokenType.OPEN_BRACKET, "[", position);
+          return TokenType.OPEN_BRACKET;
         case ']':
           nextChar();
-          return new Token(TokenType.CLOSED_BRACKET, "]", position);
+          return TokenType.CLOSED_BRACKET;
         default:
           if (eof) {
-            return new Token(TokenType.EOF, "", position);
+            return TokenType.EOF;
           }
-          return new Token(TokenType.ERROR, "", position);
+          nextChar();
+          return TokenType.ERROR;
       }
     }
   }
@@ -213,20 +207,29 @@ public class Scanner {
         || currentChar == eolWindows;
   }
 
-  private void nextChar() {
+  private static SourceBuffer readStream(InputStream inputStream) {
     try {
-      int c = in.read();
-      currentChar = (char) c;
-      if (c == -1) {
-        eof = true;
-      }
-
-      if (c == '\n') {
-        position.incrementRow();
-      }
-      position.incrementRow();
+      return SourceBuffer.fromStream(inputStream);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
+
+  String tokenText(TokenType type, int start, int end) {
+    if (type.getSpelling() != null) {
+      return type.getSpelling();
+    }
+    return source.substring(start, end);
+  }
+
+  private void nextChar() {
+    if (!eof) {
+      offset++;
+    }
+    int c = source.charAt(offset);
+    currentChar = (char) c;
+    if (c == SourceBuffer.EOF) {
+      eof = true;
+    }
+  }
 }
@@ -0,0 +1,107 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+public class SourceBuffer {
+  public static final int EOF = -1;
+
+  static final int STREAM_CHUNK_SIZE = 1 << 16;
+
+  ByteBuffer buffer;
+  int length;
+
+  SourceBuffer(ByteBuffer byteBuffer, int bufferLength) {
+    buffer = byteBuffer;
+    length = bufferLength;
+  }
+
+  public static SourceBuffer fromFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("source file too large: " + path);
+      }
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new SourceBuffer(mapped, (int) size);
+    }
+  }
+
+  public static SourceBuffer fromStream(InputStream inputStream) throws IOException {
+    ReadableByteChannel channel = Channels.newChannel(inputStream);
+    ByteBuffer bytes = ByteBuffer.allocate(STREAM_CHUNK_SIZE);
+    while (channel.read(bytes) != -1) {
+      if (!bytes.hasRemaining()) {
+        ByteBuffer grown = ByteBuffer.allocate(bytes.capacity() * 2);
+        bytes.flip();
+        grown.put(bytes);
+        bytes = grown;
+      }
+    }
+    return new SourceBuffer(bytes, bytes.position());
+  }
+
+  /**
+   * @return a copy of this source with the characters in [start, end) replaced
+   */
+  public SourceBuffer edit(int start, int end, String replacement) {
+    byte[] inserted = replacement.getBytes(StandardCharsets.ISO_8859_1);
+    ByteBuffer bytes = ByteBuffer.allocate(length - (end - start) + inserted.length);
+    bytes.put(buffer.duplicate().position(0).limit(start));
+    bytes.put(inserted);
+    bytes.put(buffer.duplicate().position(end).limit(length));
+    return new SourceBuffer(bytes, bytes.capacity());
+  }
+
+  /**
+   * @return a view of this source that ends at the given offset
+   */
+  SourceBuffer truncate(int end) {
+    return new SourceBuffer(buffer, Math.min(end, length));
+  }
+
+  public int charAt(int index) {
+    if (index >= length) {
+      return EOF;
+    }
+    return buffer.get(index) & 0xFF;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public String substring(int start, int end) {
+    char[] chars = new char[end - start];
+    for (int i = start; i < end; i++) {
+      chars[i - start] = (char) (buffer.get(i) & 0xFF);
+    }
+    return new String(chars);
+  }
+
+  public void update(MessageDigest digest) {
+    ByteBuffer bytes = buffer.duplicate();
+    bytes.position(0).limit(length);
+    digest.update(bytes);
+  }
+
+  public boolean regionMatches(int start, int end, String text) {
+    if (end - start != text.length()) {
+      return false;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (charAt(start + i) != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
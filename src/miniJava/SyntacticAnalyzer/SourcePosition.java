@@ -16,14 +16,6 @@ public class SourcePosition {
     return col;
   }
 
-  public void incrementRow() {
-    row += 1;
-  }
-
-  public void incrementColumn() {
-    col += 1;
-  }
-
   public String toString() {
     return "position " + row + "," + col;
   }
@@ -3,12 +3,12 @@ package miniJava.SyntacticAnalyzer;
 public class Token {
   TokenType type;
   String text;
-  SourcePosition position;
+  int offset;
 
-  public Token(TokenType tokenType, String tokenText, SourcePosition sourcePosition) {
+  public Token(TokenType tokenType, String tokenText, int tokenOffset) {
     type = tokenType;
     text = tokenText;
-    position = sourcePosition;
+    offset = tokenOffset;
   }
 
   public TokenType getTokenType() {
@@ -19,7 +19,7 @@ public class Token {
     return text;
   }
 
-  public SourcePosition getTokenPosition() {
-    return position;
+  public int getTokenOffset() {
+    return offset;
   }
 }
@@ -0,0 +1,71 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.NameTable;
+
+import java.util.Arrays;
+
+public class TokenBuffer {
+  static final int INITIAL_CAPACITY = 1024;
+
+  SourceBuffer source;
+  int[] kinds;
+  int[] starts;
+  int[] lengths;
+  int size = 0;
+
+  public TokenBuffer(SourceBuffer sourceBuffer) {
+    source = sourceBuffer;
+    kinds = new int[INITIAL_CAPACITY];
+    starts = new int[INITIAL_CAPACITY];
+    lengths = new int[INITIAL_CAPACITY];
+  }
+
+  public void add(TokenType type, int start, int length) {
+    if (size == kinds.length) {
+      int capacity = size * 2;
+      kinds = Arrays.copyOf(kinds, capacity);
+      starts = Arrays.copyOf(starts, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+    }
+    kinds[size] = type.ordinal();
+    starts[size] = start;
+    lengths[size] = length;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public TokenType getType(int index) {
+    return TokenType.VALUES[kinds[index]];
+  }
+
+  public int getStart(int index) {
+    return starts[index];
+  }
+
+  public int getLength(int index) {
+    return lengths[index];
+  }
+
+  public SourceBuffer getSource() {
+    return source;
+  }
+
+  public String getText(int index) {
+    TokenType type = getType(index);
+    if (type.getSpelling() != null) {
+      return type.getSpelling();
+    }
+    return source.substring(starts[index], starts[index] + lengths[index]);
+  }
+
+  public int intern(int index, NameTable names) {
+    TokenType type = getType(index);
+    if (type.getSpelling() != null) {
+      return names.intern(type.getSpelling());
+    }
+    return names.intern(source, starts[index], starts[index] + lengths[index]);
+  }
+}
@@ -1,34 +1,58 @@
 package miniJava.SyntacticAnalyzer;
 
 public enum TokenType {
-  CLASS,
-  VOID,
-  PUBLIC,
-  PRIVATE,
-  STATIC,
-  INT,
-  BOOLEAN,
-  THIS,
-  TRUE,
-  FALSE,
-  NEW,
-  ID,
-  RETURN,
-  IF,
-  ELSE,
-  WHILE,
-  OPEN_P,
-  CLOSED_P,
-  OPEN_BRACE,
-  CLOSED_BRACE,
-  COMMA,
-  SEMICOLON,
-  OPEN_BRACKET,
-  CLOSED_BRACKET,
-  OPERATOR,
-  INT_LITERAL,
-  PERIOD,
-  EOF,
-  EQUAL,
-  ERROR;
+  CLASS("class"),
+  VOID("void"),
+  PUBLIC("public"),
+  PRIVATE("private"),
+  STATIC("static"),
+  INT("int"),
+  BOOLEAN("boolean"),
+  THIS("this"),
+  TRUE("true"),
+  FALSE("false"),
+  NEW("new"),
+  ID(null),
+  RETURN("return"),
+  IF("if"),
+  ELSE("else"),
+  WHILE("while"),
+  OPEN_P("("),
+  CLOSED_P(")"),
+  OPEN_BRACE("{"),
+  CLOSED_BRACE("}"),
+  COMMA(","),
+  SEMICOLON(";"),
+  OPEN_BRACKET("["),
+  CLOSED_BRACKET("]"),
+  PLUS("+"),
+  MINUS("-"),
+  TIMES("*"),
+  DIVIDE("/"),
+  NOT("!"),
+  AND("&&"),
+  OR("||"),
+  LESS_THAN("<"),
+  LESS_EQUAL("<="),
+  GREATER_THAN(">"),
+  GREATER_EQUAL(">="),
+  EQUAL_EQUAL("=="),
+  NOT_EQUAL("!="),
+  INT_LITERAL(null),
+  PERIOD("."),
+  EOF(""),
+  EQUAL("="),
+  ERROR("");
+
+  static final TokenType[] VALUES = values();
+
+  final String spelling;
+
+  TokenType(String tokenSpelling) {
+    spelling = tokenSpelling;
+  }
+
+  public String getSpelling() {
+    return spelling;
+  }
 }
@@ -0,0 +1,46 @@
+#!/bin/sh
+# Compiles each program in test/programs to a native executable with
+# -native, runs it and checks that it prints what -interpret prints.
+# After a runtime error the executable must also exit with status 1.
+#
+# Run `mvn compile` first; CLASSES overrides the class path used.
+# Prints one line per program and exits with status 1 if any failed.
+
+set -u
+
+dir=$(cd "$(dirname "$0")" && pwd)
+classes=${CLASSES:-$dir/../target/classes}
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+failed=0
+for program in "$dir"/programs/*.java; do
+  name=$(basename "$program" .java)
+  java -cp "$classes" miniJava.Compiler -interpret "$program" >"$work/$name.expected"
+  if grep -q '^miniJava.Execution.ExecutionError' "$work/$name.expected"; then
+    status=1
+  else
+    status=0
+  fi
+
+  if ! java -cp "$classes" miniJava.Compiler -native "$work/$name" "$program" >"$work/$name.log" 2>&1; then
+    echo "FAIL $name: -native did not compile it"
+    cat "$work/$name.log"
+    failed=1
+    continue
+  fi
+  "$work/$name" >"$work/$name.actual"
+  actual=$?
+
+  if ! diff -u "$work/$name.expected" "$work/$name.actual" >"$work/$name.diff"; then
+    echo "FAIL $name: output differs from -interpret"
+    cat "$work/$name.diff"
+    failed=1
+  elif [ "$actual" -ne "$status" ]; then
+    echo "FAIL $name: exit status $actual, expected $status"
+    failed=1
+  else
+    echo "ok   $name"
+  fi
+done
+exit $failed
@@ -0,0 +1,13 @@
+class Arithmetic {
+  public static void main(String[] args) {
+    System.out.println(10 / 3);
+    System.out.println(-10 / 3);
+    System.out.println((0 - 2147483647 - 1) / (0 - 1));
+    System.out.println(2147483647 + 1);
+    boolean b = 3 < 4 && !(5 == 6);
+    if (b) System.out.println(1);
+    else System.out.println(0);
+    int zero = 0;
+    System.out.println(7 / zero);
+  }
+}
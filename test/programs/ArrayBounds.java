@@ -0,0 +1,12 @@
+class ArrayBounds {
+  public static void main(String[] args) {
+    int[] a = new int[4];
+    int i = 0;
+    while (i < a.length) {
+      a[i] = i * i;
+      i = i + 1;
+    }
+    System.out.println(a[3]);
+    System.out.println(a[4]);
+  }
+}
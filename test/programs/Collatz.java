@@ -0,0 +1,18 @@
+class Collatz {
+  public static void main(String[] args) {
+    int longest = 0;
+    int start = 1;
+    while (start < 30000) {
+      int steps = 0;
+      int x = start;
+      while (x != 1) {
+        if (x - x / 2 * 2 == 0) x = x / 2;
+        else x = 3 * x + 1;
+        steps = steps + 1;
+      }
+      if (steps > longest) longest = steps;
+      start = start + 1;
+    }
+    System.out.println(longest);
+  }
+}
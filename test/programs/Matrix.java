@@ -0,0 +1,36 @@
+class Matrix {
+  public static void main(String[] args) {
+    int n = 60;
+    int[] a = new int[n * n];
+    int[] b = new int[n * n];
+    int[] c = new int[n * n];
+    int i = 0;
+    while (i < n * n) {
+      a[i] = i / 7 - 3;
+      b[i] = 5 - i / 11;
+      i = i + 1;
+    }
+    i = 0;
+    while (i < n) {
+      int j = 0;
+      while (j < n) {
+        int sum = 0;
+        int k = 0;
+        while (k < n) {
+          sum = sum + a[i * n + k] * b[k * n + j];
+          k = k + 1;
+        }
+        c[i * n + j] = sum;
+        j = j + 1;
+      }
+      i = i + 1;
+    }
+    int check = 0;
+    i = 0;
+    while (i < n * n) {
+      check = check + c[i] / 13;
+      i = i + 1;
+    }
+    System.out.println(check);
+  }
+}
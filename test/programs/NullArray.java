@@ -0,0 +1,13 @@
+class NullArray {
+  int[] xs;
+
+  static int f(int x) {
+    System.out.println(x);
+    return x;
+  }
+
+  public static void main(String[] args) {
+    NullArray e = new NullArray();
+    e.xs[f(3)] = f(4);
+  }
+}
@@ -0,0 +1,14 @@
+class NullReceiver {
+  NullReceiver n;
+  int v;
+
+  public static void main(String[] args) {
+    NullReceiver m = new NullReceiver();
+    m.n.v = m.p(7);
+  }
+
+  int p(int x) {
+    System.out.println(x);
+    return x;
+  }
+}
@@ -0,0 +1,73 @@
+class Objects {
+  public static void main(String[] args) {
+    Tree t = new Tree();
+    t.init();
+    int seed = 7;
+    int i = 0;
+    while (i < 20000) {
+      seed = seed * 1103515245 + 12345;
+      t.insert(seed / 65536);
+      i = i + 1;
+    }
+    System.out.println(t.size);
+    System.out.println(t.depth(t.root));
+  }
+}
+
+class Node {
+  int key;
+  Node left;
+  Node right;
+  boolean hasLeft;
+  boolean hasRight;
+}
+
+class Tree {
+  Node root;
+  int size;
+  boolean empty;
+
+  void init() {
+    empty = true;
+    size = 0;
+  }
+
+  void insert(int key) {
+    Node n = new Node();
+    n.key = key;
+    size = size + 1;
+    if (empty) {
+      root = n;
+      empty = false;
+      return;
+    }
+    Node cur = root;
+    boolean done = false;
+    while (!done) {
+      if (key < cur.key) {
+        if (cur.hasLeft) cur = cur.left;
+        else {
+          cur.left = n;
+          cur.hasLeft = true;
+          done = true;
+        }
+      } else {
+        if (cur.hasRight) cur = cur.right;
+        else {
+          cur.right = n;
+          cur.hasRight = true;
+          done = true;
+        }
+      }
+    }
+  }
+
+  int depth(Node n) {
+    int l = 0;
+    int r = 0;
+    if (n.hasLeft) l = depth(n.left);
+    if (n.hasRight) r = depth(n.right);
+    if (l > r) return l + 1;
+    return r + 1;
+  }
+}
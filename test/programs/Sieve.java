@@ -0,0 +1,20 @@
+class Sieve {
+  public static void main(String[] args) {
+    int n = 200000;
+    int[] composite = new int[n + 1];
+    int count = 0;
+    int i = 2;
+    while (i <= n) {
+      if (composite[i] == 0) {
+        count = count + 1;
+        int j = i + i;
+        while (j <= n) {
+          composite[j] = 1;
+          j = j + i;
+        }
+      }
+      i = i + 1;
+    }
+    System.out.println(count);
+  }
+}
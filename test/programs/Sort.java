@@ -0,0 +1,28 @@
+class Sort {
+  public static void main(String[] args) {
+    int n = 1500;
+    int[] data = new int[n];
+    int seed = 12345;
+    int i = 0;
+    while (i < n) {
+      seed = seed * 1103515245 + 12345;
+      data[i] = seed / 65536;
+      i = i + 1;
+    }
+    i = 0;
+    while (i < n) {
+      int j = 0;
+      while (j < n - 1 - i) {
+        if (data[j] > data[j + 1]) {
+          int t = data[j];
+          data[j] = data[j + 1];
+          data[j + 1] = t;
+        }
+        j = j + 1;
+      }
+      i = i + 1;
+    }
+    System.out.println(data[0]);
+    System.out.println(data[n - 1]);
+  }
+}